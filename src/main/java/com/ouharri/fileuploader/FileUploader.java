@@ -1,13 +1,17 @@
 package com.ouharri.fileuploader;
 
+import com.ouharri.fileuploader.aot.FileUploaderRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 /**
  * The main class for the File Uploader application.
  * This class contains the main method to start the Spring Boot application.
+ * It is AOT-processed by the {@code aot} and {@code native} Maven profiles, the latter building a native image.
  */
 @SpringBootApplication
+@ImportRuntimeHints(FileUploaderRuntimeHints.class)
 public class FileUploader {
 
     /**
@@ -0,0 +1,63 @@
+package com.ouharri.fileuploader.aot;
+
+import com.ouharri.fileuploader.cache.FileChangeEvent;
+import com.ouharri.fileuploader.entity.AbstractEntity;
+import com.ouharri.fileuploader.entity.FileChunk;
+import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.entity.FileStats;
+import com.ouharri.fileuploader.entity.FileVersion;
+import com.ouharri.fileuploader.entity.PayloadStorage;
+import com.ouharri.fileuploader.entity.UnversionedTransientInterceptor;
+import com.ouharri.fileuploader.idempotency.IdempotentResponse;
+import com.ouharri.fileuploader.message.*;
+import com.ouharri.fileuploader.repository.projection.FileSummary;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.ArrayList;
+
+/**
+ * Hints for the native image on what the application reaches by reflection or loads as a resource:
+ * the entities, which Hibernate instantiates and the Redis cache serializer writes with their class name,
+ * the Lombok builders of the entities and messages, the messages, events and recorded responses bound by Jackson,
+ * the Hibernate interceptor configured by name, and the Liquibase change logs.
+ */
+public class FileUploaderRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final Class<?>[] ENTITIES = {
+            AbstractEntity.class, FileDB.class, FileChunk.class, FileStats.class, FileVersion.class, PayloadStorage.class
+    };
+
+    private static final Class<?>[] MESSAGES = {
+            ResponseBackup.class, ResponseChanges.class, ResponseFile.class, ResponseFileChange.class,
+            ResponseFileVersion.class, ResponseManifest.class, ResponseMessage.class, ResponseProfile.class,
+            ResponseStats.class, FileSummary.class, FileChangeEvent.class, IdempotentResponse.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+        for (Class<?> entity : ENTITIES) {
+            hints.reflection().registerType(entity, MemberCategory.values());
+            registerBuilders(hints, entity);
+        }
+        bindings.registerReflectionHints(hints.reflection(), ENTITIES);
+        bindings.registerReflectionHints(hints.reflection(), MESSAGES);
+        for (Class<?> message : MESSAGES)
+            registerBuilders(hints, message);
+        hints.reflection().registerType(ArrayList.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(UnversionedTransientInterceptor.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.resources().registerPattern("db/*.yaml").registerPattern("db/changelog/*.yaml");
+    }
+
+    /**
+     * Register the builders Lombok nests in a type, {@code @SuperBuilder} adding an implementation next to each builder.
+     */
+    private static void registerBuilders(RuntimeHints hints, Class<?> type) {
+        for (Class<?> nested : type.getDeclaredClasses())
+            if (nested.getSimpleName().endsWith("Builder") || nested.getSimpleName().endsWith("BuilderImpl"))
+                hints.reflection().registerType(nested, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+}
@@ -0,0 +1,37 @@
+package com.ouharri.fileuploader.archive;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings of the expansion of uploaded archives.
+ *
+ * @param workers            The number of workers storing the members.
+ * @param maxInFlightBatches The number of batches read ahead of the workers; with the batch size, it bounds the memory of an expansion.
+ * @param batchSize          The largest number of members stored in one batch of inserts.
+ * @param batchBytes         The largest size of the members of one batch.
+ * @param maxMembers         The largest number of members of an archive.
+ * @param maxMemberSize      The largest size of a member; larger members are skipped.
+ * @param maxTotalSize       The largest expanded size of an archive, guarding against archive bombs.
+ */
+@ConfigurationProperties(prefix = "app.archive")
+public record ArchiveProperties(
+        Integer workers,
+        Integer maxInFlightBatches,
+        Integer batchSize,
+        DataSize batchBytes,
+        Integer maxMembers,
+        DataSize maxMemberSize,
+        DataSize maxTotalSize
+) {
+
+    public ArchiveProperties {
+        workers = workers != null ? workers : 4;
+        maxInFlightBatches = maxInFlightBatches != null ? maxInFlightBatches : 2 * workers;
+        batchSize = batchSize != null ? batchSize : 32;
+        batchBytes = batchBytes != null ? batchBytes : DataSize.ofMegabytes(8);
+        maxMembers = maxMembers != null ? maxMembers : 10_000;
+        maxMemberSize = maxMemberSize != null ? maxMemberSize : DataSize.ofMegabytes(10);
+        maxTotalSize = maxTotalSize != null ? maxTotalSize : DataSize.ofGigabytes(1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.ouharri.fileuploader.archive;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Reads the members of an archive one at a time as it streams in. ZIP, TAR and the other formats known to
+ * Commons Compress are detected from their signature, as is a compression wrapping the archive, such as a
+ * gzipped TAR. Only the member being read is held, so memory does not grow with the archive.
+ */
+public class ArchiveReader implements Closeable {
+
+    private final ArchiveInputStream<?> archive;
+    private final long maxMemberSize;
+
+    /**
+     * @param in            The stream of the archive.
+     * @param maxMemberSize The largest size of a member returned with its content.
+     * @throws IOException If the format of the archive cannot be recognized.
+     */
+    public ArchiveReader(InputStream in, long maxMemberSize) throws IOException {
+        this.archive = open(new BufferedInputStream(in));
+        this.maxMemberSize = maxMemberSize;
+    }
+
+    private static ArchiveInputStream<?> open(InputStream in) throws IOException {
+        try {
+            InputStream decompressed;
+            try {
+                decompressed = new BufferedInputStream(CompressorStreamFactory.getSingleton()
+                        .createCompressorInputStream(CompressorStreamFactory.detect(in), in));
+            } catch (CompressorException e) {
+                decompressed = in;
+            }
+            return ArchiveStreamFactory.DEFAULT.createArchiveInputStream(decompressed);
+        } catch (ArchiveException e) {
+            throw new IOException("Unrecognized archive format", e);
+        }
+    }
+
+    /**
+     * Read the next file of the archive, skipping directories.
+     *
+     * @return The next member, or {@code null} at the end of the archive.
+     * @throws IOException If reading the archive fails.
+     */
+    public Member next() throws IOException {
+        ArchiveEntry entry;
+        while ((entry = archive.getNextEntry()) != null) {
+            if (entry.isDirectory() || !archive.canReadEntryData(entry))
+                continue;
+            byte[] content = archive.readNBytes((int) Math.min(maxMemberSize + 1, Integer.MAX_VALUE - 8));
+            if (content.length > maxMemberSize) {
+                long size = content.length + archive.transferTo(OutputStream.nullOutputStream());
+                return new Member(entry.getName(), null, size);
+            }
+            return new Member(entry.getName(), content, content.length);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        archive.close();
+    }
+
+    /**
+     * A file of an archive.
+     *
+     * @param name    The path of the file in the archive.
+     * @param content The content of the file, {@code null} if it is too large to be returned.
+     * @param size    The size of the file.
+     */
+    public record Member(String name, byte[] content, long size) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.ouharri.fileuploader.backup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings of the export and import of the files catalogue.
+ *
+ * @param directory       The directory holding one subdirectory per export.
+ * @param partitions      The number of id ranges each shard is split into, each exported by its own reader.
+ * @param parallelism     The number of partitions exported or imported at the same time.
+ * @param batchSize       The number of rows read, or inserted, per batch; a checkpoint is taken after every batch,
+ *                        and a batch of payloads is held in memory at once.
+ * @param writeBufferSize The size of the buffer in front of every pack file.
+ */
+@ConfigurationProperties(prefix = "app.backup")
+public record BackupProperties(
+        String directory,
+        Integer partitions,
+        Integer parallelism,
+        Integer batchSize,
+        DataSize writeBufferSize
+) {
+
+    public BackupProperties {
+        directory = directory != null && !directory.isBlank() ? directory : "data/backup";
+        partitions = partitions != null ? partitions : 8;
+        parallelism = parallelism != null ? parallelism : 4;
+        batchSize = batchSize != null ? batchSize : 100;
+        writeBufferSize = writeBufferSize != null ? writeBufferSize : DataSize.ofMegabytes(1);
+    }
+}
@@ -0,0 +1,134 @@
+package com.ouharri.fileuploader.backup;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Reads the {@link CatalogRecord}s of a pack file written by {@link CatalogPackWriter}.
+ */
+public class CatalogPackReader implements Closeable {
+
+    private final CountingInputStream counter;
+    private final DataInputStream in;
+
+    /**
+     * Open a pack file, resuming at the offset of the last checkpoint.
+     *
+     * @param file       The pack file.
+     * @param offset     The offset of the first record to read, {@code 0} to read from the start.
+     * @param bufferSize The size of the read buffer.
+     * @throws IOException If the file cannot be opened or is not a pack file.
+     */
+    public CatalogPackReader(Path file, long offset, int bufferSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+        if (channel.read(magic, 0) != Integer.BYTES || magic.getInt(0) != CatalogPackWriter.MAGIC) {
+            channel.close();
+            throw new IOException(file + " is not a catalogue pack file");
+        }
+        long start = Math.max(offset, Integer.BYTES);
+        channel.position(start);
+        this.counter = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel), bufferSize), start);
+        this.in = new DataInputStream(counter);
+    }
+
+    /**
+     * @return The next record, or {@code null} at the end of the pack file.
+     * @throws IOException If reading fails or the last record is incomplete.
+     */
+    public CatalogRecord next() throws IOException {
+        long msb;
+        try {
+            msb = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+        return new CatalogRecord(
+                new UUID(msb, in.readLong()),
+                in.readUTF(),
+                in.readBoolean() ? in.readUTF() : null,
+                orNull(in.readLong()),
+                orNull(in.readInt()),
+                timestamp(in.readLong()),
+                timestamp(in.readLong()),
+                in.readBoolean() ? in.readInt() : null,
+                in.readBoolean() ? in.readUTF() : null,
+                readBytes(),
+                readBytes()
+        );
+    }
+
+    /**
+     * @return The offset right after the last record read, to checkpoint.
+     */
+    public long offset() {
+        return counter.count;
+    }
+
+    private byte[] readBytes() throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static Long orNull(long value) {
+        return value < 0 ? null : value;
+    }
+
+    private static Integer orNull(int value) {
+        return value < 0 ? null : value;
+    }
+
+    private static Timestamp timestamp(long millis) {
+        return millis < 0 ? null : new Timestamp(millis);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Counts the bytes read, to know the offset of every record.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in, long count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = in.read(bytes, offset, length);
+            if (read > 0)
+                count += read;
+            return read;
+        }
+    }
+}
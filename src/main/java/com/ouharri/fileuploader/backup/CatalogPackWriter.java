@@ -0,0 +1,132 @@
+package com.ouharri.fileuploader.backup;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends {@link CatalogRecord}s to a pack file.
+ * <p>
+ * A pack file is the {@link #MAGIC} number followed by records, each a sequence of big-endian fields written
+ * with {@link DataOutputStream}: the id as two longs, the name, a flag and the type, the size, the retained
+ * versions, the timestamps in epoch milliseconds, a flag and the CRC32C, a flag and the SHA-256, then the data key
+ * and the payload, each prefixed with its length. Absent numbers are written as {@code -1}, absent arrays with a
+ * length of {@code -1}. The format only depends on the JDK, so a pack can be read by any tool.
+ */
+public class CatalogPackWriter implements Closeable {
+
+    /**
+     * The first four bytes of a pack file, {@code FPK1}.
+     */
+    public static final int MAGIC = 0x46504B31;
+
+    private final FileChannel channel;
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+
+    /**
+     * Open a pack file for appending, cutting it at the offset of the last checkpoint.
+     *
+     * @param file       The pack file.
+     * @param offset     The offset to append at, {@code 0} to start a new pack file.
+     * @param bufferSize The size of the write buffer.
+     * @throws IOException If the file cannot be opened.
+     */
+    public CatalogPackWriter(Path file, long offset, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.truncate(offset);
+        this.channel.position(offset);
+        this.counter = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), bufferSize), offset);
+        this.out = new DataOutputStream(counter);
+        if (offset == 0)
+            out.writeInt(MAGIC);
+    }
+
+    /**
+     * @return Whether the pack file exists and holds at least its header.
+     */
+    public static boolean exists(Path file) throws IOException {
+        return Files.exists(file) && Files.size(file) >= Integer.BYTES;
+    }
+
+    /**
+     * @param record The record to append.
+     * @throws IOException If writing fails.
+     */
+    public void write(CatalogRecord record) throws IOException {
+        out.writeLong(record.id().getMostSignificantBits());
+        out.writeLong(record.id().getLeastSignificantBits());
+        out.writeUTF(record.name());
+        out.writeBoolean(record.type() != null);
+        if (record.type() != null)
+            out.writeUTF(record.type());
+        out.writeLong(record.size() != null ? record.size() : -1);
+        out.writeInt(record.retainedVersions() != null ? record.retainedVersions() : -1);
+        out.writeLong(record.createdAt() != null ? record.createdAt().getTime() : -1);
+        out.writeLong(record.updatedAt() != null ? record.updatedAt().getTime() : -1);
+        out.writeBoolean(record.crc32c() != null);
+        if (record.crc32c() != null)
+            out.writeInt(record.crc32c());
+        out.writeBoolean(record.sha256() != null);
+        if (record.sha256() != null)
+            out.writeUTF(record.sha256());
+        writeBytes(record.dataKey());
+        writeBytes(record.payload());
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.writeInt(bytes != null ? bytes.length : -1);
+        if (bytes != null)
+            out.write(bytes);
+    }
+
+    /**
+     * Force the records written so far to disk.
+     *
+     * @return The offset right after the last record, to checkpoint.
+     * @throws IOException If writing fails.
+     */
+    public long sync() throws IOException {
+        out.flush();
+        channel.force(false);
+        return counter.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Counts the bytes written, as {@link DataOutputStream#size()} stops at 2GB.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out, long count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ouharri.fileuploader.backup;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * A file of the catalogue as written to a pack file: its metadata and its payload as stored.
+ * An encrypted payload stays encrypted, with its wrapped data key, so it can only be imported where the same
+ * master key is configured.
+ *
+ * @param id               The unique identifier of the file.
+ * @param name             The name of the file.
+ * @param type             The content type of the file.
+ * @param size             The size of the plaintext.
+ * @param retainedVersions The number of versions to retain, or {@code null}.
+ * @param createdAt        The creation timestamp.
+ * @param updatedAt        The last modification timestamp, or {@code null}.
+ * @param crc32c           The recorded CRC32C, or {@code null}.
+ * @param sha256           The recorded SHA-256 digest, or {@code null}.
+ * @param dataKey          The wrapped data key, or {@code null} if the payload is stored in plain.
+ * @param payload          The payload as stored.
+ */
+public record CatalogRecord(
+        UUID id,
+        String name,
+        String type,
+        Long size,
+        Integer retainedVersions,
+        Timestamp createdAt,
+        Timestamp updatedAt,
+        Integer crc32c,
+        String sha256,
+        byte[] dataKey,
+        byte[] payload
+) {
+}
@@ -0,0 +1,79 @@
+package com.ouharri.fileuploader.backup;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Progress of the export or import of one pack file, saved after every batch so that a job interrupted
+ * by a crash or a restart resumes where it stopped. A checkpoint is replaced atomically, so it always
+ * describes records that are durably written.
+ *
+ * @param lastId   The id of the last exported file, {@code null} before the first batch; unused by imports.
+ * @param offset   The offset in the pack file right after the last record written or imported.
+ * @param records  The number of records written or imported.
+ * @param bytes    The number of payload bytes written or imported.
+ * @param complete Whether the pack file is done.
+ */
+public record Checkpoint(UUID lastId, long offset, long records, long bytes, boolean complete) {
+
+    /**
+     * The checkpoint of a pack file not started yet.
+     */
+    public static final Checkpoint START = new Checkpoint(null, 0, 0, 0, false);
+
+    /**
+     * @param file The checkpoint file.
+     * @return The saved checkpoint, {@link #START} if there is none.
+     * @throws IOException If the checkpoint cannot be read.
+     */
+    public static Checkpoint load(Path file) throws IOException {
+        if (!Files.exists(file))
+            return START;
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String lastId = properties.getProperty("lastId");
+        return new Checkpoint(
+                lastId != null ? UUID.fromString(lastId) : null,
+                Long.parseLong(properties.getProperty("offset", "0")),
+                Long.parseLong(properties.getProperty("records", "0")),
+                Long.parseLong(properties.getProperty("bytes", "0")),
+                Boolean.parseBoolean(properties.getProperty("complete"))
+        );
+    }
+
+    /**
+     * Save the checkpoint, replacing the previous one atomically.
+     *
+     * @param file The checkpoint file.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        if (lastId != null)
+            properties.setProperty("lastId", lastId.toString());
+        properties.setProperty("offset", Long.toString(offset));
+        properties.setProperty("records", Long.toString(records));
+        properties.setProperty("bytes", Long.toString(bytes));
+        properties.setProperty("complete", Boolean.toString(complete));
+        StringWriter writer = new StringWriter();
+        properties.store(writer, null);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(writer.toString().getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
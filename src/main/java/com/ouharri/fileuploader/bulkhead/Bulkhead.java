@@ -0,0 +1,98 @@
+package com.ouharri.fileuploader.bulkhead;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of concurrent calls of one traffic class.
+ * <p>
+ * Up to {@code maxConcurrent} calls run at once; up to {@code maxQueued} more wait, each at most
+ * {@code maxWait}, for a call to finish. Calls beyond the queue, or waiting too long, are rejected at once,
+ * so that a burst of one class can never hold more than {@code maxConcurrent + maxQueued} request threads.
+ */
+public final class Bulkhead {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration maxWait;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxConcurrent The maximum number of concurrent calls.
+     * @param maxQueued     The maximum number of calls waiting for a permit.
+     * @param maxWait       The maximum time a call waits for a permit.
+     */
+    public Bulkhead(int maxConcurrent, int maxQueued, Duration maxWait) {
+        if (maxConcurrent <= 0 || maxQueued < 0)
+            throw new IllegalArgumentException("Invalid bulkhead limits " + maxConcurrent + "/" + maxQueued);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Take a permit, waiting in the queue if all permits are taken and the queue is not full.
+     * A successful call must be followed by {@link #release()}.
+     *
+     * @return Whether a permit was taken.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        if (permits.tryAcquire())
+            return true;
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS))
+                return true;
+            rejected.increment();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Give back a permit taken by {@link #tryAcquire()}.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * @return The maximum number of concurrent calls.
+     */
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @return The number of calls running.
+     */
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @return The number of calls waiting for a permit.
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    /**
+     * @return The number of calls rejected so far.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,55 @@
+package com.ouharri.fileuploader.bulkhead;
+
+import com.ouharri.fileuploader.datasource.RoutingContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admits each request through the bulkhead of its {@link TrafficClass}, and selects the connection pools of the
+ * class for the database work of the request. A request finding its bulkhead full is answered
+ * {@code 503 Service Unavailable} with a {@code Retry-After} header, without touching the other classes.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Bulkheads bulkheads;
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        TrafficClass trafficClass = TrafficClass.of(request);
+        Bulkhead bulkhead = bulkheads.of(trafficClass);
+        boolean admitted;
+        try {
+            admitted = bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            log.warn("Rejected {} {} request, the {} bulkhead is full", request.getMethod(), request.getRequestURI(), trafficClass);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        RoutingContext.useTrafficClass(trafficClass);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RoutingContext.useTrafficClass(null);
+            bulkhead.release();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ouharri.fileuploader.bulkhead;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Limits of the request bulkheads and database connection pools of each traffic class.
+ *
+ * @param interactive The limits of the interactive traffic.
+ * @param ingest      The limits of the ingest traffic.
+ */
+@ConfigurationProperties(prefix = "app.bulkhead")
+public record BulkheadProperties(Limits interactive, Limits ingest) {
+
+    public BulkheadProperties {
+        interactive = interactive != null ? interactive : new Limits(100, 100, Duration.ofSeconds(2), 10, Duration.ofSeconds(5));
+        ingest = ingest != null ? ingest : new Limits(8, 16, Duration.ofSeconds(30), 4, Duration.ofSeconds(30));
+    }
+
+    /**
+     * @param trafficClass A traffic class.
+     * @return The limits of the traffic class.
+     */
+    public Limits of(TrafficClass trafficClass) {
+        return trafficClass == TrafficClass.INGEST ? ingest : interactive;
+    }
+
+    /**
+     * @param maxConcurrent     The maximum number of concurrent requests.
+     * @param maxQueued         The maximum number of requests waiting for a slot.
+     * @param maxWait           The maximum time a request waits for a slot.
+     * @param poolSize          The size of the connection pool of each database.
+     * @param connectionTimeout The maximum time to wait for a connection of the pool.
+     */
+    public record Limits(int maxConcurrent, int maxQueued, Duration maxWait, int poolSize, Duration connectionTimeout) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.ouharri.fileuploader.bulkhead;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The request bulkheads of all traffic classes, publishing their saturation as
+ * {@code bulkhead.active}, {@code bulkhead.queued}, {@code bulkhead.limit} and {@code bulkhead.rejected}
+ * metrics tagged with the traffic class.
+ */
+public class Bulkheads implements MeterBinder {
+
+    private final Map<TrafficClass, Bulkhead> bulkheads = new EnumMap<>(TrafficClass.class);
+
+    /**
+     * @param properties The limits of each traffic class.
+     */
+    public Bulkheads(BulkheadProperties properties) {
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            BulkheadProperties.Limits limits = properties.of(trafficClass);
+            bulkheads.put(trafficClass, new Bulkhead(limits.maxConcurrent(), limits.maxQueued(), limits.maxWait()));
+        }
+    }
+
+    /**
+     * @param trafficClass A traffic class.
+     * @return The bulkhead of the traffic class.
+     */
+    public Bulkhead of(TrafficClass trafficClass) {
+        return bulkheads.get(trafficClass);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bulkheads.forEach((trafficClass, bulkhead) -> {
+            String tag = trafficClass.name().toLowerCase();
+            Gauge.builder("bulkhead.active", bulkhead, Bulkhead::active)
+                    .tag("class", tag)
+                    .description("Requests running")
+                    .register(registry);
+            Gauge.builder("bulkhead.queued", bulkhead, Bulkhead::queued)
+                    .tag("class", tag)
+                    .description("Requests waiting for a slot")
+                    .register(registry);
+            Gauge.builder("bulkhead.limit", bulkhead, Bulkhead::maxConcurrent)
+                    .tag("class", tag)
+                    .description("Maximum number of concurrent requests")
+                    .register(registry);
+            FunctionCounter.builder("bulkhead.rejected", bulkhead, Bulkhead::rejected)
+                    .tag("class", tag)
+                    .description("Requests rejected because the bulkhead was full")
+                    .register(registry);
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package com.ouharri.fileuploader.bulkhead;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+
+import java.util.Set;
+
+/**
+ * Classes of traffic, each served by its own request bulkhead and its own database connection pools.
+ */
+public enum TrafficClass {
+
+    /**
+     * Quick requests a user waits on: metadata reads, listings, downloads, deletes.
+     */
+    INTERACTIVE,
+
+    /**
+     * Requests carrying a file payload, which hold a thread and a connection for the whole transfer.
+     */
+    INGEST;
+
+    private static final Set<String> ARCHIVE_TYPES = Set.of("zip", "x-tar", "gzip");
+
+    /**
+     * Classify a request: a {@code POST}, {@code PUT} or {@code PATCH} with a multipart, binary or archive body is ingest,
+     * anything else is interactive.
+     *
+     * @param request The request.
+     * @return The traffic class of the request.
+     */
+    public static TrafficClass of(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!HttpMethod.POST.matches(method) && !HttpMethod.PUT.matches(method) && !HttpMethod.PATCH.matches(method))
+            return INTERACTIVE;
+        String contentType = request.getContentType();
+        if (contentType == null)
+            return INTERACTIVE;
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (IllegalArgumentException e) {
+            return INTERACTIVE;
+        }
+        return mediaType.getType().equals("multipart") || MediaType.APPLICATION_OCTET_STREAM.includes(mediaType)
+                || ARCHIVE_TYPES.contains(mediaType.getSubtype())
+                ? INGEST
+                : INTERACTIVE;
+    }
+}
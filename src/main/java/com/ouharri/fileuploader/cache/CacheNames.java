@@ -0,0 +1,17 @@
+package com.ouharri.fileuploader.cache;
+
+/**
+ * Names of the application caches.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+public final class CacheNames {
+
+    /**
+     * Cache of single files, keyed by their unique identifier: their metadata, with their payload when it is small and plain.
+     */
+    public static final String FILE = "file";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,27 @@
+package com.ouharri.fileuploader.cache;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Event of the file change feed, published on every mutation of files.
+ *
+ * @param fileIds The unique identifiers of the changed files.
+ * @param type    The type of change.
+ * @param origin  The identifier of the node which made the change.
+ */
+public record FileChangeEvent(
+        List<UUID> fileIds,
+        Type type,
+        String origin
+) {
+
+    /**
+     * The type of change.
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
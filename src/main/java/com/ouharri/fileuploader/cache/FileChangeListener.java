@@ -0,0 +1,39 @@
+package com.ouharri.fileuploader.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.io.IOException;
+
+/**
+ * Consumes the file change feed and invalidates the affected keys in the local cache tier of this node.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class FileChangeListener implements MessageListener {
+
+    private final NearCacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        FileChangeEvent event;
+        try {
+            event = objectMapper.readValue(message.getBody(), FileChangeEvent.class);
+        } catch (IOException e) {
+            log.warn("Ignoring malformed file change: {}", e.getMessage());
+            return;
+        }
+        // The originating node already invalidated its own local tier.
+        if (nodeId.equals(event.origin()))
+            return;
+        event.fileIds().forEach(fileId -> cacheManager.evictLocal(CacheNames.FILE, fileId));
+        log.debug("Invalidated {} files changed on node {}", event.fileIds().size(), event.origin());
+    }
+}
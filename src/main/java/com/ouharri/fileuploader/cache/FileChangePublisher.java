@@ -0,0 +1,86 @@
+package com.ouharri.fileuploader.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Publishes the file change feed over Redis pub/sub.
+ * Inside a transaction, the event is only published once the transaction has committed.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FileChangePublisher {
+
+    /**
+     * The Redis channel of the file change feed.
+     */
+    public static final String CHANNEL = "file-changes";
+
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Get the identifier of this node in the change feed.
+     *
+     * @return The node identifier.
+     */
+    public String nodeId() {
+        return NODE_ID;
+    }
+
+    /**
+     * Publish a change of one file.
+     *
+     * @param fileId The unique identifier of the changed file.
+     * @param type   The type of change.
+     */
+    public void publish(UUID fileId, FileChangeEvent.Type type) {
+        publish(List.of(fileId), type);
+    }
+
+    /**
+     * Publish a change of several files.
+     *
+     * @param fileIds The unique identifiers of the changed files.
+     * @param type    The type of change.
+     */
+    public void publish(Collection<UUID> fileIds, FileChangeEvent.Type type) {
+        if (fileIds.isEmpty())
+            return;
+        FileChangeEvent event = new FileChangeEvent(List.copyOf(fileIds), type, NODE_ID);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    private void send(FileChangeEvent event) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Other nodes fall back on the local cache time-to-live.
+            log.warn("Could not publish file change {}: {}", event, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.ouharri.fileuploader.cache;
+
+import com.ouharri.fileuploader.profiling.CacheLookupEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.ToLongFunction;
+
+/**
+ * Two-level {@link Cache}: a small, bounded, node-local tier in front of the shared remote (Redis) cache.
+ * <p>
+ * Writes and evictions go to both tiers. Other nodes learn about them through the file change feed
+ * and call {@link #evictLocal(Object)}; the short local time-to-live bounds the staleness
+ * if a change event is ever lost.
+ * <p>
+ * The local tier is bounded both by its number of entries and by the bytes they weigh, the least recently used
+ * entries going first; an entry heavier than the whole tier is only kept remotely.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+public class NearCache implements Cache {
+
+    private final Cache remote;
+    private final Map<Object, LocalEntry> local = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxLocalEntries;
+    private final long maxLocalBytes;
+    private final ToLongFunction<Object> weigher;
+    private final long localTtlMillis;
+    private final Clock clock;
+    private long localBytes;
+
+    /**
+     * Create a near cache whose local tier is only bounded by its number of entries.
+     *
+     * @param remote          The shared remote cache.
+     * @param maxLocalEntries The maximum number of entries in the local tier.
+     * @param localTtlMillis  The time-to-live of the local entries, in milliseconds.
+     * @param clock           The clock used to expire the local entries.
+     */
+    public NearCache(Cache remote, int maxLocalEntries, long localTtlMillis, Clock clock) {
+        this(remote, maxLocalEntries, Long.MAX_VALUE, value -> 0, localTtlMillis, clock);
+    }
+
+    /**
+     * Create a near cache.
+     *
+     * @param remote          The shared remote cache.
+     * @param maxLocalEntries The maximum number of entries in the local tier.
+     * @param maxLocalBytes   The maximum weight of the entries in the local tier, in bytes.
+     * @param weigher         The weight of a value, in bytes.
+     * @param localTtlMillis  The time-to-live of the local entries, in milliseconds.
+     * @param clock           The clock used to expire the local entries.
+     */
+    public NearCache(
+            Cache remote,
+            int maxLocalEntries,
+            long maxLocalBytes,
+            ToLongFunction<Object> weigher,
+            long localTtlMillis,
+            Clock clock
+    ) {
+        this.remote = remote;
+        this.maxLocalEntries = maxLocalEntries;
+        this.maxLocalBytes = maxLocalBytes;
+        this.weigher = weigher;
+        this.localTtlMillis = localTtlMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getName() {
+        return remote.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        CacheLookupEvent event = new CacheLookupEvent();
+        event.begin();
+        ValueWrapper value = getLocal(key);
+        if (value != null) {
+            commit(event, key, CacheLookupEvent.LOCAL);
+            return value;
+        }
+        value = remote.get(key);
+        if (value != null)
+            putLocal(key, value.get());
+        commit(event, key, value != null ? CacheLookupEvent.REMOTE : CacheLookupEvent.MISS);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper value = get(key);
+        Object stored = value != null ? value.get() : null;
+        if (stored != null && type != null && !type.isInstance(stored))
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + stored);
+        return (T) stored;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        CacheLookupEvent event = new CacheLookupEvent();
+        event.begin();
+        ValueWrapper value = getLocal(key);
+        if (value != null) {
+            commit(event, key, CacheLookupEvent.LOCAL);
+            return (T) value.get();
+        }
+        boolean[] missed = new boolean[1];
+        T loaded = remote.get(key, () -> {
+            missed[0] = true;
+            return valueLoader.call();
+        });
+        putLocal(key, loaded);
+        commit(event, key, missed[0] ? CacheLookupEvent.MISS : CacheLookupEvent.REMOTE);
+        return loaded;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        putLocal(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        evictLocal(key);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        clearLocal();
+    }
+
+    /**
+     * Evict a key from the local tier only, after another node changed it.
+     *
+     * @param key The key to evict.
+     */
+    public void evictLocal(Object key) {
+        synchronized (local) {
+            removeLocal(key);
+        }
+    }
+
+    /**
+     * Clear the local tier only.
+     */
+    public void clearLocal() {
+        synchronized (local) {
+            local.clear();
+            localBytes = 0;
+        }
+    }
+
+    /**
+     * Look a key up in the local tier only.
+     *
+     * @param key The key to look up.
+     * @return The local value, {@code null} if there is none or it has expired.
+     */
+    public ValueWrapper getLocal(Object key) {
+        synchronized (local) {
+            LocalEntry entry = local.get(key);
+            if (entry == null)
+                return null;
+            if (entry.expiresAt() < clock.millis()) {
+                removeLocal(key);
+                return null;
+            }
+            return new SimpleValueWrapper(entry.value());
+        }
+    }
+
+    /**
+     * Put a value in the local tier only, for values that are not meant to leave the node.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void putLocal(Object key, Object value) {
+        if (value == null)
+            return;
+        long weight = weigher.applyAsLong(value);
+        synchronized (local) {
+            removeLocal(key);
+            if (weight > maxLocalBytes)
+                return;
+            local.put(key, new LocalEntry(value, weight, clock.millis() + localTtlMillis));
+            localBytes += weight;
+            Iterator<LocalEntry> eldest = local.values().iterator();
+            while (local.size() > maxLocalEntries || localBytes > maxLocalBytes) {
+                localBytes -= eldest.next().weight();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void removeLocal(Object key) {
+        LocalEntry removed = local.remove(key);
+        if (removed != null)
+            localBytes -= removed.weight();
+    }
+
+    private void commit(CacheLookupEvent event, Object key, String tier) {
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.cache = getName();
+        event.key = String.valueOf(key);
+        event.tier = tier;
+        event.commit();
+    }
+
+    private record LocalEntry(Object value, long weight, long expiresAt) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.ouharri.fileuploader.cache;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link CacheManager} decorating the caches of a remote cache manager with a node-local {@link NearCache} tier.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+public class NearCacheManager implements CacheManager {
+
+    private final CacheManager remote;
+    private final ObservationRegistry observationRegistry;
+    private final int maxLocalEntries;
+    private final long maxLocalBytes;
+    private final ToLongFunction<Object> weigher;
+    private final long localTtlMillis;
+    private final Map<String, NearCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Create a near cache manager observing the calls to the remote tier.
+     *
+     * @param remote              The remote cache manager.
+     * @param observationRegistry The registry of the remote cache observations.
+     * @param maxLocalEntries     The maximum number of entries in the local tier of each cache.
+     * @param maxLocalBytes       The maximum weight of the entries in the local tier of each cache, in bytes.
+     * @param weigher             The weight of a cached value, in bytes.
+     * @param localTtl            The time-to-live of the local entries.
+     */
+    public NearCacheManager(
+            CacheManager remote,
+            ObservationRegistry observationRegistry,
+            int maxLocalEntries,
+            long maxLocalBytes,
+            ToLongFunction<Object> weigher,
+            Duration localTtl
+    ) {
+        this.remote = remote;
+        this.observationRegistry = observationRegistry;
+        this.maxLocalEntries = maxLocalEntries;
+        this.maxLocalBytes = maxLocalBytes;
+        this.weigher = weigher;
+        this.localTtlMillis = localTtl.toMillis();
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, cacheName -> {
+            Cache cache = remote.getCache(cacheName);
+            return cache != null
+                    ? new NearCache(new ObservedCache(cache, observationRegistry), maxLocalEntries, maxLocalBytes, weigher, localTtlMillis, Clock.systemUTC())
+                    : null;
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    /**
+     * Look a key up in the local tier of a cache only.
+     *
+     * @param name The name of the cache.
+     * @param key  The key to look up.
+     * @return The local value, {@code null} if there is none.
+     */
+    public Cache.ValueWrapper getLocal(String name, Object key) {
+        NearCache cache = caches.get(name);
+        return cache != null ? cache.getLocal(key) : null;
+    }
+
+    /**
+     * Put a value in the local tier of a cache only, where it is evicted along with the remote entries of the key.
+     *
+     * @param name  The name of the cache.
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void putLocal(String name, Object key, Object value) {
+        if (getCache(name) instanceof NearCache cache)
+            cache.putLocal(key, value);
+    }
+
+    /**
+     * Evict a key from the local tier of a cache only.
+     *
+     * @param name The name of the cache.
+     * @param key  The key to evict.
+     */
+    public void evictLocal(String name, Object key) {
+        NearCache cache = caches.get(name);
+        if (cache != null)
+            cache.evictLocal(key);
+    }
+
+    /**
+     * Clear the local tier of a cache only.
+     *
+     * @param name The name of the cache.
+     */
+    public void clearLocal(String name) {
+        NearCache cache = caches.get(name);
+        if (cache != null)
+            cache.clearLocal();
+    }
+}
@@ -0,0 +1,122 @@
+package com.ouharri.fileuploader.cache;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * {@link Cache} observing every call to the cache it decorates, as a {@code cache.get}, {@code cache.put},
+ * {@code cache.evict} or {@code cache.clear} span tagged with the cache name and, for lookups, whether it hit.
+ * It decorates the remote tier, so that the spans measure the round trips to Redis.
+ */
+public class ObservedCache implements Cache {
+
+    private final Cache delegate;
+    private final ObservationRegistry observationRegistry;
+
+    /**
+     * @param delegate            The cache to observe.
+     * @param observationRegistry The registry of the observations.
+     */
+    public ObservedCache(Cache delegate, ObservationRegistry observationRegistry) {
+        this.delegate = delegate;
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Observation observation = start("cache.get");
+        try (Observation.Scope ignored = observation.openScope()) {
+            ValueWrapper value = delegate.get(key);
+            observation.lowCardinalityKeyValue("cache.hit", Boolean.toString(value != null));
+            return value;
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        Observation observation = start("cache.get");
+        try (Observation.Scope ignored = observation.openScope()) {
+            T value = delegate.get(key, type);
+            observation.lowCardinalityKeyValue("cache.hit", Boolean.toString(value != null));
+            return value;
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Observation observation = start("cache.get");
+        boolean[] loaded = {false};
+        try (Observation.Scope ignored = observation.openScope()) {
+            return delegate.get(key, () -> {
+                loaded[0] = true;
+                return valueLoader.call();
+            });
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.lowCardinalityKeyValue("cache.hit", Boolean.toString(!loaded[0]));
+            observation.stop();
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        observe("cache.put", () -> {
+            delegate.put(key, value);
+            return null;
+        });
+    }
+
+    @Override
+    public void evict(Object key) {
+        observe("cache.evict", () -> {
+            delegate.evict(key);
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        observe("cache.clear", () -> {
+            delegate.clear();
+            return null;
+        });
+    }
+
+    private Observation start(String name) {
+        return Observation.createNotStarted(name, observationRegistry)
+                .lowCardinalityKeyValue("cache.name", delegate.getName())
+                .start();
+    }
+
+    private <T> T observe(String name, Supplier<T> call) {
+        return Observation.createNotStarted(name, observationRegistry)
+                .lowCardinalityKeyValue("cache.name", delegate.getName())
+                .observe(call);
+    }
+}
@@ -0,0 +1,27 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.archive.ArchiveProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration class for the expansion of uploaded archives.
+ */
+@Configuration
+@EnableConfigurationProperties(ArchiveProperties.class)
+public class ArchiveConfig {
+
+    /**
+     * @param properties The settings of the expansion.
+     * @return ExecutorService the members of the archives are stored on, shared by all expansions
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService archiveIngestPool(ArchiveProperties properties) {
+        return Executors.newFixedThreadPool(properties.workers(), new CustomizableThreadFactory("archive-ingest-"));
+    }
+}
@@ -0,0 +1,27 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.backup.BackupProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration class for the export and import of the files catalogue.
+ */
+@Configuration
+@EnableConfigurationProperties(BackupProperties.class)
+public class BackupConfig {
+
+    /**
+     * @param properties The settings of the export and import.
+     * @return ExecutorService the partitions of the exports and imports run on, shared by all jobs
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService backupPool(BackupProperties properties) {
+        return Executors.newFixedThreadPool(properties.parallelism(), new CustomizableThreadFactory("backup-"));
+    }
+}
@@ -0,0 +1,24 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.storage.BufferPool;
+import com.ouharri.fileuploader.storage.BufferProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the pool of buffers staging payloads.
+ */
+@Configuration
+@EnableConfigurationProperties(BufferProperties.class)
+public class BufferConfig {
+
+    /**
+     * @param properties The settings of the pool.
+     * @return BufferPool shared by the upload and download paths
+     */
+    @Bean
+    public BufferPool bufferPool(BufferProperties properties) {
+        return new BufferPool(properties);
+    }
+}
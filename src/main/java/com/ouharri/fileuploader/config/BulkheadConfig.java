@@ -0,0 +1,40 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.bulkhead.BulkheadFilter;
+import com.ouharri.fileuploader.bulkhead.BulkheadProperties;
+import com.ouharri.fileuploader.bulkhead.Bulkheads;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Configuration class isolating the traffic classes from each other.
+ */
+@Configuration
+@EnableConfigurationProperties(BulkheadProperties.class)
+public class BulkheadConfig {
+
+    /**
+     * @param properties The limits of each traffic class.
+     * @return Bulkheads of all traffic classes
+     */
+    @Bean
+    public Bulkheads bulkheads(BulkheadProperties properties) {
+        return new Bulkheads(properties);
+    }
+
+    /**
+     * Registers the {@link BulkheadFilter} first, so that a full bulkhead rejects requests before any other work.
+     *
+     * @param bulkheads The bulkheads of all traffic classes.
+     * @return FilterRegistrationBean of the bulkhead filter
+     */
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(Bulkheads bulkheads) {
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(new BulkheadFilter(bulkheads));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,199 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.bulkhead.BulkheadProperties;
+import com.ouharri.fileuploader.bulkhead.TrafficClass;
+import com.ouharri.fileuploader.datasource.ReadYourWritesFilter;
+import com.ouharri.fileuploader.datasource.ReplicaProperties;
+import com.ouharri.fileuploader.datasource.ReplicaRoutingDataSource;
+import com.ouharri.fileuploader.datasource.ShardProperties;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.datasource.ShardRoutingDataSource;
+import com.ouharri.fileuploader.datasource.ShardSchemaInitializer;
+import com.ouharri.fileuploader.datasource.TrafficClassRoutingDataSource;
+import com.ouharri.fileuploader.query.QueryAccountingDataSource;
+import com.ouharri.fileuploader.query.QueryProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration class for the data sources: the home shard with its primary and read replicas, and the other shards.
+ */
+@Configuration
+@EnableConfigurationProperties({ReplicaProperties.class, ShardProperties.class})
+public class DataSourceConfig {
+
+    /**
+     * Routes read-only work to the read replicas and everything else to the primary.
+     * The primary has a pool per traffic class, bound to {@code spring.datasource} and sized by
+     * {@code app.bulkhead}; replica pools fail fast, so that an unreachable replica falls back to the
+     * primary instead of stalling the read.
+     *
+     * @param properties         The primary data source properties.
+     * @param replicaProperties  The read replicas.
+     * @param bulkheadProperties The pool limits of each traffic class.
+     * @param environment        The environment, to bind the primary Hikari settings.
+     * @param meterRegistry      The registry of the pool metrics.
+     * @param connectionTimeout  The connection timeout of the replica pools.
+     * @return ReplicaRoutingDataSource over the primary and the replicas
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties properties,
+            ReplicaProperties replicaProperties,
+            BulkheadProperties bulkheadProperties,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${app.datasource.replica-connection-timeout:1s}") Duration connectionTimeout
+    ) {
+        Map<TrafficClass, DataSource> pools = new EnumMap<>(TrafficClass.class);
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            limit(pool, ShardRouter.HOME + "-" + trafficClass.name().toLowerCase(), bulkheadProperties.of(trafficClass), meterRegistry);
+            pools.put(trafficClass, pool);
+        }
+        DataSource primary = new TrafficClassRoutingDataSource(pools);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (ReplicaProperties.Replica replica : replicaProperties.replicas()) {
+            String name = replica.name() != null ? replica.name() : "replica-" + replicas.size();
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(replica.url());
+            dataSource.setUsername(replica.username() != null ? replica.username() : properties.determineUsername());
+            dataSource.setPassword(replica.password() != null ? replica.password() : properties.determinePassword());
+            dataSource.setDriverClassName(properties.determineDriverClassName());
+            dataSource.setConnectionTimeout(connectionTimeout.toMillis());
+            dataSource.setReadOnly(true);
+            dataSource.setInitializationFailTimeout(-1);
+            meterRegistry.ifAvailable(registry -> dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.put(name, dataSource);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    /**
+     * Routes every connection to the shard selected for the current work, the home shard by default.
+     *
+     * Each shard has a pool per traffic class, like the home primary.
+     *
+     * @param home               The home shard.
+     * @param properties         The home data source properties, for the default credentials.
+     * @param shardProperties    The other shards.
+     * @param bulkheadProperties The pool limits of each traffic class.
+     * @param meterRegistry      The registry of the pool metrics.
+     * @return ShardRoutingDataSource over all shards
+     */
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            ReplicaRoutingDataSource home,
+            DataSourceProperties properties,
+            ShardProperties shardProperties,
+            BulkheadProperties bulkheadProperties,
+            ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        for (ShardProperties.Shard shard : shardProperties.shards()) {
+            Map<TrafficClass, DataSource> pools = new EnumMap<>(TrafficClass.class);
+            for (TrafficClass trafficClass : TrafficClass.values()) {
+                HikariDataSource pool = new HikariDataSource();
+                pool.setJdbcUrl(shard.url());
+                pool.setUsername(shard.username() != null ? shard.username() : properties.determineUsername());
+                pool.setPassword(shard.password() != null ? shard.password() : properties.determinePassword());
+                pool.setDriverClassName(properties.determineDriverClassName());
+                limit(pool, shard.name() + "-" + trafficClass.name().toLowerCase(), bulkheadProperties.of(trafficClass), meterRegistry);
+                pools.put(trafficClass, pool);
+            }
+            shards.put(shard.name(), new TrafficClassRoutingDataSource(pools));
+        }
+        return new ShardRoutingDataSource(home, shards);
+    }
+
+    /**
+     * Keeps the schema of the shards other than the home one up to date.
+     *
+     * @param routingDataSource The shard routing data source.
+     * @param shardProperties   The other shards.
+     * @param changeLog         The Liquibase change log.
+     * @return ShardSchemaInitializer of the other shards
+     */
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer(
+            ShardRoutingDataSource routingDataSource,
+            ShardProperties shardProperties,
+            @Value("${spring.liquibase.change-log}") String changeLog
+    ) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        shardProperties.shards().forEach(shard -> shards.put(shard.name(), routingDataSource.shard(shard.name())));
+        return new ShardSchemaInitializer(shards, changeLog);
+    }
+
+    /**
+     * The application data source: connections are only fetched from the routing data sources on the first
+     * statement, once the shard and the transaction, and so its read-only flag, are known.
+     * Every statement run on them is timed and charged to the current request.
+     *
+     * @param routingDataSource The shard routing data source.
+     * @param queryProperties   The settings of the statement accounting.
+     * @param meterRegistry     The registry of the slow statement counter.
+     * @return LazyConnectionDataSourceProxy over the routing data sources
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            ShardRoutingDataSource routingDataSource,
+            QueryProperties queryProperties,
+            ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        return new LazyConnectionDataSourceProxy(new QueryAccountingDataSource(
+                routingDataSource, queryProperties, meterRegistry.getIfAvailable(SimpleMeterRegistry::new)
+        ));
+    }
+
+    /**
+     * Registers the {@link ReadYourWritesFilter} ahead of the signed download fast path, so that it covers it too.
+     *
+     * @param window How long a client reads from the primary after a write.
+     * @return FilterRegistrationBean of the read-your-writes filter
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${app.datasource.read-your-writes-window:10s}") Duration window
+    ) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    /**
+     * Apply the limits of a traffic class to a connection pool, and publish its saturation
+     * ({@code hikaricp.connections.active}, {@code .pending}, ...) tagged with the pool name.
+     */
+    private static void limit(HikariDataSource pool, String name, BulkheadProperties.Limits limits, ObjectProvider<MeterRegistry> meterRegistry) {
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(limits.poolSize());
+        pool.setConnectionTimeout(limits.connectionTimeout().toMillis());
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+    }
+}
@@ -0,0 +1,34 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.security.DownloadUrlSigner;
+import com.ouharri.fileuploader.security.SignedDownloadFilter;
+import com.ouharri.fileuploader.storage.BufferPool;
+import com.ouharri.fileuploader.storage.PayloadStore;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Configuration class for the signed download fast path.
+ */
+@Configuration
+public class DownloadConfig {
+
+    /**
+     * Registers the {@link SignedDownloadFilter} on the signed download path, ahead of the Spring Security
+     * filter chain, so that signed downloads never go through the security filters nor the dispatcher servlet.
+     *
+     * @param signer       The download URL signer.
+     * @param payloadStore The payload store to stream from.
+     * @param bufferPool   The pool of buffers to stream through.
+     * @return FilterRegistrationBean of the signed download filter
+     */
+    @Bean
+    public FilterRegistrationBean<SignedDownloadFilter> signedDownloadFilter(DownloadUrlSigner signer, PayloadStore payloadStore, BufferPool bufferPool) {
+        FilterRegistrationBean<SignedDownloadFilter> registration = new FilterRegistrationBean<>(new SignedDownloadFilter(signer, payloadStore, bufferPool));
+        registration.addUrlPatterns(DownloadUrlSigner.DOWNLOAD_PATH + "*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 3);
+        return registration;
+    }
+}
@@ -0,0 +1,29 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.crypto.EncryptionProperties;
+import com.ouharri.fileuploader.crypto.PayloadCipher;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Configuration class for the encryption of the payloads at rest.
+ */
+@Configuration
+@EnableConfigurationProperties(EncryptionProperties.class)
+public class EncryptionConfig {
+
+    /**
+     * Reads the master key at startup, so a missing or malformed key fails the application instead of the first upload.
+     *
+     * @param properties The encryption settings.
+     * @return PayloadCipher sealing and opening the payloads
+     * @throws IOException If the master key file cannot be read.
+     */
+    @Bean
+    public PayloadCipher payloadCipher(EncryptionProperties properties) throws IOException {
+        return new PayloadCipher(properties);
+    }
+}
@@ -0,0 +1,13 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.expiry.ExpiryProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the expiry of the files uploaded with a time to live.
+ */
+@Configuration
+@EnableConfigurationProperties(ExpiryProperties.class)
+public class ExpiryConfig {
+}
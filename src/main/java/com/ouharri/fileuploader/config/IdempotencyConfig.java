@@ -0,0 +1,63 @@
+package com.ouharri.fileuploader.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouharri.fileuploader.idempotency.IdempotencyFilter;
+import com.ouharri.fileuploader.idempotency.IdempotencyProperties;
+import com.ouharri.fileuploader.idempotency.IdempotencyStore;
+import com.ouharri.fileuploader.idempotency.LocalIdempotencyStore;
+import com.ouharri.fileuploader.idempotency.RedisIdempotencyStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Clock;
+
+/**
+ * Configuration class for the idempotency keys of the upload and update requests.
+ */
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+
+    /**
+     * @param properties             The settings of the idempotency keys.
+     * @param redisConnectionFactory The Redis connection, see {@link RedisConfig#redisConnectionFactory()}.
+     * @param objectMapper           The object mapper writing the recorded responses.
+     * @return IdempotencyStore in Redis, or in the memory of this node when so configured
+     */
+    @Bean
+    public IdempotencyStore idempotencyStore(
+            IdempotencyProperties properties,
+            RedisConnectionFactory redisConnectionFactory,
+            ObjectMapper objectMapper
+    ) {
+        if ("local".equalsIgnoreCase(properties.store()))
+            return new LocalIdempotencyStore(Clock.systemUTC());
+        return new RedisIdempotencyStore(new StringRedisTemplate(redisConnectionFactory), objectMapper);
+    }
+
+    /**
+     * Registers the {@link IdempotencyFilter} right after the Spring Security filter chain, so that a response is only
+     * replayed to a caller allowed to make the request, and a duplicate waits without holding more than its bulkhead slot.
+     *
+     * @param store         The store of the idempotency keys.
+     * @param properties    The settings of the idempotency keys.
+     * @param meterRegistry The registry of the idempotency metrics.
+     * @return FilterRegistrationBean of the idempotency filter
+     */
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            IdempotencyStore store,
+            IdempotencyProperties properties,
+            MeterRegistry meterRegistry
+    ) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(new IdempotencyFilter(store, properties, meterRegistry));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.integrity.IntegrityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Configuration class for the payload integrity checks.
+ */
+@Configuration
+@EnableConfigurationProperties(IntegrityProperties.class)
+public class IntegrityConfig {
+
+    /**
+     * @param properties The settings of the integrity checks.
+     * @return ForkJoinPool the scrubber checks payloads on, kept apart from the common pool
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool scrubPool(IntegrityProperties properties) {
+        return new ForkJoinPool(properties.scrubParallelism());
+    }
+}
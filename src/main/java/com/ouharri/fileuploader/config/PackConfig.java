@@ -0,0 +1,31 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.storage.PackFileStore;
+import com.ouharri.fileuploader.storage.PackProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Configuration class for the pack-file storage engine holding small payloads.
+ */
+@Configuration
+@EnableConfigurationProperties(PackProperties.class)
+public class PackConfig {
+
+    /**
+     * Opens the pack files, rebuilding their index, before the application serves any request.
+     *
+     * @param properties The settings of the engine.
+     * @return PackFileStore holding the small payloads
+     * @throws IOException If the pack files cannot be opened.
+     */
+    @Bean
+    public PackFileStore packFileStore(PackProperties properties) throws IOException {
+        PackFileStore packFileStore = new PackFileStore(properties);
+        packFileStore.open();
+        return packFileStore;
+    }
+}
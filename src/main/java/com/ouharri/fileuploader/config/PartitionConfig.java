@@ -0,0 +1,13 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.partition.PartitionProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the monthly partitions of the {@code files} table.
+ */
+@Configuration
+@EnableConfigurationProperties(PartitionProperties.class)
+public class PartitionConfig {
+}
@@ -0,0 +1,13 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.profiling.ProfilingProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the JDK Flight Recorder recordings.
+ */
+@Configuration
+@EnableConfigurationProperties(ProfilingProperties.class)
+public class ProfilingConfig {
+}
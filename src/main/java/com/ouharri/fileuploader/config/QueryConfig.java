@@ -0,0 +1,33 @@
+package com.ouharri.fileuploader.config;
+
+import com.ouharri.fileuploader.query.QueryAccountingFilter;
+import com.ouharri.fileuploader.query.QueryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Configuration class for the accounting of the database statements of each request.
+ * The statements themselves are timed by the data source, see {@link DataSourceConfig#dataSource}.
+ */
+@Configuration
+@EnableConfigurationProperties(QueryProperties.class)
+public class QueryConfig {
+
+    /**
+     * Registers the {@link QueryAccountingFilter} ahead of the signed download fast path, so that it covers it too.
+     *
+     * @param properties    The statement budget of a request.
+     * @param meterRegistry The registry of the per-request metrics.
+     * @return FilterRegistrationBean of the query accounting filter
+     */
+    @Bean
+    public FilterRegistrationBean<QueryAccountingFilter> queryAccountingFilter(QueryProperties properties, MeterRegistry meterRegistry) {
+        FilterRegistrationBean<QueryAccountingFilter> registration = new FilterRegistrationBean<>(new QueryAccountingFilter(properties, meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
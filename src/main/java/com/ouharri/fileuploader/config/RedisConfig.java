@@ -1,15 +1,25 @@
 package com.ouharri.fileuploader.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouharri.fileuploader.cache.FileChangeListener;
+import com.ouharri.fileuploader.cache.FileChangePublisher;
+import com.ouharri.fileuploader.cache.NearCacheManager;
+import com.ouharri.fileuploader.storage.CachedPayload;
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
 
@@ -26,6 +36,15 @@ public class RedisConfig {
     @Value("${spring.data.redis.port}")
     private int redisPort;
 
+    @Value("${app.cache.local.max-entries:100}")
+    private int localMaxEntries;
+
+    @Value("${app.cache.local.max-size:16MB}")
+    private DataSize localMaxSize;
+
+    @Value("${app.cache.local.ttl:30s}")
+    private Duration localTtl;
+
     /**
      * Bean definition for the LettuceConnectionFactory, which is responsible for connecting to the Redis server.
      *
@@ -38,13 +57,51 @@ public class RedisConfig {
         return new LettuceConnectionFactory(configuration);
     }
 
+    /**
+     * Bean definition for the application CacheManager: every Redis cache gets a small node-local tier,
+     * kept coherent across nodes by the file change feed, and bounded by the size of the payloads it holds.
+     * The calls to Redis are observed.
+     *
+     * @param observationRegistry The registry of the Redis cache observations.
+     * @return NearCacheManager bean
+     */
+    @Bean
+    @Primary
+    public NearCacheManager cacheManager(ObservationRegistry observationRegistry) {
+        return new NearCacheManager(redisCacheManager(), observationRegistry, localMaxEntries, localMaxSize.toBytes(),
+                RedisConfig::weigh, localTtl);
+    }
+
+    /**
+     * Bean definition for the container listening to the file change feed, on the same Redis connection.
+     *
+     * @param cacheManager The cache manager whose local tiers follow the feed.
+     * @param objectMapper The object mapper used to read the change events.
+     * @param publisher    The change feed publisher, to recognize the events of this node.
+     * @return RedisMessageListenerContainer bean
+     */
+    @Bean
+    public RedisMessageListenerContainer fileChangeListenerContainer(
+            NearCacheManager cacheManager,
+            ObjectMapper objectMapper,
+            FileChangePublisher publisher
+    ) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory());
+        container.addMessageListener(
+                new FileChangeListener(cacheManager, objectMapper, publisher.nodeId()),
+                new ChannelTopic(FileChangePublisher.CHANNEL)
+        );
+        return container;
+    }
+
     /**
      * Bean definition for the RedisCacheManager, which manages caching configurations.
      *
      * @return RedisCacheManager bean
      */
     @Bean
-    public RedisCacheManager cacheManager() {
+    public RedisCacheManager redisCacheManager() {
         // Set the default cache configuration with a TTL of 10 minutes and disable caching of null values
         RedisCacheConfiguration cacheConfig = myDefaultCacheConfig(Duration.ofMinutes(10)).disableCachingNullValues();
 
@@ -56,6 +113,16 @@ public class RedisConfig {
                 .build();
     }
 
+    /**
+     * Weigh a cached value by the payload it carries; values without one are bounded by the number of entries alone.
+     *
+     * @param value The cached value.
+     * @return The weight of the value, in bytes.
+     */
+    private static long weigh(Object value) {
+        return value instanceof CachedPayload cached && cached.data() != null ? cached.data().capacity() : 0;
+    }
+
     /**
      * Helper method to create a default RedisCacheConfiguration with a specified time-to-live (TTL).
      *
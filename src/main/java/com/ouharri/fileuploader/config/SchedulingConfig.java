@@ -0,0 +1,12 @@
+package com.ouharri.fileuploader.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling the application background jobs.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,12 +1,21 @@
 package com.ouharri.fileuploader.config;
 
+import com.ouharri.fileuploader.security.OperatorProperties;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
@@ -19,11 +28,14 @@ import static org.springframework.security.config.http.SessionCreationPolicy.STA
 
 /**
  * Configuration class for Spring Security settings.
+ * The operator endpoints are only open to the operator, signing in over HTTP Basic, see {@link OperatorProperties}.
  */
+@Slf4j
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 @RequiredArgsConstructor
+@EnableConfigurationProperties(OperatorProperties.class)
 public class SecurityConfiguration {
     private static final String[] WHITE_LIST_URL = {
             "/files",
@@ -34,6 +46,10 @@ public class SecurityConfiguration {
             "/webjars/**",
             "/swagger-ui.html"
     };
+    private static final String[] OPERATOR_URL = {
+            "/profiling/**",
+            "/backups/**"
+    };
     private static final String[] ALLOW_ORIGIN = {
             "http://localhost:4200"
     };
@@ -41,6 +57,7 @@ public class SecurityConfiguration {
             "GET",
             "POST",
             "PUT",
+            "PATCH",
             "DELETE"
     };
     private static final String[] ALLOW_HEAD = {
@@ -54,6 +71,11 @@ public class SecurityConfiguration {
             "Cache-Control",
             "Content-Type",
             "Authorization",
+            "If-Match",
+            "If-None-Match",
+            "X-File-Name",
+            "X-File-Type",
+            "Idempotency-Key",
             "X-Requested-With"
     };
 
@@ -69,23 +91,50 @@ public class SecurityConfiguration {
         AntPathRequestMatcher[] requestMatchers = Arrays.stream(WHITE_LIST_URL)
                 .map(AntPathRequestMatcher::new)
                 .toArray(AntPathRequestMatcher[]::new);
+        AntPathRequestMatcher[] operatorMatchers = Arrays.stream(OPERATOR_URL)
+                .map(AntPathRequestMatcher::new)
+                .toArray(AntPathRequestMatcher[]::new);
         http
                 .cors(httpSecurityCorsConfigurer ->
                         httpSecurityCorsConfigurer.configurationSource(corsConfigurationSource())
                 )
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(req ->
-                        req.requestMatchers(requestMatchers)
+                        req.requestMatchers(operatorMatchers)
+                                .hasRole(OperatorProperties.ROLE)
+                                .requestMatchers(requestMatchers)
                                 .permitAll()
                                 .anyRequest()
                                 .authenticated()
                 )
+                .httpBasic(Customizer.withDefaults())
                 .sessionManagement(session ->
                         session.sessionCreationPolicy(STATELESS)
                 );
         return http.build();
     }
 
+    /**
+     * Provides the operator account, with its password encoded unless it already is.
+     *
+     * @param properties The credentials of the operator.
+     * @return UserDetailsService holding the operator, or no one when no password is configured
+     */
+    @Bean
+    public UserDetailsService userDetailsService(OperatorProperties properties) {
+        InMemoryUserDetailsManager users = new InMemoryUserDetailsManager();
+        if (!properties.isEnabled()) {
+            log.warn("No app.operator.password configured, the profiling and backup endpoints are closed");
+            return users;
+        }
+        PasswordEncoder passwordEncoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        users.createUser(User.withUsername(properties.username())
+                .password(properties.password().startsWith("{") ? properties.password() : passwordEncoder.encode(properties.password()))
+                .roles(OperatorProperties.ROLE)
+                .build());
+        return users;
+    }
+
     @Bean
     CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -0,0 +1,93 @@
+package com.ouharri.fileuploader.controller;
+
+import com.ouharri.fileuploader.message.ResponseBackup;
+import com.ouharri.fileuploader.service.spec.BackupService;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller class for exporting the files catalogue to pack files and importing it back.
+ * Both run in the background; their progress is polled by name.
+ *
+ * @author <a href="mailto:ouharrioutman@gmail.com">Ouharri Outman</a>
+ */
+@Slf4j
+@Validated
+@RestController
+@AllArgsConstructor
+public class BackupController {
+
+    private static final String JOB_PATTERN = "[A-Za-z0-9_-]+";
+    private static final String JOB_MESSAGE = "The backup name may only contain letters, digits, '-' and '_'";
+
+    private final BackupService backupService;
+
+    /**
+     * Start exporting the files catalogue, or resume an interrupted export of the same name.
+     *
+     * @param job The name of the backup, naming its directory.
+     * @return ResponseEntity containing the progress of the export.
+     */
+    @PostMapping("/backups/{job}/export")
+    public ResponseEntity<ResponseBackup> startExport(
+            @PathVariable @Pattern(regexp = JOB_PATTERN, message = JOB_MESSAGE) String job
+    ) {
+        log.info("Export of backup {} requested", job);
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(toResponse(backupService.startExport(job)));
+    }
+
+    /**
+     * Start importing a backup into the files catalogue, or resume an interrupted import of the same name.
+     *
+     * @param job The name of the backup, naming its directory.
+     * @return ResponseEntity containing the progress of the import.
+     */
+    @PostMapping("/backups/{job}/import")
+    public ResponseEntity<ResponseBackup> startImport(
+            @PathVariable @Pattern(regexp = JOB_PATTERN, message = JOB_MESSAGE) String job
+    ) {
+        log.info("Import of backup {} requested", job);
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(toResponse(backupService.startImport(job)));
+    }
+
+    /**
+     * Get the progress of the last export or import of a backup.
+     *
+     * @param job The name of the backup.
+     * @return ResponseEntity containing the progress.
+     */
+    @GetMapping("/backups/{job}")
+    public ResponseEntity<ResponseBackup> getProgress(
+            @PathVariable @Pattern(regexp = JOB_PATTERN, message = JOB_MESSAGE) String job
+    ) {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(toResponse(backupService.getProgress(job)));
+    }
+
+    private static ResponseBackup toResponse(BackupService.Progress progress) {
+        return ResponseBackup.builder()
+                .job(progress.job())
+                .operation(progress.operation().name())
+                .running(progress.running())
+                .partitions(progress.partitions())
+                .completed(progress.completed())
+                .files(progress.files())
+                .bytes(progress.bytes())
+                .skipped(progress.skipped())
+                .error(progress.error())
+                .build();
+    }
+}
@@ -1,22 +1,54 @@
 package com.ouharri.fileuploader.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ouharri.fileuploader.entity.FileDB;
 import com.ouharri.fileuploader.exception.ResourceNotCreatedException;
+import com.ouharri.fileuploader.exception.ResourceNotFoundException;
+import com.ouharri.fileuploader.exception.ResourcePreconditionFailedException;
+import com.ouharri.fileuploader.exception.ResourcePreconditionRequiredException;
+import com.ouharri.fileuploader.exception.ResourceRangeNotSatisfiableException;
 import com.ouharri.fileuploader.message.ResponseFile;
+import com.ouharri.fileuploader.message.ResponseManifest;
+import com.ouharri.fileuploader.message.ResponseMessage;
+import com.ouharri.fileuploader.message.ResponseStats;
+import com.ouharri.fileuploader.repository.projection.FileSummary;
+import com.ouharri.fileuploader.security.DownloadUrlSigner;
+import com.ouharri.fileuploader.service.spec.ArchiveIngestService;
+import com.ouharri.fileuploader.service.spec.FileStatsService;
 import com.ouharri.fileuploader.service.spec.FileStorageService;
+import com.ouharri.fileuploader.storage.BufferPool;
+import com.ouharri.fileuploader.storage.PayloadStore;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,32 +61,48 @@ import java.util.UUID;
 @Validated
 @RestController
 @AllArgsConstructor
+@Observed(name = "file.controller")
 public class FileController {
 
+    /**
+     * Header carrying the name of a file uploaded as a raw body, percent-encoded when not plain ASCII.
+     */
+    public static final String FILE_NAME_HEADER = "X-File-Name";
+
+    /**
+     * Header carrying the content type of a file uploaded as a raw body.
+     */
+    public static final String FILE_TYPE_HEADER = "X-File-Type";
+
     private final FileStorageService storageService;
+    private final FileStatsService statsService;
+    private final DownloadUrlSigner downloadUrlSigner;
+    private final ObjectMapper objectMapper;
+    private final PayloadStore payloadStore;
+    private final BufferPool bufferPool;
+    private final MultipartProperties multipartProperties;
+    private final ArchiveIngestService archiveIngestService;
 
     /**
      * Upload a file to the server.
      *
      * @param file The file to be uploaded.
+     * @param ttl  The time to live of the file, such as {@code PT1H}, after which it is deleted; none if absent.
      * @return ResponseEntity containing a success message and the file metadata.
      */
     @PostMapping("/upload")
     public ResponseEntity<ResponseFile> uploadFile(
-            @Valid @RequestParam("file") @NotNull(message = "The File must be present") MultipartFile file
+            @Valid @RequestParam("file") @NotNull(message = "The File must be present") MultipartFile file,
+            @RequestParam(value = "ttl", required = false) Duration ttl
     ) throws IOException {
         try {
-            FileDB fileDB = storageService.store(file);
+            FileDB fileDB = storageService.store(file, ttl);
             ResponseFile responseFile = ResponseFile.builder()
                     .name(fileDB.getName())
                     .type(fileDB.getType())
                     .size(file.getSize())
-                    .url(ServletUriComponentsBuilder
-                            .fromCurrentContextPath()
-                            .path("/files/")
-                            .path(fileDB.getId().toString())
-                            .toUriString()
-                    ).build();
+                    .url(downloadUrlSigner.sign(baseUrl(), fileDB.getId()))
+                    .build();
             log.info("File uploaded successfully: {}", responseFile);
             return ResponseEntity
                     .status(HttpStatus.OK)
@@ -66,57 +114,264 @@ public class FileController {
     }
 
     /**
-     * Get a list of all files available on the server.
+     * Upload a file sent as a raw binary body, with its name and type in headers.
+     * The body is streamed straight into storage, skipping the parsing and temp-file spooling of a multipart request.
      *
+     * @param name    The name of the file.
+     * @param type    The content type of the file.
+     * @param size    The size of the body, which must be announced up front.
+     * @param ttl     The time to live of the file, such as {@code PT1H}, after which it is deleted; none if absent.
+     * @param request The HTTP request carrying the body.
+     * @return ResponseEntity containing the file metadata.
+     * @throws IOException If reading the body fails.
+     */
+    @PutMapping(value = "/files/raw", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ResponseFile> uploadRawFile(
+            @RequestHeader(FILE_NAME_HEADER) @NotBlank(message = "The file name must be present") String name,
+            @RequestHeader(value = FILE_TYPE_HEADER, defaultValue = MediaType.APPLICATION_OCTET_STREAM_VALUE) String type,
+            @RequestHeader(HttpHeaders.CONTENT_LENGTH) long size,
+            @RequestParam(value = "ttl", required = false) Duration ttl,
+            HttpServletRequest request
+    ) throws IOException {
+        checkRawSize(size);
+        FileDB fileDB = storageService.store(UriUtils.decode(name, StandardCharsets.UTF_8), type, size, request.getInputStream(), ttl);
+        ResponseFile responseFile = ResponseFile.builder()
+                .name(fileDB.getName())
+                .type(fileDB.getType())
+                .size(size)
+                .url(downloadUrlSigner.sign(baseUrl(), fileDB.getId()))
+                .build();
+        log.info("Raw file uploaded successfully: {}", responseFile);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(responseFile);
+    }
+
+    /**
+     * Upload an archive, ZIP or TAR, possibly compressed, and store each of its files.
+     * The archive is expanded as it streams in, without being buffered whole nor spooled to disk.
+     *
+     * @param request The HTTP request carrying the archive as its body.
+     * @return ResponseEntity containing the manifest of the stored files and of the skipped members.
+     * @throws IOException                 If reading the request fails.
+     * @throws ResourceNotCreatedException If the body is not a known archive format.
+     */
+    @PostMapping(value = "/files/archive", consumes = {
+            MediaType.APPLICATION_OCTET_STREAM_VALUE, "application/zip", "application/x-tar", "application/gzip"
+    })
+    public ResponseEntity<ResponseManifest> uploadArchive(HttpServletRequest request) throws IOException {
+        ArchiveIngestService.Manifest manifest = archiveIngestService.expand(request.getInputStream());
+        String baseUrl = baseUrl();
+        ResponseManifest responseManifest = ResponseManifest.builder()
+                .files(manifest.files().stream()
+                        .map(entry -> ResponseFile.builder()
+                                .name(entry.name())
+                                .type(entry.type())
+                                .size(entry.size())
+                                .url(downloadUrlSigner.sign(baseUrl, entry.id()))
+                                .build())
+                        .toList())
+                .skipped(manifest.skipped().stream()
+                        .map(skipped -> new ResponseManifest.SkippedMember(skipped.name(), skipped.reason()))
+                        .toList())
+                .complete(manifest.complete())
+                .build();
+        log.info("Archive expanded into {} files, {} members skipped", manifest.files().size(), manifest.skipped().size());
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(responseManifest);
+    }
+
+    /**
+     * Get a list of all files available on the server, or of the recent ones only.
+     *
+     * @param createdSince The earliest creation time of the files listed, such as {@code 2026-10-01T00:00:00}; all files if absent.
      * @return ResponseEntity containing a list of ResponseFile objects.
      */
     @GetMapping("/files")
-    public ResponseEntity<List<ResponseFile>> getListFiles() {
-        List<ResponseFile> files = storageService.getAllFiles()
+    public ResponseEntity<List<ResponseFile>> getListFiles(
+            @RequestParam(value = "createdSince", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdSince
+    ) {
+        String baseUrl = baseUrl();
+        List<FileSummary> summaries = createdSince != null
+                ? storageService.getFileSummaries(Timestamp.valueOf(createdSince))
+                : storageService.getFileSummaries();
+        List<ResponseFile> files = summaries
                 .stream()
-                .map(dbFile -> ResponseFile.builder()
-                        .name(dbFile.getName())
-                        .type(dbFile.getType())
-                        .size(dbFile.getData().length)
-                        .url(ServletUriComponentsBuilder
-                                .fromCurrentContextPath()
-                                .path("/files/")
-                                .path(dbFile.getId().toString())
-                                .toUriString())
+                .map(summary -> ResponseFile.builder()
+                        .name(summary.name())
+                        .type(summary.type())
+                        .size(summary.size() != null ? summary.size() : 0L)
+                        .url(downloadUrlSigner.sign(baseUrl, summary.id()))
                         .build())
                 .toList();
-        log.info("Retrieved list of files: {}", files);
+        log.info("Retrieved list of {} files", files.size());
         return ResponseEntity
                 .status(HttpStatus.OK)
                 .body(files);
     }
 
+    /**
+     * Export the list of all files as a JSON array streamed straight from a database cursor.
+     * Rows are written to the response as they are read, so memory stays constant and the first
+     * bytes are sent right away, whatever the number of files.
+     *
+     * @param response The HTTP response to stream the JSON array to.
+     * @throws IOException If writing the response fails.
+     */
+    @GetMapping(value = "/files/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void exportFiles(HttpServletResponse response) throws IOException {
+        String baseUrl = baseUrl();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        long[] count = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            storageService.streamFileSummaries(summary -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeStringField("name", summary.name());
+                    generator.writeStringField("url", downloadUrlSigner.sign(baseUrl, summary.id()));
+                    generator.writeStringField("type", summary.type());
+                    generator.writeNumberField("size", summary.size() != null ? summary.size() : 0L);
+                    generator.writeEndObject();
+                    if (++count[0] == 1)
+                        generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Exported list of {} files", count[0]);
+    }
+
+    /**
+     * Get the storage statistics: total number of files, total size and breakdown per content type.
+     * Served from the incrementally maintained summary, so it is cheap enough to be polled.
+     *
+     * @return ResponseEntity containing the storage statistics.
+     */
+    @GetMapping("/files/stats")
+    public ResponseEntity<ResponseStats> getStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(statsService.getStats());
+    }
+
     /**
      * Get a specific file by its ID.
+     * The payload is streamed from the {@link PayloadStore} through a pooled buffer, without copying it into a fresh array;
+     * small plain payloads are served from the cache along with the metadata.
+     * A single byte range is served as a partial response; of an encrypted payload, only the segments
+     * holding the range are decrypted.
+     * The version of the file is its ETag, and caches must revalidate it before reusing a copy,
+     * which is answered {@code 304 Not Modified} while the file has not changed.
      *
-     * @param id The unique identifier of the file.
-     * @return ResponseEntity containing the file data and metadata.
+     * @param id          The unique identifier of the file.
+     * @param range       The optional {@code Range} header.
+     * @param ifNoneMatch The optional {@code If-None-Match} header, with the ETag of a cached copy.
+     * @param response    The HTTP response to stream the file data to.
+     * @throws IOException                           If streaming the file data fails.
+     * @throws ResourceNotFoundException             If the file with the specified ID is not found.
+     * @throws ResourceRangeNotSatisfiableException If the requested range is outside of the file.
      */
     @GetMapping("/files/{id}")
-    public ResponseEntity<byte[]> getFile(
-            @Valid @PathVariable UUID id
-    ) {
-        FileDB fileDB = storageService.getFile(id);
-        log.info("Retrieved file: {}", fileDB);
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "Inline; filename=\"" + fileDB.getName() + "\"")
-                .header(HttpHeaders.CONTENT_TYPE, fileDB.getType())
-                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(fileDB.getData().length))
-                .header("Content-Description", "File Transfer")
-                .header("Content-Transfer-Encoding", "binary")
-                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                .header(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000")
-                .header(HttpHeaders.ETAG, fileDB.getId().toString())
-                .header(HttpHeaders.LAST_MODIFIED, fileDB.getUpdatedAt().toString())
-                .header(HttpHeaders.DATE, fileDB.getCreatedAt().toString())
-                .header(HttpHeaders.PRAGMA, "public")
-                .header(HttpHeaders.EXPIRES, "31536000")
-                .body(fileDB.getData());
+    public void getFile(
+            @Valid @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse response
+    ) throws IOException {
+        boolean found = payloadStore.read(id, (metadata, payload) -> {
+            String eTag = "\"" + metadata.version() + "\"";
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            if (metadata.updatedAt() != null)
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, metadata.updatedAt().getTime());
+            if (matchesETag(ifNoneMatch, eTag)) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                return;
+            }
+            long size = payload.size();
+            long offset = 0;
+            long length = size;
+            HttpRange requested = singleRange(range);
+            if (requested != null) {
+                try {
+                    offset = requested.getRangeStart(size);
+                    length = requested.getRangeEnd(size) - offset + 1;
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    throw new ResourceRangeNotSatisfiableException("Range " + range + " is outside of file " + id + " of size " + size);
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + (offset + length - 1) + "/" + size);
+            } else {
+                response.setStatus(HttpStatus.OK.value());
+            }
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "Inline; filename=\"" + metadata.name() + "\"");
+            response.setContentType(metadata.type());
+            response.setContentLengthLong(length);
+            response.setHeader("Content-Description", "File Transfer");
+            response.setHeader("Content-Transfer-Encoding", "binary");
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            try (InputStream in = payload.stream(offset, length)) {
+                bufferPool.transfer(in, response.getOutputStream());
+            }
+        });
+        if (!found)
+            throw new ResourceNotFoundException("File not found with id " + id);
+        log.info("Retrieved file: {}", id);
+    }
+
+    /**
+     * Hold raw bodies to the same size limit as multipart uploads.
+     *
+     * @param size The announced size of the body.
+     * @throws MaxUploadSizeExceededException If the body is too large.
+     */
+    private void checkRawSize(long size) {
+        long maxSize = multipartProperties.getMaxFileSize().toBytes();
+        if (maxSize >= 0 && size > maxSize)
+            throw new MaxUploadSizeExceededException(maxSize);
+    }
+
+    /**
+     * @param range The {@code Range} header, or {@code null}.
+     * @return The requested range, or {@code null} to serve the whole file, as done for several ranges.
+     * @throws ResourceRangeNotSatisfiableException If the header is malformed.
+     */
+    private static HttpRange singleRange(String range) {
+        if (range == null || range.isBlank())
+            return null;
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            throw new ResourceRangeNotSatisfiableException("Malformed range " + range);
+        }
+    }
+
+    /**
+     * @param ifNoneMatch The {@code If-None-Match} header, or {@code null}.
+     * @param eTag        The current ETag of the file.
+     * @return Whether the header names the current ETag, weakly compared, or is {@code *}.
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(eTag))
+                return true;
+        }
+        return false;
     }
 
     /**
@@ -136,11 +391,7 @@ public class FileController {
                 .name(updatedFile.getName())
                 .type(updatedFile.getType())
                 .size(file.getSize())
-                .url(ServletUriComponentsBuilder
-                        .fromCurrentContextPath()
-                        .path("/files/")
-                        .path(updatedFile.getId().toString())
-                        .toUriString())
+                .url(downloadUrlSigner.sign(baseUrl(), updatedFile.getId()))
                 .build();
         log.info("File updated successfully: {}", responseFile);
         return ResponseEntity
@@ -148,6 +399,70 @@ public class FileController {
                 .body(responseFile);
     }
 
+    /**
+     * Update the content of a specific file by its ID from a raw binary body, with its name and type in headers.
+     *
+     * @param id      The unique identifier of the file.
+     * @param name    The new name of the file.
+     * @param type    The new content type of the file.
+     * @param size    The size of the body, which must be announced up front.
+     * @param request The HTTP request carrying the body.
+     * @return ResponseEntity containing the updated file metadata.
+     * @throws IOException If reading the body fails.
+     */
+    @PutMapping(value = "/files/{id}/raw", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ResponseFile> updateRawFile(
+            @PathVariable UUID id,
+            @RequestHeader(FILE_NAME_HEADER) @NotBlank(message = "The file name must be present") String name,
+            @RequestHeader(value = FILE_TYPE_HEADER, defaultValue = MediaType.APPLICATION_OCTET_STREAM_VALUE) String type,
+            @RequestHeader(HttpHeaders.CONTENT_LENGTH) long size,
+            HttpServletRequest request
+    ) throws IOException {
+        checkRawSize(size);
+        FileDB updatedFile = storageService.updateFile(id, UriUtils.decode(name, StandardCharsets.UTF_8), type, size, request.getInputStream());
+        ResponseFile responseFile = ResponseFile.builder()
+                .name(updatedFile.getName())
+                .type(updatedFile.getType())
+                .size(size)
+                .url(downloadUrlSigner.sign(baseUrl(), updatedFile.getId()))
+                .build();
+        log.info("File updated successfully from a raw body: {}", responseFile);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(responseFile);
+    }
+
+    /**
+     * Write a byte range into the content of a specific file, or append to its end,
+     * without re-uploading the whole content.
+     *
+     * @param id      The unique identifier of the file.
+     * @param ifMatch The version (ETag) of the file the change is based on.
+     * @param offset  The zero-based offset to write at; when absent the content is appended.
+     * @param content The bytes to write.
+     * @return ResponseEntity containing the file metadata and its new version as ETag.
+     */
+    @PatchMapping(value = "/files/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ResponseFile> patchFile(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestParam(value = "offset", required = false) Long offset,
+            @RequestBody byte[] content
+    ) {
+        FileSummary patchedFile = storageService.patchFile(id, parseVersion(ifMatch), offset, content);
+        ResponseFile responseFile = ResponseFile.builder()
+                .name(patchedFile.name())
+                .type(patchedFile.type())
+                .size(patchedFile.size())
+                .url(downloadUrlSigner.sign(baseUrl(), patchedFile.id()))
+                .build();
+        log.info("File patched successfully: {} ({} bytes at offset {})", responseFile, content.length, offset);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .eTag("\"" + patchedFile.version() + "\"")
+                .body(responseFile);
+    }
+
     /**
      * Delete a specific file by its ID.
      *
@@ -164,4 +479,55 @@ public class FileController {
                 .status(HttpStatus.OK)
                 .body("File deleted successfully");
     }
-}
\ No newline at end of file
+
+    /**
+     * Delete files in bulk. Deletion only tombstones the files, so thousands of files
+     * can be deleted without stalling the database.
+     *
+     * @param ids The unique identifiers of the files.
+     * @return ResponseEntity indicating the number of deleted files.
+     */
+    @DeleteMapping("/files")
+    public ResponseEntity<ResponseMessage> deleteFiles(
+            @RequestBody @NotEmpty(message = "The ids must be present") List<UUID> ids
+    ) {
+        int deleted = storageService.deleteFiles(ids);
+        log.info("Deleted {} of {} files", deleted, ids.size());
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(new ResponseMessage(deleted + " files deleted successfully"));
+    }
+
+    /**
+     * Get the base URL of the application for the current request, to build the signed download URLs on.
+     *
+     * @return The base URL (scheme, host and context path).
+     */
+    private static String baseUrl() {
+        return ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .toUriString();
+    }
+
+    /**
+     * Parse the version carried by an {@code If-Match} header ({@code "3"}, {@code W/"3"} or {@code 3}).
+     *
+     * @param ifMatch The If-Match header value.
+     * @return The version.
+     * @throws ResourcePreconditionRequiredException If the header is missing.
+     * @throws ResourcePreconditionFailedException   If the header is not a version.
+     */
+    private static long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank())
+            throw new ResourcePreconditionRequiredException("The If-Match header with the file version is required");
+        String version = ifMatch.trim();
+        if (version.startsWith("W/"))
+            version = version.substring(2);
+        version = version.replace("\"", "");
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            throw new ResourcePreconditionFailedException("Invalid If-Match version " + ifMatch);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ouharri.fileuploader.controller;
+
+import com.ouharri.fileuploader.message.ResponseChanges;
+import com.ouharri.fileuploader.security.DownloadUrlSigner;
+import com.ouharri.fileuploader.service.spec.FileSyncService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Controller class for the delta synchronization of clients.
+ *
+ * @author <a href="mailto:ouharrioutman@gmail.com">Ouharri Outman</a>
+ */
+@Slf4j
+@Validated
+@RestController
+@AllArgsConstructor
+public class FileSyncController {
+
+    private final FileSyncService syncService;
+    private final DownloadUrlSigner downloadUrlSigner;
+
+    /**
+     * Get the files created, updated or deleted since the cursor of the previous poll.
+     * Without a cursor, the current catalogue is returned page by page.
+     * A {@code 410 Gone} response means the cursor has expired and the client must resynchronize from scratch.
+     *
+     * @param cursor The cursor returned by the previous poll.
+     * @param limit  The maximum number of changes to return.
+     * @return ResponseEntity containing the changes and the cursor of the next poll.
+     */
+    @GetMapping("/files/changes")
+    public ResponseEntity<ResponseChanges> getChanges(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "500") int limit
+    ) {
+        String baseUrl = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .toUriString();
+        ResponseChanges changes = syncService.getChanges(cursor, limit, id -> downloadUrlSigner.sign(baseUrl, id));
+        log.info("Retrieved {} file changes", changes.getChanges().size());
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(changes);
+    }
+}
@@ -0,0 +1,107 @@
+package com.ouharri.fileuploader.controller;
+
+import com.ouharri.fileuploader.entity.FileVersion;
+import com.ouharri.fileuploader.message.ResponseFileVersion;
+import com.ouharri.fileuploader.message.ResponseMessage;
+import com.ouharri.fileuploader.service.spec.FileVersionService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Controller class for handling the version history of files.
+ *
+ * @author <a href="mailto:ouharrioutman@gmail.com">Ouharri Outman</a>
+ */
+@Slf4j
+@Validated
+@RestController
+@AllArgsConstructor
+public class FileVersionController {
+
+    private final FileVersionService versionService;
+
+    /**
+     * Get the retained versions of a file, newest first.
+     *
+     * @param id The unique identifier of the file.
+     * @return ResponseEntity containing the list of versions.
+     */
+    @GetMapping("/files/{id}/versions")
+    public ResponseEntity<List<ResponseFileVersion>> getVersions(
+            @Valid @PathVariable UUID id
+    ) {
+        String baseUrl = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/files/")
+                .path(id.toString())
+                .path("/versions/")
+                .toUriString();
+        List<ResponseFileVersion> versions = versionService.getVersions(id)
+                .stream()
+                .map(version -> ResponseFileVersion.builder()
+                        .revision(version.getRevision())
+                        .name(version.getName())
+                        .type(version.getType())
+                        .size(version.getSize())
+                        .createdAt(version.getCreatedAt())
+                        .url(baseUrl + version.getRevision())
+                        .build())
+                .toList();
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(versions);
+    }
+
+    /**
+     * Download a retained version of a file. The content is rebuilt by streaming its chunks.
+     *
+     * @param id       The unique identifier of the file.
+     * @param revision The revision of the file.
+     * @return ResponseEntity streaming the content of the version.
+     */
+    @GetMapping("/files/{id}/versions/{revision}")
+    public ResponseEntity<StreamingResponseBody> getVersion(
+            @Valid @PathVariable UUID id,
+            @PathVariable long revision
+    ) {
+        FileVersion version = versionService.getVersion(id, revision);
+        log.info("Retrieved version {} of file {}", revision, id);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "Inline; filename=\"" + version.getName() + "\"")
+                .header(HttpHeaders.CONTENT_TYPE, version.getType())
+                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(version.getSize()))
+                .header(HttpHeaders.ETAG, "\"" + version.getRevision() + "\"")
+                .body(out -> versionService.writeVersion(id, revision, out));
+    }
+
+    /**
+     * Set the number of versions to retain for a file; {@code 0} disables the history.
+     *
+     * @param id   The unique identifier of the file.
+     * @param keep The number of versions to retain.
+     * @return ResponseEntity indicating the success of the operation.
+     */
+    @PutMapping("/files/{id}/versions/retention")
+    public ResponseEntity<ResponseMessage> setRetention(
+            @Valid @PathVariable UUID id,
+            @RequestParam("keep") @Min(value = 0, message = "The number of versions cannot be negative") int keep
+    ) {
+        versionService.setRetention(id, keep);
+        log.info("Retention of file {} set to {} versions", id, keep);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(new ResponseMessage("Retaining " + keep + " versions of file " + id));
+    }
+}
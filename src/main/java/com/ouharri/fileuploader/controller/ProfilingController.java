@@ -0,0 +1,129 @@
+package com.ouharri.fileuploader.controller;
+
+import com.ouharri.fileuploader.message.ResponseProfile;
+import com.ouharri.fileuploader.service.spec.ProfilingService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Controller class for the JDK Flight Recorder recordings, to diagnose latency without attaching an agent.
+ * The recordings open in JDK Mission Control.
+ *
+ * @author <a href="mailto:ouharrioutman@gmail.com">Ouharri Outman</a>
+ */
+@Slf4j
+@Validated
+@RestController
+@AllArgsConstructor
+public class ProfilingController {
+
+    private final ProfilingService profilingService;
+
+    /**
+     * Download the events of the continuous recording of the last minutes.
+     *
+     * @param minutes How many minutes back to go.
+     * @return ResponseEntity streaming the recording.
+     * @throws IOException If the recording cannot be written.
+     */
+    @GetMapping("/profiling/dump")
+    public ResponseEntity<StreamingResponseBody> dump(
+            @RequestParam(value = "minutes", defaultValue = "5") @Min(value = 1, message = "Dump at least one minute") int minutes
+    ) throws IOException {
+        Path dump = profilingService.dump(Duration.ofMinutes(minutes));
+        return recording(dump, "dump-" + minutes + "m.jfr", true);
+    }
+
+    /**
+     * Start a targeted profile.
+     *
+     * @param seconds How long to profile, in seconds.
+     * @return ResponseEntity containing the profile.
+     */
+    @PostMapping("/profiling/profiles")
+    public ResponseEntity<ResponseProfile> startProfile(
+            @RequestParam(value = "seconds", defaultValue = "60")
+            @Min(value = 1, message = "Profile for at least one second")
+            @Max(value = 3600, message = "Profile for at most an hour") int seconds
+    ) {
+        ProfilingService.Profile profile = profilingService.startProfile(Duration.ofSeconds(seconds));
+        log.info("Profile {} requested for {} seconds", profile.id(), seconds);
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(toResponse(profile));
+    }
+
+    /**
+     * Get the running and retained profiles.
+     *
+     * @return ResponseEntity containing the profiles, newest first.
+     */
+    @GetMapping("/profiling/profiles")
+    public ResponseEntity<List<ResponseProfile>> getProfiles() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(profilingService.getProfiles().stream().map(this::toResponse).toList());
+    }
+
+    /**
+     * Download the recording of a finished profile.
+     *
+     * @param id The id of the profile.
+     * @return ResponseEntity streaming the recording.
+     * @throws IOException If the recording cannot be read.
+     */
+    @GetMapping("/profiling/profiles/{id}")
+    public ResponseEntity<StreamingResponseBody> getProfile(@PathVariable long id) throws IOException {
+        Path file = profilingService.getProfileFile(id);
+        return recording(file, file.getFileName().toString(), false);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> recording(Path file, String name, boolean temporary) throws IOException {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .body(out -> {
+                    try {
+                        Files.copy(file, out);
+                    } finally {
+                        if (temporary)
+                            Files.deleteIfExists(file);
+                    }
+                });
+    }
+
+    private ResponseProfile toResponse(ProfilingService.Profile profile) {
+        return ResponseProfile.builder()
+                .id(profile.id())
+                .state(profile.state())
+                .startedAt(profile.startedAt())
+                .durationSeconds(profile.duration() != null ? profile.duration().toSeconds() : 0)
+                .size(profile.size())
+                .url(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/profiling/profiles/")
+                        .path(Long.toString(profile.id()))
+                        .toUriString())
+                .build();
+    }
+}
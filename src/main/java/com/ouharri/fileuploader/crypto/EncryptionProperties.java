@@ -0,0 +1,19 @@
+package com.ouharri.fileuploader.crypto;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings of the encryption of the payloads at rest.
+ *
+ * @param enabled       Whether new payloads are encrypted. Payloads encrypted earlier stay readable either way.
+ * @param masterKeyFile The file holding the 256-bit master key wrapping the data keys, raw or base64 encoded.
+ * @param segmentSize   The size of the plaintext segments encrypted and authenticated one by one.
+ */
+@ConfigurationProperties(prefix = "app.encryption")
+public record EncryptionProperties(boolean enabled, String masterKeyFile, DataSize segmentSize) {
+
+    public EncryptionProperties {
+        segmentSize = segmentSize != null ? segmentSize : DataSize.ofKilobytes(64);
+    }
+}
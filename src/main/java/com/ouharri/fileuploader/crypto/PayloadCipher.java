@@ -0,0 +1,297 @@
+package com.ouharri.fileuploader.crypto;
+
+import com.ouharri.fileuploader.integrity.PayloadChecksum;
+import com.ouharri.fileuploader.storage.ByteBufferInputStream;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Envelope encryption of the payloads at rest.
+ * <p>
+ * Every payload is encrypted with its own AES-256 data key by {@link SegmentedGcm}, and the data key is stored
+ * next to it, wrapped with AES-GCM under the master key read from a local file. The identifier of the file is
+ * authenticated with the wrapped key, so a key cannot be moved to another file. Rotating the master key only
+ * rewraps the data keys, never the payloads. The chunks of the version history of an encrypted file are sealed
+ * under a data key of the file too, see {@link ChunkKey}.
+ */
+public class PayloadCipher {
+
+    private static final int KEY_SIZE = 32;
+    private static final int WRAP_NONCE_SIZE = 12;
+    private static final int TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final boolean enabled;
+    private final SecretKey masterKey;
+    private final SegmentedGcm gcm;
+    private final KeyGenerator keyGenerator;
+
+    /**
+     * @param properties The encryption settings.
+     * @throws IOException If the master key file cannot be read.
+     */
+    public PayloadCipher(EncryptionProperties properties) throws IOException {
+        this.enabled = properties.enabled();
+        this.masterKey = properties.masterKeyFile() != null && !properties.masterKeyFile().isBlank()
+                ? readMasterKey(Path.of(properties.masterKeyFile()))
+                : null;
+        if (enabled && masterKey == null)
+            throw new IllegalStateException("Encryption at rest is enabled but app.encryption.master-key-file is not set");
+        this.gcm = new SegmentedGcm(Math.toIntExact(properties.segmentSize().toBytes()));
+        try {
+            this.keyGenerator = KeyGenerator.getInstance("AES");
+            this.keyGenerator.init(KEY_SIZE * 8, RANDOM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES is not available", e);
+        }
+    }
+
+    /**
+     * @return Whether new payloads are encrypted.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Prepare a payload for storage, reading it from a stream. The payload is encrypted under a fresh data key
+     * when encryption is enabled, and kept as is otherwise.
+     *
+     * @param id        The unique identifier of the file.
+     * @param plaintext The stream of the payload.
+     * @param size      The size of the payload.
+     * @param checksum  The checksums to compute over the plaintext along the way.
+     * @return The payload to store and its wrapped data key.
+     * @throws IOException If reading the payload fails.
+     */
+    public Sealed seal(UUID id, InputStream plaintext, long size, PayloadChecksum checksum) throws IOException {
+        if (!enabled) {
+            byte[] data = plaintext.readAllBytes();
+            checksum.update(data, 0, data.length);
+            return new Sealed(data, null);
+        }
+        SecretKey dataKey = keyGenerator.generateKey();
+        byte[] data = gcm.encrypt(dataKey, plaintext, size, checksum::update);
+        return new Sealed(data, wrap(id, dataKey));
+    }
+
+    /**
+     * Open a range of a stored payload.
+     *
+     * @param id      The unique identifier of the file.
+     * @param dataKey The wrapped data key of the payload, {@code null} if it is stored in plain.
+     * @param stored  The stored payload, from its position to its limit.
+     * @param size    The size of the plaintext.
+     * @param offset  The offset of the range.
+     * @param length  The length of the range.
+     * @return The stream of the range. Only the segments the range touches are decrypted, as they are read.
+     */
+    public InputStream open(UUID id, byte[] dataKey, ByteBuffer stored, long size, long offset, long length) {
+        if (dataKey == null) {
+            int from = (int) Math.min(offset, stored.remaining());
+            return new ByteBufferInputStream(
+                    stored.slice(stored.position() + from, (int) Math.min(length, stored.remaining() - from)));
+        }
+        return gcm.decrypt(unwrap(id, dataKey), stored, size, offset, length);
+    }
+
+    /**
+     * Open a whole stored payload.
+     *
+     * @param id      The unique identifier of the file.
+     * @param dataKey The wrapped data key of the payload, {@code null} if it is stored in plain.
+     * @param stored  The stored payload.
+     * @param size    The size of the plaintext.
+     * @return The plaintext.
+     * @throws IOException If the payload fails authentication.
+     */
+    public byte[] openAll(UUID id, byte[] dataKey, byte[] stored, long size) throws IOException {
+        if (dataKey == null)
+            return stored;
+        try (InputStream in = open(id, dataKey, ByteBuffer.wrap(stored), size, 0, size)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Open the key the version history of a file is chunked and sealed with.
+     *
+     * @param id      The unique identifier of the file.
+     * @param dataKey The wrapped data key of the file, {@code null} to keep the chunks in plain.
+     * @return The chunk key.
+     */
+    public ChunkKey chunkKey(UUID id, byte[] dataKey) {
+        return new ChunkKey(dataKey != null ? unwrap(id, dataKey) : null);
+    }
+
+    private byte[] wrap(UUID id, SecretKey dataKey) {
+        byte[] nonce = new byte[WRAP_NONCE_SIZE];
+        RANDOM.nextBytes(nonce);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, masterKey, new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(associatedData(id));
+            byte[] wrapped = cipher.doFinal(dataKey.getEncoded());
+            return ByteBuffer.allocate(WRAP_NONCE_SIZE + wrapped.length).put(nonce).put(wrapped).array();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not wrap the data key of file " + id, e);
+        }
+    }
+
+    private SecretKey unwrap(UUID id, byte[] dataKey) {
+        if (masterKey == null)
+            throw new IllegalStateException("File " + id + " is encrypted but app.encryption.master-key-file is not set");
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, masterKey, new GCMParameterSpec(TAG_BITS, dataKey, 0, WRAP_NONCE_SIZE));
+            cipher.updateAAD(associatedData(id));
+            return new SecretKeySpec(cipher.doFinal(dataKey, WRAP_NONCE_SIZE, dataKey.length - WRAP_NONCE_SIZE), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not unwrap the data key of file " + id, e);
+        }
+    }
+
+    private static byte[] associatedData(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    private static SecretKey readMasterKey(Path file) throws IOException {
+        byte[] key = Files.readAllBytes(file);
+        if (key.length != KEY_SIZE)
+            key = Base64.getDecoder().decode(new String(key, StandardCharsets.US_ASCII).strip());
+        if (key.length != KEY_SIZE)
+            throw new IllegalStateException("The master key in " + file + " is not a 256-bit key");
+        return new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * Names and seals the chunks of the version history of a file.
+     * <p>
+     * In plain, a chunk is named by its SHA-256 digest and stored as is, so that identical chunks are shared across files.
+     * Under a data key, a chunk is named by an HMAC-SHA256 keyed from the data key, so that its name tells nothing
+     * of its content outside of the history of the file, and stored encrypted with AES-GCM under the data key,
+     * its name being authenticated with it.
+     * <pre>
+     * chunk = nonce (12) | AES-GCM(plaintext chunk) | tag (16)
+     * </pre>
+     */
+    public static final class ChunkKey {
+
+        private static final byte[] HASH_KEY_LABEL = "file-uploader chunk hash".getBytes(StandardCharsets.US_ASCII);
+
+        private final SecretKey key;
+        private final SecretKey hashKey;
+
+        private ChunkKey(SecretKey key) {
+            this.key = key;
+            this.hashKey = key != null ? new SecretKeySpec(mac(new SecretKeySpec(key.getEncoded(), "HmacSHA256"), HASH_KEY_LABEL), "HmacSHA256") : null;
+        }
+
+        /**
+         * Name a chunk.
+         *
+         * @param buffer The buffer holding the chunk.
+         * @param offset The offset of the chunk in the buffer.
+         * @param length The length of the chunk.
+         * @return The name of the chunk, hex encoded.
+         */
+        public String hash(byte[] buffer, int offset, int length) {
+            try {
+                if (hashKey == null) {
+                    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                    digest.update(buffer, offset, length);
+                    return HexFormat.of().formatHex(digest.digest());
+                }
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(hashKey);
+                mac.update(buffer, offset, length);
+                return HexFormat.of().formatHex(mac.doFinal());
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not hash a chunk", e);
+            }
+        }
+
+        /**
+         * Seal a chunk for storage.
+         *
+         * @param hash  The name of the chunk.
+         * @param chunk The plaintext chunk.
+         * @return The chunk to store.
+         */
+        public byte[] seal(String hash, byte[] chunk) {
+            if (key == null)
+                return chunk;
+            byte[] nonce = new byte[WRAP_NONCE_SIZE];
+            RANDOM.nextBytes(nonce);
+            try {
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+                cipher.updateAAD(hash.getBytes(StandardCharsets.US_ASCII));
+                byte[] sealed = cipher.doFinal(chunk);
+                return ByteBuffer.allocate(WRAP_NONCE_SIZE + sealed.length).put(nonce).put(sealed).array();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not seal chunk " + hash, e);
+            }
+        }
+
+        /**
+         * Open a stored chunk.
+         *
+         * @param hash   The name of the chunk.
+         * @param stored The stored chunk.
+         * @return The plaintext chunk.
+         * @throws IOException If the chunk fails authentication.
+         */
+        public byte[] open(String hash, byte[] stored) throws IOException {
+            if (key == null)
+                return stored;
+            try {
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, stored, 0, WRAP_NONCE_SIZE));
+                cipher.updateAAD(hash.getBytes(StandardCharsets.US_ASCII));
+                return cipher.doFinal(stored, WRAP_NONCE_SIZE, stored.length - WRAP_NONCE_SIZE);
+            } catch (AEADBadTagException e) {
+                throw new IOException("Chunk " + hash + " fails authentication", e);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not open chunk " + hash, e);
+            }
+        }
+
+        private static byte[] mac(SecretKey key, byte[] data) {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac.doFinal(data);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        }
+    }
+
+    /**
+     * A payload prepared for storage.
+     *
+     * @param data    The payload to store.
+     * @param dataKey The wrapped data key, {@code null} if the payload is stored in plain.
+     */
+    public record Sealed(byte[] data, byte[] dataKey) {
+    }
+}
@@ -0,0 +1,197 @@
+package com.ouharri.fileuploader.crypto;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Segmented AES-GCM, in the spirit of the STREAM construction.
+ * <p>
+ * The plaintext is cut into segments of a fixed size, each encrypted and authenticated on its own under the
+ * data key of the file. The nonce of a segment is a random prefix drawn per payload, the index of the segment
+ * and a flag marking the last one, so segments can neither be reordered nor dropped from the end unnoticed.
+ * Since segments are independent, a payload is encrypted and decrypted one segment at a time, and a range
+ * is read by decrypting only the segments it touches.
+ * <pre>
+ * payload = version (1) | nonce prefix (7) | segment 0 | ... | segment n-1
+ * segment = AES-GCM(plaintext segment) | tag (16)
+ * </pre>
+ */
+public final class SegmentedGcm {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int PREFIX_SIZE = 7;
+    private static final int HEADER_SIZE = 1 + PREFIX_SIZE;
+    private static final int TAG_SIZE = 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int segmentSize;
+
+    /**
+     * @param segmentSize The size of the plaintext segments.
+     */
+    public SegmentedGcm(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * @param size The size of a plaintext.
+     * @return The size of its encryption.
+     */
+    public long encryptedSize(long size) {
+        return HEADER_SIZE + size + (long) TAG_SIZE * segments(size);
+    }
+
+    /**
+     * Encrypt a plaintext read from a stream, one segment at a time.
+     *
+     * @param key       The data key.
+     * @param plaintext The stream of the plaintext.
+     * @param size      The size of the plaintext.
+     * @param observer  Sees every plaintext segment before it is encrypted, to compute checksums along the way.
+     * @return The encrypted payload.
+     * @throws IOException If the stream fails or does not hold {@code size} bytes.
+     */
+    public byte[] encrypt(SecretKey key, InputStream plaintext, long size, SegmentObserver observer) throws IOException {
+        byte[] payload = new byte[Math.toIntExact(encryptedSize(size))];
+        byte[] prefix = new byte[PREFIX_SIZE];
+        RANDOM.nextBytes(prefix);
+        payload[0] = FORMAT_VERSION;
+        System.arraycopy(prefix, 0, payload, 1, PREFIX_SIZE);
+        byte[] segment = new byte[(int) Math.min(segmentSize, size)];
+        long segments = segments(size);
+        int position = HEADER_SIZE;
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            for (int index = 0; index < segments; index++) {
+                int length = (int) Math.min(segmentSize, size - (long) index * segmentSize);
+                if (plaintext.readNBytes(segment, 0, length) != length)
+                    throw new IOException("The plaintext is shorter than its announced size of " + size + " bytes");
+                observer.accept(segment, 0, length);
+                cipher.init(Cipher.ENCRYPT_MODE, key, nonce(prefix, index, index == segments - 1));
+                position += cipher.doFinal(segment, 0, length, payload, position);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+        if (plaintext.read() != -1)
+            throw new IOException("The plaintext is longer than its announced size of " + size + " bytes");
+        return payload;
+    }
+
+    /**
+     * Open a range of an encrypted payload as a stream, decrypting the segments it touches as they are read.
+     *
+     * @param key     The data key.
+     * @param payload The encrypted payload.
+     * @param size    The size of the plaintext.
+     * @param offset  The offset of the range in the plaintext.
+     * @param length  The length of the range.
+     * @return The stream of the plaintext range. Reading a segment that fails authentication throws an {@link IOException}.
+     */
+    public InputStream decrypt(SecretKey key, ByteBuffer payload, long size, long offset, long length) {
+        if (payload.remaining() != encryptedSize(size) || payload.get(payload.position()) != FORMAT_VERSION)
+            throw new IllegalArgumentException("The payload is not a segmented AES-GCM payload of " + size + " bytes");
+        byte[] prefix = new byte[PREFIX_SIZE];
+        payload.get(payload.position() + 1, prefix);
+        return new DecryptingStream(key, payload.slice(payload.position() + HEADER_SIZE, payload.remaining() - HEADER_SIZE), prefix, size, offset, Math.min(length, size - offset));
+    }
+
+    private long segments(long size) {
+        return size == 0 ? 1 : (size + segmentSize - 1) / segmentSize;
+    }
+
+    private static GCMParameterSpec nonce(byte[] prefix, int index, boolean last) {
+        byte[] nonce = new byte[12];
+        System.arraycopy(prefix, 0, nonce, 0, PREFIX_SIZE);
+        nonce[7] = (byte) (index >>> 24);
+        nonce[8] = (byte) (index >>> 16);
+        nonce[9] = (byte) (index >>> 8);
+        nonce[10] = (byte) index;
+        nonce[11] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(TAG_SIZE * 8, nonce);
+    }
+
+    /**
+     * Sees the plaintext segments as they are encrypted.
+     */
+    @FunctionalInterface
+    public interface SegmentObserver {
+        void accept(byte[] buffer, int offset, int length);
+    }
+
+    /**
+     * Stream decrypting the segments of a range one at a time, into a buffer of one segment.
+     */
+    private final class DecryptingStream extends InputStream {
+
+        private final SecretKey key;
+        private final ByteBuffer segments;
+        private final byte[] prefix;
+        private final long size;
+        private final long end;
+        private final byte[] sealed;
+        private final byte[] plain;
+        private final Cipher cipher;
+        private long position;
+        private int index = -1;
+        private int plainLength;
+
+        private DecryptingStream(SecretKey key, ByteBuffer segments, byte[] prefix, long size, long offset, long length) {
+            this.key = key;
+            this.segments = segments;
+            this.prefix = prefix;
+            this.size = size;
+            this.position = offset;
+            this.end = offset + Math.max(length, 0);
+            this.sealed = new byte[(int) Math.min(segmentSize, size) + TAG_SIZE];
+            this.plain = new byte[(int) Math.min(segmentSize, size)];
+            try {
+                this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES-GCM is not available", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (position >= end)
+                return -1;
+            int segment = (int) (position / segmentSize);
+            if (segment != index)
+                open(segment);
+            int from = (int) (position - (long) segment * segmentSize);
+            int read = (int) Math.min(Math.min(length, plainLength - from), end - position);
+            System.arraycopy(plain, from, bytes, offset, read);
+            position += read;
+            return read;
+        }
+
+        private void open(int segment) throws IOException {
+            long segmentCount = segments(size);
+            int length = (int) Math.min(segmentSize, size - (long) segment * segmentSize);
+            segments.get((int) ((long) segment * (segmentSize + TAG_SIZE)), sealed, 0, length + TAG_SIZE);
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, key, nonce(prefix, segment, segment == segmentCount - 1));
+                plainLength = cipher.doFinal(sealed, 0, length + TAG_SIZE, plain, 0);
+            } catch (AEADBadTagException e) {
+                throw new IOException("Segment " + segment + " of the payload fails authentication", e);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES-GCM is not available", e);
+            }
+            index = segment;
+        }
+    }
+}
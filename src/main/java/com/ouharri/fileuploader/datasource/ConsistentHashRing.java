@@ -0,0 +1,82 @@
+package com.ouharri.fileuploader.datasource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Consistent hash ring placing keys on nodes.
+ * <p>
+ * Each node is hashed at a number of virtual points on a 64-bit ring, and a key belongs to the first
+ * point at or after its own hash. Adding a node only moves the keys falling just before its points,
+ * about {@code 1 / (n + 1)} of them, and all of them to the new node.
+ *
+ * @param <N> The type of the nodes.
+ */
+public final class ConsistentHashRing<N> {
+
+    private final NavigableMap<Long, N> points = new TreeMap<>();
+    private final List<N> nodes;
+
+    /**
+     * @param nodes        The nodes of the ring.
+     * @param virtualNodes The number of points of each node on the ring.
+     */
+    public ConsistentHashRing(Collection<N> nodes, int virtualNodes) {
+        if (nodes.isEmpty())
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        if (virtualNodes <= 0)
+            throw new IllegalArgumentException("The number of virtual nodes must be positive");
+        this.nodes = List.copyOf(nodes);
+        for (N node : this.nodes)
+            for (int i = 0; i < virtualNodes; i++)
+                points.put(hash(node + "#" + i), node);
+    }
+
+    /**
+     * @return The nodes of the ring.
+     */
+    public List<N> nodes() {
+        return nodes;
+    }
+
+    /**
+     * @param key The key to place.
+     * @return The node owning the key.
+     */
+    public N nodeFor(UUID key) {
+        long hash = mix(key.getMostSignificantBits() ^ Long.rotateLeft(key.getLeastSignificantBits(), 32));
+        Map.Entry<Long, N> point = points.ceilingEntry(hash);
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++)
+                hash = hash << 8 | (digest[i] & 0xFF);
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    /**
+     * The 64-bit finalizer of MurmurHash3, spreading the bits of the key over the whole ring.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,29 @@
+package com.ouharri.fileuploader.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Background job validating the read replicas, so that a replica marked down is brought back once reachable,
+ * and a replica going down is noticed before a read hits it.
+ */
+@Component
+public class ReplicaHealthChecker {
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final int timeoutSeconds;
+
+    public ReplicaHealthChecker(
+            ReplicaRoutingDataSource routingDataSource,
+            @Value("${app.datasource.health-check-timeout:2}") int timeoutSeconds
+    ) {
+        this.routingDataSource = routingDataSource;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.health-check-interval:5000}")
+    public void check() {
+        routingDataSource.checkReplicas(timeoutSeconds);
+    }
+}
@@ -0,0 +1,28 @@
+package com.ouharri.fileuploader.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Read replicas of the primary data source.
+ * Replicas without credentials use the credentials of the primary.
+ *
+ * @param replicas The read replicas.
+ */
+@ConfigurationProperties(prefix = "app.datasource")
+public record ReplicaProperties(List<Replica> replicas) {
+
+    public ReplicaProperties {
+        replicas = replicas != null ? replicas : List.of();
+    }
+
+    /**
+     * @param name     The name of the replica, used as pool name and in the logs.
+     * @param url      The JDBC URL of the replica.
+     * @param username The user name, defaults to the one of the primary.
+     * @param password The password, defaults to the one of the primary.
+     */
+    public record Replica(String name, String url, String username, String password) {
+    }
+}
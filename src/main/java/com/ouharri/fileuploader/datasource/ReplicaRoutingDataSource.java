@@ -0,0 +1,157 @@
+package com.ouharri.fileuploader.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routing {@link DataSource} sending reads to the read replicas and everything else to the primary.
+ * <p>
+ * Read-only transactions, and {@link RoutingContext#readOnly read-only blocks}, are spread round-robin over the
+ * healthy replicas, unless the thread is {@link RoutingContext#pinToPrimary() pinned} to the primary.
+ * A replica failing to hand out a connection is marked down and the read falls back to the primary,
+ * until {@link #checkReplicas} finds it valid again.
+ * <p>
+ * The routing decision reads the transaction state, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager then
+ * opens the transaction before the physical connection is fetched.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param primary  The primary data source.
+     * @param replicas The read replica data sources, by name.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas.entrySet().stream()
+                .map(replica -> new Replica(replica.getKey(), replica.getValue()))
+                .toList();
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica replica = selectReplica();
+        return replica != null ? replica.name : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = selectReplica();
+        if (replica == null)
+            return primary.getConnection();
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            markDown(replica, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Replica replica = selectReplica();
+        if (replica == null)
+            return primary.getConnection(username, password);
+        try {
+            return replica.dataSource.getConnection(username, password);
+        } catch (SQLException e) {
+            markDown(replica, e);
+            return primary.getConnection(username, password);
+        }
+    }
+
+    /**
+     * Validate every replica, marking it up or down.
+     *
+     * @param timeoutSeconds The validation timeout of each replica.
+     */
+    public void checkReplicas(int timeoutSeconds) {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(timeoutSeconds))
+                    throw new SQLException("Connection is not valid");
+                if (!replica.healthy) {
+                    replica.healthy = true;
+                    log.info("Read replica {} is back up", replica.name);
+                }
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+
+    /**
+     * @return The names of the replicas currently serving reads.
+     */
+    public List<String> healthyReplicas() {
+        return replicas.stream()
+                .filter(replica -> replica.healthy)
+                .map(replica -> replica.name)
+                .toList();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas)
+            if (replica.dataSource instanceof AutoCloseable closeable)
+                closeable.close();
+        if (primary instanceof AutoCloseable closeable)
+            closeable.close();
+    }
+
+    private Replica selectReplica() {
+        if (replicas.isEmpty() || RoutingContext.isPinnedToPrimary())
+            return null;
+        if (!RoutingContext.isReadOnly() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+            return null;
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy)
+                return replica;
+        }
+        return null;
+    }
+
+    private void markDown(Replica replica, SQLException cause) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("Read replica {} is down, reads fall back to the primary: {}", replica.name, cause.getMessage());
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
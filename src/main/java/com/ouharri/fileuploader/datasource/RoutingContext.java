@@ -0,0 +1,136 @@
+package com.ouharri.fileuploader.datasource;
+
+import com.ouharri.fileuploader.bulkhead.TrafficClass;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound hints for the {@link ShardRoutingDataSource} and the {@link ReplicaRoutingDataSource}.
+ * <p>
+ * The current shard selects the database the connections of the thread are fetched from,
+ * and the current {@link TrafficClass} the connection pool of that database.
+ * A thread pinned to the primary never reads from a replica, which gives read-your-writes to a client
+ * that has just written. A read-only hint lets code running outside of a read-only transaction,
+ * such as the plain JDBC download path, be served by a replica too.
+ */
+public final class RoutingContext {
+
+    private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+    private static final ThreadLocal<TrafficClass> TRAFFIC_CLASS = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    /**
+     * @return The shard of the current thread, or {@code null} when none was selected.
+     */
+    public static String currentShard() {
+        return SHARD.get();
+    }
+
+    /**
+     * Run a block on a shard, restoring the previous shard afterwards.
+     *
+     * @param shard The shard to run on.
+     * @param block The block to run.
+     * @return The result of the block.
+     */
+    static <T> T onShard(String shard, Supplier<T> block) {
+        String previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return block.get();
+        } finally {
+            if (previous != null)
+                SHARD.set(previous);
+            else
+                SHARD.remove();
+        }
+    }
+
+    /**
+     * @return The traffic class of the current thread, interactive by default.
+     */
+    public static TrafficClass trafficClass() {
+        TrafficClass trafficClass = TRAFFIC_CLASS.get();
+        return trafficClass != null ? trafficClass : TrafficClass.INTERACTIVE;
+    }
+
+    /**
+     * Select the connection pools of a traffic class for the current thread.
+     *
+     * @param trafficClass The traffic class, or {@code null} to go back to the default one.
+     */
+    public static void useTrafficClass(TrafficClass trafficClass) {
+        if (trafficClass != null)
+            TRAFFIC_CLASS.set(trafficClass);
+        else
+            TRAFFIC_CLASS.remove();
+    }
+
+    /**
+     * Pin the current thread to the primary, until {@link #clear()} is called.
+     */
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    /**
+     * Run a block on the primary, for reads that must see every committed write, whatever the lag of the replicas.
+     *
+     * @param block The block to run.
+     * @return The result of the block.
+     */
+    public static <T> T onPrimary(Supplier<T> block) {
+        if (isPinnedToPrimary())
+            return block.get();
+        PINNED.set(Boolean.TRUE);
+        try {
+            return block.get();
+        } finally {
+            PINNED.remove();
+        }
+    }
+
+    /**
+     * @return Whether the current thread is pinned to the primary.
+     */
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    /**
+     * @return Whether the current thread runs a read-only block.
+     */
+    public static boolean isReadOnly() {
+        return READ_ONLY.get() != null;
+    }
+
+    /**
+     * Run a block that only reads, so that it may be served by a replica.
+     *
+     * @param block The block to run.
+     * @return The result of the block.
+     */
+    public static <T> T readOnly(Supplier<T> block) {
+        if (isReadOnly())
+            return block.get();
+        READ_ONLY.set(Boolean.TRUE);
+        try {
+            return block.get();
+        } finally {
+            READ_ONLY.remove();
+        }
+    }
+
+    /**
+     * Clear the hints of the current thread.
+     */
+    public static void clear() {
+        SHARD.remove();
+        PINNED.remove();
+        READ_ONLY.remove();
+    }
+}
@@ -0,0 +1,32 @@
+package com.ouharri.fileuploader.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Shards of the file storage, besides the home shard configured under {@code spring.datasource}.
+ * Shards without credentials use the credentials of the home shard.
+ *
+ * @param shards         The other shards.
+ * @param previousShards The shards of the ring before the last change, home shard included, while rebalancing.
+ * @param virtualNodes   The number of points of each shard on the hash ring.
+ */
+@ConfigurationProperties(prefix = "app.sharding")
+public record ShardProperties(List<Shard> shards, List<String> previousShards, Integer virtualNodes) {
+
+    public ShardProperties {
+        shards = shards != null ? shards : List.of();
+        previousShards = previousShards != null ? previousShards : List.of();
+        virtualNodes = virtualNodes != null ? virtualNodes : 128;
+    }
+
+    /**
+     * @param name     The name of the shard; it places the shard on the hash ring and must never change.
+     * @param url      The JDBC URL of the shard.
+     * @param username The user name, defaults to the one of the home shard.
+     * @param password The password, defaults to the one of the home shard.
+     */
+    public record Shard(String name, String url, String username, String password) {
+    }
+}
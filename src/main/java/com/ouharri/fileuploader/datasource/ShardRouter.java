@@ -0,0 +1,229 @@
+package com.ouharri.fileuploader.datasource;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Places files on shards and runs work on them.
+ * <p>
+ * Files are placed by consistent hashing of their id, so lookups by id go straight to one shard, while
+ * listings scatter to every shard and gather the results. While a rebalancing is in progress, the ring before
+ * the last change is kept: a file not yet moved to its new shard is still found on its previous one.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+@Slf4j
+@Component
+public class ShardRouter {
+
+    /**
+     * The name of the home shard, the one configured under {@code spring.datasource}.
+     */
+    public static final String HOME = "home";
+
+    private final ShardRoutingDataSource dataSource;
+    private final ConsistentHashRing<String> ring;
+    private final ConsistentHashRing<String> previousRing;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService scatterExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ShardRouter(
+            ShardRoutingDataSource dataSource,
+            ShardProperties properties,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.dataSource = dataSource;
+        List<String> shards = new ArrayList<>();
+        shards.add(HOME);
+        properties.shards().forEach(shard -> shards.add(shard.name()));
+        this.ring = new ConsistentHashRing<>(shards, properties.virtualNodes());
+        if (properties.previousShards().isEmpty() || properties.previousShards().equals(shards)) {
+            this.previousRing = null;
+        } else {
+            if (!shards.containsAll(properties.previousShards()))
+                throw new IllegalArgumentException("The previous shards " + properties.previousShards() + " are not all configured");
+            this.previousRing = new ConsistentHashRing<>(properties.previousShards(), properties.virtualNodes());
+        }
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @return The names of all shards, home shard first.
+     */
+    public List<String> shards() {
+        return ring.nodes();
+    }
+
+    /**
+     * @return Whether files may still be on the shard they had before the last change of the ring.
+     */
+    public boolean isRebalancing() {
+        return previousRing != null;
+    }
+
+    /**
+     * @param id The unique identifier of a file.
+     * @return The shard the file belongs to on the current ring.
+     */
+    public String ownerOf(UUID id) {
+        return ring.nodeFor(id);
+    }
+
+    /**
+     * Find the shard holding a file. While rebalancing, a file not found on its new shard is looked up
+     * on its previous one.
+     *
+     * @param id The unique identifier of a file.
+     * @return The shard holding the file, or the one it belongs to if it does not exist.
+     */
+    public String locate(UUID id) {
+        String owner = ring.nodeFor(id);
+        if (previousRing == null)
+            return owner;
+        String previousOwner = previousRing.nodeFor(id);
+        if (owner.equals(previousOwner))
+            return owner;
+        Integer found = new JdbcTemplate(dataSource.shard(owner))
+                .queryForObject("SELECT count(*) FROM files WHERE id = ?", Integer.class, id);
+        return found != null && found > 0 ? owner : previousOwner;
+    }
+
+    /**
+     * Run work on the shard holding a file.
+     *
+     * @param id   The unique identifier of the file.
+     * @param work The work to run.
+     * @return The result of the work.
+     */
+    public <T> T on(UUID id, Supplier<T> work) {
+        return onShard(locate(id), work);
+    }
+
+    /**
+     * Run work on the shard a new file belongs to.
+     *
+     * @param id   The unique identifier of the new file.
+     * @param work The work to run.
+     * @return The result of the work.
+     */
+    public <T> T onNew(UUID id, Supplier<T> work) {
+        return onShard(ownerOf(id), work);
+    }
+
+    /**
+     * Run work on a shard.
+     *
+     * @param shard The shard to run on.
+     * @param work  The work to run.
+     * @return The result of the work.
+     * @throws IllegalStateException If a transaction is already running on another shard.
+     */
+    public <T> T onShard(String shard, Supplier<T> work) {
+        String current = Objects.requireNonNullElse(RoutingContext.currentShard(), HOME);
+        if (!current.equals(shard) && TransactionSynchronizationManager.isActualTransactionActive())
+            throw new IllegalStateException("Cannot switch from shard " + current + " to shard " + shard + " inside a transaction");
+        return RoutingContext.onShard(shard, work);
+    }
+
+    /**
+     * Run work on every shard, one after the other.
+     *
+     * @param work The work to run, given the name of the shard.
+     */
+    public void forEachShard(Consumer<String> work) {
+        for (String shard : shards())
+            onShard(shard, () -> {
+                work.accept(shard);
+                return null;
+            });
+    }
+
+    /**
+     * Run work on every shard, one after the other, each in its own read-only transaction.
+     *
+     * @param work The work to run.
+     */
+    public void readEachShard(Runnable work) {
+        forEachShard(shard -> readOnlyTransaction.executeWithoutResult(status -> work.run()));
+    }
+
+    /**
+     * Run a query on every shard in parallel, each in its own read-only transaction, and gather the results.
+     *
+     * @param query The query to run.
+     * @return The results of all shards, in shard order.
+     */
+    public <T> List<T> gather(Supplier<? extends Collection<T>> query) {
+        if (shards().size() == 1)
+            return onShard(HOME, () -> new ArrayList<>(Objects.requireNonNull(readOnlyTransaction.execute(status -> query.get()))));
+
+        boolean pinned = RoutingContext.isPinnedToPrimary();
+        List<Future<Collection<T>>> results = shards().stream()
+                .map(shard -> scatterExecutor.submit(() -> {
+                    if (pinned)
+                        RoutingContext.pinToPrimary();
+                    try {
+                        return RoutingContext.onShard(shard, () -> readOnlyTransaction.execute(status -> (Collection<T>) query.get()));
+                    } finally {
+                        RoutingContext.clear();
+                    }
+                }))
+                .toList();
+        List<T> gathered = new ArrayList<>();
+        for (Future<Collection<T>> result : results)
+            gathered.addAll(Objects.requireNonNull(join(result)));
+        return gathered;
+    }
+
+    /**
+     * Run a query on every shard in parallel and merge the results, each shard returning them in the same order.
+     *
+     * @param query      The query to run.
+     * @param comparator The order of the results.
+     * @return The results of all shards, merged in order.
+     */
+    public <T> List<T> gatherSorted(Supplier<? extends Collection<T>> query, Comparator<? super T> comparator) {
+        List<T> gathered = gather(query);
+        if (shards().size() > 1)
+            gathered.sort(comparator);
+        return gathered;
+    }
+
+    @PreDestroy
+    public void close() {
+        scatterExecutor.shutdownNow();
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while gathering results from the shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime)
+                throw runtime;
+            throw new CompletionException(e.getCause());
+        }
+    }
+}
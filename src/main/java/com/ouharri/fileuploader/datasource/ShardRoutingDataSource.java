@@ -0,0 +1,64 @@
+package com.ouharri.fileuploader.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routing {@link DataSource} fetching connections from the shard selected in the {@link RoutingContext},
+ * or from the home shard when none is selected.
+ * <p>
+ * Like the {@link ReplicaRoutingDataSource}, it must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, and a transaction stays on the
+ * shard its first statement ran on.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final Map<String, DataSource> shards;
+
+    /**
+     * @param home   The home shard, holding the data created before sharding and the global tables.
+     * @param shards The other shards, by name.
+     */
+    public ShardRoutingDataSource(DataSource home, Map<String, DataSource> shards) {
+        this.shards = Map.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>(shards);
+        targets.put(ShardRouter.HOME, home);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(home);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = RoutingContext.currentShard();
+        return shard != null ? shard : ShardRouter.HOME;
+    }
+
+    /**
+     * @param shard The name of a shard.
+     * @return The data source of the shard.
+     * @throws IllegalArgumentException If there is no such shard.
+     */
+    public DataSource shard(String shard) {
+        DataSource dataSource = getResolvedDataSources().get(shard);
+        if (dataSource == null)
+            throw new IllegalArgumentException("Unknown shard " + shard);
+        return dataSource;
+    }
+
+    /**
+     * Close the pools of the shards other than the home one, which has its own lifecycle.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : shards.values())
+            if (dataSource instanceof AutoCloseable closeable)
+                closeable.close();
+    }
+}
@@ -0,0 +1,33 @@
+package com.ouharri.fileuploader.datasource;
+
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Applies the Liquibase change log to shards, as Spring Boot only migrates the application data source.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ShardSchemaInitializer implements InitializingBean {
+
+    private final Map<String, DataSource> shards;
+    private final String changeLog;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        for (Map.Entry<String, DataSource> shard : shards.entrySet()) {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(shard.getValue());
+            liquibase.setChangeLog(changeLog);
+            liquibase.setResourceLoader(new DefaultResourceLoader());
+            liquibase.afterPropertiesSet();
+            log.info("Schema of shard {} is up to date", shard.getKey());
+        }
+    }
+}
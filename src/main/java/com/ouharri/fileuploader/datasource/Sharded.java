@@ -0,0 +1,21 @@
+package com.ouharri.fileuploader.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated method on the shard owning a file, before any transaction it declares is opened.
+ * The file is the first {@link java.util.UUID} argument of the method, or its first
+ * {@link com.ouharri.fileuploader.entity.AbstractEntity} argument.
+ * A call made while a shard is already selected stays on that shard.
+ *
+ * @see ShardedAspect
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Sharded {
+}
@@ -0,0 +1,64 @@
+package com.ouharri.fileuploader.datasource;
+
+import com.ouharri.fileuploader.entity.AbstractEntity;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Selects the shard of the methods annotated with {@link Sharded}.
+ * It runs first, so that the transaction and cache interceptors already run on the shard.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShardedAspect {
+
+    private final ShardRouter shardRouter;
+
+    @Around("@annotation(com.ouharri.fileuploader.datasource.Sharded)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (RoutingContext.currentShard() != null)
+            return joinPoint.proceed();
+        UUID fileId = fileIdOf(joinPoint.getArgs());
+        if (fileId == null)
+            return joinPoint.proceed();
+        try {
+            return shardRouter.on(fileId, () -> {
+                try {
+                    return joinPoint.proceed();
+                } catch (Throwable e) {
+                    throw new ProceedException(e);
+                }
+            });
+        } catch (ProceedException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static UUID fileIdOf(Object[] args) {
+        for (Object arg : args)
+            if (arg instanceof UUID id)
+                return id;
+        for (Object arg : args)
+            if (arg instanceof AbstractEntity entity)
+                return entity.getId();
+        return null;
+    }
+
+    /**
+     * Carries the exception of the advised method through the routing block.
+     */
+    private static final class ProceedException extends RuntimeException {
+        private ProceedException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ouharri.fileuploader.datasource;
+
+import com.ouharri.fileuploader.bulkhead.TrafficClass;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routing {@link DataSource} giving each {@link TrafficClass} its own connection pool on the same database,
+ * so that long payload transfers can only exhaust the ingest pool, never the one serving interactive reads.
+ */
+public class TrafficClassRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final Map<TrafficClass, DataSource> pools;
+
+    /**
+     * @param pools The connection pool of each traffic class.
+     */
+    public TrafficClassRoutingDataSource(Map<TrafficClass, DataSource> pools) {
+        if (!pools.containsKey(TrafficClass.INTERACTIVE))
+            throw new IllegalArgumentException("An interactive pool is required");
+        this.pools = Map.copyOf(pools);
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(TrafficClass.INTERACTIVE));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return RoutingContext.trafficClass();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource pool : pools.values())
+            if (pool instanceof AutoCloseable closeable)
+                closeable.close();
+    }
+}
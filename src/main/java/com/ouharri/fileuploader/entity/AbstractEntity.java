@@ -6,7 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
-import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.annotation.ReadOnlyProperty;
@@ -35,13 +35,15 @@ public abstract class AbstractEntity implements _Entity<UUID> {
      * The unique identifier for the entity.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @AssignableUuid
     private UUID id;
 
     /**
      * The timestamp indicating when the entity was created.
+     * It is part of the key of the partitioned {@code files} table, so Hibernate bounds its updates and deletes with it.
      */
-    @CreationTimestamp
+    @PartitionKey
+    @AssignableTimestamp
     @ReadOnlyProperty
     @Temporal(TemporalType.TIMESTAMP)
     @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
@@ -0,0 +1,18 @@
+package com.ouharri.fileuploader.entity;
+
+import org.hibernate.annotations.ValueGenerationType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the current time when an entity is inserted, unless the entity already carries a time.
+ * Files are given their creation time along with their time-ordered id, so that both tell the same partition.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@ValueGenerationType(generatedBy = AssignableTimestampGenerator.class)
+public @interface AssignableTimestamp {
+}
@@ -0,0 +1,28 @@
+package com.ouharri.fileuploader.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+
+/**
+ * Generator of the {@link AssignableTimestamp} values. The time is cut to the microseconds the database keeps,
+ * so that the entity matches its row when the time is used as a partition key.
+ */
+public class AssignableTimestampGenerator implements BeforeExecutionGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return currentValue != null ? currentValue : Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
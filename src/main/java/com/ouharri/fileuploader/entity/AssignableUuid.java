@@ -0,0 +1,18 @@
+package com.ouharri.fileuploader.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a random UUID identifier, unless the entity already carries one.
+ * Files are given their id before being persisted, so that it can place them on a shard.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@IdGeneratorType(AssignableUuidGenerator.class)
+public @interface AssignableUuid {
+}
@@ -0,0 +1,18 @@
+package com.ouharri.fileuploader.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.util.UUID;
+
+/**
+ * Generator of the {@link AssignableUuid} identifiers.
+ */
+public class AssignableUuidGenerator implements IdentifierGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        Object id = session.getEntityPersister(null, object).getIdentifier(object, session);
+        return id != null ? id : UUID.randomUUID();
+    }
+}
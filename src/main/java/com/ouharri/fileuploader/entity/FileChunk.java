@@ -0,0 +1,50 @@
+package com.ouharri.fileuploader.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Entity class representing a content-defined chunk of file data, stored once by its hash
+ * and shared by every {@link FileVersion} containing it.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "file_chunks")
+public class FileChunk {
+
+    /**
+     * The SHA-256 hash of the chunk data, or its keyed hash for a chunk of the history of an encrypted file, hex encoded.
+     */
+    @Id
+    private String hash;
+
+    /**
+     * The size of the chunk in bytes.
+     */
+    @Column(nullable = false)
+    private int size;
+
+    /**
+     * The number of references from file versions to this chunk.
+     */
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    /**
+     * The binary data of the chunk, sealed for a chunk of the history of an encrypted file.
+     */
+    @Lob
+    private byte[] data;
+}
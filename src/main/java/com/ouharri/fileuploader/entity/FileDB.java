@@ -1,19 +1,27 @@
 package com.ouharri.fileuploader.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.SQLRestriction;
 
+import java.sql.Timestamp;
 import java.util.Objects;
 
 /**
  * Entity class representing a file stored in the system.
+ * Deleted files are only tombstoned, and stay invisible to the application until they are collected;
+ * files uploaded with a time to live turn invisible as they expire, before they are tombstoned.
  */
 @Getter
 @Setter
@@ -22,6 +30,7 @@ import java.util.Objects;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "files")
+@SQLRestriction("deleted_at IS NULL AND (expires_at IS NULL OR expires_at > now())")
 public class FileDB extends AbstractEntity {
 
     /**
@@ -37,7 +46,54 @@ public class FileDB extends AbstractEntity {
     private String type;
 
     /**
-     * The binary data of the file.
+     * The size of the file in bytes, kept alongside the payload so that
+     * metadata-only queries never have to touch the binary data.
+     */
+    private Long size;
+
+    /**
+     * The number of versions of the file to retain, {@code null} or {@code 0} to keep no history.
+     */
+    @Column(name = "retained_versions")
+    private Integer retainedVersions;
+
+    /**
+     * The timestamp when the file was deleted, {@code null} while the file is live.
+     */
+    @Column(name = "deleted_at")
+    private Timestamp deletedAt;
+
+    /**
+     * The timestamp from which the file is expired, {@code null} if it was uploaded without a time to live.
+     */
+    @Column(name = "expires_at")
+    private Timestamp expiresAt;
+
+    /**
+     * Where the payload of the file is stored.
+     */
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    private PayloadStorage storage = PayloadStorage.DB;
+
+    /**
+     * The CRC32C of the payload, recorded at ingest; {@code null} until known again after a range write.
+     */
+    private Integer crc32c;
+
+    /**
+     * The hex encoded SHA-256 digest of the payload, recorded at ingest when enabled.
+     */
+    private String sha256;
+
+    /**
+     * The data key the payload is encrypted with, wrapped under the master key; {@code null} if the payload is stored in plain.
+     */
+    @Column(name = "data_key")
+    private byte[] dataKey;
+
+    /**
+     * The binary data of the file, empty when the payload is stored in pack files.
      */
     @Lob
     private byte[] data;
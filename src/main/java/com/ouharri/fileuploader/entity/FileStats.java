@@ -0,0 +1,52 @@
+package com.ouharri.fileuploader.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Entity class representing the aggregated storage statistics of one content type.
+ * Rows are maintained incrementally from in-memory counters and periodically reconciled
+ * against the {@code files} table.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "file_stats")
+public class FileStats {
+
+    /**
+     * The content type the statistics are aggregated for.
+     */
+    @Id
+    private String type;
+
+    /**
+     * The number of files of this content type.
+     */
+    @Column(name = "file_count", nullable = false)
+    private long fileCount;
+
+    /**
+     * The total size in bytes of the files of this content type.
+     */
+    @Column(name = "total_bytes", nullable = false)
+    private long totalBytes;
+
+    /**
+     * The timestamp of the last flush or reconciliation of this row.
+     */
+    @Column(name = "updated_at")
+    private Timestamp updatedAt;
+}
@@ -0,0 +1,76 @@
+package com.ouharri.fileuploader.entity;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OrderColumn;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Entity class representing a retained version of a file.
+ * The content is not copied: it is described by the ordered list of the {@link FileChunk} it is made of.
+ */
+@Getter
+@Setter
+@Entity
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "file_versions")
+public class FileVersion extends AbstractEntity {
+
+    /**
+     * The unique identifier of the versioned file.
+     */
+    @Column(name = "file_id", nullable = false)
+    private UUID fileId;
+
+    /**
+     * The revision of the file this version captures (the file {@code @Version} at that time).
+     */
+    @Column(nullable = false)
+    private Long revision;
+
+    /**
+     * The name of the file in this version.
+     */
+    private String name;
+
+    /**
+     * The type (content type) of the file in this version.
+     */
+    private String type;
+
+    /**
+     * The size of the file in this version, in bytes.
+     */
+    private Long size;
+
+    /**
+     * The data key the chunks of this version are sealed with, wrapped under the master key; {@code null} if they are stored in plain.
+     */
+    @Column(name = "data_key")
+    private byte[] dataKey;
+
+    /**
+     * The hashes of the chunks making up the content, in order.
+     */
+    @Builder.Default
+    @ElementCollection
+    @OrderColumn(name = "position")
+    @Column(name = "chunk_hash", nullable = false)
+    @CollectionTable(name = "file_version_chunks", joinColumns = @JoinColumn(name = "version_id"))
+    private List<String> chunkHashes = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package com.ouharri.fileuploader.entity;
+
+/**
+ * Where the payload of a file is stored.
+ */
+public enum PayloadStorage {
+
+    /**
+     * In the {@code data} column of the file row.
+     */
+    DB,
+
+    /**
+     * In the pack files of the {@link com.ouharri.fileuploader.storage.PackFileStore}, the {@code data} column staying empty.
+     */
+    PACK
+}
@@ -0,0 +1,20 @@
+package com.ouharri.fileuploader.entity;
+
+import org.hibernate.Interceptor;
+
+/**
+ * Tells Hibernate that an entity which has not been given a version yet has never been stored.
+ * <p>
+ * Entities carrying an {@link AssignableUuid} id set ahead of time would otherwise be taken for detached
+ * ones, which Hibernate refuses to persist with a {@code null} version. Builders leave the version unset,
+ * and Hibernate sets it as soon as the entity is stored or loaded.
+ */
+public class UnversionedTransientInterceptor implements Interceptor {
+
+    @Override
+    public Boolean isTransient(Object entity) {
+        if (entity instanceof AbstractEntity abstractEntity && abstractEntity.getVersion() == null)
+            return Boolean.TRUE;
+        return null;
+    }
+}
@@ -24,6 +24,7 @@ import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import java.security.SignatureException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -67,6 +68,126 @@ public class GlobalExceptionHandler {
         return buildResponseEntity(apiError);
     }
 
+    /**
+     * Handle ResourceNotFoundException and return a proper API error response.
+     */
+    @ExceptionHandler(ResourceNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    protected ResponseEntity<ApiErrorFactory> handleResourceNotFound(ResourceNotFoundException ex) {
+        ApiErrorFactory apiError = new ApiErrorFactory(
+                HttpStatus.NOT_FOUND,
+                List.of(ex.getMessage()),
+                ex
+        );
+        log.error("Handling ResourceNotFoundException: {}", ex.getMessage());
+        return buildResponseEntity(apiError);
+    }
+
+    /**
+     * Handle ResourcePreconditionFailedException (e.g. a stale If-Match version) and return a proper API error response.
+     */
+    @ExceptionHandler(ResourcePreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    protected ResponseEntity<ApiErrorFactory> handlePreconditionFailed(ResourcePreconditionFailedException ex) {
+        ApiErrorFactory apiError = new ApiErrorFactory(
+                HttpStatus.PRECONDITION_FAILED,
+                List.of(ex.getMessage()),
+                ex
+        );
+        log.error("Handling ResourcePreconditionFailedException: {}", ex.getMessage());
+        return buildResponseEntity(apiError);
+    }
+
+    /**
+     * Handle ResourcePreconditionRequiredException (e.g. a missing If-Match header) and return a proper API error response.
+     */
+    @ExceptionHandler(ResourcePreconditionRequiredException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_REQUIRED)
+    protected ResponseEntity<ApiErrorFactory> handlePreconditionRequired(ResourcePreconditionRequiredException ex) {
+        ApiErrorFactory apiError = new ApiErrorFactory(
+                HttpStatus.PRECONDITION_REQUIRED,
+                List.of(ex.getMessage()),
+                ex
+        );
+        log.error("Handling ResourcePreconditionRequiredException: {}", ex.getMessage());
+        return buildResponseEntity(apiError);
+    }
+
+    /**
+     * Handle ResourceRangeNotSatisfiableException and return a proper API error response.
+     */
+    @ExceptionHandler(ResourceRangeNotSatisfiableException.class)
+    @ResponseStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+    protected ResponseEntity<ApiErrorFactory> handleRangeNotSatisfiable(ResourceRangeNotSatisfiableException ex) {
+        ApiErrorFactory apiError = new ApiErrorFactory(
+                HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE,
+                List.of(ex.getMessage()),
+                ex
+        );
+        log.error("Handling ResourceRangeNotSatisfiableException: {}", ex.getMessage());
+        return buildResponseEntity(apiError);
+    }
+
+    /**
+     * Handle ResourceGoneException (e.g. an expired synchronization cursor) and return a proper API error response.
+     */
+    @ExceptionHandler(ResourceGoneException.class)
+    @ResponseStatus(HttpStatus.GONE)
+    protected ResponseEntity<ApiErrorFactory> handleResourceGone(ResourceGoneException ex) {
+        ApiErrorFactory apiError = new ApiErrorFactory(
+                HttpStatus.GONE,
+                List.of(ex.getMessage()),
+                ex
+        );
+        log.error("Handling ResourceGoneException: {}", ex.getMessage());
+        return buildResponseEntity(apiError);
+    }
+
+    /**
+     * Handle ResourceNotCreatedException (e.g. an invalid time to live) and return a proper API error response.
+     */
+    @ExceptionHandler(ResourceNotCreatedException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    protected ResponseEntity<ApiErrorFactory> handleResourceNotCreated(ResourceNotCreatedException ex) {
+        ApiErrorFactory apiError = new ApiErrorFactory(
+                HttpStatus.BAD_REQUEST,
+                List.of(Objects.requireNonNullElse(ex.getMessage(), "The resource could not be created")),
+                ex
+        );
+        log.error("Handling ResourceNotCreatedException: {}", ex.getMessage());
+        return buildResponseEntity(apiError);
+    }
+
+    /**
+     * Handle ResourceConflictException (e.g. a profile still running) and return a proper API error response.
+     */
+    @ExceptionHandler(ResourceConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    protected ResponseEntity<ApiErrorFactory> handleResourceConflict(ResourceConflictException ex) {
+        ApiErrorFactory apiError = new ApiErrorFactory(
+                HttpStatus.CONFLICT,
+                List.of(ex.getMessage()),
+                ex
+        );
+        log.error("Handling ResourceConflictException: {}", ex.getMessage());
+        return buildResponseEntity(apiError);
+    }
+
+    /**
+     * Handle ResourceCorruptedException (a payload failing its checksum) and return a proper API error response.
+     */
+    @ExceptionHandler(ResourceCorruptedException.class)
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    protected ResponseEntity<ApiErrorFactory> handleResourceCorrupted(ResourceCorruptedException ex) {
+        ApiErrorFactory apiError = new ApiErrorFactory(
+                HttpStatus.INTERNAL_SERVER_ERROR,
+                List.of(ex.getMessage()),
+                ex
+        );
+        log.error("Handling ResourceCorruptedException: {}", ex.getMessage());
+        return buildResponseEntity(apiError);
+    }
+
     /**
      * Handle exceptions related to JWT processing (e.g., MalformedJwtException, SignatureException, JwtException).
      */
@@ -0,0 +1,13 @@
+package com.ouharri.fileuploader.exception;
+
+/**
+ * This class is used when a request conflicts with the current state of a resource, such as a profile still running.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ * @version 1.0
+ */
+public class ResourceConflictException extends ResourceException {
+    public ResourceConflictException(String message) {
+        super(message);
+    }
+}
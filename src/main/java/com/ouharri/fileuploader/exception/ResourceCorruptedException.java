@@ -0,0 +1,13 @@
+package com.ouharri.fileuploader.exception;
+
+/**
+ * This class is used when the stored payload of a resource no longer matches the checksum recorded at ingest.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ * @version 1.0
+ */
+public class ResourceCorruptedException extends ResourceException {
+    public ResourceCorruptedException(String message) {
+        super(message);
+    }
+}
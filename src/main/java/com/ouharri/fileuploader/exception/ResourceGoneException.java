@@ -0,0 +1,13 @@
+package com.ouharri.fileuploader.exception;
+
+/**
+ * This class is used when a resource, such as a synchronization cursor, is no longer available.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ * @version 1.0
+ */
+public class ResourceGoneException extends ResourceException {
+    public ResourceGoneException(String message) {
+        super(message);
+    }
+}
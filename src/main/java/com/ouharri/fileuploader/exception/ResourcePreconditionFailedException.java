@@ -0,0 +1,14 @@
+package com.ouharri.fileuploader.exception;
+
+/**
+ * This class is used when a conditional request on a resource fails,
+ * typically because the {@code If-Match} version no longer matches the stored one.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ * @version 1.0
+ */
+public class ResourcePreconditionFailedException extends ResourceException {
+    public ResourcePreconditionFailedException(String message) {
+        super(message);
+    }
+}
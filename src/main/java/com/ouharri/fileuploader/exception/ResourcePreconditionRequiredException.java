@@ -0,0 +1,14 @@
+package com.ouharri.fileuploader.exception;
+
+/**
+ * This class is used when a request that must be conditional on a resource comes without its condition,
+ * typically an update sent without the {@code If-Match} version it is based on.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ * @version 1.0
+ */
+public class ResourcePreconditionRequiredException extends ResourceException {
+    public ResourcePreconditionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.ouharri.fileuploader.exception;
+
+/**
+ * This class is used when a byte range targets a position outside of the resource content.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ * @version 1.0
+ */
+public class ResourceRangeNotSatisfiableException extends ResourceException {
+    public ResourceRangeNotSatisfiableException(String message) {
+        super(message);
+    }
+}
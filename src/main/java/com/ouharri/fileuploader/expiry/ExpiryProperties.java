@@ -0,0 +1,33 @@
+package com.ouharri.fileuploader.expiry;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the expiry of the files uploaded with a time to live.
+ *
+ * @param tick      The tick of the timing wheel; a file is deleted within a tick of its expiry, at the next sweep
+ *                  ({@code app.expiry.interval}).
+ * @param wheelSize The number of buckets of each wheel of the timing wheel.
+ * @param horizon   How far ahead the expiries are held in memory; later ones are loaded from the database as they come near.
+ * @param batchSize The number of expired files deleted together.
+ * @param maxTtl    The longest time to live a file may be uploaded with.
+ */
+@ConfigurationProperties(prefix = "app.expiry")
+public record ExpiryProperties(
+        Duration tick,
+        Integer wheelSize,
+        Duration horizon,
+        Integer batchSize,
+        Duration maxTtl
+) {
+
+    public ExpiryProperties {
+        tick = tick != null ? tick : Duration.ofSeconds(1);
+        wheelSize = wheelSize != null ? wheelSize : 60;
+        horizon = horizon != null ? horizon : Duration.ofHours(1);
+        batchSize = batchSize != null ? batchSize : 500;
+        maxTtl = maxTtl != null ? maxTtl : Duration.ofDays(30);
+    }
+}
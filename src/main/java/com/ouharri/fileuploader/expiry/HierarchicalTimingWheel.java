@@ -0,0 +1,141 @@
+package com.ouharri.fileuploader.expiry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel holding keys until their deadline, after Varghese and Lauck.
+ * <p>
+ * The first wheel has {@code wheelSize} buckets of one tick each; every next wheel, added as far deadlines require it,
+ * has buckets spanning a whole turn of the wheel below. Scheduling a key and advancing the clock by a tick both take
+ * constant time, however many keys are held: as the clock reaches a bucket of an upper wheel, its keys cascade into
+ * the finer wheels below, and they expire from the first wheel at the first tick from their deadline, never before.
+ * <p>
+ * A key is never removed before its deadline; its owner checks, as it expires, that it is still due.
+ * This class is not thread-safe.
+ *
+ * @param <K> The type of the keys.
+ */
+public class HierarchicalTimingWheel<K> {
+
+    private final int wheelSize;
+    private final List<Wheel<K>> wheels = new ArrayList<>();
+    private int size;
+
+    /**
+     * @param tickMillis  The duration of a tick of the first wheel.
+     * @param wheelSize   The number of buckets of each wheel.
+     * @param startMillis The time the clock starts at.
+     */
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2)
+            throw new IllegalArgumentException("A timing wheel needs a positive tick and at least 2 buckets");
+        this.wheelSize = wheelSize;
+        wheels.add(new Wheel<>(tickMillis, wheelSize, startMillis - Math.floorMod(startMillis, tickMillis)));
+    }
+
+    /**
+     * Schedule a key to expire at a deadline.
+     *
+     * @param key      The key.
+     * @param deadline The time the key expires at.
+     * @return Whether the key was scheduled; {@code false} when the clock is past its deadline already,
+     * the key being due at once.
+     */
+    public boolean schedule(K key, long deadline) {
+        // Rounded up to a tick, so that the key expires once its deadline has passed rather than within its tick
+        if (!add(new Entry<>(key, deadline + wheels.get(0).tick - 1)))
+            return false;
+        size++;
+        return true;
+    }
+
+    /**
+     * Advance the clock tick by tick up to a time, expiring the keys whose deadline has passed.
+     *
+     * @param nowMillis The time to advance to.
+     * @param expired   The consumer of the expired keys.
+     */
+    public void advance(long nowMillis, Consumer<K> expired) {
+        Wheel<K> first = wheels.get(0);
+        while (first.currentTime + first.tick <= nowMillis) {
+            long time = first.currentTime + first.tick;
+            List<Entry<K>> flushed = new ArrayList<>();
+            for (Wheel<K> wheel : wheels) {
+                long wheelTime = time - Math.floorMod(time, wheel.tick);
+                if (wheelTime == wheel.currentTime)
+                    break;
+                wheel.currentTime = wheelTime;
+                flushed.addAll(wheel.flush(wheelTime));
+            }
+            for (Entry<K> entry : flushed) {
+                if (!add(entry)) {
+                    size--;
+                    expired.accept(entry.key());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The time of the clock, at the start of its current tick.
+     */
+    public long currentTime() {
+        return wheels.get(0).currentTime;
+    }
+
+    /**
+     * @return The number of keys held.
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean add(Entry<K> entry) {
+        for (int level = 0; ; level++) {
+            if (level == wheels.size()) {
+                Wheel<K> below = wheels.get(level - 1);
+                wheels.add(new Wheel<>(below.interval, wheelSize, below.currentTime - Math.floorMod(below.currentTime, below.interval)));
+            }
+            Wheel<K> wheel = wheels.get(level);
+            if (entry.deadline() < wheel.currentTime + wheel.tick)
+                return false;
+            if (entry.deadline() < wheel.currentTime + wheel.interval) {
+                wheel.bucket(entry.deadline()).add(entry);
+                return true;
+            }
+        }
+    }
+
+    private record Entry<K>(K key, long deadline) {
+    }
+
+    private static final class Wheel<K> {
+
+        private final long tick;
+        private final long interval;
+        private final List<List<Entry<K>>> buckets;
+        private long currentTime;
+
+        private Wheel(long tick, int wheelSize, long currentTime) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.currentTime = currentTime;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++)
+                buckets.add(new ArrayList<>());
+        }
+
+        private List<Entry<K>> bucket(long time) {
+            return buckets.get((int) Math.floorMod(Math.floorDiv(time, tick), (long) buckets.size()));
+        }
+
+        private List<Entry<K>> flush(long time) {
+            List<Entry<K>> bucket = bucket(time);
+            List<Entry<K>> flushed = new ArrayList<>(bucket);
+            bucket.clear();
+            return flushed;
+        }
+    }
+}
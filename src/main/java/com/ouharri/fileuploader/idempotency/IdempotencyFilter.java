@@ -0,0 +1,173 @@
+package com.ouharri.fileuploader.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes the uploads and updates sent with an {@code Idempotency-Key} header safe to retry. The first request under
+ * a key reserves it and runs; its successful response is recorded for a while and replayed to the retries at once,
+ * without their body being parsed nor stored again. A duplicate arriving while the first request runs waits for it
+ * to finish, and is answered {@code 409 Conflict} if it does not in time. A failed request frees its key.
+ * <p>
+ * Keys are scoped to the caller, the method and the path, so that a key reused on another request never replays
+ * the response of the first. When the store cannot be reached, requests run as if they had no key.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> METHODS = Set.of("POST", "PUT", "PATCH");
+
+    private static final long MAX_PAUSE_MILLIS = 250;
+
+    private final IdempotencyStore store;
+    private final IdempotencyProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(IDEMPOTENCY_KEY_HEADER) == null || !METHODS.contains(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (key.isBlank() || key.length() > properties.maxKeyLength()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The " + IDEMPOTENCY_KEY_HEADER + " header must have 1 to "
+                    + properties.maxKeyLength() + " characters");
+            return;
+        }
+        String scopedKey = scope(request, key);
+        try {
+            long deadline = System.nanoTime() + properties.waitTimeout().toNanos();
+            long pause = 10;
+            while (!store.tryReserve(scopedKey, properties.lockTtl())) {
+                Optional<IdempotentResponse> recorded = store.find(scopedKey);
+                if (recorded.isPresent()) {
+                    count("replayed");
+                    replay(recorded.get(), response);
+                    return;
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    count("conflict");
+                    log.warn("{} {} is still running under idempotency key {}", request.getMethod(), request.getRequestURI(), key);
+                    response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                    response.sendError(HttpServletResponse.SC_CONFLICT, "A request with the same idempotency key is in progress");
+                    return;
+                }
+                TimeUnit.MILLISECONDS.sleep(pause);
+                pause = Math.min(pause * 2, MAX_PAUSE_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        } catch (DataAccessException e) {
+            log.warn("Could not reach the idempotency store, running {} {} without its key: {}",
+                    request.getMethod(), request.getRequestURI(), e.getMessage());
+            filterChain.doFilter(request, response);
+            return;
+        }
+        count("executed");
+        run(scopedKey, request, response, filterChain);
+    }
+
+    /**
+     * Run the request holding a key, and record its response if it succeeded; free the key otherwise.
+     */
+    private void run(
+            String scopedKey,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean recorded = false;
+        try {
+            filterChain.doFilter(request, wrapper);
+            recorded = wrapper.getStatus() >= 200 && wrapper.getStatus() < 300 && complete(scopedKey, request, wrapper);
+        } finally {
+            if (!recorded)
+                release(scopedKey);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private boolean complete(String scopedKey, HttpServletRequest request, ContentCachingResponseWrapper response) {
+        try {
+            store.complete(scopedKey, record(response), properties.ttl());
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Could not record the response of {} {}: {}", request.getMethod(), request.getRequestURI(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void release(String scopedKey) {
+        try {
+            store.release(scopedKey);
+        } catch (DataAccessException e) {
+            log.warn("Could not release idempotency key {}, it frees once it expires: {}", scopedKey, e.getMessage());
+        }
+    }
+
+    private static String scope(HttpServletRequest request, String key) {
+        Principal principal = request.getUserPrincipal();
+        return (principal != null ? principal.getName() : "anonymous") + ":" + request.getMethod() + ":" + request.getRequestURI() + ":" + key;
+    }
+
+    private static IdempotentResponse record(ContentCachingResponseWrapper response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames())
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name))
+                headers.put(name, List.copyOf(response.getHeaders(name)));
+        return new IdempotentResponse(response.getStatus(), headers, response.getContentAsByteArray());
+    }
+
+    private static void replay(IdempotentResponse recorded, HttpServletResponse response) throws IOException {
+        response.setStatus(recorded.status());
+        recorded.headers().forEach((name, values) -> {
+            response.setHeader(name, values.isEmpty() ? null : values.get(0));
+            for (String value : values.subList(Math.min(1, values.size()), values.size()))
+                response.addHeader(name, value);
+        });
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(recorded.body().length);
+        response.getOutputStream().write(recorded.body());
+    }
+
+    private void count(String outcome) {
+        Counter.builder("idempotency.requests")
+                .description("Requests sent with an idempotency key, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,33 @@
+package com.ouharri.fileuploader.idempotency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the idempotency keys of the upload and update requests.
+ *
+ * @param store        Where the keys are recorded: {@code redis}, shared by all nodes, or {@code local} to this node.
+ * @param ttl          How long the response of a request is replayed to its retries.
+ * @param lockTtl      How long a request holds its key while it runs; above the longest upload, as a duplicate
+ *                     takes the key over once it expires.
+ * @param waitTimeout  How long a duplicate waits for the request holding its key before being answered {@code 409 Conflict}.
+ * @param maxKeyLength The longest key accepted.
+ */
+@ConfigurationProperties(prefix = "app.idempotency")
+public record IdempotencyProperties(
+        String store,
+        Duration ttl,
+        Duration lockTtl,
+        Duration waitTimeout,
+        Integer maxKeyLength
+) {
+
+    public IdempotencyProperties {
+        store = store != null && !store.isBlank() ? store : "redis";
+        ttl = ttl != null ? ttl : Duration.ofHours(1);
+        lockTtl = lockTtl != null ? lockTtl : Duration.ofMinutes(5);
+        waitTimeout = waitTimeout != null ? waitTimeout : Duration.ofSeconds(30);
+        maxKeyLength = maxKeyLength != null ? maxKeyLength : 255;
+    }
+}
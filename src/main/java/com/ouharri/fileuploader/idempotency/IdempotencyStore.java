@@ -0,0 +1,42 @@
+package com.ouharri.fileuploader.idempotency;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Short-lived record of the idempotency keys: a key is reserved by the request running under it,
+ * then holds the response of that request until it expires.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Reserve a key for the request about to run under it.
+     *
+     * @param key The scoped idempotency key.
+     * @param ttl How long the reservation holds if it is neither completed nor released.
+     * @return Whether the key was free, neither reserved nor holding a response.
+     */
+    boolean tryReserve(String key, Duration ttl);
+
+    /**
+     * @param key The scoped idempotency key.
+     * @return The response recorded under the key, empty while it is reserved or once it expired.
+     */
+    Optional<IdempotentResponse> find(String key);
+
+    /**
+     * Record the response of the request holding a key.
+     *
+     * @param key      The scoped idempotency key.
+     * @param response The response to replay.
+     * @param ttl      How long the response is replayed.
+     */
+    void complete(String key, IdempotentResponse response, Duration ttl);
+
+    /**
+     * Free a reserved key, the request having failed, so that a retry runs it again.
+     *
+     * @param key The scoped idempotency key.
+     */
+    void release(String key);
+}
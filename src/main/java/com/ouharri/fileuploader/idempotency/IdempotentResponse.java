@@ -0,0 +1,18 @@
+package com.ouharri.fileuploader.idempotency;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The response of a request made with an idempotency key, replayed to its retries.
+ *
+ * @param status  The status of the response.
+ * @param headers The headers of the response, but its length.
+ * @param body    The body of the response.
+ */
+public record IdempotentResponse(
+        int status,
+        Map<String, List<String>> headers,
+        byte[] body
+) {
+}
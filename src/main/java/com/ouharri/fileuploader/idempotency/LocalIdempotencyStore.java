@@ -0,0 +1,63 @@
+package com.ouharri.fileuploader.idempotency;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link IdempotencyStore} in the memory of this node, standing in for Redis: the retries of a request are only
+ * recognized when they reach the node that served it. Expired keys are dropped as new keys are reserved.
+ */
+public class LocalIdempotencyStore implements IdempotencyStore {
+
+    private static final int PURGE_INTERVAL = 1024;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger reservations = new AtomicInteger();
+    private final Clock clock;
+
+    /**
+     * @param clock The clock the keys expire by.
+     */
+    public LocalIdempotencyStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean tryReserve(String key, Duration ttl) {
+        long now = clock.millis();
+        boolean[] reserved = {false};
+        entries.compute(key, (k, entry) -> {
+            if (entry != null && entry.expiresAt() > now)
+                return entry;
+            reserved[0] = true;
+            return new Entry(null, now + ttl.toMillis());
+        });
+        if (reservations.incrementAndGet() % PURGE_INTERVAL == 0)
+            entries.values().removeIf(entry -> entry.expiresAt() <= now);
+        return reserved[0];
+    }
+
+    @Override
+    public Optional<IdempotentResponse> find(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt() <= clock.millis())
+            return Optional.empty();
+        return Optional.ofNullable(entry.response());
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response, Duration ttl) {
+        entries.put(key, new Entry(response, clock.millis() + ttl.toMillis()));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.computeIfPresent(key, (k, entry) -> entry.response() != null ? entry : null);
+    }
+
+    private record Entry(IdempotentResponse response, long expiresAt) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.ouharri.fileuploader.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link IdempotencyStore} in Redis, shared by all nodes. A reserved key holds an empty string,
+ * a completed key the response as JSON; both expire with the key.
+ */
+@RequiredArgsConstructor
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    private static final String PREFIX = "idempotency:";
+
+    private static final String RESERVED = "";
+
+    // Only a reservation is released: a response recorded meanwhile by a request that took the key over is kept
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == '' then return redis.call('del', KEYS[1]) end return 0", Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean tryReserve(String key, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(PREFIX + key, RESERVED, ttl));
+    }
+
+    @Override
+    public Optional<IdempotentResponse> find(String key) {
+        String value = redisTemplate.opsForValue().get(PREFIX + key);
+        if (value == null || value.equals(RESERVED))
+            return Optional.empty();
+        try {
+            return Optional.of(objectMapper.readValue(value, IdempotentResponse.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response, Duration ttl) {
+        try {
+            redisTemplate.opsForValue().set(PREFIX + key, objectMapper.writeValueAsString(response), ttl);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        redisTemplate.execute(RELEASE, List.of(PREFIX + key));
+    }
+}
@@ -0,0 +1,39 @@
+package com.ouharri.fileuploader.integrity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of bytes read per second by the threads sharing it. Bytes are accounted once read,
+ * and the reader is held back until the average rate is back under the limit.
+ */
+public class ByteRateLimiter {
+
+    private final long bytesPerSecond;
+    private long nextFreeNanos = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond The maximum rate, in bytes per second.
+     */
+    public ByteRateLimiter(long bytesPerSecond) {
+        if (bytesPerSecond <= 0)
+            throw new IllegalArgumentException("The rate must be positive");
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Account for bytes read, waiting as long as the reads are ahead of the rate.
+     *
+     * @param bytes The number of bytes read.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            nextFreeNanos = Math.max(nextFreeNanos, now) + TimeUnit.SECONDS.toNanos(1) * bytes / bytesPerSecond;
+            waitNanos = nextFreeNanos - now - TimeUnit.SECONDS.toNanos(1);
+        }
+        if (waitNanos > 0)
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+}
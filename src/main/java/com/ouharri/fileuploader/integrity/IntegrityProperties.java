@@ -0,0 +1,30 @@
+package com.ouharri.fileuploader.integrity;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings of the payload integrity checks.
+ *
+ * @param sha256           Whether a SHA-256 digest is recorded alongside the CRC32C of every payload.
+ * @param verifyDownloads  Whether payloads are checked against their checksums before being served.
+ * @param scrubParallelism The number of payloads the scrubber checks in parallel.
+ * @param scrubRate        The maximum number of bytes the scrubber reads per second.
+ * @param scrubBatchSize   The number of files the scrubber lists at a time.
+ */
+@ConfigurationProperties(prefix = "app.integrity")
+public record IntegrityProperties(
+        Boolean sha256,
+        boolean verifyDownloads,
+        int scrubParallelism,
+        DataSize scrubRate,
+        int scrubBatchSize
+) {
+
+    public IntegrityProperties {
+        sha256 = sha256 != null ? sha256 : Boolean.TRUE;
+        scrubParallelism = scrubParallelism > 0 ? scrubParallelism : 4;
+        scrubRate = scrubRate != null ? scrubRate : DataSize.ofMegabytes(50);
+        scrubBatchSize = scrubBatchSize > 0 ? scrubBatchSize : 500;
+    }
+}
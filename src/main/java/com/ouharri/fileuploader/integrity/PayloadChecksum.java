@@ -0,0 +1,94 @@
+package com.ouharri.fileuploader.integrity;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * Checksums of a payload, computed in a single pass as the bytes go by: a CRC32C, which the JIT turns into
+ * the CRC instructions of the CPU, and optionally a SHA-256 digest.
+ */
+public final class PayloadChecksum {
+
+    private final CRC32C crc = new CRC32C();
+    private final MessageDigest digest;
+    private String sha256;
+
+    /**
+     * @param sha256 Whether to compute the SHA-256 digest as well.
+     */
+    public PayloadChecksum(boolean sha256) {
+        try {
+            this.digest = sha256 ? MessageDigest.getInstance("SHA-256") : null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Compute the checksums of a whole payload.
+     *
+     * @param payload The payload, from its position to its limit; the buffer itself is left untouched.
+     * @param sha256  Whether to compute the SHA-256 digest as well.
+     * @return The checksums.
+     */
+    public static PayloadChecksum of(ByteBuffer payload, boolean sha256) {
+        PayloadChecksum checksum = new PayloadChecksum(sha256);
+        checksum.update(payload);
+        return checksum;
+    }
+
+    /**
+     * @param bytes  Bytes of the payload.
+     * @param offset The offset of the bytes.
+     * @param length The number of bytes.
+     */
+    public void update(byte[] bytes, int offset, int length) {
+        crc.update(bytes, offset, length);
+        if (digest != null)
+            digest.update(bytes, offset, length);
+    }
+
+    /**
+     * @param bytes Bytes of the payload, from the position to the limit of the buffer; the buffer itself is left untouched.
+     */
+    public void update(ByteBuffer bytes) {
+        crc.update(bytes.duplicate());
+        if (digest != null)
+            digest.update(bytes.duplicate());
+    }
+
+    /**
+     * @return The CRC32C of the bytes seen so far.
+     */
+    public int crc32c() {
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Complete the digest; no bytes may be added afterward.
+     *
+     * @return The hex encoded SHA-256 digest of the payload, {@code null} if it is not computed.
+     */
+    public String sha256() {
+        if (sha256 == null && digest != null)
+            sha256 = HexFormat.of().formatHex(digest.digest());
+        return sha256;
+    }
+
+    /**
+     * Check the payload against the checksums recorded for it. A checksum that was not recorded,
+     * or not computed here, is not checked.
+     *
+     * @param expectedCrc32c The recorded CRC32C, or {@code null}.
+     * @param expectedSha256 The recorded SHA-256 digest, or {@code null}.
+     * @return Whether the payload matches.
+     */
+    public boolean matches(Integer expectedCrc32c, String expectedSha256) {
+        if (expectedCrc32c != null && expectedCrc32c != crc32c())
+            return false;
+        return expectedSha256 == null || sha256() == null || expectedSha256.equalsIgnoreCase(sha256());
+    }
+}
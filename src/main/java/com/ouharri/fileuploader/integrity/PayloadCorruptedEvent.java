@@ -0,0 +1,22 @@
+package com.ouharri.fileuploader.integrity;
+
+import java.util.UUID;
+
+/**
+ * Application event published when the payload of a file no longer matches the checksums recorded at ingest.
+ *
+ * @param fileId         The unique identifier of the file.
+ * @param source         What detected the corruption.
+ * @param expectedCrc32c The CRC32C recorded at ingest.
+ * @param actualCrc32c   The CRC32C of the stored payload, {@code null} if an encrypted payload fails authentication.
+ */
+public record PayloadCorruptedEvent(UUID fileId, Source source, Integer expectedCrc32c, Integer actualCrc32c) {
+
+    /**
+     * What detected a corruption.
+     */
+    public enum Source {
+        DOWNLOAD,
+        SCRUB
+    }
+}
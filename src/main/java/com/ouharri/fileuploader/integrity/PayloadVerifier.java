@@ -0,0 +1,94 @@
+package com.ouharri.fileuploader.integrity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Computes the checksums recorded with every payload and checks stored payloads against them.
+ * Corruptions are logged, counted in the {@code integrity.corruptions} metric tagged with what detected them,
+ * and published as {@link PayloadCorruptedEvent}s.
+ */
+@Slf4j
+@Component
+public class PayloadVerifier {
+
+    private final IntegrityProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<PayloadCorruptedEvent.Source, Counter> corruptions = new EnumMap<>(PayloadCorruptedEvent.Source.class);
+
+    public PayloadVerifier(IntegrityProperties properties, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        for (PayloadCorruptedEvent.Source source : PayloadCorruptedEvent.Source.values())
+            corruptions.put(source, Counter.builder("integrity.corruptions")
+                    .tag("source", source.name().toLowerCase())
+                    .description("Payloads found not to match their checksums")
+                    .register(meterRegistry));
+    }
+
+    /**
+     * @param payload A payload, left untouched.
+     * @return The checksums of the payload to record.
+     */
+    public PayloadChecksum checksum(ByteBuffer payload) {
+        return PayloadChecksum.of(payload, properties.sha256());
+    }
+
+    /**
+     * @return Fresh checksums to compute over a payload as it streams by.
+     */
+    public PayloadChecksum newChecksum() {
+        return new PayloadChecksum(properties.sha256());
+    }
+
+    /**
+     * @return Whether payloads are checked before being served.
+     */
+    public boolean verifiesDownloads() {
+        return properties.verifyDownloads();
+    }
+
+    /**
+     * Check a stored payload against the checksums recorded for it, reporting a mismatch.
+     *
+     * @param id             The unique identifier of the file.
+     * @param actual         The checksums of the stored payload.
+     * @param expectedCrc32c The recorded CRC32C, or {@code null}.
+     * @param expectedSha256 The recorded SHA-256 digest, or {@code null}.
+     * @param source         What is checking the payload.
+     * @return Whether the payload matches.
+     */
+    public boolean verify(UUID id, PayloadChecksum actual, Integer expectedCrc32c, String expectedSha256, PayloadCorruptedEvent.Source source) {
+        if (actual.matches(expectedCrc32c, expectedSha256))
+            return true;
+        log.error("Payload of file {} does not match its checksums (CRC32C {} recorded, {} stored), detected by {}",
+                id, expectedCrc32c, actual.crc32c(), source);
+        report(id, expectedCrc32c, actual.crc32c(), source);
+        return false;
+    }
+
+    /**
+     * Report an encrypted payload failing authentication, which no checksum needs to confirm.
+     *
+     * @param id             The unique identifier of the file.
+     * @param expectedCrc32c The recorded CRC32C, or {@code null}.
+     * @param source         What is reading the payload.
+     */
+    public void reportUnreadable(UUID id, Integer expectedCrc32c, PayloadCorruptedEvent.Source source) {
+        log.error("Encrypted payload of file {} fails authentication, detected by {}", id, source);
+        report(id, expectedCrc32c, null, source);
+    }
+
+    private void report(UUID id, Integer expectedCrc32c, Integer actualCrc32c, PayloadCorruptedEvent.Source source) {
+        corruptions.get(source).increment();
+        eventPublisher.publishEvent(new PayloadCorruptedEvent(id, source, expectedCrc32c, actualCrc32c));
+    }
+}
@@ -0,0 +1,61 @@
+package com.ouharri.fileuploader.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Response object representing the progress of an export or an import of the files catalogue.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+public class ResponseBackup {
+
+    /**
+     * The name of the backup.
+     */
+    private String job;
+
+    /**
+     * The operation, {@code EXPORT} or {@code IMPORT}.
+     */
+    private String operation;
+
+    /**
+     * Whether the operation is still running.
+     */
+    private boolean running;
+
+    /**
+     * The number of pack files of the backup.
+     */
+    private int partitions;
+
+    /**
+     * The number of pack files done.
+     */
+    private int completed;
+
+    /**
+     * The number of files exported or imported so far.
+     */
+    private long files;
+
+    /**
+     * The number of payload bytes exported or imported so far.
+     */
+    private long bytes;
+
+    /**
+     * The number of files not imported because they were already present.
+     */
+    private long skipped;
+
+    /**
+     * Why the operation failed, if it did.
+     */
+    private String error;
+}
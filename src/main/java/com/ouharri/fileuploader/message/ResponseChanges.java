@@ -0,0 +1,33 @@
+package com.ouharri.fileuploader.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Response object representing a page of file changes for synchronizing clients.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+public class ResponseChanges {
+
+    /**
+     * The changes, oldest first.
+     */
+    private List<ResponseFileChange> changes;
+
+    /**
+     * The opaque cursor to send with the next poll.
+     */
+    private String cursor;
+
+    /**
+     * Whether more changes are available right away with the returned cursor.
+     */
+    private boolean hasMore;
+}
@@ -0,0 +1,62 @@
+package com.ouharri.fileuploader.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Response object representing a change of a file for synchronizing clients.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+public class ResponseFileChange {
+
+    /**
+     * The kind of change.
+     */
+    public enum Change {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    /**
+     * The unique identifier of the file.
+     */
+    private UUID id;
+
+    /**
+     * The kind of change.
+     */
+    private Change change;
+
+    /**
+     * The name of the file.
+     */
+    private String name;
+
+    /**
+     * The content type (MIME type) of the file.
+     */
+    private String type;
+
+    /**
+     * The size of the file in bytes.
+     */
+    private long size;
+
+    /**
+     * The version of the file.
+     */
+    private long version;
+
+    /**
+     * The URL for downloading the file, {@code null} for a deleted file.
+     */
+    private String url;
+}
@@ -0,0 +1,48 @@
+package com.ouharri.fileuploader.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Response object representing a retained version of a file for client communication.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+public class ResponseFileVersion {
+
+    /**
+     * The revision of the file this version captures.
+     */
+    private long revision;
+
+    /**
+     * The name of the file in this version.
+     */
+    private String name;
+
+    /**
+     * The content type (MIME type) of the file in this version.
+     */
+    private String type;
+
+    /**
+     * The size of the file in this version, in bytes.
+     */
+    private long size;
+
+    /**
+     * The timestamp when this version was captured.
+     */
+    private Timestamp createdAt;
+
+    /**
+     * The URL for downloading this version.
+     */
+    private String url;
+}
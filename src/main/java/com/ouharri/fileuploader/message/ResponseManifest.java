@@ -0,0 +1,42 @@
+package com.ouharri.fileuploader.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Response object representing the manifest of an expanded archive for client communication.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+public class ResponseManifest {
+
+    /**
+     * The files created from the members of the archive, in archive order.
+     */
+    private List<ResponseFile> files;
+
+    /**
+     * The members of the archive that were not stored.
+     */
+    private List<SkippedMember> skipped;
+
+    /**
+     * Whether the whole archive was read.
+     */
+    private boolean complete;
+
+    /**
+     * A member of the archive that was not stored.
+     *
+     * @param name   The path of the member in the archive.
+     * @param reason Why the member was not stored.
+     */
+    public record SkippedMember(String name, String reason) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.ouharri.fileuploader.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Response object representing a targeted profile for client communication.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+public class ResponseProfile {
+
+    /**
+     * The id of the profile.
+     */
+    private long id;
+
+    /**
+     * The state of the profile, {@code RUNNING} until its duration is over.
+     */
+    private String state;
+
+    /**
+     * When the profile started.
+     */
+    private Instant startedAt;
+
+    /**
+     * How long the profile runs, in seconds.
+     */
+    private long durationSeconds;
+
+    /**
+     * The size of the recording, once written.
+     */
+    private Long size;
+
+    /**
+     * The URL to download the recording from, once the profile is over.
+     */
+    private String url;
+}
@@ -0,0 +1,42 @@
+package com.ouharri.fileuploader.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+/**
+ * Response object representing the storage statistics for client communication.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+public class ResponseStats {
+
+    /**
+     * The total number of stored files.
+     */
+    private long fileCount;
+
+    /**
+     * The total size in bytes of the stored files.
+     */
+    private long totalBytes;
+
+    /**
+     * The statistics broken down per content type.
+     */
+    private Map<String, TypeStats> byType;
+
+    /**
+     * Statistics of a single content type.
+     *
+     * @param fileCount  The number of files of this content type.
+     * @param totalBytes The total size in bytes of the files of this content type.
+     */
+    public record TypeStats(long fileCount, long totalBytes) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.ouharri.fileuploader.partition;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Time-ordered identifiers of files, telling the partition of a file from its identifier alone.
+ * <p>
+ * New files get a version 7 UUID, whose leading 48 bits are the time the file is created at, in milliseconds since
+ * the epoch, and are stored with that creation time. A query by identifier can then bound {@code created_at} and
+ * be pruned to the partition of the file instead of probing every partition. Files created before carry random
+ * version 4 UUIDs; their creation time is unknown and their bounds cover every partition.
+ */
+public final class FileIds {
+
+    /**
+     * The bounds of files whose creation time is unknown.
+     */
+    public static final CreationRange UNBOUNDED = new CreationRange(
+            Timestamp.valueOf("1970-01-01 00:00:00"), Timestamp.valueOf("9999-12-31 23:59:59")
+    );
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private FileIds() {
+    }
+
+    /**
+     * @return The identifier of a file created now.
+     */
+    public static UUID newId() {
+        long millis = System.currentTimeMillis();
+        long mostSigBits = millis << 16 | 0x7000L | RANDOM.nextInt(0x1000);
+        long leastSigBits = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * @param id The identifier of a file.
+     * @return The time the file was created at, {@code null} if its identifier does not tell.
+     */
+    public static Timestamp createdAt(UUID id) {
+        return id.version() == 7 ? new Timestamp(id.getMostSignificantBits() >>> 16) : null;
+    }
+
+    /**
+     * @param id The identifier of a file.
+     * @return The bounds of the creation time of the file.
+     */
+    public static CreationRange creationRange(UUID id) {
+        Timestamp createdAt = createdAt(id);
+        return createdAt != null ? new CreationRange(createdAt, createdAt) : UNBOUNDED;
+    }
+
+    /**
+     * @param ids The identifiers of files.
+     * @return The bounds of the creation times of the files, unbounded as soon as one of them does not tell.
+     */
+    public static CreationRange creationRange(Collection<UUID> ids) {
+        Timestamp from = null;
+        Timestamp to = null;
+        for (UUID id : ids) {
+            Timestamp createdAt = createdAt(id);
+            if (createdAt == null)
+                return UNBOUNDED;
+            from = from == null || createdAt.before(from) ? createdAt : from;
+            to = to == null || createdAt.after(to) ? createdAt : to;
+        }
+        return from != null ? new CreationRange(from, to) : UNBOUNDED;
+    }
+
+    /**
+     * Bounds of the creation times of files, both included.
+     *
+     * @param from The earliest creation time.
+     * @param to   The latest creation time.
+     */
+    public record CreationRange(Timestamp from, Timestamp to) {
+    }
+}
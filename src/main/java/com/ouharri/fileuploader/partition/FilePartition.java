@@ -0,0 +1,92 @@
+package com.ouharri.fileuploader.partition;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A partition of the {@code files} table, holding the files created in a range of time.
+ *
+ * @param name      The name of the partition table.
+ * @param from      The first creation time held, or {@code null} if unbounded.
+ * @param to        The creation time the partition ends at, excluded, or {@code null} if unbounded.
+ * @param isDefault Whether this is the default partition, holding the files no other partition covers.
+ */
+public record FilePartition(String name, LocalDateTime from, LocalDateTime to, boolean isDefault) {
+
+    public static final String DEFAULT_BOUND = "DEFAULT";
+
+    private static final Pattern RANGE = Pattern.compile("FOR VALUES FROM \\((MINVALUE|'[^']*')\\) TO \\((MAXVALUE|'[^']*')\\)");
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    /**
+     * Read a partition from its bound, as printed by {@code pg_get_expr(relpartbound, oid)}.
+     *
+     * @param name  The name of the partition table.
+     * @param bound The bound of the partition, such as {@code FOR VALUES FROM ('2026-10-01 00:00:00') TO ('2026-11-01 00:00:00')}.
+     * @return The partition.
+     * @throws IllegalArgumentException If the bound is not a range on a single column, nor the default partition.
+     */
+    public static FilePartition parse(String name, String bound) {
+        if (DEFAULT_BOUND.equals(bound))
+            return new FilePartition(name, null, null, true);
+        Matcher matcher = RANGE.matcher(bound);
+        if (!matcher.matches())
+            throw new IllegalArgumentException("Unexpected bound of partition " + name + ": " + bound);
+        return new FilePartition(name, time(matcher.group(1)), time(matcher.group(2)), false);
+    }
+
+    /**
+     * @param month The month.
+     * @return The partition of the files created during a month.
+     */
+    public static FilePartition of(YearMonth month) {
+        return new FilePartition("files_p" + MONTH.format(month), month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(), false);
+    }
+
+    /**
+     * Plan the monthly partitions to create so that the files created up to the end of a month have a partition.
+     * They follow the latest bound of the existing partitions, so that they never overlap them.
+     *
+     * @param existing The existing partitions.
+     * @param through  The last month to hold a partition for.
+     * @return The partitions to create, in order; the first may span less than a month, to start at the latest bound.
+     */
+    public static List<FilePartition> missing(Collection<FilePartition> existing, YearMonth through) {
+        LocalDateTime end = through.plusMonths(1).atDay(1).atStartOfDay();
+        LocalDateTime next = existing.stream()
+                .map(FilePartition::to)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+        List<FilePartition> missing = new ArrayList<>();
+        if (next == null || existing.stream().anyMatch(partition -> !partition.isDefault() && partition.to() == null))
+            return missing;
+        while (next.isBefore(end)) {
+            FilePartition month = of(YearMonth.from(next));
+            missing.add(new FilePartition(month.name(), next, month.to(), false));
+            next = month.to();
+        }
+        return missing;
+    }
+
+    /**
+     * @param time A time.
+     * @return Whether all the files of this partition were created before a time.
+     */
+    public boolean endsBy(LocalDateTime time) {
+        return to != null && !to.isAfter(time);
+    }
+
+    private static LocalDateTime time(String bound) {
+        return bound.startsWith("'") ? Timestamp.valueOf(bound.substring(1, bound.length() - 1)).toLocalDateTime() : null;
+    }
+}
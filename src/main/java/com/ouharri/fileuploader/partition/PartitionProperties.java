@@ -0,0 +1,30 @@
+package com.ouharri.fileuploader.partition;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the monthly partitions of the {@code files} table.
+ *
+ * @param premake       The number of months, after the current one, to keep a partition ready for.
+ * @param retention     The age past which a whole partition is detached and archived, its files leaving the application;
+ *                      {@code null} to never archive.
+ * @param archiveSchema The schema the archived partitions are moved to, to be dumped or dropped from there.
+ * @param lockTimeout   How long detaching a partition waits for the lock on the {@code files} table before giving up until
+ *                      the next run.
+ */
+@ConfigurationProperties(prefix = "app.partitioning")
+public record PartitionProperties(
+        Integer premake,
+        Duration retention,
+        String archiveSchema,
+        Duration lockTimeout
+) {
+
+    public PartitionProperties {
+        premake = premake != null ? premake : 3;
+        archiveSchema = archiveSchema != null && !archiveSchema.isBlank() ? archiveSchema : "archive";
+        lockTimeout = lockTimeout != null ? lockTimeout : Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,32 @@
+package com.ouharri.fileuploader.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of a lookup in a near cache, telling which tier answered it.
+ */
+@Name("fileuploader.CacheLookup")
+@Label("Cache Lookup")
+@Category({"File Uploader", "Cache"})
+@Description("Lookups in the near caches and the tier answering them: local, remote or none")
+@StackTrace(false)
+public class CacheLookupEvent extends Event {
+
+    public static final String LOCAL = "local";
+    public static final String REMOTE = "remote";
+    public static final String MISS = "miss";
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Tier")
+    public String tier;
+}
@@ -0,0 +1,36 @@
+package com.ouharri.fileuploader.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of a payload being read and handed to its consumer, typically while it is written to the client.
+ */
+@Name("fileuploader.Download")
+@Label("File Download")
+@Category({"File Uploader", "Storage"})
+@Description("Payloads read from the database or the pack files, including the time spent streaming them out")
+@StackTrace(false)
+public class DownloadEvent extends Event {
+
+    @Label("File Id")
+    public String fileId;
+
+    @Label("Storage")
+    public String storage;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+    @Label("Encrypted")
+    public boolean encrypted;
+
+    @Label("Found")
+    public boolean found;
+}
@@ -0,0 +1,33 @@
+package com.ouharri.fileuploader.profiling;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the JDK Flight Recorder recordings.
+ *
+ * @param continuous       Whether a low-overhead recording runs all the time, to dump the last minutes on demand.
+ * @param directory        The directory holding the dumps and the targeted profiles.
+ * @param maxAge           How long the continuous recording keeps its events.
+ * @param maxSize          The disk budget of the continuous recording.
+ * @param retainedProfiles The number of finished profiles kept on disk, the oldest being deleted first.
+ */
+@ConfigurationProperties(prefix = "app.profiling")
+public record ProfilingProperties(
+        Boolean continuous,
+        String directory,
+        Duration maxAge,
+        DataSize maxSize,
+        Integer retainedProfiles
+) {
+
+    public ProfilingProperties {
+        continuous = continuous != null ? continuous : Boolean.TRUE;
+        directory = directory != null && !directory.isBlank() ? directory : "data/profiling";
+        maxAge = maxAge != null ? maxAge : Duration.ofMinutes(30);
+        maxSize = maxSize != null ? maxSize : DataSize.ofMegabytes(250);
+        retainedProfiles = retainedProfiles != null ? retainedProfiles : 5;
+    }
+}
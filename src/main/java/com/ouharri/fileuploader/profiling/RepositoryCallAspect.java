@@ -0,0 +1,82 @@
+package com.ouharri.fileuploader.profiling;
+
+import com.ouharri.fileuploader.datasource.RoutingContext;
+import com.ouharri.fileuploader.entity.FileChunk;
+import com.ouharri.fileuploader.entity.FileDB;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Observes every repository call as a {@code repository.call} span, and emits a {@link RepositoryCallEvent}
+ * while a recording enables it; both carry the rows returned and the payload bytes they loaded.
+ * The repositories are advised on their proxies, so inherited methods such as {@code save} are covered too.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryCallAspect {
+
+    private final ObservationRegistry observationRegistry;
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled() && observationRegistry.isNoop())
+            return joinPoint.proceed();
+        Class<?>[] repositories = joinPoint.getThis().getClass().getInterfaces();
+        String repository = repositories.length > 0 ? repositories[0].getSimpleName() : joinPoint.getSignature().getDeclaringTypeName();
+        String method = joinPoint.getSignature().getName();
+        Observation observation = Observation.createNotStarted("repository.call", observationRegistry)
+                .contextualName(repository + "." + method)
+                .lowCardinalityKeyValue("repository", repository)
+                .lowCardinalityKeyValue("method", method)
+                .start();
+        event.begin();
+        Object result = null;
+        try (Observation.Scope ignored = observation.openScope()) {
+            result = joinPoint.proceed();
+            return result;
+        } catch (Throwable e) {
+            event.failed = true;
+            observation.error(e);
+            throw e;
+        } finally {
+            event.end();
+            count(event, result);
+            observation.highCardinalityKeyValue("rows", Integer.toString(event.rows));
+            observation.highCardinalityKeyValue("payload.size", Long.toString(event.payloadSize));
+            observation.stop();
+            if (event.shouldCommit()) {
+                event.repository = repository;
+                event.method = method;
+                event.shard = RoutingContext.currentShard();
+                event.commit();
+            }
+        }
+    }
+
+    private static void count(RepositoryCallEvent event, Object result) {
+        if (result instanceof Optional<?> optional)
+            result = optional.orElse(null);
+        if (result instanceof Iterable<?> iterable) {
+            for (Object element : iterable)
+                count(event, element);
+            return;
+        }
+        if (result == null)
+            return;
+        event.rows++;
+        if (result instanceof FileDB file && Hibernate.isPropertyInitialized(file, "data") && file.getData() != null)
+            event.payloadSize += file.getData().length;
+        else if (result instanceof FileChunk chunk && Hibernate.isPropertyInitialized(chunk, "data") && chunk.getData() != null)
+            event.payloadSize += chunk.getData().length;
+    }
+}
@@ -0,0 +1,40 @@
+package com.ouharri.fileuploader.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of a call to a Spring Data repository, with the rows it returned and the payload bytes they carry.
+ */
+@Name("fileuploader.RepositoryCall")
+@Label("Repository Call")
+@Category({"File Uploader", "Database"})
+@Description("Calls to the Spring Data repositories")
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Shard")
+    public String shard;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Payload Size")
+    @Description("The size of the payloads loaded with the returned entities")
+    @DataAmount
+    public long payloadSize;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,40 @@
+package com.ouharri.fileuploader.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of a file, or a batch of files, being stored: sealing, checksumming and inserting the payloads.
+ */
+@Name("fileuploader.Upload")
+@Label("File Upload")
+@Category({"File Uploader", "Storage"})
+@Description("Files stored or replaced, with the size of their payloads")
+@StackTrace(false)
+public class UploadEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("File Id")
+    public String fileId;
+
+    @Label("Content Type")
+    public String contentType;
+
+    @Label("Files")
+    public int files;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+    @Label("Packed")
+    @Description("Whether the payload went to the pack files rather than the database")
+    public boolean packed;
+}
@@ -0,0 +1,81 @@
+package com.ouharri.fileuploader.query;
+
+/**
+ * The statements run and the bytes read by the request being served on the current thread.
+ * <p>
+ * Only the request thread is accounted: work handed to another thread, such as a streamed response body,
+ * is not charged to the request.
+ */
+public final class QueryAccount {
+
+    private static final ThreadLocal<QueryAccount> CURRENT = new ThreadLocal<>();
+
+    private int queries;
+    private int slowQueries;
+    private long rows;
+    private long fetchedBytes;
+    private long elapsedNanos;
+
+    private QueryAccount() {
+    }
+
+    /**
+     * Open an account for the current thread, replacing any previous one.
+     *
+     * @return The new account.
+     */
+    static QueryAccount open() {
+        QueryAccount account = new QueryAccount();
+        CURRENT.set(account);
+        return account;
+    }
+
+    /**
+     * Close the account of the current thread.
+     */
+    static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return The account of the current thread, or {@code null} outside of a request.
+     */
+    static QueryAccount current() {
+        return CURRENT.get();
+    }
+
+    void statement(long nanos, boolean slow) {
+        queries++;
+        elapsedNanos += nanos;
+        if (slow)
+            slowQueries++;
+    }
+
+    void row() {
+        rows++;
+    }
+
+    void fetched(long bytes) {
+        fetchedBytes += bytes;
+    }
+
+    public int queries() {
+        return queries;
+    }
+
+    public int slowQueries() {
+        return slowQueries;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public long fetchedBytes() {
+        return fetchedBytes;
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,246 @@
+package com.ouharri.fileuploader.query;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data source timing every statement run through its connections, whether issued by Hibernate or by a
+ * {@code JdbcTemplate}.
+ * <p>
+ * A statement slower than {@code app.query.slow-threshold} is logged with the shape of its parameters, their type
+ * and length but never their value, and counted in {@code queries.slow}. Within a request, every statement, every
+ * row and every byte read from the result sets is charged to the {@link QueryAccount} of the request thread.
+ */
+@Slf4j
+public class QueryAccountingDataSource extends DelegatingDataSource {
+
+    private final long slowThresholdNanos;
+    private final Counter slowQueries;
+
+    /**
+     * @param target        The data source to account for.
+     * @param properties    The settings of the accounting.
+     * @param meterRegistry The registry of the slow statement counter.
+     */
+    public QueryAccountingDataSource(DataSource target, QueryProperties properties, MeterRegistry meterRegistry) {
+        super(target);
+        this.slowThresholdNanos = properties.slowThreshold().toNanos();
+        this.slowQueries = Counter.builder("queries.slow")
+                .description("Statements slower than the slow query threshold")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection(username, password)));
+    }
+
+    private void record(String sql, Map<Integer, String> parameters, int batches, long nanos) {
+        boolean slow = nanos >= slowThresholdNanos;
+        QueryAccount account = QueryAccount.current();
+        if (account != null)
+            account.statement(nanos, slow);
+        if (slow) {
+            slowQueries.increment();
+            log.warn("Slow statement ({} ms): {} parameters {}{}", TimeUnit.NANOSECONDS.toMillis(nanos),
+                    sql != null ? sql.replaceAll("\\s+", " ").trim() : "?", parameters.values(),
+                    batches > 0 ? " in a batch of " + batches : "");
+        }
+    }
+
+    /**
+     * @return The shape of a bound parameter: its type, and its length for strings and binaries.
+     */
+    static String shape(String setter, Object value) {
+        if (value == null || setter.equals("setNull"))
+            return "null";
+        if (value instanceof byte[] bytes)
+            return "bytes(" + bytes.length + ")";
+        if (value instanceof String string)
+            return "varchar(" + string.length() + ")";
+        return value.getClass().getSimpleName();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, DelegatingHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * Invocation handler forwarding to the proxied JDBC object, comparing proxies by identity.
+     */
+    private abstract static class DelegatingHandler implements InvocationHandler {
+
+        final Object target;
+
+        DelegatingHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> handle(method, args);
+            };
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+
+        Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private final class ConnectionHandler extends DelegatingHandler {
+
+        ConnectionHandler(Connection target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = forward(method, args);
+            return switch (method.getName()) {
+                case "prepareStatement", "prepareCall", "createStatement" -> proxy(method.getReturnType().asSubclass(Statement.class),
+                        new StatementHandler((Statement) result, args != null && args[0] instanceof String sql ? sql : null));
+                default -> result;
+            };
+        }
+    }
+
+    private final class StatementHandler extends DelegatingHandler {
+
+        private final String sql;
+        private final Map<Integer, String> parameters = new TreeMap<>();
+        private int batches;
+
+        StatementHandler(Statement target, String sql) {
+            super(target);
+            this.sql = sql;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                Object result;
+                try {
+                    result = forward(method, args);
+                } finally {
+                    record(args != null && args.length > 0 && args[0] instanceof String executed ? executed : sql,
+                            parameters, batches, System.nanoTime() - start);
+                    if (name.contains("Batch"))
+                        batches = 0;
+                }
+                return result instanceof ResultSet resultSet ? account(resultSet) : result;
+            }
+            if (target instanceof PreparedStatement && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index)
+                parameters.put(index, shape(name, args[1]));
+            else if (name.equals("clearParameters"))
+                parameters.clear();
+            else if (name.equals("addBatch"))
+                batches++;
+            Object result = forward(method, args);
+            return name.equals("getResultSet") && result instanceof ResultSet resultSet ? account(resultSet) : result;
+        }
+
+        private ResultSet account(ResultSet resultSet) {
+            QueryAccount account = QueryAccount.current();
+            return account != null ? proxy(ResultSet.class, new ResultSetHandler(resultSet, account)) : resultSet;
+        }
+    }
+
+    private static final class ResultSetHandler extends DelegatingHandler {
+
+        private final QueryAccount account;
+
+        ResultSetHandler(ResultSet target, QueryAccount account) {
+            super(target);
+            this.account = account;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = forward(method, args);
+            switch (method.getName()) {
+                case "next" -> {
+                    if (Boolean.TRUE.equals(result))
+                        account.row();
+                }
+                case "getBytes", "getString", "getObject" -> {
+                    if (result instanceof byte[] bytes)
+                        account.fetched(bytes.length);
+                    else if (result instanceof String string)
+                        account.fetched(string.length());
+                }
+                case "getBinaryStream" -> {
+                    if (result instanceof InputStream in)
+                        return new CountingInputStream(in, account);
+                }
+                default -> {
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Charges the bytes read from a binary column streamed out of a result set.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final QueryAccount account;
+
+        CountingInputStream(InputStream in, QueryAccount account) {
+            super(in);
+            this.account = account;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0)
+                account.fetched(1);
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0)
+                account.fetched(read);
+            return read;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ouharri.fileuploader.query;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens a {@link QueryAccount} for every request and publishes it once the request is served:
+ * {@code queries.per.request} and {@code queries.fetched.bytes}, tagged with the method and the route.
+ * <p>
+ * A request running more statements, or reading more bytes, than its budget is logged and counted in
+ * {@code queries.over.budget}: it usually is a listing loading an association one row at a time, or loading
+ * the payloads of the files it lists.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class QueryAccountingFilter extends OncePerRequestFilter {
+
+    private static final String UNKNOWN_ROUTE = "UNKNOWN";
+
+    private final QueryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        QueryAccount account = QueryAccount.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryAccount.close();
+            publish(request, account);
+        }
+    }
+
+    private void publish(HttpServletRequest request, QueryAccount account) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : UNKNOWN_ROUTE;
+        Tags tags = Tags.of("method", request.getMethod(), "uri", route);
+        DistributionSummary.builder("queries.per.request")
+                .description("Statements run by a request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(account.queries());
+        DistributionSummary.builder("queries.fetched.bytes")
+                .description("Bytes read from the result sets by a request")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(account.fetchedBytes());
+        if (account.queries() > properties.maxQueries() || account.fetchedBytes() > properties.maxFetchedBytes().toBytes()) {
+            Counter.builder("queries.over.budget")
+                    .description("Requests over their statement or fetched bytes budget")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("{} {} ran {} statements in {} ms, reading {} rows and {} bytes, over its budget of {} statements and {} bytes",
+                    request.getMethod(), route, account.queries(), TimeUnit.NANOSECONDS.toMillis(account.elapsedNanos()),
+                    account.rows(), account.fetchedBytes(), properties.maxQueries(), properties.maxFetchedBytes().toBytes());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ouharri.fileuploader.query;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the accounting of the database statements.
+ *
+ * @param slowThreshold   The execution time from which a statement is logged as slow, with the shape of its parameters.
+ * @param maxQueries      The number of statements a request may run before it is flagged.
+ * @param maxFetchedBytes The number of bytes a request may read from the result sets before it is flagged;
+ *                        above the largest file, so that downloads stay within it.
+ */
+@ConfigurationProperties(prefix = "app.query")
+public record QueryProperties(
+        Duration slowThreshold,
+        Integer maxQueries,
+        DataSize maxFetchedBytes
+) {
+
+    public QueryProperties {
+        slowThreshold = slowThreshold != null ? slowThreshold : Duration.ofMillis(200);
+        maxQueries = maxQueries != null ? maxQueries : 20;
+        maxFetchedBytes = maxFetchedBytes != null ? maxFetchedBytes : DataSize.ofMegabytes(16);
+    }
+}
@@ -0,0 +1,73 @@
+package com.ouharri.fileuploader.repository;
+
+import com.ouharri.fileuploader.entity.FileChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Repository interface for the content-addressed {@link FileChunk} store.
+ */
+@Repository
+public interface FileChunkRepository extends JpaRepository<FileChunk, String> {
+
+    /**
+     * Find which of the given chunk hashes are already stored.
+     *
+     * @param hashes The chunk hashes.
+     * @return The hashes already stored.
+     */
+    @Query("select c.hash from FileChunk c where c.hash in :hashes")
+    Set<String> findExistingHashes(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * Store a chunk with the given number of references, or add the references if it is already stored.
+     *
+     * @param hash       The SHA-256 hash of the chunk.
+     * @param data       The binary data of the chunk.
+     * @param references The number of references to add.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO file_chunks (hash, size, ref_count, data)
+            VALUES (:hash, octet_length(:data), :references, :data)
+            ON CONFLICT (hash) DO UPDATE SET ref_count = file_chunks.ref_count + EXCLUDED.ref_count
+            """, nativeQuery = true)
+    void insertOrReference(@Param("hash") String hash, @Param("data") byte[] data, @Param("references") long references);
+
+    /**
+     * Add (or remove, with a negative delta) references to a stored chunk.
+     *
+     * @param hash  The SHA-256 hash of the chunk.
+     * @param delta The number of references to add.
+     * @return The number of updated rows.
+     */
+    @Modifying
+    @Query(value = "UPDATE file_chunks SET ref_count = ref_count + :delta WHERE hash = :hash", nativeQuery = true)
+    int addReferences(@Param("hash") String hash, @Param("delta") long delta);
+
+    /**
+     * Delete the given chunks if they are no longer referenced by any version.
+     *
+     * @param hashes The hashes of the chunks whose references were released.
+     * @return The number of deleted chunks.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM file_chunks WHERE hash IN (:hashes) AND ref_count <= 0", nativeQuery = true)
+    int deleteUnreferenced(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * Get the binary data of a chunk.
+     *
+     * @param hash The SHA-256 hash of the chunk.
+     * @return The binary data of the chunk, if stored.
+     */
+    @Query("select c.data from FileChunk c where c.hash = :hash")
+    Optional<byte[]> findDataByHash(@Param("hash") String hash);
+}
@@ -1,15 +1,535 @@
 package com.ouharri.fileuploader.repository;
 
 import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.partition.FileIds;
+import com.ouharri.fileuploader.repository.projection.FileChange;
+import com.ouharri.fileuploader.repository.projection.FileExpiry;
+import com.ouharri.fileuploader.repository.projection.FileSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for performing CRUD operations on FileDB entities.
+ * <p>
+ * The {@code files} table is partitioned by {@code created_at}, which its primary key holds along with {@code id}.
+ * Every query by id is also bounded by the creation times the ids tell, see {@link FileIds}, so that it only reaches
+ * the partitions of the files; the bounded queries are wrapped by methods taking the ids alone.
  */
 @Repository
 public interface FileDBRepository extends JpaRepository<FileDB, UUID> {
 
-}
\ No newline at end of file
+    /**
+     * Find a file by its id, on the partition of the file.
+     *
+     * @param id The unique identifier of the file.
+     * @return The file, if found.
+     */
+    @Override
+    default Optional<FileDB> findById(UUID id) {
+        FileIds.CreationRange range = FileIds.creationRange(id);
+        return findByIdAndCreatedAtBetween(id, range.from(), range.to());
+    }
+
+    /**
+     * Find a file by its id, among the files created in a range of time.
+     *
+     * @param id   The unique identifier of the file.
+     * @param from The earliest creation time of the file.
+     * @param to   The latest creation time of the file.
+     * @return The file, if found.
+     */
+    @Transactional(readOnly = true)
+    Optional<FileDB> findByIdAndCreatedAtBetween(UUID id, Timestamp from, Timestamp to);
+
+    /**
+     * Find the metadata of a file without loading its binary data.
+     *
+     * @param id The unique identifier of the file.
+     * @return The metadata of the file, if found.
+     */
+    default Optional<FileSummary> findSummaryById(UUID id) {
+        FileIds.CreationRange range = FileIds.creationRange(id);
+        return findSummaryByIdCreatedBetween(id, range.from(), range.to());
+    }
+
+    /**
+     * Find the metadata of a file without loading its binary data, among the files created in a range of time.
+     *
+     * @param id   The unique identifier of the file.
+     * @param from The earliest creation time of the file.
+     * @param to   The latest creation time of the file.
+     * @return The metadata of the file, if found.
+     */
+    @Query("""
+            select new com.ouharri.fileuploader.repository.projection.FileSummary(
+                f.id, f.name, f.type, f.size, f.version, f.updatedAt)
+            from FileDB f
+            where f.id = :id and f.createdAt between :from and :to
+            """)
+    Optional<FileSummary> findSummaryByIdCreatedBetween(@Param("id") UUID id, @Param("from") Timestamp from, @Param("to") Timestamp to);
+
+    /**
+     * Find the metadata of all files without loading their binary data.
+     *
+     * @return The metadata of all files.
+     */
+    @Query("""
+            select new com.ouharri.fileuploader.repository.projection.FileSummary(
+                f.id, f.name, f.type, f.size, f.version, f.updatedAt)
+            from FileDB f
+            """)
+    List<FileSummary> findAllSummaries();
+
+    /**
+     * Find the metadata of the files created since a time, without loading their binary data.
+     * On a table partitioned by {@code created_at}, only the partitions from that time on are scanned.
+     *
+     * @param since The earliest creation time of the files returned.
+     * @return The metadata of the files.
+     */
+    @Query("""
+            select new com.ouharri.fileuploader.repository.projection.FileSummary(
+                f.id, f.name, f.type, f.size, f.version, f.updatedAt)
+            from FileDB f
+            where f.createdAt >= :since
+            """)
+    List<FileSummary> findSummariesCreatedSince(@Param("since") Timestamp since);
+
+    /**
+     * Stream the metadata of all files from a database cursor, without loading their binary data.
+     * The stream must be consumed, and closed, inside a transaction.
+     *
+     * @return A stream of the metadata of all files.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.ouharri.fileuploader.repository.projection.FileSummary(
+                f.id, f.name, f.type, f.size, f.version, f.updatedAt)
+            from FileDB f
+            """)
+    Stream<FileSummary> streamAllSummaries();
+
+    /**
+     * Find the number of versions to retain for a file, without loading the file.
+     *
+     * @param id The unique identifier of the file.
+     * @return The number of versions to retain, if the file exists and has a retention set.
+     */
+    default Optional<Integer> findRetainedVersionsById(UUID id) {
+        FileIds.CreationRange range = FileIds.creationRange(id);
+        return findRetainedVersionsByIdCreatedBetween(id, range.from(), range.to());
+    }
+
+    /**
+     * Find the number of versions to retain for a file, among the files created in a range of time.
+     *
+     * @param id   The unique identifier of the file.
+     * @param from The earliest creation time of the file.
+     * @param to   The latest creation time of the file.
+     * @return The number of versions to retain, if the file exists and has a retention set.
+     */
+    @Query("select f.retainedVersions from FileDB f where f.id = :id and f.createdAt between :from and :to")
+    Optional<Integer> findRetainedVersionsByIdCreatedBetween(@Param("id") UUID id, @Param("from") Timestamp from, @Param("to") Timestamp to);
+
+    /**
+     * Overwrite a byte range of the binary data of a file, inside the database,
+     * if the file is still at the expected version. Writing past the current end extends the data.
+     * The checksums of the payload are cleared, to be recorded again by the integrity scrubber.
+     *
+     * @param id      The unique identifier of the file.
+     * @param version The expected version of the file.
+     * @param offset  The zero-based offset of the range.
+     * @param content The bytes to write at the offset.
+     * @return The number of updated rows, 0 if the version did not match.
+     */
+    default int writeRange(UUID id, long version, long offset, byte[] content) {
+        FileIds.CreationRange range = FileIds.creationRange(id);
+        return writeRangeCreatedBetween(id, range.from(), range.to(), version, offset, content);
+    }
+
+    /**
+     * {@link #writeRange(UUID, long, long, byte[])}, among the files created in a range of time.
+     *
+     * @param id      The unique identifier of the file.
+     * @param from    The earliest creation time of the file.
+     * @param to      The latest creation time of the file.
+     * @param version The expected version of the file.
+     * @param offset  The zero-based offset of the range.
+     * @param content The bytes to write at the offset.
+     * @return The number of updated rows, 0 if the version did not match.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE files
+            SET data       = overlay(COALESCE(data, ''::bytea) PLACING :content FROM CAST(:offset AS INTEGER) + 1),
+                size       = GREATEST(COALESCE(size, 0), :offset + octet_length(:content)),
+                crc32c     = NULL,
+                sha256     = NULL,
+                version    = version + 1,
+                updated_at = now()
+            WHERE id = :id AND created_at BETWEEN :from AND :to AND version = :version AND deleted_at IS NULL
+            """, nativeQuery = true)
+    int writeRangeCreatedBetween(
+            @Param("id") UUID id,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to,
+            @Param("version") long version,
+            @Param("offset") long offset,
+            @Param("content") byte[] content
+    );
+
+    /**
+     * Append bytes to the binary data of a file, inside the database,
+     * if the file is still at the expected version.
+     * The checksums of the payload are cleared, to be recorded again by the integrity scrubber.
+     *
+     * @param id      The unique identifier of the file.
+     * @param version The expected version of the file.
+     * @param content The bytes to append.
+     * @return The number of updated rows, 0 if the version did not match.
+     */
+    default int appendRange(UUID id, long version, byte[] content) {
+        FileIds.CreationRange range = FileIds.creationRange(id);
+        return appendRangeCreatedBetween(id, range.from(), range.to(), version, content);
+    }
+
+    /**
+     * {@link #appendRange(UUID, long, byte[])}, among the files created in a range of time.
+     *
+     * @param id      The unique identifier of the file.
+     * @param from    The earliest creation time of the file.
+     * @param to      The latest creation time of the file.
+     * @param version The expected version of the file.
+     * @param content The bytes to append.
+     * @return The number of updated rows, 0 if the version did not match.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE files
+            SET data       = COALESCE(data, ''::bytea) || :content,
+                size       = COALESCE(size, 0) + octet_length(:content),
+                crc32c     = NULL,
+                sha256     = NULL,
+                version    = version + 1,
+                updated_at = now()
+            WHERE id = :id AND created_at BETWEEN :from AND :to AND version = :version AND deleted_at IS NULL
+            """, nativeQuery = true)
+    int appendRangeCreatedBetween(
+            @Param("id") UUID id,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to,
+            @Param("version") long version,
+            @Param("content") byte[] content
+    );
+
+    /**
+     * Move the payload of a file stored in pack files into the database, so that ranges can be written into it.
+     * The version of the file is left untouched, since its content does not change.
+     *
+     * @param id   The unique identifier of the file.
+     * @param data The payload read from the pack files.
+     * @return The number of updated rows, 0 if the payload of the file was not in pack files.
+     */
+    default int unpack(UUID id, byte[] data) {
+        FileIds.CreationRange range = FileIds.creationRange(id);
+        return unpackCreatedBetween(id, range.from(), range.to(), data);
+    }
+
+    /**
+     * {@link #unpack(UUID, byte[])}, among the files created in a range of time.
+     *
+     * @param id   The unique identifier of the file.
+     * @param from The earliest creation time of the file.
+     * @param to   The latest creation time of the file.
+     * @param data The payload read from the pack files.
+     * @return The number of updated rows, 0 if the payload of the file was not in pack files.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE files SET data = :data, storage = 'DB'
+            WHERE id = :id AND created_at BETWEEN :from AND :to AND storage = 'PACK'
+            """, nativeQuery = true)
+    int unpackCreatedBetween(@Param("id") UUID id, @Param("from") Timestamp from, @Param("to") Timestamp to, @Param("data") byte[] data);
+
+    /**
+     * Check whether the payload of a file is encrypted.
+     *
+     * @param id The unique identifier of the file.
+     * @return {@code true} if the file exists and its payload is encrypted.
+     */
+    default boolean existsByIdAndDataKeyIsNotNull(UUID id) {
+        FileIds.CreationRange range = FileIds.creationRange(id);
+        return existsByIdAndCreatedAtBetweenAndDataKeyIsNotNull(id, range.from(), range.to());
+    }
+
+    /**
+     * Check whether the payload of a file is encrypted, among the files created in a range of time.
+     *
+     * @param id   The unique identifier of the file.
+     * @param from The earliest creation time of the file.
+     * @param to   The latest creation time of the file.
+     * @return {@code true} if the file exists and its payload is encrypted.
+     */
+    boolean existsByIdAndCreatedAtBetweenAndDataKeyIsNotNull(UUID id, Timestamp from, Timestamp to);
+
+    /**
+     * Find and lock the given files not deleted yet, without loading their binary data.
+     * Expired files are found too, as they are tombstoned through here once swept.
+     * The rows stay locked until the end of the transaction, in the order of their ids, so that a concurrent
+     * delete of the same files waits, then no longer finds them.
+     *
+     * @param ids The unique identifiers of the files.
+     * @return The metadata of the files found.
+     */
+    default List<FileChange> lockLiveById(Collection<UUID> ids) {
+        FileIds.CreationRange range = FileIds.creationRange(ids);
+        return lockLiveByIdCreatedBetween(ids, range.from(), range.to());
+    }
+
+    /**
+     * {@link #lockLiveById(Collection)}, among the files created in a range of time.
+     *
+     * @param ids  The unique identifiers of the files.
+     * @param from The earliest creation time of the files.
+     * @param to   The latest creation time of the files.
+     * @return The metadata of the files found.
+     */
+    @Query(value = """
+            SELECT id, name, type, size, version,
+                   created_at AS "createdAt", updated_at AS "updatedAt", deleted_at AS "deletedAt"
+            FROM files
+            WHERE id IN (:ids) AND created_at BETWEEN :from AND :to AND deleted_at IS NULL
+            ORDER BY id
+            FOR UPDATE
+            """, nativeQuery = true)
+    List<FileChange> lockLiveByIdCreatedBetween(@Param("ids") Collection<UUID> ids, @Param("from") Timestamp from, @Param("to") Timestamp to);
+
+    /**
+     * Tombstone the given files: they disappear from the application at once,
+     * and their payload is reclaimed later by the garbage collector.
+     *
+     * @param ids The unique identifiers of the files.
+     * @return The number of tombstoned files.
+     */
+    default int tombstone(Collection<UUID> ids) {
+        FileIds.CreationRange range = FileIds.creationRange(ids);
+        return tombstoneCreatedBetween(ids, range.from(), range.to());
+    }
+
+    /**
+     * {@link #tombstone(Collection)}, among the files created in a range of time.
+     *
+     * @param ids  The unique identifiers of the files.
+     * @param from The earliest creation time of the files.
+     * @param to   The latest creation time of the files.
+     * @return The number of tombstoned files.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE files
+            SET deleted_at = now(),
+                updated_at = now(),
+                version    = version + 1
+            WHERE id IN (:ids) AND created_at BETWEEN :from AND :to AND deleted_at IS NULL
+            """, nativeQuery = true)
+    int tombstoneCreatedBetween(@Param("ids") Collection<UUID> ids, @Param("from") Timestamp from, @Param("to") Timestamp to);
+
+    /**
+     * Find the oldest tombstoned files whose payload has not been reclaimed yet.
+     *
+     * @param before Only files deleted before this timestamp are returned.
+     * @param limit  The maximum number of files to return.
+     * @return The unique identifiers of the files.
+     */
+    @Query(value = """
+            SELECT id FROM files
+            WHERE deleted_at IS NOT NULL AND deleted_at < :before AND (data IS NOT NULL OR storage = 'PACK')
+            ORDER BY deleted_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<UUID> findPayloadsToReclaim(@Param("before") Timestamp before, @Param("limit") int limit);
+
+    /**
+     * Release the payload of tombstoned files, keeping their tombstone.
+     *
+     * @param ids The unique identifiers of the files.
+     * @return The number of reclaimed payloads.
+     */
+    default int reclaimPayloads(Collection<UUID> ids) {
+        FileIds.CreationRange range = FileIds.creationRange(ids);
+        return reclaimPayloadsCreatedBetween(ids, range.from(), range.to());
+    }
+
+    /**
+     * {@link #reclaimPayloads(Collection)}, among the files created in a range of time.
+     *
+     * @param ids  The unique identifiers of the files.
+     * @param from The earliest creation time of the files.
+     * @param to   The latest creation time of the files.
+     * @return The number of reclaimed payloads.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE files SET data = NULL, storage = 'DB'
+            WHERE id IN (:ids) AND created_at BETWEEN :from AND :to AND deleted_at IS NOT NULL
+            """, nativeQuery = true)
+    int reclaimPayloadsCreatedBetween(@Param("ids") Collection<UUID> ids, @Param("from") Timestamp from, @Param("to") Timestamp to);
+
+    /**
+     * Find the oldest tombstones past their retention.
+     *
+     * @param before Only files deleted before this timestamp are returned.
+     * @param limit  The maximum number of files to return.
+     * @return The unique identifiers of the files.
+     */
+    @Query(value = """
+            SELECT id FROM files
+            WHERE deleted_at IS NOT NULL AND deleted_at < :before
+            ORDER BY deleted_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<UUID> findTombstonesToPurge(@Param("before") Timestamp before, @Param("limit") int limit);
+
+    /**
+     * Delete the rows of tombstoned files for good.
+     *
+     * @param ids The unique identifiers of the files.
+     * @return The number of deleted rows.
+     */
+    default int purgeTombstones(Collection<UUID> ids) {
+        FileIds.CreationRange range = FileIds.creationRange(ids);
+        return purgeTombstonesCreatedBetween(ids, range.from(), range.to());
+    }
+
+    /**
+     * {@link #purgeTombstones(Collection)}, among the files created in a range of time.
+     *
+     * @param ids  The unique identifiers of the files.
+     * @param from The earliest creation time of the files.
+     * @param to   The latest creation time of the files.
+     * @return The number of deleted rows.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM files WHERE id IN (:ids) AND created_at BETWEEN :from AND :to AND deleted_at IS NOT NULL", nativeQuery = true)
+    int purgeTombstonesCreatedBetween(@Param("ids") Collection<UUID> ids, @Param("from") Timestamp from, @Param("to") Timestamp to);
+
+    /**
+     * Find the live files after a keyset position, in {@code id} order, for the integrity scrubber.
+     *
+     * @param afterId The {@code id} of the keyset position.
+     * @param limit   The maximum number of files to return.
+     * @return The unique identifiers of the files.
+     */
+    @Query(value = """
+            SELECT id FROM files
+            WHERE id > :afterId AND deleted_at IS NULL
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<UUID> findIdsAfter(@Param("afterId") UUID afterId, @Param("limit") int limit);
+
+    /**
+     * Find the files created, updated or deleted after a keyset position, in {@code (updated_at, id)} order.
+     * The query is a range scan of the {@code (updated_at, id)} index, so its cost only depends on the number
+     * of changes returned, not on the size of the catalogue.
+     *
+     * @param since       The {@code updated_at} of the keyset position.
+     * @param afterId     The {@code id} of the keyset position.
+     * @param until       Only changes strictly before this timestamp are returned.
+     * @param skipDeleted Whether to leave the tombstones out, for an initial synchronization.
+     * @param limit       The maximum number of changes to return.
+     * @return The changes, oldest first.
+     */
+    @Query(value = """
+            SELECT id, name, type, size, version,
+                   created_at AS "createdAt", updated_at AS "updatedAt", deleted_at AS "deletedAt"
+            FROM files
+            WHERE (updated_at, id) > (:since, :afterId)
+              AND updated_at < :until
+              AND (:skipDeleted = FALSE OR deleted_at IS NULL)
+            ORDER BY updated_at, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FileChange> findChangesAfter(
+            @Param("since") Timestamp since,
+            @Param("afterId") UUID afterId,
+            @Param("until") Timestamp until,
+            @Param("skipDeleted") boolean skipDeleted,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Find the live files expiring in a window, after a keyset position, in {@code (expires_at, id)} order.
+     * The query is a range scan of the partial index on {@code expires_at}.
+     *
+     * @param since   The {@code expires_at} of the keyset position.
+     * @param afterId The {@code id} of the keyset position.
+     * @param until   Only files expiring strictly before this timestamp are returned.
+     * @param limit   The maximum number of files to return.
+     * @return The expiries, earliest first.
+     */
+    @Query(value = """
+            SELECT id, expires_at AS "expiresAt"
+            FROM files
+            WHERE expires_at IS NOT NULL AND deleted_at IS NULL
+              AND (expires_at, id) > (:since, :afterId)
+              AND expires_at < :until
+            ORDER BY expires_at, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FileExpiry> findExpiriesAfter(
+            @Param("since") Timestamp since,
+            @Param("afterId") UUID afterId,
+            @Param("until") Timestamp until,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Find which of the given files are expired and not deleted yet.
+     *
+     * @param ids The unique identifiers of the files.
+     * @param now The current timestamp, as seen by the application.
+     * @return The unique identifiers of the expired files.
+     */
+    default List<UUID> findExpiredIds(Collection<UUID> ids, Timestamp now) {
+        FileIds.CreationRange range = FileIds.creationRange(ids);
+        return findExpiredIdsCreatedBetween(ids, range.from(), range.to(), now);
+    }
+
+    /**
+     * {@link #findExpiredIds(Collection, Timestamp)}, among the files created in a range of time.
+     *
+     * @param ids  The unique identifiers of the files.
+     * @param from The earliest creation time of the files.
+     * @param to   The latest creation time of the files.
+     * @param now  The current timestamp, as seen by the application.
+     * @return The unique identifiers of the expired files.
+     */
+    @Query(value = """
+            SELECT id FROM files
+            WHERE id IN (:ids) AND created_at BETWEEN :from AND :to AND expires_at <= :now AND deleted_at IS NULL
+            """, nativeQuery = true)
+    List<UUID> findExpiredIdsCreatedBetween(
+            @Param("ids") Collection<UUID> ids,
+            @Param("from") Timestamp from,
+            @Param("to") Timestamp to,
+            @Param("now") Timestamp now
+    );
+}
@@ -0,0 +1,64 @@
+package com.ouharri.fileuploader.repository;
+
+import com.ouharri.fileuploader.entity.FileStats;
+import com.ouharri.fileuploader.repository.projection.TypeTotals;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for the aggregated {@link FileStats} summary table.
+ */
+@Repository
+public interface FileStatsRepository extends JpaRepository<FileStats, String> {
+
+    /**
+     * Add a delta to the statistics of a content type, creating its row when missing.
+     *
+     * @param type  The content type.
+     * @param count The number of files to add (may be negative).
+     * @param bytes The number of bytes to add (may be negative).
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO file_stats (type, file_count, total_bytes, updated_at)
+            VALUES (:type, :count, :bytes, now())
+            ON CONFLICT (type) DO UPDATE
+            SET file_count  = file_stats.file_count + EXCLUDED.file_count,
+                total_bytes = file_stats.total_bytes + EXCLUDED.total_bytes,
+                updated_at  = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    void applyDelta(@Param("type") String type, @Param("count") long count, @Param("bytes") long bytes);
+
+    /**
+     * Lock the summary table until the end of the transaction, against the deltas being flushed, which conflict with
+     * this lock, and other reconciliations.
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE file_stats IN EXCLUSIVE MODE", nativeQuery = true)
+    void lock();
+
+    /**
+     * Remove every summary row, before a full reconciliation.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM file_stats", nativeQuery = true)
+    void clear();
+
+    /**
+     * Sum the live files of the {@code files} table by content type, using the stored size column only.
+     *
+     * @return The totals of each content type.
+     */
+    @Query(value = """
+            SELECT COALESCE(f.type, 'unknown') AS "type", count(*) AS "fileCount", COALESCE(sum(f.size), 0) AS "totalBytes"
+            FROM files f
+            WHERE f.deleted_at IS NULL
+            GROUP BY COALESCE(f.type, 'unknown')
+            """, nativeQuery = true)
+    List<TypeTotals> summarizeFiles();
+}
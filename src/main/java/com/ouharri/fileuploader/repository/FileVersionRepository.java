@@ -0,0 +1,68 @@
+package com.ouharri.fileuploader.repository;
+
+import com.ouharri.fileuploader.entity.FileVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository interface for performing CRUD operations on FileVersion entities.
+ */
+@Repository
+public interface FileVersionRepository extends JpaRepository<FileVersion, UUID> {
+
+    /**
+     * Find the retained versions of a file, newest first.
+     *
+     * @param fileId The unique identifier of the file.
+     * @return The versions of the file.
+     */
+    List<FileVersion> findByFileIdOrderByRevisionDesc(UUID fileId);
+
+    /**
+     * Find a version of a file.
+     *
+     * @param fileId   The unique identifier of the file.
+     * @param revision The revision of the file.
+     * @return The version, if retained.
+     */
+    Optional<FileVersion> findByFileIdAndRevision(UUID fileId, Long revision);
+
+    /**
+     * Check whether a revision of a file is already retained.
+     *
+     * @param fileId   The unique identifier of the file.
+     * @param revision The revision of the file.
+     * @return {@code true} if the revision is retained.
+     */
+    boolean existsByFileIdAndRevision(UUID fileId, Long revision);
+
+    /**
+     * Get the ordered chunk hashes of a version, without loading the version itself.
+     *
+     * @param fileId   The unique identifier of the file.
+     * @param revision The revision of the file.
+     * @return The chunk hashes, in content order.
+     */
+    @Query("""
+            select h from FileVersion v join v.chunkHashes h
+            where v.fileId = :fileId and v.revision = :revision
+            order by index(h)
+            """)
+    List<String> findChunkHashes(@Param("fileId") UUID fileId, @Param("revision") Long revision);
+
+    /**
+     * Get the wrapped data key the chunks of a version are sealed with, without loading the version itself.
+     *
+     * @param fileId   The unique identifier of the file.
+     * @param revision The revision of the file.
+     * @return The wrapped data key, empty if the chunks are stored in plain.
+     */
+    @Query("select v.dataKey from FileVersion v where v.fileId = :fileId and v.revision = :revision")
+    Optional<byte[]> findDataKey(@Param("fileId") UUID fileId, @Param("revision") Long revision);
+}
@@ -0,0 +1,50 @@
+package com.ouharri.fileuploader.repository.projection;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Metadata-only view of a created, updated or deleted file, as read by the delta-sync queries.
+ */
+public interface FileChange {
+
+    /**
+     * @return The unique identifier of the file.
+     */
+    UUID getId();
+
+    /**
+     * @return The name of the file.
+     */
+    String getName();
+
+    /**
+     * @return The content type of the file.
+     */
+    String getType();
+
+    /**
+     * @return The size of the file in bytes.
+     */
+    Long getSize();
+
+    /**
+     * @return The version of the file.
+     */
+    Long getVersion();
+
+    /**
+     * @return The timestamp when the file was created.
+     */
+    Timestamp getCreatedAt();
+
+    /**
+     * @return The timestamp of the last change of the file, its deletion included.
+     */
+    Timestamp getUpdatedAt();
+
+    /**
+     * @return The timestamp when the file was deleted, {@code null} if the file is live.
+     */
+    Timestamp getDeletedAt();
+}
@@ -0,0 +1,20 @@
+package com.ouharri.fileuploader.repository.projection;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Expiry of a file uploaded with a time to live, as read to schedule its deletion.
+ */
+public interface FileExpiry {
+
+    /**
+     * @return The unique identifier of the file.
+     */
+    UUID getId();
+
+    /**
+     * @return The timestamp from which the file is expired.
+     */
+    Timestamp getExpiresAt();
+}
@@ -0,0 +1,24 @@
+package com.ouharri.fileuploader.repository.projection;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Metadata-only view of a {@link com.ouharri.fileuploader.entity.FileDB}, loaded without its binary data.
+ *
+ * @param id        The unique identifier of the file.
+ * @param name      The name of the file.
+ * @param type      The content type of the file.
+ * @param size      The size of the file in bytes.
+ * @param version   The version of the file, used for optimistic locking.
+ * @param updatedAt The timestamp of the last update of the file.
+ */
+public record FileSummary(
+        UUID id,
+        String name,
+        String type,
+        Long size,
+        Long version,
+        Timestamp updatedAt
+) {
+}
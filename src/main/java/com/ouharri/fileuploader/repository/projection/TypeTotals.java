@@ -0,0 +1,22 @@
+package com.ouharri.fileuploader.repository.projection;
+
+/**
+ * Number and total size of the live files of one content type.
+ */
+public interface TypeTotals {
+
+    /**
+     * @return The content type, {@code unknown} when the files have none.
+     */
+    String getType();
+
+    /**
+     * @return The number of files.
+     */
+    long getFileCount();
+
+    /**
+     * @return The total size of the files in bytes.
+     */
+    long getTotalBytes();
+}
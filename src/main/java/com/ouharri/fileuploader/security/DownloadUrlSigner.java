@@ -0,0 +1,117 @@
+package com.ouharri.fileuploader.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Signs and verifies expiring download URLs with HMAC-SHA256.
+ * <p>
+ * A signed URL has the form {@code /d/{id}?expires={epochSeconds}&signature={hmac}}. Expiries are rounded up
+ * to a fixed granularity so that every URL issued for a file within the same window is identical,
+ * which lets CDNs and browsers cache the downloads, revalidating them against the version of the file.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+@Slf4j
+@Component
+public class DownloadUrlSigner {
+
+    /**
+     * The path prefix of the signed download URLs.
+     */
+    public static final String DOWNLOAD_PATH = "/d/";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+    private final long ttlSeconds;
+    private final long granularitySeconds;
+    private final Clock clock;
+
+    @Autowired
+    public DownloadUrlSigner(
+            @Value("${app.download.signing-key:}") String signingKey,
+            @Value("${app.download.url-ttl:1h}") Duration ttl,
+            @Value("${app.download.expiry-granularity:5m}") Duration granularity
+    ) {
+        this(signingKey, ttl, granularity, Clock.systemUTC());
+    }
+
+    DownloadUrlSigner(String signingKey, Duration ttl, Duration granularity, Clock clock) {
+        byte[] secret;
+        if (signingKey == null || signingKey.isBlank()) {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            log.warn("No app.download.signing-key configured, signed download URLs will not survive a restart");
+        } else {
+            secret = Base64.getDecoder().decode(signingKey);
+        }
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+        this.ttlSeconds = ttl.toSeconds();
+        this.granularitySeconds = Math.max(1, granularity.toSeconds());
+        this.clock = clock;
+    }
+
+    /**
+     * Build a signed download URL for a file.
+     *
+     * @param baseUrl The base URL of the application (scheme, host and context path).
+     * @param id      The unique identifier of the file.
+     * @return The signed download URL.
+     */
+    public String sign(String baseUrl, UUID id) {
+        long expires = roundUp(clock.instant().getEpochSecond() + ttlSeconds);
+        return baseUrl + DOWNLOAD_PATH + id + "?expires=" + expires + "&signature=" + signature(id, expires);
+    }
+
+    /**
+     * Verify a signed download URL.
+     *
+     * @param id        The unique identifier of the file.
+     * @param expires   The expiry of the URL, in epoch seconds.
+     * @param signature The signature of the URL.
+     * @return {@code true} if the signature is valid and the URL has not expired.
+     */
+    public boolean verify(UUID id, long expires, String signature) {
+        if (signature == null || expires < clock.instant().getEpochSecond())
+            return false;
+        return MessageDigest.isEqual(
+                signature(id, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII)
+        );
+    }
+
+    private String signature(UUID id, long expires) {
+        byte[] hmac = mac.get().doFinal((id + ":" + expires).getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hmac);
+    }
+
+    private long roundUp(long epochSeconds) {
+        return (epochSeconds + granularitySeconds - 1) / granularitySeconds * granularitySeconds;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize " + ALGORITHM, e);
+        }
+    }
+}
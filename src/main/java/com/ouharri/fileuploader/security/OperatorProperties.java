@@ -0,0 +1,30 @@
+package com.ouharri.fileuploader.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Credentials of the operator, the one account allowed on the profiling and backup endpoints, over HTTP Basic.
+ *
+ * @param username The name of the operator.
+ * @param password The password of the operator, either in plain text or encoded with its
+ *                 {@code {id}} prefix, e.g. {@code {bcrypt}...}; without one, no operator can sign in.
+ */
+@ConfigurationProperties(prefix = "app.operator")
+public record OperatorProperties(String username, String password) {
+
+    /**
+     * The role of the operator.
+     */
+    public static final String ROLE = "OPERATOR";
+
+    public OperatorProperties {
+        username = username != null && !username.isBlank() ? username : "operator";
+    }
+
+    /**
+     * @return Whether a password is configured, so that the operator can sign in.
+     */
+    public boolean isEnabled() {
+        return password != null && !password.isBlank();
+    }
+}
@@ -0,0 +1,100 @@
+package com.ouharri.fileuploader.security;
+
+import com.ouharri.fileuploader.exception.ResourceCorruptedException;
+import com.ouharri.fileuploader.storage.BufferPool;
+import com.ouharri.fileuploader.storage.PayloadStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+/**
+ * Lean fast path serving signed download URLs.
+ * <p>
+ * The filter is registered ahead of the Spring Security filter chain and answers the request itself:
+ * the signature replaces the security checks, and the payload is streamed straight from the
+ * {@link PayloadStore} through a pooled buffer, without going through the dispatcher servlet, the controller or JPA.
+ * A signed URL outlives changes to the file, so caches may keep a download but must revalidate its ETag, the version
+ * of the file, before reusing it; an unchanged file is answered {@code 304 Not Modified} without its payload.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SignedDownloadFilter extends OncePerRequestFilter {
+
+    private final DownloadUrlSigner signer;
+    private final PayloadStore payloadStore;
+    private final BufferPool bufferPool;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + DownloadUrlSigner.DOWNLOAD_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws IOException {
+        boolean head = HttpMethod.HEAD.matches(request.getMethod());
+        if (!head && !HttpMethod.GET.matches(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        UUID id;
+        long expires;
+        try {
+            String path = request.getRequestURI().substring(request.getContextPath().length() + DownloadUrlSigner.DOWNLOAD_PATH.length());
+            id = UUID.fromString(path);
+            expires = Long.parseLong(request.getParameter("expires"));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!signer.verify(id, expires, request.getParameter("signature"))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Invalid or expired download URL");
+            return;
+        }
+
+        boolean found;
+        try {
+            found = payloadStore.read(id, (metadata, payload) -> {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "public, no-cache");
+                if (metadata.updatedAt() != null)
+                    response.setDateHeader(HttpHeaders.LAST_MODIFIED, metadata.updatedAt().getTime());
+                if (new ServletWebRequest(request, response).checkNotModified("\"" + metadata.version() + "\""))
+                    return;
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType(metadata.type());
+                response.setContentLengthLong(payload.size());
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "Inline; filename=\"" + metadata.name() + "\"");
+                if (head)
+                    return;
+                OutputStream out = response.getOutputStream();
+                try (InputStream in = payload.stream()) {
+                    bufferPool.transfer(in, out);
+                }
+                out.flush();
+            });
+        } catch (ResourceCorruptedException e) {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+            return;
+        }
+        if (!found)
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        log.debug("Served signed download of file {}", id);
+    }
+}
@@ -0,0 +1,154 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.archive.ArchiveProperties;
+import com.ouharri.fileuploader.archive.ArchiveReader;
+import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.exception.ResourceNotCreatedException;
+import com.ouharri.fileuploader.service.spec.ArchiveIngestService;
+import com.ouharri.fileuploader.service.spec.FileStorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Service class expanding uploaded archives.
+ * <p>
+ * The request thread reads the archive one member at a time and groups the members into batches, which a
+ * bounded pool of workers stores with batched inserts while the reading goes on. At most
+ * {@code app.archive.max-in-flight-batches} batches wait for the workers: past that, reading blocks, which
+ * pushes back on the client. The memory of an expansion is thus bounded by the batch limits, whatever the
+ * size of the archive. A batch failing to be stored only skips its own members.
+ */
+@Slf4j
+@Service
+public class ArchiveIngestServiceImpl implements ArchiveIngestService {
+
+    private final FileStorageService fileStorageService;
+    private final ExecutorService archiveIngestPool;
+    private final ArchiveProperties properties;
+
+    public ArchiveIngestServiceImpl(
+            FileStorageService fileStorageService,
+            ExecutorService archiveIngestPool,
+            ArchiveProperties properties
+    ) {
+        this.fileStorageService = fileStorageService;
+        this.archiveIngestPool = archiveIngestPool;
+        this.properties = properties;
+    }
+
+    @Override
+    public Manifest expand(InputStream archive) throws IOException {
+        Semaphore inFlight = new Semaphore(properties.maxInFlightBatches());
+        List<Future<List<Entry>>> batches = new ArrayList<>();
+        List<Skipped> skipped = Collections.synchronizedList(new ArrayList<>());
+        long maxMemberSize = properties.maxMemberSize().toBytes();
+        boolean complete = false;
+        ArchiveReader archiveReader;
+        try {
+            archiveReader = new ArchiveReader(archive, maxMemberSize);
+        } catch (IOException e) {
+            throw new ResourceNotCreatedException("Could not expand the archive: " + e.getMessage());
+        }
+        try (ArchiveReader reader = archiveReader) {
+            List<FileStorageService.NewFile> batch = new ArrayList<>();
+            long batchBytes = 0;
+            long totalBytes = 0;
+            int members = 0;
+            try {
+                for (ArchiveReader.Member member; (member = reader.next()) != null; ) {
+                    totalBytes += member.size();
+                    if (++members > properties.maxMembers() || totalBytes > properties.maxTotalSize().toBytes()) {
+                        skipped.add(new Skipped(member.name(), "The archive exceeds " + properties.maxMembers()
+                                + " members or " + properties.maxTotalSize() + ", the rest of it is ignored"));
+                        break;
+                    }
+                    if (member.content() == null) {
+                        skipped.add(new Skipped(member.name(), "The member is larger than " + properties.maxMemberSize()));
+                        continue;
+                    }
+                    batch.add(new FileStorageService.NewFile(member.name(), typeOf(member.name()), member.content()));
+                    batchBytes += member.size();
+                    if (batch.size() >= properties.batchSize() || batchBytes >= properties.batchBytes().toBytes()) {
+                        batches.add(submit(batch, inFlight, skipped));
+                        batch = new ArrayList<>();
+                        batchBytes = 0;
+                    }
+                }
+                complete = members <= properties.maxMembers() && totalBytes <= properties.maxTotalSize().toBytes();
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                log.warn("Archive expansion stopped by a read error after {} members: {}", members, e.getMessage());
+                skipped.add(new Skipped(null, "The archive could not be read past member " + members + ": " + e.getMessage()));
+            }
+            if (!batch.isEmpty())
+                batches.add(submit(batch, inFlight, skipped));
+        }
+        List<Entry> files = collect(batches);
+        log.info("Expanded archive into {} files, {} members skipped", files.size(), skipped.size());
+        return new Manifest(files, List.copyOf(skipped), complete);
+    }
+
+    private Future<List<Entry>> submit(List<FileStorageService.NewFile> batch, Semaphore inFlight, List<Skipped> skipped) throws InterruptedIOException {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the archive workers");
+        }
+        try {
+            return archiveIngestPool.submit(() -> {
+                try {
+                    List<FileDB> stored = fileStorageService.storeAll(batch);
+                    List<Entry> entries = new ArrayList<>(stored.size());
+                    for (FileDB file : stored)
+                        entries.add(new Entry(file.getId(), file.getName(), file.getType(), file.getSize()));
+                    return entries;
+                } catch (Exception e) {
+                    log.warn("Could not store a batch of {} archive members: {}", batch.size(), e.getMessage());
+                    batch.forEach(file -> skipped.add(new Skipped(file.name(), "Could not be stored: " + e.getMessage())));
+                    return List.of();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private static List<Entry> collect(List<Future<List<Entry>>> batches) throws InterruptedIOException {
+        List<Entry> files = new ArrayList<>();
+        for (Future<List<Entry>> batch : batches) {
+            try {
+                files.addAll(batch.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the archive workers");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Archive worker failed", e.getCause());
+            }
+        }
+        return files;
+    }
+
+    private static String typeOf(String name) {
+        return MediaTypeFactory.getMediaType(name)
+                .map(MediaType::toString)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+}
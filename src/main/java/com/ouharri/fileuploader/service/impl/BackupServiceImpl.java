@@ -0,0 +1,395 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.backup.BackupProperties;
+import com.ouharri.fileuploader.backup.CatalogPackReader;
+import com.ouharri.fileuploader.backup.CatalogPackWriter;
+import com.ouharri.fileuploader.backup.CatalogRecord;
+import com.ouharri.fileuploader.backup.Checkpoint;
+import com.ouharri.fileuploader.datasource.RoutingContext;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.entity.PayloadStorage;
+import com.ouharri.fileuploader.exception.ResourceNotFoundException;
+import com.ouharri.fileuploader.service.spec.BackupService;
+import com.ouharri.fileuploader.service.spec.FileStatsService;
+import com.ouharri.fileuploader.storage.PackFileStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Service class exporting the files catalogue to pack files and importing it back.
+ * <p>
+ * An export splits the id space of every shard into {@code app.backup.partitions} ranges and reads each range
+ * with keyset pagination into its own pack file, several ranges at a time on the backup pool, from a replica
+ * when there is one. Rows are written as they are read through a large buffer, so an export is bound by the disk.
+ * An import reads the pack files in parallel and inserts the files of each batch with JDBC batching on the shard
+ * they belong to in this environment, skipping the ids already present.
+ * <p>
+ * Both take a {@link Checkpoint} after every batch, once the batch is durable: a job started again after
+ * a crash or a restart carries on from its checkpoints, and an export or an import done twice does nothing.
+ */
+@Slf4j
+@Service
+public class BackupServiceImpl implements BackupService {
+
+    private static final String PACK_SUFFIX = ".fpk";
+    private static final String EXPORT_CHECKPOINT_SUFFIX = ".export";
+    private static final String IMPORT_CHECKPOINT_SUFFIX = ".import";
+
+    private static final String SELECT_BATCH = """
+            SELECT id, name, type, size, retained_versions, created_at, updated_at, storage, crc32c, sha256, data_key, data
+            FROM files
+            WHERE deleted_at IS NULL AND id %s ? %s
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String INSERT_FILE = """
+            INSERT INTO files (id, name, type, size, retained_versions, created_at, updated_at, version, storage, crc32c, sha256, data_key, data)
+            VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final PackFileStore packFileStore;
+    private final FileStatsService fileStatsService;
+    private final ExecutorService backupPool;
+    private final BackupProperties properties;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public BackupServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ShardRouter shardRouter,
+            PackFileStore packFileStore,
+            FileStatsService fileStatsService,
+            ExecutorService backupPool,
+            BackupProperties properties
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.packFileStore = packFileStore;
+        this.fileStatsService = fileStatsService;
+        this.backupPool = backupPool;
+        this.properties = properties;
+    }
+
+    @Override
+    public Progress startExport(String job) {
+        Path directory = Path.of(properties.directory(), job);
+        List<String> packs = new ArrayList<>();
+        for (String shard : shardRouter.shards())
+            for (int partition = 0; partition < properties.partitions(); partition++)
+                packs.add(shard + "-" + String.format("%04d", partition));
+        return start(job, Operation.EXPORT, packs, pack -> exportPack(directory, pack, job));
+    }
+
+    @Override
+    public Progress startImport(String job) {
+        Path directory = Path.of(properties.directory(), job);
+        List<String> packs;
+        try (Stream<Path> files = Files.isDirectory(directory) ? Files.list(directory) : Stream.empty()) {
+            packs = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(PACK_SUFFIX))
+                    .map(name -> name.substring(0, name.length() - PACK_SUFFIX.length()))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (packs.isEmpty())
+            throw new ResourceNotFoundException("No pack files found for backup " + job);
+        return start(job, Operation.IMPORT, packs, pack -> importPack(directory, pack, job));
+    }
+
+    @Override
+    public Progress getProgress(String job) {
+        Job current = jobs.get(job);
+        if (current == null)
+            throw new ResourceNotFoundException("Backup " + job + " has not run");
+        return current.progress(job);
+    }
+
+    /**
+     * Start a job, unless it is already running, running the work of every pack file on the backup pool.
+     */
+    private Progress start(String job, Operation operation, List<String> packs, PackWork work) {
+        Job started = new Job(operation, packs.size());
+        Job current = jobs.compute(job, (name, running) -> running != null && running.running ? running : started);
+        if (current != started)
+            return current.progress(job);
+        try {
+            Files.createDirectories(Path.of(properties.directory(), job));
+        } catch (IOException e) {
+            started.finish(e);
+            throw new UncheckedIOException(e);
+        }
+        log.info("Starting {} of backup {} over {} pack files", operation, job, packs.size());
+        CompletableFuture.allOf(packs.stream()
+                        .map(pack -> CompletableFuture.runAsync(() -> {
+                            try {
+                                work.run(pack);
+                                started.completed.incrementAndGet();
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }, backupPool))
+                        .toArray(CompletableFuture[]::new))
+                .whenComplete((result, error) -> {
+                    started.finish(error);
+                    Progress progress = started.progress(job);
+                    if (error != null)
+                        log.error("{} of backup {} failed after {} files: {}", operation, job, progress.files(), progress.error());
+                    else
+                        log.info("{} of backup {} done: {} files, {} bytes, {} skipped", operation, job, progress.files(), progress.bytes(), progress.skipped());
+                });
+        return started.progress(job);
+    }
+
+    private void exportPack(Path directory, String pack, String job) throws IOException {
+        Path checkpointFile = directory.resolve(pack + EXPORT_CHECKPOINT_SUFFIX);
+        Checkpoint checkpoint = Checkpoint.load(checkpointFile);
+        Job current = jobs.get(job);
+        current.files.add(checkpoint.records());
+        current.bytes.add(checkpoint.bytes());
+        if (checkpoint.complete())
+            return;
+        String shard = pack.substring(0, pack.lastIndexOf('-'));
+        int partition = Integer.parseInt(pack.substring(pack.lastIndexOf('-') + 1));
+        UUID lower = lowerBound(partition);
+        UUID upper = partition + 1 < properties.partitions() ? lowerBound(partition + 1) : null;
+        try (CatalogPackWriter writer = new CatalogPackWriter(directory.resolve(pack + PACK_SUFFIX), checkpoint.offset(),
+                Math.toIntExact(properties.writeBufferSize().toBytes()))) {
+            while (!checkpoint.complete()) {
+                UUID after = checkpoint.lastId();
+                List<CatalogRecord> batch = shardRouter.onShard(shard, () -> RoutingContext.readOnly(() -> readBatch(lower, after, upper)));
+                long bytes = 0;
+                for (CatalogRecord record : batch) {
+                    writer.write(record);
+                    bytes += record.payload() != null ? record.payload().length : 0;
+                }
+                checkpoint = new Checkpoint(
+                        batch.isEmpty() ? after : batch.get(batch.size() - 1).id(),
+                        writer.sync(),
+                        checkpoint.records() + batch.size(),
+                        checkpoint.bytes() + bytes,
+                        batch.size() < properties.batchSize()
+                );
+                checkpoint.save(checkpointFile);
+                current.files.add(batch.size());
+                current.bytes.add(bytes);
+            }
+        }
+    }
+
+    /**
+     * Read the next batch of files of a partition, in id order.
+     */
+    private List<CatalogRecord> readBatch(UUID lower, UUID after, UUID upper) {
+        String sql = SELECT_BATCH.formatted(after != null ? ">" : ">=", upper != null ? "AND id < ?" : "");
+        List<Object> arguments = new ArrayList<>();
+        arguments.add(after != null ? after : lower);
+        if (upper != null)
+            arguments.add(upper);
+        arguments.add(properties.batchSize());
+        return jdbcTemplate.query(sql, (resultSet, row) -> record(resultSet), arguments.toArray());
+    }
+
+    private CatalogRecord record(ResultSet resultSet) throws SQLException {
+        UUID id = resultSet.getObject("id", UUID.class);
+        byte[] payload = PayloadStorage.PACK.name().equals(resultSet.getString("storage"))
+                ? packFileStore.readBytes(id).orElse(null)
+                : resultSet.getBytes("data");
+        return new CatalogRecord(
+                id,
+                resultSet.getString("name"),
+                resultSet.getString("type"),
+                resultSet.getObject("size", Long.class),
+                resultSet.getObject("retained_versions", Integer.class),
+                resultSet.getTimestamp("created_at"),
+                resultSet.getTimestamp("updated_at"),
+                resultSet.getObject("crc32c", Integer.class),
+                resultSet.getString("sha256"),
+                resultSet.getBytes("data_key"),
+                payload
+        );
+    }
+
+    /**
+     * @return The first id of a partition of the id space, split evenly on the most significant bits.
+     */
+    private UUID lowerBound(int partition) {
+        return new UUID(partition * Long.divideUnsigned(-1L, properties.partitions()), 0);
+    }
+
+    private void importPack(Path directory, String pack, String job) throws IOException {
+        Path checkpointFile = directory.resolve(pack + IMPORT_CHECKPOINT_SUFFIX);
+        Checkpoint checkpoint = Checkpoint.load(checkpointFile);
+        Job current = jobs.get(job);
+        current.files.add(checkpoint.records());
+        current.bytes.add(checkpoint.bytes());
+        if (checkpoint.complete())
+            return;
+        try (CatalogPackReader reader = new CatalogPackReader(directory.resolve(pack + PACK_SUFFIX), checkpoint.offset(),
+                Math.toIntExact(properties.writeBufferSize().toBytes()))) {
+            while (!checkpoint.complete()) {
+                List<CatalogRecord> batch = new ArrayList<>(properties.batchSize());
+                for (CatalogRecord record; batch.size() < properties.batchSize() && (record = reader.next()) != null; )
+                    batch.add(record);
+                long bytes = 0;
+                for (CatalogRecord record : batch)
+                    bytes += record.payload() != null ? record.payload().length : 0;
+                int imported = importBatch(batch);
+                checkpoint = new Checkpoint(null, reader.offset(), checkpoint.records() + batch.size(),
+                        checkpoint.bytes() + bytes, batch.size() < properties.batchSize());
+                checkpoint.save(checkpointFile);
+                current.files.add(batch.size());
+                current.bytes.add(bytes);
+                current.skipped.add(batch.size() - imported);
+            }
+        }
+    }
+
+    /**
+     * Insert the files of a batch on the shards they belong to, one transaction per shard.
+     *
+     * @return The number of inserted files, the others being already present.
+     */
+    private int importBatch(List<CatalogRecord> batch) {
+        Map<String, List<CatalogRecord>> byShard = new LinkedHashMap<>();
+        for (CatalogRecord record : batch)
+            byShard.computeIfAbsent(shardRouter.ownerOf(record.id()), shard -> new ArrayList<>()).add(record);
+        int imported = 0;
+        for (Map.Entry<String, List<CatalogRecord>> shard : byShard.entrySet())
+            imported += shardRouter.onShard(shard.getKey(), () -> transactionTemplate.execute(status -> insertMissing(shard.getValue())));
+        return imported;
+    }
+
+    private int insertMissing(List<CatalogRecord> records) {
+        Set<UUID> present = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM files WHERE id IN (:ids)",
+                Map.of("ids", records.stream().map(CatalogRecord::id).toList()),
+                UUID.class
+        ));
+        List<CatalogRecord> missing = records.stream().filter(record -> !present.contains(record.id())).toList();
+        if (missing.isEmpty())
+            return 0;
+        List<UUID> packed = new ArrayList<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    missing.forEach(record -> fileStatsService.recordStored(record.type(), record.size() != null ? record.size() : 0L));
+                    return;
+                }
+                for (UUID id : packed) {
+                    try {
+                        packFileStore.delete(id);
+                    } catch (IOException e) {
+                        log.warn("Could not drop the packed payload of file {}: {}", id, e.getMessage());
+                    }
+                }
+            }
+        });
+        try {
+            for (CatalogRecord record : missing) {
+                if (record.payload() != null && packFileStore.accepts(record.payload().length)) {
+                    packFileStore.put(record.id(), record.payload());
+                    packed.add(record.id());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Set<UUID> packedIds = Set.copyOf(packed);
+        jdbcTemplate.batchUpdate(INSERT_FILE, missing, missing.size(), (statement, record) -> {
+            boolean isPacked = packedIds.contains(record.id());
+            statement.setObject(1, record.id());
+            statement.setString(2, record.name());
+            statement.setString(3, record.type());
+            statement.setObject(4, record.size(), Types.BIGINT);
+            statement.setObject(5, record.retainedVersions(), Types.INTEGER);
+            statement.setTimestamp(6, record.createdAt() != null ? record.createdAt() : new Timestamp(System.currentTimeMillis()));
+            statement.setTimestamp(7, record.updatedAt());
+            statement.setString(8, (isPacked ? PayloadStorage.PACK : PayloadStorage.DB).name());
+            statement.setObject(9, record.crc32c(), Types.INTEGER);
+            statement.setString(10, record.sha256());
+            statement.setBytes(11, record.dataKey());
+            statement.setBytes(12, isPacked ? null : record.payload());
+        });
+        return missing.size();
+    }
+
+    /**
+     * The work of a job on one pack file.
+     */
+    @FunctionalInterface
+    private interface PackWork {
+        void run(String pack) throws IOException;
+    }
+
+    /**
+     * A running or finished job.
+     */
+    private static final class Job {
+
+        private final Operation operation;
+        private final int partitions;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final LongAdder files = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private volatile boolean running = true;
+        private volatile String error;
+
+        private Job(Operation operation, int partitions) {
+            this.operation = operation;
+            this.partitions = partitions;
+        }
+
+        private void finish(Throwable failure) {
+            if (failure != null) {
+                Throwable cause = failure;
+                while (cause.getCause() != null)
+                    cause = cause.getCause();
+                error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+            }
+            running = false;
+        }
+
+        private Progress progress(String job) {
+            return new Progress(job, operation, running, partitions, completed.get(),
+                    files.sum(), bytes.sum(), skipped.sum(), error);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.exception.ResourceNotCreatedException;
+import com.ouharri.fileuploader.expiry.ExpiryProperties;
+import com.ouharri.fileuploader.expiry.HierarchicalTimingWheel;
+import com.ouharri.fileuploader.repository.FileDBRepository;
+import com.ouharri.fileuploader.repository.projection.FileExpiry;
+import com.ouharri.fileuploader.service.spec.ExpiryService;
+import com.ouharri.fileuploader.service.spec.FileStorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Service class expiring the files uploaded with a time to live.
+ * <p>
+ * The expiries due within the horizon are held in a {@link HierarchicalTimingWheel}, so that a sweep costs
+ * no more than the files it expires, however many are waiting. The wheel is loaded from the index on
+ * {@code expires_at} on the first sweep after startup, then topped up one half horizon ahead; a file uploaded with
+ * an expiry within the loaded range is added to it at once. Expired files are invisible to reads at once;
+ * the sweep checks they are still due and deletes them in batches, through tombstones like any other delete.
+ */
+@Slf4j
+@Service
+public class ExpiryServiceImpl implements ExpiryService {
+
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private final FileDBRepository fileDBRepository;
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<FileStorageService> fileStorageService;
+    private final ExpiryProperties properties;
+    private final HierarchicalTimingWheel<UUID> wheel;
+    private final List<UUID> due = new ArrayList<>();
+    private long loadedUntil = Long.MIN_VALUE;
+
+    /**
+     * @param fileDBRepository   The repository of the files.
+     * @param shardRouter        The router to the shards holding the files.
+     * @param fileStorageService The service deleting the expired files, looked up lazily as it schedules the expiries it stores.
+     * @param properties         The settings of the expiry.
+     */
+    public ExpiryServiceImpl(
+            FileDBRepository fileDBRepository,
+            ShardRouter shardRouter,
+            ObjectProvider<FileStorageService> fileStorageService,
+            ExpiryProperties properties
+    ) {
+        this.fileDBRepository = fileDBRepository;
+        this.shardRouter = shardRouter;
+        this.fileStorageService = fileStorageService;
+        this.properties = properties;
+        this.wheel = new HierarchicalTimingWheel<>(properties.tick().toMillis(), properties.wheelSize(), System.currentTimeMillis());
+    }
+
+    @Override
+    public Timestamp expiresAt(Duration ttl) {
+        if (ttl == null)
+            return null;
+        if (ttl.isNegative() || ttl.isZero() || ttl.compareTo(properties.maxTtl()) > 0)
+            throw new ResourceNotCreatedException("The time to live must be positive and at most " + properties.maxTtl());
+        return new Timestamp(System.currentTimeMillis() + ttl.toMillis());
+    }
+
+    /**
+     * Schedule the deletion of a stored file at its expiry. An expiry past the loaded range is left to the
+     * database, where the wheel is topped up from as it comes near.
+     *
+     * @param id        The unique identifier of the file.
+     * @param expiresAt The timestamp from which the file is expired, or {@code null} if it never expires.
+     */
+    @Override
+    public synchronized void schedule(UUID id, Timestamp expiresAt) {
+        if (expiresAt == null || expiresAt.getTime() >= loadedUntil)
+            return;
+        if (!wheel.schedule(id, expiresAt.getTime()))
+            due.add(id);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.expiry.interval:1000}")
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        List<UUID> expired;
+        synchronized (this) {
+            if (now + properties.horizon().toMillis() / 2 >= loadedUntil)
+                load(now + properties.horizon().toMillis());
+            wheel.advance(now, due::add);
+            if (due.isEmpty())
+                return 0;
+            expired = new ArrayList<>(new LinkedHashSet<>(due));
+            due.clear();
+        }
+        int deleted = 0;
+        for (int from = 0; from < expired.size(); from += properties.batchSize())
+            deleted += delete(expired.subList(from, Math.min(expired.size(), from + properties.batchSize())), new Timestamp(now));
+        if (deleted > 0)
+            log.info("Expired {} files", deleted);
+        return deleted;
+    }
+
+    /**
+     * Load the expiries from the end of the loaded range up to a time, shard by shard, in keyset pages.
+     * It runs under the lock of the service, so that a file stored meanwhile is scheduled once the range covers it.
+     *
+     * @param until The time to load the expiries up to, excluded.
+     */
+    private void load(long until) {
+        Timestamp since = new Timestamp(Math.max(0L, loadedUntil));
+        Timestamp end = new Timestamp(until);
+        int[] loaded = new int[1];
+        shardRouter.forEachShard(shard -> {
+            Timestamp afterExpiry = since;
+            UUID afterId = MIN_ID;
+            List<FileExpiry> page;
+            do {
+                page = fileDBRepository.findExpiriesAfter(afterExpiry, afterId, end, properties.batchSize());
+                for (FileExpiry expiry : page)
+                    if (!wheel.schedule(expiry.getId(), expiry.getExpiresAt().getTime()))
+                        due.add(expiry.getId());
+                if (!page.isEmpty()) {
+                    afterExpiry = page.get(page.size() - 1).getExpiresAt();
+                    afterId = page.get(page.size() - 1).getId();
+                }
+                loaded[0] += page.size();
+            } while (page.size() == properties.batchSize());
+        });
+        loadedUntil = until;
+        if (loaded[0] > 0)
+            log.info("Loaded {} file expiries up to {}", loaded[0], end);
+    }
+
+    /**
+     * Delete a batch of files, skipping those deleted meanwhile.
+     *
+     * @param ids The unique identifiers of the files, whose expiry has passed.
+     * @param now The time of the sweep.
+     * @return The number of deleted files.
+     */
+    private int delete(List<UUID> ids, Timestamp now) {
+        Map<String, List<UUID>> byShard = new LinkedHashMap<>();
+        for (UUID id : ids)
+            byShard.computeIfAbsent(shardRouter.locate(id), shard -> new ArrayList<>()).add(id);
+        List<UUID> expired = new ArrayList<>();
+        for (Map.Entry<String, List<UUID>> shard : byShard.entrySet())
+            expired.addAll(shardRouter.onShard(shard.getKey(), () -> fileDBRepository.findExpiredIds(shard.getValue(), now)));
+        return expired.isEmpty() ? 0 : fileStorageService.getObject().deleteFiles(expired);
+    }
+}
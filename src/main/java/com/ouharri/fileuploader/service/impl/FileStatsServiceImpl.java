@@ -0,0 +1,192 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.entity.FileStats;
+import com.ouharri.fileuploader.message.ResponseStats;
+import com.ouharri.fileuploader.repository.FileStatsRepository;
+import com.ouharri.fileuploader.repository.projection.TypeTotals;
+import com.ouharri.fileuploader.service.spec.FileStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service class maintaining the storage statistics incrementally.
+ * <p>
+ * Mutations only touch striped in-memory counters ({@link LongAdder}), which are periodically
+ * flushed as deltas to the {@code file_stats} summary table. A slower reconciler rebuilds the
+ * summary table from the {@code files} table to correct any drift (crashes before a flush, ...).
+ * It takes the snapshot and rewrites the summary in one transaction, holding a lock on the summary
+ * table that every flush needs, and keeps only the deltas recorded after the snapshot started: the
+ * changes recorded before it are committed, so already part of the snapshot.
+ * The deltas still pending on other instances at that time are counted again once they flush,
+ * until the next reconciliation.
+ * The summary table lives on the home shard and covers the files of every shard.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileStatsServiceImpl implements FileStatsService {
+
+    private static final String UNKNOWN_TYPE = "unknown";
+
+    private final FileStatsRepository fileStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    private final ReentrantLock summaryLock = new ReentrantLock();
+    private volatile Map<String, Delta> pending = new ConcurrentHashMap<>();
+    private volatile Map<String, Delta> snapshotted = Map.of();
+
+    @Override
+    public void recordStored(String type, long size) {
+        delta(type).add(1, size);
+    }
+
+    @Override
+    public void recordUpdated(String previousType, long previousSize, String type, long size) {
+        if (keyOf(previousType).equals(keyOf(type))) {
+            delta(type).add(0, size - previousSize);
+            return;
+        }
+        delta(previousType).add(-1, -previousSize);
+        delta(type).add(1, size);
+    }
+
+    @Override
+    public void recordDeleted(String type, long size) {
+        delta(type).add(-1, -size);
+    }
+
+    @Override
+    public ResponseStats getStats() {
+        Map<String, long[]> totals = new HashMap<>();
+        for (FileStats stats : fileStatsRepository.findAll())
+            totals.put(stats.getType(), new long[]{stats.getFileCount(), stats.getTotalBytes()});
+        for (Map<String, Delta> deltas : List.of(snapshotted, pending))
+            deltas.forEach((type, delta) -> {
+                long[] total = totals.computeIfAbsent(type, t -> new long[2]);
+                total[0] += delta.count.sum();
+                total[1] += delta.bytes.sum();
+            });
+
+        long fileCount = 0;
+        long totalBytes = 0;
+        Map<String, ResponseStats.TypeStats> byType = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            long[] total = entry.getValue();
+            if (total[0] <= 0 && total[1] <= 0)
+                continue;
+            fileCount += total[0];
+            totalBytes += total[1];
+            byType.put(entry.getKey(), new ResponseStats.TypeStats(total[0], total[1]));
+        }
+        return ResponseStats.builder()
+                .fileCount(fileCount)
+                .totalBytes(totalBytes)
+                .byType(byType)
+                .build();
+    }
+
+    /**
+     * Flush the pending counters as deltas to the summary table.
+     * The drained amounts are subtracted from the counters rather than reset,
+     * so increments racing with the flush are kept for the next one. Waits for a running reconciliation.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${app.stats.flush-interval:5000}")
+    public void flush() {
+        summaryLock.lock();
+        try {
+            pending.forEach(this::flush);
+        } finally {
+            summaryLock.unlock();
+        }
+    }
+
+    private void flush(String type, Delta delta) {
+
+        long count = delta.count.sum();
+        long bytes = delta.bytes.sum();
+        if (count == 0 && bytes == 0)
+            return;
+        delta.add(-count, -bytes);
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    fileStatsRepository.applyDelta(type, count, bytes)
+            );
+        } catch (RuntimeException e) {
+            delta.add(count, bytes);
+            log.warn("Could not flush storage statistics for type {}: {}", type, e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the summary table from the stored sizes of the files of every shard.
+     * The pending counters are set aside when the snapshot starts and dropped once the summary is rewritten,
+     * their changes being part of the snapshot; they are restored if the rewrite fails.
+     */
+    @Override
+    @Scheduled(
+            initialDelayString = "${app.stats.reconcile-interval:600000}",
+            fixedDelayString = "${app.stats.reconcile-interval:600000}"
+    )
+    public void reconcile() {
+        summaryLock.lock();
+        try {
+            int types = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                fileStatsRepository.lock();
+                snapshotted = pending;
+                pending = new ConcurrentHashMap<>();
+                Map<String, long[]> totals = new HashMap<>();
+                for (TypeTotals shardTotals : shardRouter.gather(fileStatsRepository::summarizeFiles)) {
+                    long[] total = totals.computeIfAbsent(shardTotals.getType(), t -> new long[2]);
+                    total[0] += shardTotals.getFileCount();
+                    total[1] += shardTotals.getTotalBytes();
+                }
+                fileStatsRepository.clear();
+                totals.forEach((type, total) -> fileStatsRepository.applyDelta(type, total[0], total[1]));
+                return totals.size();
+            }));
+            snapshotted = Map.of();
+            log.info("Storage statistics reconciled for {} content types", types);
+        } catch (RuntimeException e) {
+            snapshotted.forEach((type, delta) -> delta(type).add(delta.count.sum(), delta.bytes.sum()));
+            snapshotted = Map.of();
+            throw e;
+        } finally {
+            summaryLock.unlock();
+        }
+    }
+
+    private Delta delta(String type) {
+        return pending.computeIfAbsent(keyOf(type), t -> new Delta());
+    }
+
+    private static String keyOf(String type) {
+        return type == null || type.isBlank() ? UNKNOWN_TYPE : type;
+    }
+
+    /**
+     * Striped pending delta of one content type.
+     */
+    private static final class Delta {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        void add(long count, long bytes) {
+            this.count.add(count);
+            this.bytes.add(bytes);
+        }
+    }
+}
@@ -1,86 +1,269 @@
 package com.ouharri.fileuploader.service.impl;
 
+import com.ouharri.fileuploader.cache.CacheNames;
+import com.ouharri.fileuploader.cache.FileChangeEvent;
+import com.ouharri.fileuploader.cache.FileChangePublisher;
+import com.ouharri.fileuploader.crypto.PayloadCipher;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.datasource.Sharded;
 import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.entity.PayloadStorage;
+import com.ouharri.fileuploader.exception.ResourceCorruptedException;
 import com.ouharri.fileuploader.exception.ResourceNotCreatedException;
 import com.ouharri.fileuploader.exception.ResourceNotFoundException;
+import com.ouharri.fileuploader.exception.ResourcePreconditionFailedException;
+import com.ouharri.fileuploader.exception.ResourceRangeNotSatisfiableException;
+import com.ouharri.fileuploader.integrity.PayloadChecksum;
+import com.ouharri.fileuploader.integrity.PayloadVerifier;
+import com.ouharri.fileuploader.partition.FileIds;
+import com.ouharri.fileuploader.profiling.UploadEvent;
 import com.ouharri.fileuploader.repository.FileDBRepository;
+import com.ouharri.fileuploader.repository.projection.FileSummary;
+import com.ouharri.fileuploader.service.spec.ExpiryService;
+import com.ouharri.fileuploader.service.spec.FileStatsService;
 import com.ouharri.fileuploader.service.spec.FileStorageService;
+import com.ouharri.fileuploader.service.spec.FileVersionService;
+import com.ouharri.fileuploader.service.spec.GarbageCollectionService;
+import com.ouharri.fileuploader.storage.PackFileStore;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service class for handling file-related operations.
+ * Operations on one file run on the shard holding it; listings gather the files of every shard.
+ * Small payloads are kept in the {@link PackFileStore} when it is enabled, larger ones in the database.
+ * Payloads are sealed by the {@link PayloadCipher} on their way in, encrypting them when encryption at rest is enabled;
+ * decrypted files are never cached.
  */
+@Slf4j
 @Service
 @AllArgsConstructor
+@Observed(name = "file.storage")
 public class FileStorageServiceImpl implements FileStorageService {
 
     private final FileDBRepository fileDBRepository;
+    private final FileStatsService fileStatsService;
+    private final FileVersionService fileVersionService;
+    private final GarbageCollectionService garbageCollectionService;
+    private final ExpiryService expiryService;
+    private final FileChangePublisher fileChangePublisher;
+    private final CacheManager cacheManager;
+    private final ShardRouter shardRouter;
+    private final PackFileStore packFileStore;
+    private final PayloadVerifier payloadVerifier;
+    private final PayloadCipher payloadCipher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObservationRegistry observationRegistry;
 
     /**
      * Store a file in the database.
      *
      * @param file The file to be stored.
+     * @param ttl  The time to live of the file, or {@code null} for a file that never expires.
      * @return The stored FileDB entity.
      * @throws IOException If an I/O exception occurs while reading the file data.
      */
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "file", key = "#result.id", allEntries = true, condition = "#result.id != null")
-            }
-    )
-    public FileDB store(MultipartFile file) throws IOException {
-        String fileName = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
+    public FileDB store(MultipartFile file, Duration ttl) throws IOException {
+        try (InputStream content = file.getInputStream()) {
+            return store(Objects.requireNonNull(file.getOriginalFilename()), file.getContentType(), file.getSize(), content, ttl);
+        }
+    }
+
+    /**
+     * Store a file in the database, streaming its content straight from the given stream.
+     * A file stored with a time to live is scheduled for deletion at its expiry.
+     *
+     * @param name    The name of the file.
+     * @param type    The content type of the file.
+     * @param size    The size of the content.
+     * @param content The content, read up to its end.
+     * @param ttl     The time to live of the file, or {@code null} for a file that never expires.
+     * @return The stored FileDB entity.
+     * @throws IOException If an I/O exception occurs while reading the content.
+     */
+    public FileDB store(String name, String type, long size, InputStream content, Duration ttl) throws IOException {
+        String fileName = StringUtils.cleanPath(name);
+        Timestamp expiresAt = expiryService.expiresAt(ttl);
+        UUID id = FileIds.newId();
+        UploadEvent event = new UploadEvent();
+        event.begin();
+        boolean packed = false;
         try {
+            PayloadChecksum checksum = payloadVerifier.newChecksum();
+            PayloadCipher.Sealed sealed = payloadCipher.seal(id, content, size, checksum);
             FileDB fileDB = FileDB.builder()
+                    .id(id)
+                    .createdAt(FileIds.createdAt(id))
                     .name(fileName)
-                    .type(file.getContentType())
-                    .data(file.getBytes())
+                    .type(type)
+                    .size(size)
+                    .expiresAt(expiresAt)
                     .build();
-            return fileDBRepository.save(fileDB);
+            packed = setPayload(fileDB, sealed, checksum, true);
+            FileDB storedFile;
+            try {
+                storedFile = shardRouter.onNew(id, () -> fileDBRepository.save(fileDB));
+            } catch (RuntimeException e) {
+                if (packed)
+                    packFileStore.delete(id);
+                throw e;
+            }
+            fileStatsService.recordStored(fileDB.getType(), fileDB.getSize());
+            expiryService.schedule(id, expiresAt);
+            fileChangePublisher.publish(storedFile.getId(), FileChangeEvent.Type.CREATED);
+            return storedFile;
         } catch (ResourceNotCreatedException e) {
             throw new ResourceNotCreatedException("Could not store file " + fileName + ". Please try again!");
+        } finally {
+            commit(event, "store", id, type, 1, size, packed);
         }
     }
 
     /**
-     * Get a file from the database by its ID.
+     * Store a batch of new files. The files are grouped by shard, and each group is inserted in one transaction,
+     * which Hibernate sends as batched inserts. When a group fails, the groups already committed stay stored.
+     *
+     * @param files The files to store.
+     * @return The stored FileDB entities, in the order of the given files.
+     * @throws IOException If sealing the payloads fails.
+     */
+    public List<FileDB> storeAll(List<NewFile> files) throws IOException {
+        Map<String, List<FileDB>> byShard = new LinkedHashMap<>();
+        List<FileDB> fileDBs = new ArrayList<>(files.size());
+        Set<UUID> packed = new HashSet<>();
+        UploadEvent event = new UploadEvent();
+        event.begin();
+        try {
+            for (NewFile file : files) {
+                UUID id = FileIds.newId();
+                PayloadChecksum checksum = payloadVerifier.newChecksum();
+                PayloadCipher.Sealed sealed = payloadCipher.seal(id, new ByteArrayInputStream(file.content()), file.content().length, checksum);
+                FileDB fileDB = FileDB.builder()
+                        .id(id)
+                        .createdAt(FileIds.createdAt(id))
+                        .name(StringUtils.cleanPath(file.name()))
+                        .type(file.type())
+                        .size((long) file.content().length)
+                        .build();
+                if (setPayload(fileDB, sealed, checksum, true))
+                    packed.add(id);
+                fileDBs.add(fileDB);
+                byShard.computeIfAbsent(shardRouter.ownerOf(id), shard -> new ArrayList<>()).add(fileDB);
+            }
+            for (Map.Entry<String, List<FileDB>> shard : byShard.entrySet()) {
+                shardRouter.onShard(shard.getKey(), () -> transactionTemplate.execute(status -> fileDBRepository.saveAll(shard.getValue())));
+                shard.getValue().forEach(fileDB -> packed.remove(fileDB.getId()));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (UUID id : packed)
+                packFileStore.delete(id);
+            throw e;
+        } finally {
+            commit(event, "storeAll", null, null, fileDBs.size(), fileDBs.stream().mapToLong(FileDB::getSize).sum(), false);
+        }
+        fileDBs.forEach(fileDB -> fileStatsService.recordStored(fileDB.getType(), fileDB.getSize()));
+        fileChangePublisher.publish(fileDBs.stream().map(FileDB::getId).toList(), FileChangeEvent.Type.CREATED);
+        return fileDBs;
+    }
+
+    /**
+     * Get a file from the database by its ID, with its payload decrypted.
      *
      * @param id The unique identifier of the file.
      * @return The FileDB entity.
-     * @throws ResourceNotFoundException If the file with the specified ID is not found.
+     * @throws ResourceNotFoundException  If the file with the specified ID is not found.
+     * @throws ResourceCorruptedException If the encrypted payload fails authentication.
      */
-    @Cacheable(value = "file", key = "#id")
+    @Sharded
     public FileDB getFile(UUID id) {
-        return fileDBRepository.findById(id)
+        FileDB file = fileDBRepository.findById(id)
                 .orElseThrow(() ->
                         new ResourceNotFoundException("File not found with id " + id)
                 );
+        if (file.getStorage() == PayloadStorage.PACK)
+            file.setData(packFileStore.readBytes(id).orElse(null));
+        if (file.getDataKey() != null && file.getData() != null) {
+            try {
+                file.setData(payloadCipher.openAll(id, file.getDataKey(), file.getData(), file.getSize()));
+            } catch (IOException e) {
+                throw new ResourceCorruptedException("The payload of file " + id + " fails authentication");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Get the metadata of all files, without their binary data.
+     *
+     * @return The metadata of all files.
+     */
+    public List<FileSummary> getFileSummaries() {
+        return shardRouter.gather(fileDBRepository::findAllSummaries);
+    }
+
+    /**
+     * Get the metadata of the files created since a time, without their binary data.
+     * Only the partitions of the {@code files} table from that time on are scanned.
+     *
+     * @param createdSince The earliest creation time of the files returned.
+     * @return The metadata of the files.
+     */
+    public List<FileSummary> getFileSummaries(Timestamp createdSince) {
+        return shardRouter.gather(() -> fileDBRepository.findSummariesCreatedSince(createdSince));
     }
 
     /**
-     * Get a stream of all files in the database.
+     * Stream the metadata of all files from a database cursor.
+     * Rows are fetched in batches and handed to the consumer one by one, shard after shard,
+     * inside a read-only transaction per shard.
      *
-     * @return A stream of FileDB entities.
+     * @param consumer The consumer receiving the metadata of each file.
      */
-    @Cacheable("file")
-    public List<FileDB> getAllFiles() {
-        return fileDBRepository.findAll();
+    public void streamFileSummaries(Consumer<FileSummary> consumer) {
+        shardRouter.readEachShard(() -> {
+            try (Stream<FileSummary> files = fileDBRepository.streamAllSummaries()) {
+                files.forEach(consumer);
+            }
+        });
     }
 
     /**
      * Update the content of a file in the database.
+     * The cached file is evicted rather than replaced, as the returned entity holds the payload as stored.
      *
      * @param id   The unique identifier of the file.
      * @param file The updated file data.
@@ -88,43 +271,264 @@ public class FileStorageServiceImpl implements FileStorageService {
      * @throws IOException               If an I/O exception occurs while reading the file data.
      * @throws ResourceNotFoundException If the file with the specified ID is not found.
      */
-    @CachePut(value = "file", key = "#id")
+    @Sharded
+    @Transactional
+    @CacheEvict(value = CacheNames.FILE, key = "#id")
     public FileDB updateFile(UUID id, MultipartFile file) throws IOException {
+        try (InputStream content = file.getInputStream()) {
+            return updateFile(id, Objects.requireNonNull(file.getOriginalFilename()), file.getContentType(), file.getSize(), content);
+        }
+    }
+
+    /**
+     * Update the content of a file in the database, streaming it straight from the given stream.
+     * The file is read and written in one transaction on its shard, with its new version captured in the history;
+     * the pack files only follow once the transaction has committed.
+     *
+     * @param id      The unique identifier of the file.
+     * @param name    The new name of the file.
+     * @param type    The new content type of the file.
+     * @param size    The size of the new content.
+     * @param content The new content, read up to its end.
+     * @return The updated FileDB entity.
+     * @throws IOException               If an I/O exception occurs while reading the content.
+     * @throws ResourceNotFoundException If the file with the specified ID is not found.
+     */
+    @Sharded
+    @Transactional
+    @CacheEvict(value = CacheNames.FILE, key = "#id")
+    public FileDB updateFile(UUID id, String name, String type, long size, InputStream content) throws IOException {
         FileDB existingFile = fileDBRepository.findById(id)
                 .orElseThrow(() ->
                         new ResourceNotFoundException("File not found with id " + id)
                 );
-        if (existingFile == null)
-            throw new ResourceNotFoundException("Could not find file with id " + id);
-        String fileName = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
-        existingFile.setName(fileName);
-        existingFile.setType(file.getContentType());
-        existingFile.setData(file.getBytes());
+        String previousType = existingFile.getType();
+        long previousSize = existingFile.getSize() != null ? existingFile.getSize() : 0L;
+        boolean wasPacked = existingFile.getStorage() == PayloadStorage.PACK;
+        String fileName = StringUtils.cleanPath(name);
+        UploadEvent event = new UploadEvent();
+        event.begin();
+        boolean packed = false;
         try {
-            return fileDBRepository.save(existingFile);
+            PayloadChecksum checksum = payloadVerifier.newChecksum();
+            PayloadCipher.Sealed sealed = payloadCipher.seal(id, content, size, checksum);
+            existingFile.setName(fileName);
+            existingFile.setType(type);
+            existingFile.setSize(size);
+            byte[] previousPayload = wasPacked ? packFileStore.readBytes(id).orElse(null) : null;
+            packed = setPayload(existingFile, sealed, checksum, true);
+            if (wasPacked || packed)
+                repackOnCompletion(id, previousPayload, packed);
+            FileDB updatedFile = fileDBRepository.saveAndFlush(existingFile);
+            fileStatsService.recordUpdated(previousType, previousSize, existingFile.getType(), size);
+            fileVersionService.snapshot(updatedFile);
+            fileChangePublisher.publish(id, FileChangeEvent.Type.UPDATED);
+            return updatedFile;
         } catch (ResourceNotFoundException e) {
             throw new ResourceNotFoundException("Could not update file with id " + id);
+        } finally {
+            commit(event, "update", id, type, 1, size, packed);
         }
     }
 
     /**
-     * Delete a file from the database by its ID.
+     * Write a byte range into the content of a file.
+     * The range is applied by the database itself, so the existing content is never
+     * loaded into memory nor sent back over the wire. An encrypted payload cannot be written in place:
+     * it is decrypted, written and sealed again under a fresh data key.
      *
-     * @param id The unique identifier of the file.
-     * @throws ResourceNotFoundException If the file with the specified ID is not found.
+     * @param id              The unique identifier of the file.
+     * @param expectedVersion The version the client based its change on.
+     * @param offset          The zero-based offset to write at, or {@code null} to append to the end.
+     * @param content         The bytes to write.
+     * @return The metadata of the file after the write.
+     * @throws ResourceNotFoundException             If the file with the specified ID is not found.
+     * @throws ResourcePreconditionFailedException   If the file is no longer at the expected version.
+     * @throws ResourceRangeNotSatisfiableException If the offset is past the end of the file.
      */
-    @CacheEvict(value = "file", key = "#id", allEntries = true)
-    public void deleteFile(UUID id) {
-        FileDB fileDB = fileDBRepository.findById(id)
+    @Sharded
+    @Transactional
+    @CacheEvict(value = CacheNames.FILE, key = "#id")
+    public FileSummary patchFile(UUID id, long expectedVersion, Long offset, byte[] content) {
+        FileSummary current = fileDBRepository.findSummaryById(id)
                 .orElseThrow(() ->
                         new ResourceNotFoundException("File not found with id " + id)
                 );
-        if (fileDB == null)
-            throw new ResourceNotFoundException("Could not find file with id " + id);
-        try {
-            fileDBRepository.delete(fileDB);
-        } catch (ResourceNotFoundException e) {
-            throw new ResourceNotFoundException("Could not delete file with id " + id);
+        if (current.version() == null || current.version() != expectedVersion)
+            throw new ResourcePreconditionFailedException("File " + id + " is at version " + current.version());
+        unpack(id);
+        long currentSize = current.size() != null ? current.size() : 0L;
+        long position = offset != null ? offset : currentSize;
+        if (position < 0 || position > currentSize)
+            throw new ResourceRangeNotSatisfiableException("Offset " + position + " is outside of file " + id + " of size " + currentSize);
+
+        int updated = fileDBRepository.existsByIdAndDataKeyIsNotNull(id)
+                ? rewriteSealed(id, expectedVersion, position, content)
+                : position == currentSize
+                ? fileDBRepository.appendRange(id, expectedVersion, content)
+                : fileDBRepository.writeRange(id, expectedVersion, position, content);
+        if (updated == 0)
+            throw new ResourcePreconditionFailedException("File " + id + " was modified concurrently");
+
+        fileStatsService.recordUpdated(current.type(), currentSize, current.type(), Math.max(currentSize, position + content.length));
+        fileVersionService.snapshot(id);
+        fileChangePublisher.publish(id, FileChangeEvent.Type.UPDATED);
+        return fileDBRepository.findSummaryById(id)
+                .orElseThrow(() ->
+                        new ResourceNotFoundException("File not found with id " + id)
+                );
+    }
+
+    /**
+     * Write a byte range into an encrypted payload, sealing the result under a fresh data key.
+     * The parts of the payload around the range are decrypted segment by segment as they are sealed again,
+     * never as a whole. The payload stays in the database, where {@link #unpack(UUID)} has just moved it.
+     *
+     * @return The number of updated files, {@code 0} if the file was modified concurrently.
+     */
+    private int rewriteSealed(UUID id, long expectedVersion, long position, byte[] content) {
+        FileDB file = fileDBRepository.findById(id)
+                .orElseThrow(() ->
+                        new ResourceNotFoundException("File not found with id " + id)
+                );
+        if (!Objects.equals(file.getVersion(), expectedVersion))
+            return 0;
+        ByteBuffer stored = ByteBuffer.wrap(Objects.requireNonNullElse(file.getData(), new byte[0]));
+        long size = Objects.requireNonNullElse(file.getSize(), 0L);
+        long end = position + content.length;
+        try (InputStream written = new SequenceInputStream(
+                new SequenceInputStream(payloadCipher.open(id, file.getDataKey(), stored, size, 0, position), new ByteArrayInputStream(content)),
+                payloadCipher.open(id, file.getDataKey(), stored, size, end, Math.max(size - end, 0))
+        )) {
+            PayloadChecksum checksum = payloadVerifier.newChecksum();
+            PayloadCipher.Sealed sealed = payloadCipher.seal(id, written, Math.max(size, end), checksum);
+            file.setSize(Math.max(size, end));
+            setPayload(file, sealed, checksum, false);
+            fileDBRepository.saveAndFlush(file);
+            return 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return 0;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * End an upload event, and record it if a recording asks for it; the size is also set on the current span.
+     */
+    private void commit(UploadEvent event, String operation, UUID id, String type, int files, long size, boolean packed) {
+        event.end();
+        Observation observation = observationRegistry.getCurrentObservation();
+        if (observation != null)
+            observation.highCardinalityKeyValue("payload.size", Long.toString(size));
+        if (!event.shouldCommit())
+            return;
+        event.operation = operation;
+        event.fileId = id != null ? id.toString() : null;
+        event.contentType = type;
+        event.files = files;
+        event.size = size;
+        event.packed = packed;
+        event.commit();
+    }
+
+    /**
+     * Set a sealed payload and its checksums on a file, storing it in the pack files when allowed and small enough.
+     *
+     * @return Whether the payload went to the pack files.
+     */
+    private boolean setPayload(FileDB file, PayloadCipher.Sealed sealed, PayloadChecksum checksum, boolean packable) throws IOException {
+        boolean packed = packable && packFileStore.accepts(sealed.data().length);
+        file.setCrc32c(checksum.crc32c());
+        file.setSha256(checksum.sha256());
+        file.setDataKey(sealed.dataKey());
+        file.setStorage(packed ? PayloadStorage.PACK : PayloadStorage.DB);
+        file.setData(packed ? null : sealed.data());
+        if (packed)
+            packFileStore.put(file.getId(), sealed.data());
+        return packed;
+    }
+
+    /**
+     * Keep the pack files in step with the transaction updating the payload of a file. Once it has committed,
+     * a payload that left the pack files is dropped from them; if it rolls back, the payload it packed is replaced
+     * by the previous one, or dropped when there was none.
+     *
+     * @param id              The unique identifier of the file.
+     * @param previousPayload The packed payload of the file before the update, {@code null} if it was not packed.
+     * @param packed          Whether the update packed the new payload.
+     */
+    private void repackOnCompletion(UUID id, byte[] previousPayload, boolean packed) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        if (!packed)
+                            packFileStore.delete(id);
+                    } else if (packed) {
+                        if (previousPayload != null)
+                            packFileStore.put(id, previousPayload);
+                        else
+                            packFileStore.delete(id);
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not bring the packed payload of file {} in step with its update: {}", id, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Move the payload of a file out of the pack files into the database, where ranges can be written into it.
+     * The payload is only dropped from the pack files once the transaction has committed.
+     *
+     * @param id The unique identifier of the file.
+     */
+    private void unpack(UUID id) {
+        packFileStore.readBytes(id).ifPresent(data -> {
+            if (fileDBRepository.unpack(id, data) == 0)
+                return;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        packFileStore.delete(id);
+                    } catch (IOException e) {
+                        log.warn("Could not drop the packed payload of file {}: {}", id, e.getMessage());
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Delete a file by its ID. The file is only tombstoned, without loading its payload;
+     * the storage is reclaimed later by the garbage collector.
+     *
+     * @param id The unique identifier of the file.
+     * @throws ResourceNotFoundException If the file with the specified ID is not found.
+     */
+    @CacheEvict(value = CacheNames.FILE, key = "#id")
+    public void deleteFile(UUID id) {
+        if (garbageCollectionService.tombstone(List.of(id)) == 0)
+            throw new ResourceNotFoundException("File not found with id " + id);
+        fileChangePublisher.publish(id, FileChangeEvent.Type.DELETED);
+    }
+
+    /**
+     * Delete files in bulk. The files are only tombstoned, in a few set-based statements;
+     * the storage is reclaimed later by the garbage collector.
+     *
+     * @param ids The unique identifiers of the files.
+     * @return The number of deleted files.
+     */
+    public int deleteFiles(Collection<UUID> ids) {
+        int deleted = garbageCollectionService.tombstone(ids);
+        Cache cache = cacheManager.getCache(CacheNames.FILE);
+        if (cache != null)
+            ids.forEach(cache::evict);
+        fileChangePublisher.publish(ids, FileChangeEvent.Type.DELETED);
+        return deleted;
+    }
+}
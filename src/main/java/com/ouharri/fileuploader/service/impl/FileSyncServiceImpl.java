@@ -0,0 +1,152 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.datasource.RoutingContext;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.exception.ResourceGoneException;
+import com.ouharri.fileuploader.message.ResponseChanges;
+import com.ouharri.fileuploader.message.ResponseFileChange;
+import com.ouharri.fileuploader.repository.FileDBRepository;
+import com.ouharri.fileuploader.repository.projection.FileChange;
+import com.ouharri.fileuploader.service.spec.FileSyncService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Service class for the delta synchronization of clients.
+ * <p>
+ * Changes are read in {@code (updated_at, id)} keyset order, tombstones included, and the cursor is the
+ * opaque encoding of the last position read. Only changes older than a small lag are returned, so that
+ * transactions committing late with an earlier {@code updated_at} are not skipped. Cursors older than the
+ * tombstone retention are refused, since deletions may have been purged: the client must resynchronize.
+ * Every shard returns its next page and the pages are merged in keyset order.
+ * <p>
+ * Changes are read from the primaries, never from the replicas: the lag window is measured on the clock of
+ * this node, and a replica lagging further behind would miss changes the cursor then moves past for good.
+ */
+@Service
+public class FileSyncServiceImpl implements FileSyncService {
+
+    private static final Timestamp EPOCH = new Timestamp(0);
+    private static final UUID MIN_ID = new UUID(0, 0);
+
+    /**
+     * The {@code (updated_at, id)} order of the database, which compares UUIDs as unsigned bytes.
+     */
+    private static final Comparator<FileChange> KEYSET_ORDER = Comparator
+            .comparing(FileChange::getUpdatedAt)
+            .thenComparing(FileChange::getId, (a, b) -> {
+                int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+            });
+
+    private final FileDBRepository fileDBRepository;
+    private final ShardRouter shardRouter;
+    private final Duration lag;
+    private final Duration tombstoneRetention;
+    private final int maxLimit;
+
+    public FileSyncServiceImpl(
+            FileDBRepository fileDBRepository,
+            ShardRouter shardRouter,
+            @Value("${app.sync.lag:5s}") Duration lag,
+            @Value("${app.gc.tombstone-retention:7d}") Duration tombstoneRetention,
+            @Value("${app.sync.max-limit:5000}") int maxLimit
+    ) {
+        this.fileDBRepository = fileDBRepository;
+        this.shardRouter = shardRouter;
+        this.lag = lag;
+        this.tombstoneRetention = tombstoneRetention;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public ResponseChanges getChanges(String cursor, int limit, Function<UUID, String> downloadUrl) {
+        Instant now = Instant.now();
+        Position from = cursor == null || cursor.isBlank() ? null : Position.decode(cursor);
+        if (from != null && from.updatedAt().toInstant().isBefore(now.minus(tombstoneRetention)))
+            throw new ResourceGoneException("The cursor has expired, a full synchronization is required");
+
+        int pageSize = Math.max(1, Math.min(limit, maxLimit));
+        Timestamp until = Timestamp.from(now.minus(lag));
+        List<FileChange> rows = RoutingContext.onPrimary(() -> shardRouter.gatherSorted(() -> fileDBRepository.findChangesAfter(
+                from != null ? from.updatedAt() : EPOCH,
+                from != null ? from.id() : MIN_ID,
+                until,
+                from == null,
+                pageSize + 1
+        ), KEYSET_ORDER));
+        boolean hasMore = rows.size() > pageSize;
+        List<FileChange> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        Position next;
+        if (hasMore) {
+            FileChange last = page.get(page.size() - 1);
+            next = new Position(last.getUpdatedAt(), last.getId());
+        } else {
+            // Everything before the lag window has been seen: move the cursor up to it, so idle cursors stay fresh.
+            next = new Position(until, MIN_ID);
+        }
+
+        List<ResponseFileChange> changes = page.stream()
+                .map(row -> ResponseFileChange.builder()
+                        .id(row.getId())
+                        .change(changeOf(row, from))
+                        .name(row.getName())
+                        .type(row.getType())
+                        .size(row.getSize() != null ? row.getSize() : 0L)
+                        .version(row.getVersion() != null ? row.getVersion() : 0L)
+                        .url(row.getDeletedAt() == null ? downloadUrl.apply(row.getId()) : null)
+                        .build())
+                .toList();
+        return ResponseChanges.builder()
+                .changes(changes)
+                .cursor(next.encode())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static ResponseFileChange.Change changeOf(FileChange row, Position from) {
+        if (row.getDeletedAt() != null)
+            return ResponseFileChange.Change.DELETED;
+        if (from == null || row.getCreatedAt() == null || row.getCreatedAt().after(from.updatedAt()))
+            return ResponseFileChange.Change.CREATED;
+        return ResponseFileChange.Change.UPDATED;
+    }
+
+    /**
+     * A keyset position in the {@code (updated_at, id)} order.
+     *
+     * @param updatedAt The {@code updated_at} of the position.
+     * @param id        The {@code id} of the position.
+     */
+    private record Position(Timestamp updatedAt, UUID id) {
+
+        String encode() {
+            String raw = updatedAt.toInstant() + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Position decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new Position(
+                        Timestamp.from(Instant.parse(raw.substring(0, separator))),
+                        UUID.fromString(raw.substring(separator + 1))
+                );
+            } catch (RuntimeException e) {
+                throw new ResourceGoneException("Invalid cursor, a full synchronization is required");
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.cache.CacheNames;
+import com.ouharri.fileuploader.cache.FileChangeEvent;
+import com.ouharri.fileuploader.cache.FileChangePublisher;
+import com.ouharri.fileuploader.crypto.PayloadCipher;
+import com.ouharri.fileuploader.datasource.Sharded;
+import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.entity.FileVersion;
+import com.ouharri.fileuploader.exception.ResourceNotFoundException;
+import com.ouharri.fileuploader.repository.FileChunkRepository;
+import com.ouharri.fileuploader.repository.FileDBRepository;
+import com.ouharri.fileuploader.repository.FileVersionRepository;
+import com.ouharri.fileuploader.service.spec.FileVersionService;
+import com.ouharri.fileuploader.storage.ContentDefinedChunker;
+import com.ouharri.fileuploader.storage.PackFileStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Service class for the version history of files.
+ * <p>
+ * Each version is split with a {@link ContentDefinedChunker} and its chunks are stored once by hash,
+ * with a reference count. Versions sharing content share chunks, so the storage growth of an edit
+ * is proportional to what actually changed, not to the size of the file.
+ * The history of an encrypted file is chunked and sealed under a data key of the file, the one of its retained versions
+ * when it has some, so that its chunks are encrypted at rest and only shared within the history of the file.
+ * The history and the chunks of a file live on the shard of the file.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileVersionServiceImpl implements FileVersionService {
+
+    private static final int CHUNK_BATCH_SIZE = 32;
+
+    private final FileDBRepository fileDBRepository;
+    private final FileVersionRepository fileVersionRepository;
+    private final FileChunkRepository fileChunkRepository;
+    private final FileChangePublisher fileChangePublisher;
+    private final PackFileStore packFileStore;
+    private final PayloadCipher payloadCipher;
+    private final ContentDefinedChunker chunker = new ContentDefinedChunker();
+
+    @Override
+    @Sharded
+    @Transactional
+    public void snapshot(FileDB file) {
+        int retainedVersions = file.getRetainedVersions() != null ? file.getRetainedVersions() : 0;
+        if (retainedVersions <= 0 || fileVersionRepository.existsByFileIdAndRevision(file.getId(), file.getVersion()))
+            return;
+
+        List<FileVersion> versions = fileVersionRepository.findByFileIdOrderByRevisionDesc(file.getId());
+        byte[] dataKey = versions.stream()
+                .map(FileVersion::getDataKey)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(file.getDataKey());
+        PayloadCipher.ChunkKey chunkKey = payloadCipher.chunkKey(file.getId(), dataKey);
+        ByteBuffer stored = file.getData() != null
+                ? ByteBuffer.wrap(file.getData())
+                : packFileStore.read(file.getId()).orElseGet(() -> ByteBuffer.allocate(0));
+        long size = file.getDataKey() != null ? Objects.requireNonNullElse(file.getSize(), 0L) : stored.remaining();
+        List<String> chunkHashes = new ArrayList<>();
+        Map<String, PendingChunk> batch = new LinkedHashMap<>();
+        long[] captured = new long[1];
+        try (InputStream in = payloadCipher.open(file.getId(), file.getDataKey(), stored, size, 0, size)) {
+            chunker.split(in, (buffer, offset, length) -> {
+                captured[0] += length;
+                String hash = chunkKey.hash(buffer, offset, length);
+                chunkHashes.add(hash);
+                batch.computeIfAbsent(hash, h -> new PendingChunk(Arrays.copyOfRange(buffer, offset, offset + length)))
+                        .references++;
+                if (batch.size() >= CHUNK_BATCH_SIZE)
+                    storeChunks(batch, chunkKey);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        storeChunks(batch, chunkKey);
+
+        fileVersionRepository.save(FileVersion.builder()
+                .fileId(file.getId())
+                .revision(file.getVersion())
+                .name(file.getName())
+                .type(file.getType())
+                .size(captured[0])
+                .chunkHashes(chunkHashes)
+                .dataKey(dataKey)
+                .build());
+        log.info("Captured version {} of file {} in {} chunks", file.getVersion(), file.getId(), chunkHashes.size());
+        prune(file.getId(), retainedVersions);
+    }
+
+    @Override
+    @Sharded
+    @Transactional
+    public void snapshot(UUID fileId) {
+        int retainedVersions = fileDBRepository.findRetainedVersionsById(fileId).orElse(0);
+        if (retainedVersions > 0)
+            fileDBRepository.findById(fileId).ifPresent(this::snapshot);
+    }
+
+    @Override
+    @Sharded
+    @Transactional
+    @CacheEvict(value = CacheNames.FILE, key = "#fileId")
+    public void setRetention(UUID fileId, int retainedVersions) {
+        FileDB file = fileDBRepository.findById(fileId)
+                .orElseThrow(() ->
+                        new ResourceNotFoundException("File not found with id " + fileId)
+                );
+        file.setRetainedVersions(retainedVersions);
+        FileDB savedFile = fileDBRepository.saveAndFlush(file);
+        fileChangePublisher.publish(fileId, FileChangeEvent.Type.UPDATED);
+        if (retainedVersions <= 0) {
+            deleteVersions(fileId);
+            return;
+        }
+        snapshot(savedFile);
+        prune(fileId, retainedVersions);
+    }
+
+    @Override
+    @Sharded
+    @Transactional(readOnly = true)
+    public List<FileVersion> getVersions(UUID fileId) {
+        return fileVersionRepository.findByFileIdOrderByRevisionDesc(fileId);
+    }
+
+    @Override
+    @Sharded
+    @Transactional(readOnly = true)
+    public FileVersion getVersion(UUID fileId, long revision) {
+        return fileVersionRepository.findByFileIdAndRevision(fileId, revision)
+                .orElseThrow(() ->
+                        new ResourceNotFoundException("Version " + revision + " not found for file " + fileId)
+                );
+    }
+
+    /**
+     * Rebuild the content of a version. Chunks are loaded one by one, outside of any long transaction,
+     * so memory stays bounded by the maximum chunk size whatever the size of the version.
+     */
+    @Override
+    @Sharded
+    public void writeVersion(UUID fileId, long revision, OutputStream out) throws IOException {
+        PayloadCipher.ChunkKey chunkKey = payloadCipher.chunkKey(fileId, fileVersionRepository.findDataKey(fileId, revision).orElse(null));
+        for (String hash : fileVersionRepository.findChunkHashes(fileId, revision)) {
+            byte[] chunk = fileChunkRepository.findDataByHash(hash)
+                    .orElseThrow(() ->
+                            new IllegalStateException("Chunk " + hash + " of version " + revision + " of file " + fileId + " is missing")
+                    );
+            out.write(chunkKey.open(hash, chunk));
+        }
+        out.flush();
+    }
+
+    @Override
+    @Sharded
+    @Transactional
+    public void deleteVersions(UUID fileId) {
+        prune(fileId, 0);
+    }
+
+    /**
+     * Delete the oldest versions of a file beyond the number to retain, releasing their chunks.
+     *
+     * @param fileId           The unique identifier of the file.
+     * @param retainedVersions The number of versions to retain.
+     */
+    private void prune(UUID fileId, int retainedVersions) {
+        List<FileVersion> versions = fileVersionRepository.findByFileIdOrderByRevisionDesc(fileId);
+        if (versions.size() <= retainedVersions)
+            return;
+        Map<String, Long> released = new LinkedHashMap<>();
+        for (FileVersion version : versions.subList(retainedVersions, versions.size())) {
+            version.getChunkHashes().forEach(hash -> released.merge(hash, 1L, Long::sum));
+            fileVersionRepository.delete(version);
+        }
+        released.forEach((hash, references) -> fileChunkRepository.addReferences(hash, -references));
+        int deletedChunks = fileChunkRepository.deleteUnreferenced(released.keySet());
+        log.info("Pruned {} versions of file {}, {} chunks released", versions.size() - retainedVersions, fileId, deletedChunks);
+    }
+
+    /**
+     * Store a batch of chunks: new chunks are inserted, known chunks only gain references.
+     * A known chunk pruned concurrently, between the lookup and its update, is inserted again.
+     *
+     * @param batch    The pending chunks by hash; cleared once stored.
+     * @param chunkKey The key sealing the new chunks.
+     */
+    private void storeChunks(Map<String, PendingChunk> batch, PayloadCipher.ChunkKey chunkKey) {
+        if (batch.isEmpty())
+            return;
+        Set<String> existing = fileChunkRepository.findExistingHashes(batch.keySet());
+        batch.forEach((hash, chunk) -> {
+            if (!existing.contains(hash) || fileChunkRepository.addReferences(hash, chunk.references) == 0)
+                fileChunkRepository.insertOrReference(hash, chunkKey.seal(hash, chunk.data), chunk.references);
+        });
+        batch.clear();
+    }
+
+    /**
+     * A chunk waiting to be stored, with the number of references the current version holds on it.
+     */
+    private static final class PendingChunk {
+        private final byte[] data;
+        private long references;
+
+        private PendingChunk(byte[] data) {
+            this.data = data;
+        }
+    }
+}
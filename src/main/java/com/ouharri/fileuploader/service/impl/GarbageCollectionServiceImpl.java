@@ -0,0 +1,183 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.repository.FileDBRepository;
+import com.ouharri.fileuploader.repository.projection.FileChange;
+import com.ouharri.fileuploader.service.spec.FileStatsService;
+import com.ouharri.fileuploader.service.spec.FileVersionService;
+import com.ouharri.fileuploader.service.spec.GarbageCollectionService;
+import com.ouharri.fileuploader.storage.PackFileStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Service class deleting files through tombstones and collecting them in the background.
+ * <p>
+ * A delete only sets {@code deleted_at} on the row. The collector then works in two phases,
+ * each in small batches committed separately and spaced out, so that bulk deletes never turn into
+ * one huge transaction and autovacuum can keep up:
+ * <ol>
+ *     <li>after a grace period, the payload of the tombstoned files (and their version history) is released,
+ *     from the database or the pack files;</li>
+ *     <li>after the tombstone retention, the rows themselves are deleted.</li>
+ * </ol>
+ * Both the deletes and the collection run shard by shard.
+ */
+@Slf4j
+@Service
+public class GarbageCollectionServiceImpl implements GarbageCollectionService {
+
+    private static final int TOMBSTONE_BATCH_SIZE = 1000;
+
+    private final FileDBRepository fileDBRepository;
+    private final FileStatsService fileStatsService;
+    private final FileVersionService fileVersionService;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final PackFileStore packFileStore;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration pauseBetweenBatches;
+    private final Duration gracePeriod;
+    private final Duration tombstoneRetention;
+
+    public GarbageCollectionServiceImpl(
+            FileDBRepository fileDBRepository,
+            FileStatsService fileStatsService,
+            FileVersionService fileVersionService,
+            TransactionTemplate transactionTemplate,
+            ShardRouter shardRouter,
+            PackFileStore packFileStore,
+            @Value("${app.gc.batch-size:500}") int batchSize,
+            @Value("${app.gc.max-batches-per-run:20}") int maxBatchesPerRun,
+            @Value("${app.gc.pause-between-batches:200ms}") Duration pauseBetweenBatches,
+            @Value("${app.gc.grace-period:5m}") Duration gracePeriod,
+            @Value("${app.gc.tombstone-retention:7d}") Duration tombstoneRetention
+    ) {
+        this.fileDBRepository = fileDBRepository;
+        this.fileStatsService = fileStatsService;
+        this.fileVersionService = fileVersionService;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.packFileStore = packFileStore;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseBetweenBatches = pauseBetweenBatches;
+        this.gracePeriod = gracePeriod;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    @Override
+    public int tombstone(Collection<UUID> ids) {
+        Map<String, List<UUID>> byShard = new LinkedHashMap<>();
+        for (UUID id : new LinkedHashSet<>(ids))
+            byShard.computeIfAbsent(shardRouter.locate(id), shard -> new ArrayList<>()).add(id);
+        int tombstoned = 0;
+        for (Map.Entry<String, List<UUID>> shard : byShard.entrySet())
+            tombstoned += shardRouter.onShard(shard.getKey(), () -> tombstoneOnShard(shard.getValue()));
+        log.info("Tombstoned {} of {} files", tombstoned, ids.size());
+        return tombstoned;
+    }
+
+    private int tombstoneOnShard(List<UUID> ids) {
+        int tombstoned = 0;
+        for (int from = 0; from < ids.size(); from += TOMBSTONE_BATCH_SIZE) {
+            List<UUID> batch = ids.subList(from, Math.min(ids.size(), from + TOMBSTONE_BATCH_SIZE));
+            Integer count = transactionTemplate.execute(status -> {
+                // Locked, so that only the files this transaction tombstones are taken out of the statistics
+                List<FileChange> files = fileDBRepository.lockLiveById(batch);
+                if (files.isEmpty())
+                    return 0;
+                int updated = fileDBRepository.tombstone(files.stream().map(FileChange::getId).toList());
+                files.forEach(file -> fileStatsService.recordDeleted(file.getType(), file.getSize() != null ? file.getSize() : 0L));
+                return updated;
+            });
+            tombstoned += count != null ? count : 0;
+        }
+        return tombstoned;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.gc.interval:30000}")
+    public int collect() {
+        int[] collected = new int[1];
+        shardRouter.forEachShard(shard -> {
+            int reclaimed = runBatches(gracePeriod, maxBatchesPerRun, fileDBRepository::findPayloadsToReclaim, ids -> {
+                ids.forEach(fileVersionService::deleteVersions);
+                ids.forEach(this::deletePacked);
+                return fileDBRepository.reclaimPayloads(ids);
+            });
+            int purged = runBatches(tombstoneRetention, maxBatchesPerRun, fileDBRepository::findTombstonesToPurge, fileDBRepository::purgeTombstones);
+            if (reclaimed > 0 || purged > 0)
+                log.info("Garbage collection reclaimed {} payloads and purged {} tombstones on shard {}", reclaimed, purged, shard);
+            collected[0] += reclaimed + purged;
+        });
+        return collected[0];
+    }
+
+    /**
+     * Process the files deleted for longer than a given age, one committed batch at a time.
+     *
+     * @param age        The minimum time since deletion.
+     * @param maxBatches The maximum number of batches to process.
+     * @param find       Finds a batch of files, deleted before a timestamp.
+     * @param process    Processes a batch of files, returning the number of processed files.
+     * @return The number of processed files.
+     */
+    private int runBatches(
+            Duration age,
+            int maxBatches,
+            BiFunction<Timestamp, Integer, List<UUID>> find,
+            ToIntFunction<List<UUID>> process
+    ) {
+        Timestamp before = Timestamp.from(Instant.now().minus(age));
+        int processed = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<UUID> ids = find.apply(before, batchSize);
+                return ids.isEmpty() ? 0 : process.applyAsInt(ids);
+            });
+            if (count == null || count == 0)
+                break;
+            processed += count;
+            if (count < batchSize)
+                break;
+            pause();
+        }
+        return processed;
+    }
+
+    private void deletePacked(UUID id) {
+        try {
+            packFileStore.delete(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseBetweenBatches.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.datasource.RoutingContext;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.integrity.ByteRateLimiter;
+import com.ouharri.fileuploader.integrity.IntegrityProperties;
+import com.ouharri.fileuploader.repository.FileDBRepository;
+import com.ouharri.fileuploader.service.spec.IntegrityScrubService;
+import com.ouharri.fileuploader.storage.PayloadStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service class scrubbing the stored payloads in the background.
+ * <p>
+ * Every shard is scanned in id order, a batch of ids at a time read from a replica when there is one.
+ * Each batch is split into small fork-join tasks checking their payloads in parallel on a dedicated pool,
+ * while a shared rate limiter caps the bytes read per second so that scrubbing does not starve the traffic.
+ * Corruptions are reported by the {@link com.ouharri.fileuploader.integrity.PayloadVerifier};
+ * the files and bytes checked are counted in the {@code integrity.scrubbed.*} metrics.
+ */
+@Slf4j
+@Service
+public class IntegrityScrubServiceImpl implements IntegrityScrubService {
+
+    private static final UUID MIN_ID = new UUID(0, 0);
+    private static final int TASK_SIZE = 8;
+
+    private final FileDBRepository fileDBRepository;
+    private final PayloadStore payloadStore;
+    private final ShardRouter shardRouter;
+    private final ForkJoinPool scrubPool;
+    private final ByteRateLimiter rateLimiter;
+    private final int batchSize;
+    private final Counter scrubbedFiles;
+    private final Counter scrubbedBytes;
+
+    public IntegrityScrubServiceImpl(
+            FileDBRepository fileDBRepository,
+            PayloadStore payloadStore,
+            ShardRouter shardRouter,
+            ForkJoinPool scrubPool,
+            IntegrityProperties properties,
+            MeterRegistry meterRegistry
+    ) {
+        this.fileDBRepository = fileDBRepository;
+        this.payloadStore = payloadStore;
+        this.shardRouter = shardRouter;
+        this.scrubPool = scrubPool;
+        this.rateLimiter = new ByteRateLimiter(properties.scrubRate().toBytes());
+        this.batchSize = properties.scrubBatchSize();
+        this.scrubbedFiles = Counter.builder("integrity.scrubbed.files")
+                .description("Payloads checked by the scrubber")
+                .register(meterRegistry);
+        this.scrubbedBytes = Counter.builder("integrity.scrubbed.bytes")
+                .baseUnit("bytes")
+                .description("Bytes checked by the scrubber")
+                .register(meterRegistry);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.integrity.scrub-interval:86400000}")
+    public synchronized int scrub() {
+        Map<PayloadStore.Verification.Status, LongAdder> outcomes = new EnumMap<>(PayloadStore.Verification.Status.class);
+        for (PayloadStore.Verification.Status status : PayloadStore.Verification.Status.values())
+            outcomes.put(status, new LongAdder());
+        shardRouter.forEachShard(shard -> {
+            UUID after = MIN_ID;
+            List<UUID> ids;
+            do {
+                UUID position = after;
+                ids = RoutingContext.readOnly(() -> fileDBRepository.findIdsAfter(position, batchSize));
+                if (!ids.isEmpty()) {
+                    scrubPool.invoke(new ScrubTask(ids, outcomes));
+                    after = ids.get(ids.size() - 1);
+                }
+            } while (ids.size() == batchSize && !Thread.currentThread().isInterrupted());
+        });
+        long corrupted = outcomes.get(PayloadStore.Verification.Status.CORRUPTED).sum();
+        log.info("Integrity scrub checked {} payloads: {} corrupted, {} got their checksums recorded",
+                outcomes.get(PayloadStore.Verification.Status.VERIFIED).sum() + corrupted,
+                corrupted,
+                outcomes.get(PayloadStore.Verification.Status.RECORDED).sum());
+        return (int) corrupted;
+    }
+
+    /**
+     * Checks the payloads of a slice of a batch, splitting it until it is small enough.
+     */
+    private final class ScrubTask extends RecursiveAction {
+
+        private final List<UUID> ids;
+        private final Map<PayloadStore.Verification.Status, LongAdder> outcomes;
+
+        private ScrubTask(List<UUID> ids, Map<PayloadStore.Verification.Status, LongAdder> outcomes) {
+            this.ids = ids;
+            this.outcomes = outcomes;
+        }
+
+        @Override
+        protected void compute() {
+            if (ids.size() > TASK_SIZE) {
+                int middle = ids.size() / 2;
+                invokeAll(new ScrubTask(ids.subList(0, middle), outcomes), new ScrubTask(ids.subList(middle, ids.size()), outcomes));
+                return;
+            }
+            for (UUID id : ids) {
+                try {
+                    PayloadStore.Verification verification = payloadStore.verify(id);
+                    outcomes.get(verification.status()).increment();
+                    scrubbedFiles.increment();
+                    scrubbedBytes.increment(verification.bytes());
+                    rateLimiter.acquire(verification.bytes());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    log.warn("Could not scrub the payload of file {}: {}", id, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.cache.CacheNames;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.partition.FilePartition;
+import com.ouharri.fileuploader.partition.PartitionProperties;
+import com.ouharri.fileuploader.service.spec.FileStatsService;
+import com.ouharri.fileuploader.service.spec.FileVersionService;
+import com.ouharri.fileuploader.service.spec.PartitionMaintenanceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service class maintaining the monthly partitions of the {@code files} table, on PostgreSQL, shard by shard.
+ * <p>
+ * Partitions are created a few months ahead, so that new files never land in the default partition.
+ * Once the newest file of a partition is older than the retention, the partition is archived as a whole:
+ * it is detached from the {@code files} table and moved to the archive schema, a change of the catalog only,
+ * instead of deleting its rows one by one. Its files leave the application without tombstones, and so without
+ * an entry in the change feed. A partition still holding payloads in the pack files is not archived, as they
+ * would be lost to the garbage collector.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PartitionMaintenanceServiceImpl implements PartitionMaintenanceService {
+
+    private static final String SELECT_PARTITIONS = """
+            SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = to_regclass('files')
+            ORDER BY c.relname
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final FileVersionService fileVersionService;
+    private final FileStatsService fileStatsService;
+    private final CacheManager cacheManager;
+    private final PartitionProperties properties;
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.partitioning.interval:3600000}")
+    public int maintain() {
+        LocalDateTime now = LocalDateTime.now();
+        int[] created = new int[1];
+        int[] archived = new int[1];
+        shardRouter.forEachShard(shard -> {
+            if (!isPostgreSQL())
+                return;
+            List<FilePartition> partitions = jdbcTemplate.query(SELECT_PARTITIONS,
+                    (resultSet, row) -> FilePartition.parse(resultSet.getString("name"), resultSet.getString("bound")));
+            if (partitions.isEmpty())
+                return;
+            created[0] += create(shard, FilePartition.missing(partitions, YearMonth.from(now).plusMonths(properties.premake())));
+            if (properties.retention() != null)
+                for (FilePartition partition : partitions)
+                    if (!partition.isDefault() && partition.endsBy(now.minus(properties.retention())) && archive(shard, partition))
+                        archived[0]++;
+        });
+        if (archived[0] > 0) {
+            Cache cache = cacheManager.getCache(CacheNames.FILE);
+            if (cache != null)
+                cache.clear();
+            fileStatsService.reconcile();
+        }
+        return created[0] + archived[0];
+    }
+
+    /**
+     * Create partitions, in order, stopping at the first failure so that no gap is left between them.
+     * Creating a partition fails when the default partition holds files of its range.
+     */
+    private int create(String shard, List<FilePartition> partitions) {
+        int created = 0;
+        for (FilePartition partition : partitions) {
+            try {
+                jdbcTemplate.execute("CREATE TABLE " + quote(partition.name()) + " PARTITION OF files FOR VALUES FROM ('"
+                        + Timestamp.valueOf(partition.from()) + "') TO ('" + Timestamp.valueOf(partition.to()) + "')");
+            } catch (DataAccessException e) {
+                log.error("Could not create partition {} on shard {}, files created from {} go to the default partition: {}",
+                        partition.name(), shard, partition.from(), e.getMessage());
+                break;
+            }
+            log.info("Created partition {} on shard {} for the files created from {} to {}", partition.name(), shard, partition.from(), partition.to());
+            created++;
+        }
+        return created;
+    }
+
+    /**
+     * Detach a partition and move it to the archive schema, after deleting the version history of its files.
+     * <p>
+     * All of it runs in one transaction holding the {@code files} table and the partition exclusively, taken in
+     * the order writers take them, so that no file of the partition moves to the pack files between the check and
+     * the detach, and no history is deleted for a partition left in place. The wait for the locks is bounded by the
+     * lock timeout.
+     *
+     * @return Whether the partition was archived.
+     */
+    private boolean archive(String shard, FilePartition partition) {
+        String table = quote(partition.name());
+        Boolean archived;
+        try {
+            archived = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = " + properties.lockTimeout().toMillis());
+                jdbcTemplate.execute("LOCK TABLE ONLY files, " + table + " IN ACCESS EXCLUSIVE MODE");
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + table + " WHERE storage = 'PACK')", Boolean.class))) {
+                    log.warn("Partition {} of shard {} holds payloads in pack files and is not archived", partition.name(), shard);
+                    return false;
+                }
+                jdbcTemplate.queryForList("SELECT DISTINCT v.file_id FROM file_versions v JOIN " + table + " f ON f.id = v.file_id", UUID.class)
+                        .forEach(fileVersionService::deleteVersions);
+                jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + quote(properties.archiveSchema()));
+                jdbcTemplate.execute("ALTER TABLE files DETACH PARTITION " + table);
+                jdbcTemplate.execute("ALTER TABLE " + table + " SET SCHEMA " + quote(properties.archiveSchema()));
+                return true;
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not archive partition {} of shard {}, retrying on the next run: {}", partition.name(), shard, e.getMessage());
+            return false;
+        }
+        if (!Boolean.TRUE.equals(archived))
+            return false;
+        log.info("Archived partition {} of shard {} to schema {}", partition.name(), shard, properties.archiveSchema());
+        return true;
+    }
+
+    private boolean isPostgreSQL() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
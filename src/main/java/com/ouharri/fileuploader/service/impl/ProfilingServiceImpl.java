@@ -0,0 +1,176 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.exception.ResourceConflictException;
+import com.ouharri.fileuploader.exception.ResourceNotFoundException;
+import com.ouharri.fileuploader.profiling.ProfilingProperties;
+import com.ouharri.fileuploader.service.spec.ProfilingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Service class managing the JDK Flight Recorder recordings.
+ * <p>
+ * The continuous recording uses the {@code default} settings, made for production, and keeps its events on disk
+ * within {@code app.profiling.max-age} and {@code max-size}; a dump copies it and keeps the events of the last
+ * minutes only. Targeted profiles use the {@code profile} settings, sampling more often, for a bounded time,
+ * and are written to the profiling directory once over. The custom {@code fileuploader.*} events are recorded by both.
+ */
+@Slf4j
+@Service
+public class ProfilingServiceImpl implements ProfilingService {
+
+    private static final String CONTINUOUS = "continuous";
+
+    private final ProfilingProperties properties;
+    private final Path directory;
+    private final NavigableMap<Long, Recording> profiles = new TreeMap<>();
+    private volatile Recording continuous;
+
+    public ProfilingServiceImpl(ProfilingProperties properties) {
+        this.properties = properties;
+        this.directory = Path.of(properties.directory());
+    }
+
+    @PostConstruct
+    public void start() throws IOException, ParseException {
+        Files.createDirectories(directory);
+        if (!properties.continuous())
+            return;
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName(CONTINUOUS);
+        recording.setToDisk(true);
+        recording.setMaxAge(properties.maxAge());
+        recording.setMaxSize(properties.maxSize().toBytes());
+        recording.start();
+        continuous = recording;
+        log.info("Continuous recording started, keeping {} within {}", properties.maxAge(), properties.maxSize());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (continuous != null)
+            continuous.close();
+        profiles.values().forEach(Recording::close);
+    }
+
+    @Override
+    public Path dump(Duration last) throws IOException {
+        Recording recording = continuous;
+        if (recording == null)
+            throw new ResourceNotFoundException("The continuous recording is disabled");
+        Instant since = Instant.now().minus(last);
+        Path snapshot = Files.createTempFile(directory, "snapshot-", ".jfr");
+        Path dump = Files.createTempFile(directory, "dump-", ".jfr");
+        try (Recording copy = recording.copy(false)) {
+            copy.dump(snapshot);
+            try (RecordingFile file = new RecordingFile(snapshot)) {
+                file.write(dump, event -> !event.getEndTime().isBefore(since));
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(dump);
+            throw e;
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+        log.info("Dumped the last {} of the continuous recording to {}", last, dump);
+        return dump;
+    }
+
+    @Override
+    public synchronized Profile startProfile(Duration duration) {
+        for (Recording profile : profiles.values())
+            if (profile.getState() == RecordingState.RUNNING)
+                throw new ResourceConflictException("Profile " + profile.getId() + " is still running");
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("profile"));
+            recording.setToDisk(true);
+            recording.setDuration(duration);
+            recording.setName("profile-" + recording.getId());
+            recording.setDestination(directory.resolve(recording.getName() + ".jfr"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+        recording.start();
+        profiles.put(recording.getId(), recording);
+        prune();
+        log.info("Profile {} started for {}", recording.getId(), duration);
+        return profile(recording);
+    }
+
+    @Override
+    public synchronized List<Profile> getProfiles() {
+        List<Profile> list = new ArrayList<>(profiles.size());
+        for (Recording recording : profiles.descendingMap().values())
+            list.add(profile(recording));
+        return list;
+    }
+
+    @Override
+    public synchronized Path getProfileFile(long id) {
+        Recording recording = profiles.get(id);
+        if (recording == null)
+            throw new ResourceNotFoundException("Profile not found with id " + id);
+        RecordingState state = recording.getState();
+        if (state != RecordingState.STOPPED && state != RecordingState.CLOSED)
+            throw new ResourceConflictException("Profile " + id + " is still " + state.name().toLowerCase());
+        Path file = recording.getDestination();
+        if (file == null || !Files.exists(file))
+            throw new ResourceNotFoundException("The recording of profile " + id + " is gone");
+        return file;
+    }
+
+    /**
+     * Keep only the last {@code app.profiling.retained-profiles} profiles, deleting the recordings of the older ones.
+     */
+    private void prune() {
+        Iterator<Recording> oldest = profiles.values().iterator();
+        while (profiles.size() > properties.retainedProfiles() && oldest.hasNext()) {
+            Recording recording = oldest.next();
+            if (recording.getState() == RecordingState.RUNNING)
+                continue;
+            oldest.remove();
+            recording.close();
+            try {
+                if (recording.getDestination() != null)
+                    Files.deleteIfExists(recording.getDestination());
+            } catch (IOException e) {
+                log.warn("Could not delete the recording of profile {}: {}", recording.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private static Profile profile(Recording recording) {
+        Path file = recording.getDestination();
+        Long size = null;
+        try {
+            if (file != null && Files.exists(file))
+                size = Files.size(file);
+        } catch (IOException e) {
+            size = null;
+        }
+        return new Profile(recording.getId(), recording.getName(), recording.getState().name(),
+                recording.getStartTime(), recording.getDuration(), size);
+    }
+}
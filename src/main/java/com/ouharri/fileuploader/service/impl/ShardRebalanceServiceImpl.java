@@ -0,0 +1,163 @@
+package com.ouharri.fileuploader.service.impl;
+
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.datasource.ShardRoutingDataSource;
+import com.ouharri.fileuploader.service.spec.ShardRebalanceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Service class moving files to their shard while the application keeps serving them.
+ * <p>
+ * Rebalancing runs while {@code app.sharding.previous-shards} lists the ring before the last change: each
+ * step scans a batch of ids on every shard and moves the misplaced files one at a time. A file is moved
+ * under a row lock on its source shard: the copy, chunks and version history included, is committed on the
+ * target shard before the source rows are deleted, so that at any time the file is readable from the shard
+ * the {@link ShardRouter} locates it on, and writers racing with the move fail on the source and retry.
+ * Once a complete pass finds nothing left to move, the previous ring can be removed from the configuration.
+ */
+@Slf4j
+@Service
+public class ShardRebalanceServiceImpl implements ShardRebalanceService {
+
+    private static final UUID MIN_ID = new UUID(0, 0);
+    private static final UUID DONE = new UUID(-1, -1);
+
+    private final ShardRoutingDataSource dataSource;
+    private final ShardRouter shardRouter;
+    private final int batchSize;
+
+    private final Map<String, UUID> positions = new HashMap<>();
+    private long movedInPass;
+
+    public ShardRebalanceServiceImpl(
+            ShardRoutingDataSource dataSource,
+            ShardRouter shardRouter,
+            @Value("${app.sharding.rebalance-batch-size:100}") int batchSize
+    ) {
+        this.dataSource = dataSource;
+        this.shardRouter = shardRouter;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.sharding.rebalance-interval:60000}")
+    public synchronized int rebalance() {
+        if (!shardRouter.isRebalancing())
+            return 0;
+        int moved = 0;
+        for (String shard : shardRouter.shards()) {
+            UUID after = positions.getOrDefault(shard, MIN_ID);
+            if (after.equals(DONE))
+                continue;
+            List<UUID> ids = new JdbcTemplate(dataSource.shard(shard))
+                    .queryForList("SELECT id FROM files WHERE id > ? ORDER BY id LIMIT ?", UUID.class, after, batchSize);
+            positions.put(shard, ids.size() < batchSize ? DONE : ids.get(ids.size() - 1));
+            for (UUID id : ids) {
+                String owner = shardRouter.ownerOf(id);
+                if (!owner.equals(shard) && moveFile(id, shard, owner))
+                    moved++;
+            }
+        }
+        movedInPass += moved;
+        if (positions.values().stream().allMatch(DONE::equals)) {
+            if (movedInPass == 0)
+                log.info("Rebalancing is complete, app.sharding.previous-shards can be removed");
+            else
+                log.info("Rebalancing pass moved {} files", movedInPass);
+            positions.clear();
+            movedInPass = 0;
+        }
+        return moved;
+    }
+
+    /**
+     * Move a file, with its version history and the chunks it references, from one shard to another.
+     *
+     * @param id   The unique identifier of the file.
+     * @param from The shard the file is on.
+     * @param to   The shard the file belongs to.
+     * @return Whether the file was moved.
+     */
+    private boolean moveFile(UUID id, String from, String to) {
+        try (Connection source = dataSource.shard(from).getConnection();
+             Connection target = dataSource.shard(to).getConnection()) {
+            source.setAutoCommit(false);
+            target.setAutoCommit(false);
+            JdbcTemplate sourceJdbc = jdbcOn(source);
+            JdbcTemplate targetJdbc = jdbcOn(target);
+            try {
+                List<Map<String, Object>> files = sourceJdbc.queryForList("SELECT * FROM files WHERE id = ? FOR UPDATE", id);
+                if (files.isEmpty()) {
+                    source.rollback();
+                    return false;
+                }
+                List<Map<String, Object>> versions = sourceJdbc.queryForList("SELECT * FROM file_versions WHERE file_id = ?", id);
+                Map<Object, List<Map<String, Object>>> versionChunks = new LinkedHashMap<>();
+                for (Map<String, Object> version : versions)
+                    versionChunks.put(version.get("id"), sourceJdbc.queryForList(
+                            "SELECT * FROM file_version_chunks WHERE version_id = ?", version.get("id")));
+                Map<Object, Long> references = versionChunks.values().stream()
+                        .flatMap(List::stream)
+                        .collect(Collectors.groupingBy(chunk -> chunk.get("chunk_hash"), LinkedHashMap::new, Collectors.counting()));
+
+                Integer existing = targetJdbc.queryForObject("SELECT count(*) FROM files WHERE id = ?", Integer.class, id);
+                if (existing == null || existing == 0) {
+                    references.forEach((hash, count) -> {
+                        if (targetJdbc.update("UPDATE file_chunks SET ref_count = ref_count + ? WHERE hash = ?", count, hash) == 0) {
+                            Map<String, Object> chunk = sourceJdbc.queryForMap("SELECT * FROM file_chunks WHERE hash = ?", hash);
+                            chunk.put("ref_count", count);
+                            insert(targetJdbc, "file_chunks", chunk);
+                        }
+                    });
+                    insert(targetJdbc, "files", files.get(0));
+                    versions.forEach(version -> insert(targetJdbc, "file_versions", version));
+                    versionChunks.values().forEach(chunks -> chunks.forEach(chunk -> insert(targetJdbc, "file_version_chunks", chunk)));
+                }
+                target.commit();
+
+                versionChunks.keySet().forEach(versionId -> {
+                    sourceJdbc.update("DELETE FROM file_version_chunks WHERE version_id = ?", versionId);
+                    sourceJdbc.update("DELETE FROM file_versions WHERE id = ?", versionId);
+                });
+                references.forEach((hash, count) -> {
+                    sourceJdbc.update("UPDATE file_chunks SET ref_count = ref_count - ? WHERE hash = ?", count, hash);
+                    sourceJdbc.update("DELETE FROM file_chunks WHERE hash = ? AND ref_count <= 0", hash);
+                });
+                sourceJdbc.update("DELETE FROM files WHERE id = ?", id);
+                source.commit();
+                return true;
+            } catch (RuntimeException | SQLException e) {
+                target.rollback();
+                source.rollback();
+                throw e;
+            }
+        } catch (RuntimeException | SQLException e) {
+            log.warn("Could not move file {} from shard {} to shard {}: {}", id, from, to, e.getMessage());
+            return false;
+        }
+    }
+
+    private static JdbcTemplate jdbcOn(Connection connection) {
+        return new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, String table, Map<String, Object> row) {
+        String columns = String.join(", ", row.keySet());
+        String placeholders = String.join(", ", row.keySet().stream().map(column -> "?").toList());
+        jdbcTemplate.update("INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")", row.values().toArray());
+    }
+}
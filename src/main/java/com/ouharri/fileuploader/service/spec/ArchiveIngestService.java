@@ -0,0 +1,54 @@
+package com.ouharri.fileuploader.service.spec;
+
+import com.ouharri.fileuploader.exception.ResourceNotCreatedException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service interface for expanding uploaded archives into one file per member.
+ */
+public interface ArchiveIngestService {
+
+    /**
+     * Expand an archive as it streams in, storing each of its files.
+     *
+     * @param archive The stream of the archive.
+     * @return The manifest of the expansion.
+     * @throws IOException                 If reading the request is interrupted.
+     * @throws ResourceNotCreatedException If the format of the archive cannot be recognized.
+     */
+    Manifest expand(InputStream archive) throws IOException;
+
+    /**
+     * The outcome of an expansion.
+     *
+     * @param files    The stored files, in archive order.
+     * @param skipped  The members that were not stored.
+     * @param complete Whether the whole archive was read; {@code false} if it was cut short by a limit or a read error.
+     */
+    record Manifest(List<Entry> files, List<Skipped> skipped, boolean complete) {
+    }
+
+    /**
+     * A stored member.
+     *
+     * @param id   The unique identifier of the file.
+     * @param name The path of the member in the archive.
+     * @param type The content type of the file.
+     * @param size The size of the file.
+     */
+    record Entry(UUID id, String name, String type, long size) {
+    }
+
+    /**
+     * A member that was not stored.
+     *
+     * @param name   The path of the member in the archive.
+     * @param reason Why the member was not stored.
+     */
+    record Skipped(String name, String reason) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.ouharri.fileuploader.service.spec;
+
+import com.ouharri.fileuploader.exception.ResourceNotFoundException;
+
+/**
+ * Service interface for exporting the files catalogue to pack files and importing it back.
+ * Jobs run in the background and resume from their checkpoints when started again.
+ */
+public interface BackupService {
+
+    /**
+     * Start exporting every file, metadata and payload, into the pack files of a job,
+     * or resume the export where its checkpoints left it.
+     *
+     * @param job The name of the job, which is also the name of its directory.
+     * @return The progress of the job.
+     */
+    Progress startExport(String job);
+
+    /**
+     * Start importing the pack files of a job, or resume the import where its checkpoints left it.
+     * Files whose id is already present are skipped.
+     *
+     * @param job The name of the job.
+     * @return The progress of the job.
+     * @throws ResourceNotFoundException If the job has no pack files.
+     */
+    Progress startImport(String job);
+
+    /**
+     * @param job The name of the job.
+     * @return The progress of the last run of the job.
+     * @throws ResourceNotFoundException If the job has not run since the application started.
+     */
+    Progress getProgress(String job);
+
+    /**
+     * The progress of a job.
+     *
+     * @param job        The name of the job.
+     * @param operation  What the job does.
+     * @param running    Whether the job is still running.
+     * @param partitions The number of pack files of the job.
+     * @param completed  The number of pack files done.
+     * @param files      The number of files exported or imported, including the runs before a resume.
+     * @param bytes      The number of payload bytes exported or imported.
+     * @param skipped    The number of imported files skipped as already present.
+     * @param error      Why the job failed, {@code null} unless it did.
+     */
+    record Progress(
+            String job,
+            Operation operation,
+            boolean running,
+            int partitions,
+            int completed,
+            long files,
+            long bytes,
+            long skipped,
+            String error
+    ) {
+    }
+
+    /**
+     * What a job does.
+     */
+    enum Operation {
+        EXPORT,
+        IMPORT
+    }
+}
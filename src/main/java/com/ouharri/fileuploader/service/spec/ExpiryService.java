@@ -0,0 +1,34 @@
+package com.ouharri.fileuploader.service.spec;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Service interface for expiring the files uploaded with a time to live.
+ */
+public interface ExpiryService {
+
+    /**
+     * Compute the expiry of a file uploaded now with a time to live.
+     *
+     * @param ttl The time to live of the file, or {@code null} for a file that never expires.
+     * @return The timestamp from which the file is expired, or {@code null} if it never expires.
+     */
+    Timestamp expiresAt(Duration ttl);
+
+    /**
+     * Schedule the deletion of a stored file at its expiry.
+     *
+     * @param id        The unique identifier of the file.
+     * @param expiresAt The timestamp from which the file is expired, or {@code null} if it never expires.
+     */
+    void schedule(UUID id, Timestamp expiresAt);
+
+    /**
+     * Run one sweep: delete the files whose expiry has passed since the previous sweep.
+     *
+     * @return The number of deleted files.
+     */
+    int sweep();
+}
@@ -0,0 +1,52 @@
+package com.ouharri.fileuploader.service.spec;
+
+import com.ouharri.fileuploader.message.ResponseStats;
+
+/**
+ * Service interface for maintaining the aggregated storage statistics.
+ */
+public interface FileStatsService {
+
+    /**
+     * Record that a file has been stored.
+     *
+     * @param type The content type of the file.
+     * @param size The size of the file in bytes.
+     */
+    void recordStored(String type, long size);
+
+    /**
+     * Record that the content of a file has been replaced.
+     *
+     * @param previousType The content type before the update.
+     * @param previousSize The size in bytes before the update.
+     * @param type         The content type after the update.
+     * @param size         The size in bytes after the update.
+     */
+    void recordUpdated(String previousType, long previousSize, String type, long size);
+
+    /**
+     * Record that a file has been deleted.
+     *
+     * @param type The content type of the file.
+     * @param size The size of the file in bytes.
+     */
+    void recordDeleted(String type, long size);
+
+    /**
+     * Get the current storage statistics, including the changes not flushed yet.
+     *
+     * @return The storage statistics.
+     */
+    ResponseStats getStats();
+
+    /**
+     * Flush the pending in-memory counters to the summary table.
+     */
+    void flush();
+
+    /**
+     * Rebuild the summary table from the files table to correct any drift.
+     */
+    void reconcile();
+}
@@ -1,11 +1,17 @@
 package com.ouharri.fileuploader.service.spec;
 
 import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.repository.projection.FileSummary;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Service interface for handling file-related operations.
@@ -16,10 +22,33 @@ public interface FileStorageService {
      * Store a file in the database.
      *
      * @param file The file to be stored.
+     * @param ttl  The time to live of the file, or {@code null} for a file that never expires.
      * @return The stored FileDB entity.
      * @throws IOException If an I/O exception occurs while reading the file data.
      */
-    FileDB store(MultipartFile file) throws IOException;
+    FileDB store(MultipartFile file, Duration ttl) throws IOException;
+
+    /**
+     * Store a file in the database, streaming its content without buffering a multipart request first.
+     *
+     * @param name    The name of the file.
+     * @param type    The content type of the file.
+     * @param size    The size of the content.
+     * @param content The content, read up to its end.
+     * @param ttl     The time to live of the file, or {@code null} for a file that never expires.
+     * @return The stored FileDB entity.
+     * @throws IOException If an I/O exception occurs while reading the content.
+     */
+    FileDB store(String name, String type, long size, InputStream content, Duration ttl) throws IOException;
+
+    /**
+     * Store a batch of new files, with one batch of inserts per shard.
+     *
+     * @param files The files to store.
+     * @return The stored FileDB entities, in the order of the given files.
+     * @throws IOException If sealing the payloads fails.
+     */
+    List<FileDB> storeAll(List<NewFile> files) throws IOException;
 
     /**
      * Get a file from the database by its ID.
@@ -30,11 +59,26 @@ public interface FileStorageService {
     FileDB getFile(UUID id);
 
     /**
-     * Get a stream of all files in the database.
+     * Get the metadata of all files, without their binary data.
+     *
+     * @return The metadata of all files.
+     */
+    List<FileSummary> getFileSummaries();
+
+    /**
+     * Get the metadata of the files created since a time, without their binary data.
+     *
+     * @param createdSince The earliest creation time of the files returned.
+     * @return The metadata of the files.
+     */
+    List<FileSummary> getFileSummaries(Timestamp createdSince);
+
+    /**
+     * Stream the metadata of all files from a database cursor, in constant memory.
      *
-     * @return A stream of FileDB entities.
+     * @param consumer The consumer receiving the metadata of each file.
      */
-    List<FileDB> getAllFiles();
+    void streamFileSummaries(Consumer<FileSummary> consumer);
 
     /**
      * Update the content of a file in the database.
@@ -46,10 +90,52 @@ public interface FileStorageService {
      */
     FileDB updateFile(UUID id, MultipartFile file) throws IOException;
 
+    /**
+     * Update the content of a file in the database, streaming it without buffering a multipart request first.
+     *
+     * @param id      The unique identifier of the file.
+     * @param name    The new name of the file.
+     * @param type    The new content type of the file.
+     * @param size    The size of the new content.
+     * @param content The new content, read up to its end.
+     * @return The updated FileDB entity.
+     * @throws IOException If an I/O exception occurs while reading the content.
+     */
+    FileDB updateFile(UUID id, String name, String type, long size, InputStream content) throws IOException;
+
+    /**
+     * Write a byte range into the content of a file, without re-uploading the whole content.
+     *
+     * @param id              The unique identifier of the file.
+     * @param expectedVersion The version the client based its change on (from {@code If-Match}).
+     * @param offset          The zero-based offset to write at, or {@code null} to append to the end.
+     * @param content         The bytes to write.
+     * @return The metadata of the file after the write.
+     */
+    FileSummary patchFile(UUID id, long expectedVersion, Long offset, byte[] content);
+
     /**
      * Delete a file from the database by its ID.
      *
      * @param id The unique identifier of the file.
      */
     void deleteFile(UUID id);
-}
\ No newline at end of file
+
+    /**
+     * Delete files in bulk.
+     *
+     * @param ids The unique identifiers of the files.
+     * @return The number of deleted files.
+     */
+    int deleteFiles(Collection<UUID> ids);
+
+    /**
+     * A new file stored by {@link #storeAll(List)}.
+     *
+     * @param name    The name of the file.
+     * @param type    The content type of the file.
+     * @param content The content of the file.
+     */
+    record NewFile(String name, String type, byte[] content) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.ouharri.fileuploader.service.spec;
+
+import com.ouharri.fileuploader.message.ResponseChanges;
+
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Service interface for the delta synchronization of clients.
+ */
+public interface FileSyncService {
+
+    /**
+     * Get the files created, updated or deleted since a cursor.
+     *
+     * @param cursor      The cursor returned by the previous poll, or {@code null} for an initial synchronization.
+     * @param limit       The maximum number of changes to return.
+     * @param downloadUrl Builds the download URL of a file.
+     * @return The page of changes, with the cursor of the next poll.
+     */
+    ResponseChanges getChanges(String cursor, int limit, Function<UUID, String> downloadUrl);
+}
@@ -0,0 +1,73 @@
+package com.ouharri.fileuploader.service.spec;
+
+import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.entity.FileVersion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service interface for the optional version history of files.
+ */
+public interface FileVersionService {
+
+    /**
+     * Capture the current content of a file as a new version, if the file retains versions.
+     *
+     * @param file The file, with its binary data.
+     */
+    void snapshot(FileDB file);
+
+    /**
+     * Capture the current content of a file as a new version, if the file retains versions.
+     * The file is only loaded when it retains versions.
+     *
+     * @param fileId The unique identifier of the file.
+     */
+    void snapshot(UUID fileId);
+
+    /**
+     * Set the number of versions to retain for a file.
+     * Enabling the retention captures the current content; {@code 0} drops the whole history.
+     *
+     * @param fileId           The unique identifier of the file.
+     * @param retainedVersions The number of versions to retain.
+     */
+    void setRetention(UUID fileId, int retainedVersions);
+
+    /**
+     * Get the retained versions of a file, newest first.
+     *
+     * @param fileId The unique identifier of the file.
+     * @return The retained versions.
+     */
+    List<FileVersion> getVersions(UUID fileId);
+
+    /**
+     * Get a retained version of a file.
+     *
+     * @param fileId   The unique identifier of the file.
+     * @param revision The revision of the file.
+     * @return The version.
+     */
+    FileVersion getVersion(UUID fileId, long revision);
+
+    /**
+     * Rebuild the content of a version by streaming its chunks, one at a time.
+     *
+     * @param fileId   The unique identifier of the file.
+     * @param revision The revision of the file.
+     * @param out      The stream to write the content to.
+     * @throws IOException If writing the content fails.
+     */
+    void writeVersion(UUID fileId, long revision, OutputStream out) throws IOException;
+
+    /**
+     * Drop the whole history of a file, releasing the chunks only it referenced.
+     *
+     * @param fileId The unique identifier of the file.
+     */
+    void deleteVersions(UUID fileId);
+}
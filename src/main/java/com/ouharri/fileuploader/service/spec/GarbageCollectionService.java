@@ -0,0 +1,27 @@
+package com.ouharri.fileuploader.service.spec;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Service interface for deleting files through tombstones and collecting them in the background.
+ */
+public interface GarbageCollectionService {
+
+    /**
+     * Tombstone files: they disappear from the application at once, without loading their payload,
+     * and are collected later in the background.
+     *
+     * @param ids The unique identifiers of the files.
+     * @return The number of tombstoned files.
+     */
+    int tombstone(Collection<UUID> ids);
+
+    /**
+     * Run one collection: reclaim the payloads of the tombstoned files past the grace period,
+     * then purge the tombstones past their retention, in rate-limited batches.
+     *
+     * @return The number of payloads reclaimed and tombstones purged.
+     */
+    int collect();
+}
@@ -0,0 +1,15 @@
+package com.ouharri.fileuploader.service.spec;
+
+/**
+ * Service interface for checking the stored payloads against the checksums recorded at ingest.
+ */
+public interface IntegrityScrubService {
+
+    /**
+     * Run a complete pass over the payloads of every shard. Corrupted payloads are reported as they are found,
+     * and payloads without recorded checksums get them recorded.
+     *
+     * @return The number of corrupted payloads found.
+     */
+    int scrub();
+}
@@ -0,0 +1,14 @@
+package com.ouharri.fileuploader.service.spec;
+
+/**
+ * Service interface for maintaining the monthly partitions of the {@code files} table.
+ */
+public interface PartitionMaintenanceService {
+
+    /**
+     * Run one maintenance: create the partitions of the coming months, then archive the partitions past their retention.
+     *
+     * @return The number of partitions created and archived.
+     */
+    int maintain();
+}
@@ -0,0 +1,62 @@
+package com.ouharri.fileuploader.service.spec;
+
+import com.ouharri.fileuploader.exception.ResourceConflictException;
+import com.ouharri.fileuploader.exception.ResourceNotFoundException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Service interface for the JDK Flight Recorder recordings of the application: a continuous recording
+ * dumped on demand, and targeted profiles with detailed sampling.
+ */
+public interface ProfilingService {
+
+    /**
+     * Write the events of the continuous recording of the last minutes to a new file, which the caller deletes.
+     *
+     * @param last How far back to go.
+     * @return The dump.
+     * @throws IOException               If the recording cannot be written.
+     * @throws ResourceNotFoundException If the continuous recording is disabled.
+     */
+    Path dump(Duration last) throws IOException;
+
+    /**
+     * Start a targeted profile, sampling more often than the continuous recording.
+     *
+     * @param duration How long to profile.
+     * @return The profile.
+     * @throws ResourceConflictException If another profile is running.
+     */
+    Profile startProfile(Duration duration);
+
+    /**
+     * @return The running and retained profiles, newest first.
+     */
+    List<Profile> getProfiles();
+
+    /**
+     * @param id The id of the profile.
+     * @return The recording of a finished profile.
+     * @throws ResourceNotFoundException If there is no such profile.
+     * @throws ResourceConflictException If the profile is still running.
+     */
+    Path getProfileFile(long id);
+
+    /**
+     * A targeted profile.
+     *
+     * @param id        The id of the recording.
+     * @param name      The name of the recording.
+     * @param state     The state of the recording, {@code RUNNING} until its duration is over.
+     * @param startedAt When the profile started.
+     * @param duration  How long the profile runs.
+     * @param size      The size of its recording, once written.
+     */
+    record Profile(long id, String name, String state, Instant startedAt, Duration duration, Long size) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.ouharri.fileuploader.service.spec;
+
+/**
+ * Service interface for moving files to their shard after shards are added.
+ */
+public interface ShardRebalanceService {
+
+    /**
+     * Run one rebalancing step: scan the next batch of files of every shard and move the files
+     * that belong to another shard on the current ring, with their version history.
+     *
+     * @return The number of moved files.
+     */
+    int rebalance();
+}
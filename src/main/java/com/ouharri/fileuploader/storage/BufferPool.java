@@ -0,0 +1,237 @@
+package com.ouharri.fileuploader.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.CoyoteOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct buffers staging payloads on their way between the database, the network and the disk.
+ * <p>
+ * Buffers come in a few size classes and idle ones are kept, up to a bound per class, so that moving
+ * payloads does not allocate a fresh array for every request. Direct buffers are handed to the channels
+ * as is, sparing the copy the JDK makes when a heap buffer is written to a socket or a file.
+ * With leak detection on, buffers garbage collected without having been released are reported along with
+ * where they were acquired; the pool publishes its state as {@code buffers.*} metrics.
+ */
+@Slf4j
+public class BufferPool implements MeterBinder {
+
+    private final int[] sizeClasses;
+    private final List<Queue<ByteBuffer>> idle = new ArrayList<>();
+    private final int transferSize;
+    private final boolean leakDetection;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    /**
+     * @param properties The settings of the pool.
+     */
+    public BufferPool(BufferProperties properties) {
+        this.sizeClasses = properties.sizeClasses().stream()
+                .mapToInt(size -> Math.toIntExact(size.toBytes()))
+                .sorted()
+                .toArray();
+        for (int ignored : sizeClasses)
+            idle.add(new ArrayBlockingQueue<>(properties.maxRetainedPerClass()));
+        this.transferSize = Math.toIntExact(properties.transferSize().toBytes());
+        this.leakDetection = properties.leakDetection();
+    }
+
+    /**
+     * Borrow a buffer of at least the given capacity. Requests larger than the largest size class
+     * get a buffer of their own, dropped instead of pooled once released.
+     *
+     * @param minCapacity The minimum capacity of the buffer.
+     * @return The borrowed buffer, to be closed once done with.
+     */
+    public PooledBuffer acquire(int minCapacity) {
+        int sizeClass = sizeClassOf(minCapacity);
+        ByteBuffer buffer = sizeClass >= 0 ? idle.get(sizeClass).poll() : null;
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(sizeClass >= 0 ? sizeClasses[sizeClass] : minCapacity);
+            allocations.incrementAndGet();
+        }
+        buffer.clear();
+        outstanding.incrementAndGet();
+        return new PooledBuffer(this, buffer, sizeClass, new Lease(this, leakDetection ? new Throwable("Buffer acquired here") : null));
+    }
+
+    /**
+     * Copy a stream to another through a pooled buffer. Neither stream is closed.
+     * A {@link ByteBufferInputStream} is written out straight from its buffer.
+     *
+     * @param in  The stream to read from.
+     * @param out The stream to write to.
+     * @return The number of bytes copied.
+     * @throws IOException If reading or writing fails.
+     */
+    public long transfer(InputStream in, OutputStream out) throws IOException {
+        WritableByteChannel target = out instanceof CoyoteOutputStream coyote ? new CoyoteChannel(coyote) : Channels.newChannel(out);
+        long transferred = 0;
+        if (in instanceof ByteBufferInputStream buffered) {
+            ByteBuffer buffer = buffered.drain();
+            while (buffer.hasRemaining())
+                transferred += target.write(buffer);
+            return transferred;
+        }
+        try (PooledBuffer pooled = acquire(transferSize)) {
+            ByteBuffer buffer = pooled.buffer();
+            ReadableByteChannel source = Channels.newChannel(in);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining())
+                    transferred += target.write(buffer);
+                buffer.clear();
+            }
+            return transferred;
+        }
+    }
+
+    /**
+     * @return The number of buffers currently borrowed.
+     */
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return The number of buffers allocated since the pool was created.
+     */
+    public long allocations() {
+        return allocations.get();
+    }
+
+    /**
+     * @return The number of buffers garbage collected without having been released.
+     */
+    public long leaks() {
+        return leaks.get();
+    }
+
+    /**
+     * @return The number of idle buffers kept by the pool.
+     */
+    public int idle() {
+        return idle.stream().mapToInt(Queue::size).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buffers.outstanding", this, BufferPool::outstanding)
+                .description("Buffers currently borrowed")
+                .register(registry);
+        Gauge.builder("buffers.idle", this, BufferPool::idle)
+                .description("Idle buffers kept by the pool")
+                .register(registry);
+        FunctionCounter.builder("buffers.allocations", this, BufferPool::allocations)
+                .description("Buffers allocated because none was idle")
+                .register(registry);
+        FunctionCounter.builder("buffers.leaks", this, BufferPool::leaks)
+                .description("Buffers garbage collected without having been released")
+                .register(registry);
+    }
+
+    /**
+     * Take back a released buffer, keeping it if its size class still has room.
+     *
+     * @param buffer    The buffer.
+     * @param sizeClass The index of its size class, negative for a buffer of its own.
+     */
+    void release(ByteBuffer buffer, int sizeClass) {
+        outstanding.decrementAndGet();
+        if (sizeClass >= 0)
+            idle.get(sizeClass).offer(buffer);
+    }
+
+    /**
+     * @param capacity A capacity.
+     * @return The index of the smallest size class holding the capacity, {@code -1} if none does.
+     */
+    private int sizeClassOf(int capacity) {
+        for (int i = 0; i < sizeClasses.length; i++)
+            if (sizeClasses[i] >= capacity)
+                return i;
+        return -1;
+    }
+
+    /**
+     * The state of a borrowed buffer, shared between the {@link PooledBuffer} and the cleaner watching it
+     * so that a buffer collected without having been released is reported.
+     */
+    static final class Lease implements Runnable {
+
+        private final BufferPool pool;
+        private final Throwable acquiredAt;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(BufferPool pool, Throwable acquiredAt) {
+            this.pool = pool;
+            this.acquiredAt = acquiredAt;
+        }
+
+        /**
+         * @return Whether the buffer is watched for leaks.
+         */
+        boolean tracked() {
+            return acquiredAt != null;
+        }
+
+        /**
+         * @return {@code true} if the lease was still open, {@code false} if it had already been released.
+         */
+        boolean release() {
+            return released.compareAndSet(false, true);
+        }
+
+        @Override
+        public void run() {
+            if (!release())
+                return;
+            pool.outstanding.decrementAndGet();
+            pool.leaks.incrementAndGet();
+            log.error("A pooled buffer was garbage collected without having been released", acquiredAt);
+        }
+    }
+
+    /**
+     * Channel writing straight to the Tomcat response buffer, which takes byte buffers without copying them
+     * into an intermediate array first.
+     */
+    private record CoyoteChannel(CoyoteOutputStream out) implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int remaining = source.remaining();
+            out.write(source);
+            return remaining - source.remaining();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ouharri.fileuploader.storage;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+/**
+ * Settings of the pool of direct buffers used to stage payloads.
+ *
+ * @param sizeClasses         The capacities of the pooled buffers, a request is served by the smallest class fitting it.
+ * @param maxRetainedPerClass The maximum number of idle buffers kept per size class.
+ * @param transferSize        The capacity of the buffer used to copy a payload from one stream to another.
+ * @param leakDetection       Whether to record where buffers are acquired and report the ones never released.
+ */
+@ConfigurationProperties(prefix = "app.buffers")
+public record BufferProperties(List<DataSize> sizeClasses, int maxRetainedPerClass, DataSize transferSize, boolean leakDetection) {
+
+    public BufferProperties {
+        sizeClasses = sizeClasses != null && !sizeClasses.isEmpty()
+                ? sizeClasses
+                : List.of(DataSize.ofKilobytes(8), DataSize.ofKilobytes(64), DataSize.ofKilobytes(512));
+        maxRetainedPerClass = maxRetainedPerClass > 0 ? maxRetainedPerClass : 32;
+        transferSize = transferSize != null ? transferSize : DataSize.ofKilobytes(64);
+    }
+}
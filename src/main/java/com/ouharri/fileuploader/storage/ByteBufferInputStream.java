@@ -0,0 +1,52 @@
+package com.ouharri.fileuploader.storage;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream over a byte buffer. {@link BufferPool#transfer(InputStream, java.io.OutputStream)} writes
+ * the buffer out as is, so a payload held in a mapped file reaches the socket without being copied on the heap.
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer The buffer to read, from its position to its limit.
+     */
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0)
+            return 0;
+        if (!buffer.hasRemaining())
+            return -1;
+        int read = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, read);
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    /**
+     * Take the rest of the stream as a buffer, leaving the stream at its end.
+     *
+     * @return The bytes not read yet.
+     */
+    public ByteBuffer drain() {
+        ByteBuffer remaining = buffer.slice();
+        buffer.position(buffer.limit());
+        return remaining;
+    }
+}
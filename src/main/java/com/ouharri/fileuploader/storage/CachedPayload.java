@@ -0,0 +1,40 @@
+package com.ouharri.fileuploader.storage;
+
+import com.ouharri.fileuploader.repository.projection.FileSummary;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+
+/**
+ * A file kept in the local tier of the {@link com.ouharri.fileuploader.cache.CacheNames#FILE} cache: its metadata and,
+ * the payload being small and stored in plain, the payload itself in a read-only direct buffer, so that downloading it
+ * neither reaches the database nor allocates on the heap. It never leaves the node, and so is never serialized.
+ *
+ * @param metadata  The metadata of the file.
+ * @param expiresAt The time the file expires at, {@code null} if it does not.
+ * @param data      The payload of the file, read-only and off the heap.
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+public record CachedPayload(FileSummary metadata, Timestamp expiresAt, ByteBuffer data) {
+
+    /**
+     * Copy a payload off the heap to cache it.
+     *
+     * @param metadata  The metadata of the file.
+     * @param expiresAt The time the file expires at, {@code null} if it does not.
+     * @param payload   The payload, left untouched.
+     * @return The cached file.
+     */
+    public static CachedPayload of(FileSummary metadata, Timestamp expiresAt, ByteBuffer payload) {
+        ByteBuffer data = ByteBuffer.allocateDirect(payload.remaining()).put(payload.duplicate()).flip();
+        return new CachedPayload(metadata, expiresAt, data.asReadOnlyBuffer());
+    }
+
+    /**
+     * @param now The current time, in milliseconds since the epoch.
+     * @return Whether the file has expired.
+     */
+    public boolean isExpired(long now) {
+        return expiresAt != null && expiresAt.getTime() <= now;
+    }
+}
@@ -0,0 +1,162 @@
+package com.ouharri.fileuploader.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Content-defined chunker based on FastCDC.
+ * <p>
+ * Chunk boundaries are chosen where a rolling Gear hash of the content matches a mask, so they only
+ * depend on the surrounding bytes: inserting or removing bytes in a payload only changes the chunks
+ * around the edit, and the other chunks can be shared between versions. Normalized chunking (a stricter
+ * mask before the average size, a looser one after) keeps chunk sizes close to the average.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+public final class ContentDefinedChunker {
+
+    /**
+     * Default minimum chunk size, in bytes.
+     */
+    public static final int DEFAULT_MIN_SIZE = 2 * 1024;
+
+    /**
+     * Default average chunk size, in bytes.
+     */
+    public static final int DEFAULT_AVERAGE_SIZE = 8 * 1024;
+
+    /**
+     * Default maximum chunk size, in bytes.
+     */
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // The table must never change: stored chunk boundaries depend on it.
+        SplittableRandom random = new SplittableRandom(0x5EED_CDC_F11EL);
+        for (int i = 0; i < GEAR.length; i++)
+            GEAR[i] = random.nextLong();
+    }
+
+    private final int minSize;
+    private final int averageSize;
+    private final int maxSize;
+    private final long strictMask;
+    private final long looseMask;
+
+    /**
+     * Create a chunker with the default sizes.
+     */
+    public ContentDefinedChunker() {
+        this(DEFAULT_MIN_SIZE, DEFAULT_AVERAGE_SIZE, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a chunker.
+     *
+     * @param minSize     The minimum chunk size, in bytes.
+     * @param averageSize The average chunk size, in bytes; must be a power of two.
+     * @param maxSize     The maximum chunk size, in bytes.
+     */
+    public ContentDefinedChunker(int minSize, int averageSize, int maxSize) {
+        if (minSize <= 0 || minSize >= averageSize || averageSize >= maxSize)
+            throw new IllegalArgumentException("Chunk sizes must satisfy 0 < min < average < max");
+        if (Integer.bitCount(averageSize) != 1)
+            throw new IllegalArgumentException("The average chunk size must be a power of two");
+        int bits = Integer.numberOfTrailingZeros(averageSize);
+        this.minSize = minSize;
+        this.averageSize = averageSize;
+        this.maxSize = maxSize;
+        this.strictMask = highBits(bits + 2);
+        this.looseMask = highBits(Math.max(1, bits - 2));
+    }
+
+    /**
+     * Get the maximum chunk size.
+     *
+     * @return The maximum chunk size, in bytes.
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Find the length of the first chunk of a buffer.
+     *
+     * @param buffer The buffer.
+     * @param offset The offset of the data in the buffer.
+     * @param length The length of the data; it must hold all the remaining data or at least {@link #maxSize()} bytes.
+     * @return The length of the first chunk.
+     */
+    public int cut(byte[] buffer, int offset, int length) {
+        if (length <= minSize)
+            return length;
+        int limit = Math.min(length, maxSize);
+        int normal = Math.min(limit, averageSize);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[buffer[offset + i] & 0xFF];
+            if ((hash & strictMask) == 0)
+                return i + 1;
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[buffer[offset + i] & 0xFF];
+            if ((hash & looseMask) == 0)
+                return i + 1;
+        }
+        return limit;
+    }
+
+    /**
+     * Split a stream into chunks, reading at most {@link #maxSize()} bytes ahead.
+     *
+     * @param in       The stream to split.
+     * @param consumer The consumer receiving each chunk in order; the buffer is reused afterward.
+     * @return The number of chunks.
+     * @throws IOException If reading the stream or consuming a chunk fails.
+     */
+    public int split(InputStream in, ChunkConsumer consumer) throws IOException {
+        byte[] buffer = new byte[maxSize];
+        int filled = 0;
+        int chunks = 0;
+        boolean eof = false;
+        while (true) {
+            if (!eof) {
+                int read = in.readNBytes(buffer, filled, buffer.length - filled);
+                filled += read;
+                eof = filled < buffer.length;
+            }
+            if (filled == 0)
+                return chunks;
+            int length = cut(buffer, 0, filled);
+            consumer.accept(buffer, 0, length);
+            chunks++;
+            System.arraycopy(buffer, length, buffer, 0, filled - length);
+            filled -= length;
+        }
+    }
+
+    private static long highBits(int bits) {
+        return -1L << (Long.SIZE - bits);
+    }
+
+    /**
+     * Receives the chunks produced by {@link #split(InputStream, ChunkConsumer)}.
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+
+        /**
+         * Accept a chunk.
+         *
+         * @param buffer The buffer holding the chunk.
+         * @param offset The offset of the chunk in the buffer.
+         * @param length The length of the chunk.
+         * @throws IOException If consuming the chunk fails.
+         */
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+    }
+}
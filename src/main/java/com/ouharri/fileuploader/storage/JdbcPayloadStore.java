@@ -0,0 +1,327 @@
+package com.ouharri.fileuploader.storage;
+
+import com.ouharri.fileuploader.cache.CacheNames;
+import com.ouharri.fileuploader.cache.NearCacheManager;
+import com.ouharri.fileuploader.crypto.PayloadCipher;
+import com.ouharri.fileuploader.datasource.RoutingContext;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.entity.PayloadStorage;
+import com.ouharri.fileuploader.exception.ResourceCorruptedException;
+import com.ouharri.fileuploader.integrity.PayloadChecksum;
+import com.ouharri.fileuploader.integrity.PayloadCorruptedEvent;
+import com.ouharri.fileuploader.integrity.PayloadVerifier;
+import com.ouharri.fileuploader.partition.FileIds;
+import com.ouharri.fileuploader.profiling.DownloadEvent;
+import com.ouharri.fileuploader.repository.projection.FileSummary;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * {@link PayloadStore} reading the payloads from the {@code files} table with plain JDBC.
+ * Reads go to the shard of the file, and are served by a read replica when one is available.
+ * Payloads kept in pack files are served from the {@link PackFileStore} mapping. Encrypted payloads are decrypted by the
+ * {@link PayloadCipher} as they are read, segment by segment, each segment being authenticated on the way. When configured,
+ * plain payloads are checked against their recorded checksums before being served, the whole payload being in memory
+ * at that point anyway. The row is fully read before the payload is handed to the consumer, so that the connection
+ * is back in its pool while the payload is written to the client; the payload is streamed from the driver into a
+ * buffer of the {@link BufferPool}, off the heap, released once the consumer is done.
+ * <p>
+ * Small plain payloads are kept off the heap with the metadata of their file in the local tier of the
+ * {@link CacheNames#FILE} cache, evicted on every change of the file, so that downloading them again neither reaches
+ * the database nor allocates. They are never written to the remote tier, which would copy them through the heap on
+ * every hit. Each read is observed as a {@code payload.read} span, covering the streaming of the payload.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+@Component
+public class JdbcPayloadStore implements PayloadStore {
+
+    private static final String SELECT_PAYLOAD = """
+            SELECT id, name, type, size, version, updated_at, expires_at, storage, crc32c, sha256, data_key,
+                   octet_length(data) AS stored_size, data
+            FROM files
+            WHERE id = ? AND created_at BETWEEN ? AND ? AND deleted_at IS NULL AND (expires_at IS NULL OR expires_at > now())
+            """;
+
+    private static final String RECORD_CHECKSUMS = """
+            UPDATE files
+            SET crc32c = ?, sha256 = ?
+            WHERE id = ? AND created_at BETWEEN ? AND ? AND version = ? AND crc32c IS NULL
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final PackFileStore packFileStore;
+    private final PayloadVerifier payloadVerifier;
+    private final PayloadCipher payloadCipher;
+    private final ObservationRegistry observationRegistry;
+    private final NearCacheManager cacheManager;
+    private final BufferPool bufferPool;
+    private final long maxCachedPayloadSize;
+
+    public JdbcPayloadStore(
+            JdbcTemplate jdbcTemplate,
+            ShardRouter shardRouter,
+            PackFileStore packFileStore,
+            PayloadVerifier payloadVerifier,
+            PayloadCipher payloadCipher,
+            ObservationRegistry observationRegistry,
+            NearCacheManager cacheManager,
+            BufferPool bufferPool,
+            @Value("${app.cache.max-payload-size:64KB}") DataSize maxCachedPayloadSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.packFileStore = packFileStore;
+        this.payloadVerifier = payloadVerifier;
+        this.payloadCipher = payloadCipher;
+        this.observationRegistry = observationRegistry;
+        this.cacheManager = cacheManager;
+        this.bufferPool = bufferPool;
+        this.maxCachedPayloadSize = maxCachedPayloadSize.toBytes();
+    }
+
+    @Override
+    public boolean read(UUID id, PayloadConsumer consumer) throws IOException {
+        DownloadEvent event = new DownloadEvent();
+        Observation observation = Observation.createNotStarted("payload.read", observationRegistry)
+                .highCardinalityKeyValue("file.id", id.toString())
+                .start();
+        event.begin();
+        Row row = null;
+        try (Observation.Scope ignored = observation.openScope()) {
+            FileSummary metadata;
+            StoredPayload payload;
+            CachedPayload cached = cached(id);
+            if (cached != null) {
+                event.storage = "CACHE";
+                metadata = cached.metadata();
+                payload = new StoredPayload(payloadCipher, id, null, cached.data().duplicate(), cached.data().remaining());
+            } else {
+                row = select(id);
+                if (row == null)
+                    return false;
+                event.storage = row.storage();
+                metadata = row.metadata();
+                ByteBuffer stored = stored(row, id);
+                if (row.dataKey() == null && payloadVerifier.verifiesDownloads()
+                        && !payloadVerifier.verify(id, payloadVerifier.checksum(stored), row.crc32c(), row.sha256(), PayloadCorruptedEvent.Source.DOWNLOAD))
+                    throw new ResourceCorruptedException("The payload of file " + id + " is corrupted");
+                if (row.dataKey() == null && stored.remaining() <= maxCachedPayloadSize)
+                    cacheManager.putLocal(CacheNames.FILE, id, CachedPayload.of(metadata, row.expiresAt(), stored));
+                payload = new StoredPayload(payloadCipher, id, row.dataKey(), stored, row.dataKey() != null ? sizeOf(metadata) : stored.remaining());
+            }
+            event.found = true;
+            event.size = payload.size();
+            event.encrypted = payload.dataKey() != null;
+            consumer.accept(metadata, payload);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            if (row != null)
+                row.close();
+            event.end();
+            if (event.storage != null)
+                observation.lowCardinalityKeyValue("storage", event.storage);
+            observation.lowCardinalityKeyValue("encrypted", Boolean.toString(event.encrypted))
+                    .highCardinalityKeyValue("payload.size", Long.toString(event.size))
+                    .stop();
+            if (event.shouldCommit()) {
+                event.fileId = id.toString();
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public Verification verify(UUID id) {
+        Checked checked;
+        try (Row row = select(id)) {
+            if (row == null)
+                return new Verification(Verification.Status.MISSING, 0);
+            ByteBuffer payload = stored(row, id);
+            checked = new Checked(
+                    row.metadata().version(),
+                    row.crc32c(),
+                    row.sha256(),
+                    row.dataKey() == null ? payloadVerifier.checksum(payload) : decryptedChecksum(id, row.dataKey(), payload, sizeOf(row.metadata())),
+                    payload.remaining()
+            );
+        }
+        if (checked.actual() == null) {
+            payloadVerifier.reportUnreadable(id, checked.crc32c(), PayloadCorruptedEvent.Source.SCRUB);
+            return new Verification(Verification.Status.CORRUPTED, checked.bytes());
+        }
+        if (checked.crc32c() == null) {
+            shardRouter.on(id, () -> {
+                FileIds.CreationRange range = FileIds.creationRange(id);
+                return jdbcTemplate.update(RECORD_CHECKSUMS, checked.actual().crc32c(), checked.actual().sha256(), id, range.from(), range.to(), checked.version());
+            });
+            return new Verification(Verification.Status.RECORDED, checked.bytes());
+        }
+        boolean verified = payloadVerifier.verify(id, checked.actual(), checked.crc32c(), checked.sha256(), PayloadCorruptedEvent.Source.SCRUB);
+        return new Verification(verified ? Verification.Status.VERIFIED : Verification.Status.CORRUPTED, checked.bytes());
+    }
+
+    private Row select(UUID id) {
+        FileIds.CreationRange range = FileIds.creationRange(id);
+        return shardRouter.on(id, () -> RoutingContext.readOnly(() -> jdbcTemplate.query(SELECT_PAYLOAD, statement -> {
+            statement.setObject(1, id);
+            statement.setTimestamp(2, range.from());
+            statement.setTimestamp(3, range.to());
+        }, resultSet -> resultSet.next() ? row(resultSet) : null)));
+    }
+
+    private Row row(ResultSet resultSet) throws SQLException {
+        FileSummary metadata = new FileSummary(
+                resultSet.getObject("id", UUID.class),
+                resultSet.getString("name"),
+                resultSet.getString("type"),
+                resultSet.getObject("size", Long.class),
+                resultSet.getObject("version", Long.class),
+                resultSet.getTimestamp("updated_at")
+        );
+        return new Row(
+                metadata,
+                resultSet.getTimestamp("expires_at"),
+                resultSet.getString("storage"),
+                resultSet.getObject("crc32c", Integer.class),
+                resultSet.getString("sha256"),
+                resultSet.getBytes("data_key"),
+                data(resultSet)
+        );
+    }
+
+    /**
+     * Stream the payload of the current row into a pooled buffer, without copying it into an array first.
+     *
+     * @return The buffer holding the payload, flipped, {@code null} if the row has none.
+     */
+    private PooledBuffer data(ResultSet resultSet) throws SQLException {
+        Long size = resultSet.getObject("stored_size", Long.class);
+        if (size == null)
+            return null;
+        PooledBuffer data = bufferPool.acquire(Math.toIntExact(size));
+        try (InputStream in = resultSet.getBinaryStream("data")) {
+            ByteBuffer buffer = data.buffer().limit(Math.toIntExact(size));
+            ReadableByteChannel channel = Channels.newChannel(in);
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) == -1)
+                    break;
+            buffer.flip();
+            return data;
+        } catch (IOException e) {
+            data.close();
+            throw new SQLException("Could not read the payload", e);
+        } catch (SQLException | RuntimeException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The cached file, {@code null} if it is not cached on this node or has expired.
+     */
+    private CachedPayload cached(UUID id) {
+        Cache.ValueWrapper wrapper = cacheManager.getLocal(CacheNames.FILE, id);
+        return wrapper != null && wrapper.get() instanceof CachedPayload cached && !cached.isExpired(System.currentTimeMillis())
+                ? cached
+                : null;
+    }
+
+    private static long sizeOf(FileSummary metadata) {
+        return metadata.size() != null ? metadata.size() : 0L;
+    }
+
+    /**
+     * @return The checksums of the plaintext of an encrypted payload, {@code null} if it fails authentication.
+     */
+    private PayloadChecksum decryptedChecksum(UUID id, byte[] dataKey, ByteBuffer payload, long size) {
+        PayloadChecksum checksum = payloadVerifier.newChecksum();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = payloadCipher.open(id, dataKey, payload.duplicate(), size, 0, size)) {
+            for (int read; (read = in.read(buffer)) != -1; )
+                checksum.update(buffer, 0, read);
+            return checksum;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The payload of a row, from the database or the pack files; empty if there is none.
+     */
+    private ByteBuffer stored(Row row, UUID id) {
+        if (PayloadStorage.PACK.name().equals(row.storage()))
+            return packFileStore.read(id).orElseGet(() -> ByteBuffer.allocate(0));
+        return row.data() != null ? row.data().buffer() : ByteBuffer.allocate(0);
+    }
+
+    /**
+     * A row of the {@code files} table, read in full so that the connection is released before the payload is served,
+     * to be closed once done with its payload.
+     *
+     * @param metadata  The metadata of the file.
+     * @param expiresAt The time the file expires at, {@code null} if it does not.
+     * @param storage   Where the payload is stored.
+     * @param crc32c    The recorded CRC32C.
+     * @param sha256    The recorded SHA-256 digest.
+     * @param dataKey   The wrapped data key, {@code null} if the payload is stored in plain.
+     * @param data      The payload stored in the database, {@code null} if it is kept in the pack files.
+     */
+    private record Row(FileSummary metadata, Timestamp expiresAt, String storage, Integer crc32c, String sha256, byte[] dataKey, PooledBuffer data)
+            implements AutoCloseable {
+
+        @Override
+        public void close() {
+            if (data != null)
+                data.close();
+        }
+    }
+
+    /**
+     * A checked payload.
+     *
+     * @param version The version of the file.
+     * @param crc32c  The recorded CRC32C.
+     * @param sha256  The recorded SHA-256 digest.
+     * @param actual  The checksums of the stored payload, {@code null} if it fails authentication.
+     * @param bytes   The size of the stored payload.
+     */
+    private record Checked(long version, Integer crc32c, String sha256, PayloadChecksum actual, long bytes) {
+    }
+
+    /**
+     * A payload of the current row, plain or encrypted.
+     *
+     * @param cipher  The cipher opening the payload.
+     * @param id      The unique identifier of the file.
+     * @param dataKey The wrapped data key, {@code null} if the payload is stored in plain.
+     * @param stored  The stored payload.
+     * @param size    The size of the plaintext.
+     */
+    private record StoredPayload(PayloadCipher cipher, UUID id, byte[] dataKey, ByteBuffer stored, long size) implements Payload {
+
+        @Override
+        public InputStream stream(long offset, long length) {
+            return cipher.open(id, dataKey, stored.duplicate(), size, offset, length);
+        }
+    }
+}
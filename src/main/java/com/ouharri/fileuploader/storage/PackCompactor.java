@@ -0,0 +1,28 @@
+package com.ouharri.fileuploader.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Background job compacting the pack segments holding mostly deleted or replaced payloads.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PackCompactor {
+
+    private final PackFileStore packFileStore;
+
+    @Scheduled(fixedDelayString = "${app.pack.compaction-interval:60000}")
+    public void compact() {
+        try {
+            packFileStore.compact();
+        } catch (IOException e) {
+            log.warn("Could not compact the pack segments: {}", e.getMessage(), e);
+        }
+    }
+}
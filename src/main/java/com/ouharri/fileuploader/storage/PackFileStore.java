@@ -0,0 +1,396 @@
+package com.ouharri.fileuploader.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only storage engine packing small payloads into large segment files.
+ * <p>
+ * Payloads are appended to the active segment as records carrying the id of the file, the length and a
+ * CRC32C of the payload; deletes append a tombstone record. Segments are memory-mapped, and an in-memory
+ * index maps each id to the segment, offset and length of its latest payload, so that a read is a slice
+ * of a mapping, handed to the network without being copied on the heap.
+ * <p>
+ * The index is rebuilt at startup by replaying the segments in order. Replay stops at the first record
+ * whose header or checksum does not hold, so a record torn by a crash is dropped and overwritten by the
+ * next append. Sealed segments whose share of dead bytes passes a threshold are compacted in the background:
+ * their live payloads are appended again to the active segment, then the segment file is deleted.
+ * <p>
+ * Pack files live on the local disk of the node, next to the database holding the metadata of the files.
+ */
+@Slf4j
+public class PackFileStore implements MeterBinder, Closeable {
+
+    /**
+     * Size of a record header: magic, id, payload length and payload checksum.
+     */
+    static final int HEADER_SIZE = 28;
+
+    private static final int RECORD_MAGIC = 0x5041434B;
+    private static final int TOMBSTONE = -1;
+    private static final String SEGMENT_SUFFIX = ".pack";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int maxFileSize;
+    private final int segmentSize;
+    private final boolean sync;
+    private final double compactionThreshold;
+    private final Map<UUID, Location> index = new ConcurrentHashMap<>();
+    private final NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object appendLock = new Object();
+    private Segment active;
+
+    /**
+     * @param properties The settings of the engine.
+     */
+    public PackFileStore(PackProperties properties) {
+        this.enabled = properties.enabled();
+        this.directory = Path.of(properties.directory());
+        this.maxFileSize = Math.toIntExact(properties.maxFileSize().toBytes());
+        this.segmentSize = Math.toIntExact(properties.segmentSize().toBytes());
+        this.sync = properties.sync();
+        this.compactionThreshold = properties.compactionThreshold();
+        if (HEADER_SIZE + (long) maxFileSize > segmentSize)
+            throw new IllegalArgumentException("The pack segment size must hold a payload of the maximum file size");
+    }
+
+    /**
+     * Open the segments of the directory and rebuild the index from them. Does nothing when the engine is disabled.
+     *
+     * @throws IOException If a segment cannot be opened.
+     */
+    public void open() throws IOException {
+        if (!enabled)
+            return;
+        Files.createDirectories(directory);
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        synchronized (appendLock) {
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                Segment segment = Segment.open(path, Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), segmentSize);
+                segments.put(segment.number, segment);
+                replay(segment);
+            }
+            active = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+            active.wipeTail();
+        }
+        log.info("Opened {} pack segments holding {} payloads", segments.size(), index.size());
+    }
+
+    /**
+     * @param size The size of a payload.
+     * @return Whether the payload is to be stored in pack files.
+     */
+    public boolean accepts(long size) {
+        return enabled && size <= maxFileSize;
+    }
+
+    /**
+     * Store the payload of a file, replacing its previous payload.
+     *
+     * @param id   The unique identifier of the file.
+     * @param data The payload.
+     * @throws IOException If the payload cannot be written.
+     */
+    public void put(UUID id, byte[] data) throws IOException {
+        if (!accepts(data.length))
+            throw new IllegalArgumentException("Payload of " + data.length + " bytes cannot be stored in pack files");
+        synchronized (appendLock) {
+            Location location = append(id, data.length, ByteBuffer.wrap(data));
+            location.segment.live += data.length;
+            release(index.put(id, location));
+        }
+    }
+
+    /**
+     * Read the payload of a file.
+     *
+     * @param id The unique identifier of the file.
+     * @return A read-only view of the payload in its segment mapping, empty if the file has no payload here.
+     */
+    public Optional<ByteBuffer> read(UUID id) {
+        Location location = index.get(id);
+        if (location == null)
+            return Optional.empty();
+        return Optional.of(location.segment.map.slice(location.offset, location.length).asReadOnlyBuffer());
+    }
+
+    /**
+     * Read the payload of a file into an array.
+     *
+     * @param id The unique identifier of the file.
+     * @return The payload, empty if the file has no payload here.
+     */
+    public Optional<byte[]> readBytes(UUID id) {
+        return read(id).map(payload -> {
+            byte[] data = new byte[payload.remaining()];
+            payload.get(data);
+            return data;
+        });
+    }
+
+    /**
+     * Delete the payload of a file.
+     *
+     * @param id The unique identifier of the file.
+     * @return Whether the file had a payload here.
+     * @throws IOException If the tombstone cannot be written.
+     */
+    public boolean delete(UUID id) throws IOException {
+        if (!enabled)
+            return false;
+        synchronized (appendLock) {
+            if (!index.containsKey(id))
+                return false;
+            append(id, TOMBSTONE, null);
+            release(index.remove(id));
+            return true;
+        }
+    }
+
+    /**
+     * Compact the sealed segments whose share of dead bytes passes the threshold.
+     *
+     * @return The number of compacted segments.
+     * @throws IOException If a segment cannot be compacted.
+     */
+    public int compact() throws IOException {
+        if (!enabled)
+            return 0;
+        List<Segment> candidates;
+        synchronized (appendLock) {
+            candidates = segments.values().stream()
+                    .filter(segment -> segment != active && segment.deadRatio() >= compactionThreshold)
+                    .toList();
+        }
+        for (Segment segment : candidates)
+            compact(segment);
+        return candidates.size();
+    }
+
+    /**
+     * @return The number of payloads stored.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return The number of segment files.
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("pack.payloads", this, PackFileStore::size)
+                .description("Payloads stored in pack files")
+                .register(registry);
+        Gauge.builder("pack.segments", this, PackFileStore::segmentCount)
+                .description("Pack segment files")
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            for (Segment segment : segments.values())
+                segment.close();
+        }
+    }
+
+    /**
+     * Append the live payloads of a segment to the active segment, then delete it. Tombstones are carried
+     * over while older segments may still hold the payload they delete, so that it does not come back on replay.
+     */
+    private void compact(Segment segment) throws IOException {
+        boolean olderSegments = segments.firstKey() < segment.number;
+        int moved = 0;
+        int position = 0;
+        while (position < segment.written) {
+            UUID id = new UUID(segment.map.getLong(position + 4), segment.map.getLong(position + 12));
+            int length = segment.map.getInt(position + 20);
+            synchronized (appendLock) {
+                if (length == TOMBSTONE) {
+                    if (olderSegments && !index.containsKey(id))
+                        append(id, TOMBSTONE, null);
+                } else {
+                    Location location = new Location(segment, position + HEADER_SIZE, length);
+                    if (location.equals(index.get(id))) {
+                        Location copy = append(id, length, segment.map.slice(location.offset, length));
+                        copy.segment.live += length;
+                        release(index.put(id, copy));
+                        moved++;
+                    }
+                }
+            }
+            position += HEADER_SIZE + Math.max(length, 0);
+        }
+        synchronized (appendLock) {
+            active.force();
+            segments.remove(segment.number);
+            segment.close();
+        }
+        Files.deleteIfExists(segment.path);
+        log.info("Compacted pack segment {}, {} live payloads moved", segment.number, moved);
+    }
+
+    /**
+     * Rebuild the index from the records of a segment, up to the first record that does not hold.
+     */
+    private void replay(Segment segment) {
+        ByteBuffer map = segment.map;
+        int position = 0;
+        while (position + HEADER_SIZE <= map.capacity() && map.getInt(position) == RECORD_MAGIC) {
+            UUID id = new UUID(map.getLong(position + 4), map.getLong(position + 12));
+            int length = map.getInt(position + 20);
+            if (length < TOMBSTONE || (long) position + HEADER_SIZE + Math.max(length, 0) > map.capacity())
+                break;
+            if (length == TOMBSTONE) {
+                release(index.remove(id));
+            } else {
+                if (checksum(map.slice(position + HEADER_SIZE, length)) != map.getInt(position + 24))
+                    break;
+                segment.live += length;
+                release(index.put(id, new Location(segment, position + HEADER_SIZE, length)));
+            }
+            position += HEADER_SIZE + Math.max(length, 0);
+        }
+        segment.written = position;
+    }
+
+    /**
+     * Append a record to the active segment, rolling over to a new segment when it is full. Must hold the append lock.
+     *
+     * @param id      The unique identifier of the file.
+     * @param length  The length of the payload, or {@link #TOMBSTONE}.
+     * @param payload The payload, {@code null} for a tombstone.
+     * @return The location of the payload.
+     */
+    private Location append(UUID id, int length, ByteBuffer payload) throws IOException {
+        int recordSize = HEADER_SIZE + Math.max(length, 0);
+        if (active.written + recordSize > active.map.capacity()) {
+            active.force();
+            active = createSegment(active.number + 1);
+        }
+        MappedByteBuffer map = active.map;
+        int position = active.written;
+        if (payload != null)
+            map.put(position + HEADER_SIZE, payload, payload.position(), length);
+        map.putLong(position + 4, id.getMostSignificantBits());
+        map.putLong(position + 12, id.getLeastSignificantBits());
+        map.putInt(position + 20, length);
+        map.putInt(position + 24, payload != null ? checksum(payload.duplicate()) : 0);
+        map.putInt(position, RECORD_MAGIC);
+        if (sync)
+            map.force(position, recordSize);
+        active.written = position + recordSize;
+        return new Location(active, position + HEADER_SIZE, Math.max(length, 0));
+    }
+
+    private Segment createSegment(int number) throws IOException {
+        Segment segment = Segment.open(directory.resolve("%08d%s".formatted(number, SEGMENT_SUFFIX)), number, segmentSize);
+        segments.put(number, segment);
+        return segment;
+    }
+
+    /**
+     * Account for a payload that is no longer live.
+     */
+    private static void release(Location location) {
+        if (location != null)
+            location.segment.live -= location.length;
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * The location of a payload.
+     *
+     * @param segment The segment holding it.
+     * @param offset  The offset of the payload in the segment.
+     * @param length  The length of the payload.
+     */
+    private record Location(Segment segment, int offset, int length) {
+    }
+
+    /**
+     * A memory-mapped segment file. Its counters are guarded by the append lock.
+     */
+    private static final class Segment {
+
+        private final int number;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer map;
+        private int written;
+        private long live;
+
+        private Segment(int number, Path path, FileChannel channel, MappedByteBuffer map) {
+            this.number = number;
+            this.path = path;
+            this.channel = channel;
+            this.map = map;
+        }
+
+        private static Segment open(Path path, int number, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(number, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), size)));
+        }
+
+        private double deadRatio() {
+            return written == 0 ? 0 : 1 - (double) live / written;
+        }
+
+        /**
+         * Zero whatever follows the last valid record, so that a record torn by a crash cannot be mistaken for a valid one later.
+         */
+        private void wipeTail() {
+            if (written + Integer.BYTES > map.capacity() || map.getInt(written) == 0)
+                return;
+            for (int position = written; position < map.capacity(); position++)
+                map.put(position, (byte) 0);
+            map.force();
+        }
+
+        private void force() {
+            map.force();
+        }
+
+        private void close() throws IOException {
+            map.force();
+            channel.close();
+        }
+    }
+}
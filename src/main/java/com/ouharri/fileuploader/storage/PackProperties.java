@@ -0,0 +1,33 @@
+package com.ouharri.fileuploader.storage;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings of the pack-file storage engine holding small payloads.
+ *
+ * @param enabled             Whether small payloads are stored in pack files instead of the database.
+ * @param directory           The directory holding the segment files.
+ * @param maxFileSize         The largest payload stored in pack files; larger payloads stay in the database.
+ * @param segmentSize         The size of a segment file.
+ * @param sync                Whether every append is forced to disk before it is acknowledged.
+ * @param compactionThreshold The share of dead bytes from which a sealed segment is compacted.
+ */
+@ConfigurationProperties(prefix = "app.pack")
+public record PackProperties(
+        boolean enabled,
+        String directory,
+        DataSize maxFileSize,
+        DataSize segmentSize,
+        Boolean sync,
+        Double compactionThreshold
+) {
+
+    public PackProperties {
+        directory = directory != null && !directory.isBlank() ? directory : "data/pack";
+        maxFileSize = maxFileSize != null ? maxFileSize : DataSize.ofKilobytes(64);
+        segmentSize = segmentSize != null ? segmentSize : DataSize.ofMegabytes(64);
+        sync = sync != null ? sync : Boolean.TRUE;
+        compactionThreshold = compactionThreshold != null ? compactionThreshold : 0.5;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ouharri.fileuploader.storage;
+
+import com.ouharri.fileuploader.repository.projection.FileSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+/**
+ * Low-level access to the stored payloads of files, bypassing the JPA entity.
+ * Meant for hot paths that only need to stream bytes, and for the integrity checks.
+ *
+ * @author <a href="mailto:ouharri.outman@gmail.com">ouharri</a>
+ */
+public interface PayloadStore {
+
+    /**
+     * Stream the payload of a file to a consumer.
+     *
+     * @param id       The unique identifier of the file.
+     * @param consumer The consumer receiving the metadata and the payload.
+     * @return {@code true} if the file exists, {@code false} otherwise.
+     * @throws IOException If reading the payload or consuming it fails.
+     */
+    boolean read(UUID id, PayloadConsumer consumer) throws IOException;
+
+    /**
+     * Check the payload of a file against the checksums recorded for it. A payload without recorded
+     * checksums, after a range write, gets them recorded.
+     *
+     * @param id The unique identifier of the file.
+     * @return The outcome of the check.
+     */
+    Verification verify(UUID id);
+
+    /**
+     * The outcome of a payload check.
+     *
+     * @param status The status of the payload.
+     * @param bytes  The number of bytes read.
+     */
+    record Verification(Status status, long bytes) {
+
+        /**
+         * The status of a checked payload.
+         */
+        public enum Status {
+            VERIFIED,
+            CORRUPTED,
+            RECORDED,
+            MISSING
+        }
+    }
+
+    /**
+     * A stored payload, opened lazily so that a range read only decrypts what it serves.
+     */
+    interface Payload {
+
+        /**
+         * @return The size of the plaintext.
+         */
+        long size();
+
+        /**
+         * Open a range of the payload.
+         *
+         * @param offset The offset of the range.
+         * @param length The length of the range, cut at the end of the payload.
+         * @return The stream of the range; reading an encrypted segment that fails authentication throws an {@link IOException}.
+         */
+        InputStream stream(long offset, long length);
+
+        /**
+         * @return The stream of the whole payload.
+         */
+        default InputStream stream() {
+            return stream(0, size());
+        }
+    }
+
+    /**
+     * Receives the payload read by {@link #read(UUID, PayloadConsumer)}.
+     */
+    @FunctionalInterface
+    interface PayloadConsumer {
+
+        /**
+         * Consume a payload.
+         *
+         * @param metadata The metadata of the file.
+         * @param payload  The payload, only readable during the call.
+         * @throws IOException If consuming the payload fails.
+         */
+        void accept(FileSummary metadata, Payload payload) throws IOException;
+    }
+}
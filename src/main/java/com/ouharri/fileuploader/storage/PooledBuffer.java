@@ -0,0 +1,46 @@
+package com.ouharri.fileuploader.storage;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+
+/**
+ * A direct buffer borrowed from a {@link BufferPool}, handed back to the pool when closed.
+ * The buffer must not be used once closed.
+ */
+public final class PooledBuffer implements AutoCloseable {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final BufferPool pool;
+    private final ByteBuffer buffer;
+    private final int sizeClass;
+    private final BufferPool.Lease lease;
+    private final Cleaner.Cleanable cleanable;
+
+    PooledBuffer(BufferPool pool, ByteBuffer buffer, int sizeClass, BufferPool.Lease lease) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.sizeClass = sizeClass;
+        this.lease = lease;
+        this.cleanable = lease.tracked() ? CLEANER.register(this, lease) : null;
+    }
+
+    /**
+     * @return The borrowed buffer, cleared.
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Hand the buffer back to the pool. Closing twice has no effect.
+     */
+    @Override
+    public void close() {
+        if (!lease.release())
+            return;
+        if (cleanable != null)
+            cleanable.clean();
+        pool.release(buffer, sizeClass);
+    }
+}
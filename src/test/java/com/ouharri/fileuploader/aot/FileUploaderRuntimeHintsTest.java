@@ -0,0 +1,35 @@
+package com.ouharri.fileuploader.aot;
+
+import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.entity.UnversionedTransientInterceptor;
+import com.ouharri.fileuploader.message.ResponseFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link FileUploaderRuntimeHints} class.
+ *
+ * @see FileUploaderRuntimeHints
+ */
+class FileUploaderRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    void registerHints_CoversEntitiesBuildersAndChangeLogs() throws Exception {
+        // Act
+        new FileUploaderRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        // Assert
+        assertTrue(RuntimeHintsPredicates.reflection().onConstructor(FileDB.class.getConstructor()).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onField(FileDB.class.getDeclaredField("data")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(FileDB.FileDBBuilder.class.getMethod("name", String.class)).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(ResponseFile.class.getMethod("getName")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onConstructor(UnversionedTransientInterceptor.class.getConstructor()).test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("db/db.changelog-master.yaml").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("db/changelog/18-10-changelog.yaml").test(hints));
+    }
+}
@@ -0,0 +1,95 @@
+package com.ouharri.fileuploader.backup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CatalogPackWriter}, {@link CatalogPackReader} and {@link Checkpoint} classes.
+ *
+ * @see CatalogPackWriter
+ */
+class CatalogPackTest {
+
+    @TempDir
+    Path directory;
+
+    private static CatalogRecord record(int seed) {
+        byte[] payload = new byte[100 + seed];
+        for (int i = 0; i < payload.length; i++)
+            payload[i] = (byte) (seed + i);
+        return new CatalogRecord(UUID.randomUUID(), "file-" + seed + ".txt", seed % 2 == 0 ? "text/plain" : null,
+                (long) payload.length, seed % 2 == 0 ? 3 : null, new Timestamp(1_700_000_000_000L + seed), null,
+                seed, null, null, payload);
+    }
+
+    @Test
+    void write_ReadsBackRecords() throws IOException {
+        // Arrange
+        Path file = directory.resolve("db-0000.fpk");
+        CatalogRecord first = record(1);
+        CatalogRecord second = record(2);
+
+        // Act
+        try (CatalogPackWriter writer = new CatalogPackWriter(file, 0, 1024)) {
+            writer.write(first);
+            writer.write(second);
+            writer.sync();
+        }
+
+        // Assert
+        try (CatalogPackReader reader = new CatalogPackReader(file, 0, 1024)) {
+            CatalogRecord read = reader.next();
+            assertEquals(first.id(), read.id());
+            assertEquals(first.name(), read.name());
+            assertNull(read.type());
+            assertNull(read.retainedVersions());
+            assertEquals(first.createdAt(), read.createdAt());
+            assertNull(read.updatedAt());
+            assertArrayEquals(first.payload(), read.payload());
+            assertEquals(second.type(), reader.next().type());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void write_ResumesAtCheckpointAndDropsUnsyncedRecords() throws IOException {
+        // Arrange
+        Path file = directory.resolve("db-0001.fpk");
+        Path checkpointFile = directory.resolve("db-0001.fpk.export");
+        CatalogRecord kept = record(3);
+        try (CatalogPackWriter writer = new CatalogPackWriter(file, 0, 1024)) {
+            writer.write(kept);
+            new Checkpoint(kept.id(), writer.sync(), 1, kept.payload().length, false).save(checkpointFile);
+            writer.write(record(4));
+            writer.sync();
+        }
+        CatalogRecord resumed = record(5);
+
+        // Act
+        Checkpoint checkpoint = Checkpoint.load(checkpointFile);
+        try (CatalogPackWriter writer = new CatalogPackWriter(file, checkpoint.offset(), 1024)) {
+            writer.write(resumed);
+            writer.sync();
+        }
+
+        // Assert
+        assertEquals(kept.id(), checkpoint.lastId());
+        assertEquals(1, checkpoint.records());
+        try (CatalogPackReader reader = new CatalogPackReader(file, 0, 1024)) {
+            assertEquals(kept.id(), reader.next().id());
+            assertEquals(resumed.id(), reader.next().id());
+            assertNull(reader.next());
+        }
+        try (CatalogPackReader reader = new CatalogPackReader(file, checkpoint.offset(), 1024)) {
+            assertEquals(resumed.id(), reader.next().id());
+        }
+        assertEquals(Checkpoint.START, Checkpoint.load(directory.resolve("missing.export")));
+    }
+}
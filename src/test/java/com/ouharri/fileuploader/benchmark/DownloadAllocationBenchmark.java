@@ -0,0 +1,117 @@
+package com.ouharri.fileuploader.benchmark;
+
+import com.ouharri.fileuploader.cache.NearCacheManager;
+import com.ouharri.fileuploader.crypto.EncryptionProperties;
+import com.ouharri.fileuploader.crypto.PayloadCipher;
+import com.ouharri.fileuploader.datasource.ShardProperties;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.datasource.ShardRoutingDataSource;
+import com.ouharri.fileuploader.integrity.IntegrityProperties;
+import com.ouharri.fileuploader.integrity.PayloadVerifier;
+import com.ouharri.fileuploader.partition.FileIds;
+import com.ouharri.fileuploader.storage.BufferPool;
+import com.ouharri.fileuploader.storage.BufferProperties;
+import com.ouharri.fileuploader.storage.JdbcPayloadStore;
+import com.ouharri.fileuploader.storage.PackFileStore;
+import com.ouharri.fileuploader.storage.PackProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap allocated by a download through the {@link JdbcPayloadStore}, from the database or from the
+ * local cache tier, to a discarding client. Read {@code gc.alloc.rate.norm}, the bytes allocated per download.
+ * Run it from the test classpath with {@code java -cp ... com.ouharri.fileuploader.benchmark.DownloadAllocationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownloadAllocationBenchmark {
+
+    @Param({"16384", "1048576", "8388608"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private final UUID id = FileIds.newId();
+    private SingleConnectionDataSource dataSource;
+    private BufferPool bufferPool;
+    private JdbcPayloadStore store;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DownloadAllocationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:downloads;DB_CLOSE_DELAY=-1", "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS files (
+                    id UUID PRIMARY KEY, name VARCHAR(255), type VARCHAR(255), size BIGINT, version BIGINT,
+                    created_at TIMESTAMP, updated_at TIMESTAMP, expires_at TIMESTAMP, deleted_at TIMESTAMP, storage VARCHAR(8),
+                    crc32c INT, sha256 VARCHAR(64), data_key VARBINARY(128), data VARBINARY(67108864)
+                )
+                """);
+        byte[] payload = new byte[size];
+        new Random(42).nextBytes(payload);
+        jdbcTemplate.update("DELETE FROM files");
+        jdbcTemplate.update("INSERT INTO files (id, name, type, size, version, created_at, storage, data) VALUES (?, 'blob.bin', 'application/octet-stream', ?, 0, ?, 'DB', ?)",
+                id, size, FileIds.createdAt(id), payload);
+
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(dataSource, Map.of());
+        ShardRouter shardRouter = new ShardRouter(routingDataSource, new ShardProperties(List.of(), List.of(), 16), new DataSourceTransactionManager(dataSource));
+        bufferPool = new BufferPool(new BufferProperties(
+                List.of(DataSize.ofKilobytes(64), DataSize.ofMegabytes(1), DataSize.ofMegabytes(16)), 8, DataSize.ofKilobytes(64), false
+        ));
+        NearCacheManager cacheManager = new NearCacheManager(new ConcurrentMapCacheManager(), ObservationRegistry.NOOP,
+                100, DataSize.ofMegabytes(64).toBytes(), value -> 0, Duration.ofHours(1));
+        store = new JdbcPayloadStore(new JdbcTemplate(routingDataSource), shardRouter, new PackFileStore(new PackProperties(false, null, null, null, null, null)),
+                new PayloadVerifier(new IntegrityProperties(true, false, 0, null, 0), event -> {
+                }, new SimpleMeterRegistry()),
+                new PayloadCipher(new EncryptionProperties(false, null, DataSize.ofKilobytes(64))), ObservationRegistry.NOOP,
+                cacheManager, bufferPool, DataSize.ofBytes(cached ? size : 0));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        long[] transferred = new long[1];
+        store.read(id, (metadata, payload) -> {
+            try (InputStream in = payload.stream()) {
+                transferred[0] = bufferPool.transfer(in, OutputStream.nullOutputStream());
+            }
+        });
+        return transferred[0];
+    }
+}
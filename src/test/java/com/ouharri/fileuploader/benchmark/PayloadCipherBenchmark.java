@@ -0,0 +1,94 @@
+package com.ouharri.fileuploader.benchmark;
+
+import com.ouharri.fileuploader.crypto.EncryptionProperties;
+import com.ouharri.fileuploader.crypto.PayloadCipher;
+import com.ouharri.fileuploader.integrity.PayloadChecksum;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the encryption at rest against plain payloads, on the upload and download paths.
+ * Run it from the test classpath with {@code java -cp ... com.ouharri.fileuploader.benchmark.PayloadCipherBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadCipherBenchmark {
+
+    @Param({"4096", "1048576", "16777216"})
+    private int size;
+
+    private final UUID id = UUID.randomUUID();
+    private final byte[] buffer = new byte[64 * 1024];
+    private byte[] payload;
+    private PayloadCipher plain;
+    private PayloadCipher encrypting;
+    private PayloadCipher.Sealed sealed;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PayloadCipherBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = new byte[size];
+        new Random(42).nextBytes(payload);
+        Path masterKey = Files.createTempFile("master", ".key");
+        byte[] key = new byte[32];
+        new Random(7).nextBytes(key);
+        Files.write(masterKey, key);
+        plain = new PayloadCipher(new EncryptionProperties(false, null, DataSize.ofKilobytes(64)));
+        encrypting = new PayloadCipher(new EncryptionProperties(true, masterKey.toString(), DataSize.ofKilobytes(64)));
+        sealed = encrypting.seal(id, new ByteArrayInputStream(payload), size, new PayloadChecksum(false));
+        Files.delete(masterKey);
+    }
+
+    @Benchmark
+    public PayloadCipher.Sealed sealPlain() throws IOException {
+        return plain.seal(id, new ByteArrayInputStream(payload), size, new PayloadChecksum(false));
+    }
+
+    @Benchmark
+    public PayloadCipher.Sealed sealEncrypted() throws IOException {
+        return encrypting.seal(id, new ByteArrayInputStream(payload), size, new PayloadChecksum(false));
+    }
+
+    @Benchmark
+    public void openPlain(Blackhole blackhole) throws IOException {
+        drain(plain.open(id, null, ByteBuffer.wrap(payload), size, 0, size), blackhole);
+    }
+
+    @Benchmark
+    public void openEncrypted(Blackhole blackhole) throws IOException {
+        drain(encrypting.open(id, sealed.dataKey(), ByteBuffer.wrap(sealed.data()), size, 0, size), blackhole);
+    }
+
+    @Benchmark
+    public void openEncryptedRange(Blackhole blackhole) throws IOException {
+        drain(encrypting.open(id, sealed.dataKey(), ByteBuffer.wrap(sealed.data()), size, size / 2, 4096), blackhole);
+    }
+
+    private void drain(InputStream in, Blackhole blackhole) throws IOException {
+        try (in) {
+            for (int read; (read = in.read(buffer)) != -1; )
+                blackhole.consume(read);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.ouharri.fileuploader.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time from launching the application to it answering its first request, with the plain jar,
+ * with the AOT-processed context, and with the AOT-processed context and the AppCDS archive the {@code Dockerfile} builds.
+ * It launches {@code target/fileUploader-0.0.1-SNAPSHOT.jar}, packaged with {@code mvn -Paot package}, against the
+ * database and Redis of {@code compose.yaml}; other settings can be given in the {@code startup.args} system property.
+ * Run it from the test classpath with {@code java -cp ... com.ouharri.fileuploader.benchmark.StartupBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final String MAIN_CLASS = "com.ouharri.fileuploader.FileUploader";
+
+    @Param({"jar", "aot", "cds"})
+    private String mode;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    private Path directory;
+    private List<String> command;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StartupBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        Path jar = Path.of(System.getProperty("startup.jar", "target/fileUploader-0.0.1-SNAPSHOT.jar")).toAbsolutePath();
+        directory = Files.createTempDirectory("startup");
+        command = new ArrayList<>(List.of(java));
+        switch (mode) {
+            case "jar" -> command.addAll(List.of("-jar", jar.toString()));
+            case "aot" -> command.addAll(List.of("-Dspring.aot.enabled=true", "-jar", jar.toString()));
+            default -> {
+                // The layout of the Dockerfile: the classes are archived while the context refreshes once
+                run(Path.of(System.getProperty("java.home"), "bin", "jar").toString(), "xf", jar.toString());
+                run(Path.of(System.getProperty("java.home"), "bin", "jar").toString(), "cf", "application.jar", "-C", "BOOT-INF/classes", ".");
+                String classPath;
+                try (Stream<String> lines = Files.lines(directory.resolve("BOOT-INF/classpath.idx"))) {
+                    classPath = Stream.concat(Stream.of("application.jar"), lines.map(line -> line.substring(3, line.length() - 1)))
+                            .collect(Collectors.joining(":"));
+                }
+                run(java, "-XX:ArchiveClassesAtExit=app.jsa", "-Dspring.aot.enabled=true", "-Dspring.context.exit=onRefresh",
+                        "-Dspring.profiles.active=cds", "-cp", classPath, MAIN_CLASS);
+                command.addAll(List.of("-XX:SharedArchiveFile=app.jsa", "-Dspring.aot.enabled=true", "-cp", classPath, MAIN_CLASS));
+            }
+        }
+        String args = System.getProperty("startup.args", "");
+        if (!args.isBlank())
+            command.addAll(1, Arrays.asList(args.trim().split("\\s+")));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted((a, b) -> b.compareTo(a)).toList())
+                Files.delete(path);
+        }
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> launch = new ArrayList<>(command);
+        launch.add(1, "-Dserver.port=" + port);
+        Process process = new ProcessBuilder(launch).directory(directory.toFile())
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health")).build();
+        try {
+            while (true) {
+                if (!process.isAlive())
+                    throw new IllegalStateException("The application exited with " + process.exitValue() + " before answering");
+                try {
+                    return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (ConnectException e) {
+                    Thread.sleep(10);
+                }
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private void run(String... command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).directory(directory.toFile())
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        if (process.waitFor() != 0)
+            throw new IllegalStateException(command[0] + " exited with " + process.exitValue());
+    }
+}
@@ -0,0 +1,90 @@
+package com.ouharri.fileuploader.bulkhead;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Bulkhead} class.
+ *
+ * @see Bulkhead
+ */
+class BulkheadTest {
+
+    @Test
+    void tryAcquire_RejectsBeyondQueue() throws InterruptedException {
+        // Arrange
+        Bulkhead bulkhead = new Bulkhead(1, 0, Duration.ofSeconds(1));
+
+        // Act
+        boolean first = bulkhead.tryAcquire();
+        boolean second = bulkhead.tryAcquire();
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(1, bulkhead.active());
+        assertEquals(1, bulkhead.rejected());
+    }
+
+    @Test
+    void tryAcquire_QueuedCallIsAdmittedOnRelease() throws Exception {
+        // Arrange
+        Bulkhead bulkhead = new Bulkhead(1, 1, Duration.ofSeconds(5));
+        assertTrue(bulkhead.tryAcquire());
+
+        // Act
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return bulkhead.tryAcquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (bulkhead.queued() == 0)
+            Thread.onSpinWait();
+        boolean overflow = bulkhead.tryAcquire();
+        bulkhead.release();
+
+        // Assert
+        assertFalse(overflow);
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.queued());
+    }
+
+    @Test
+    void tryAcquire_TimesOutWhenNoPermitIsReleased() throws InterruptedException {
+        // Arrange
+        Bulkhead bulkhead = new Bulkhead(1, 1, Duration.ofMillis(50));
+        assertTrue(bulkhead.tryAcquire());
+
+        // Act
+        boolean admitted = bulkhead.tryAcquire();
+
+        // Assert
+        assertFalse(admitted);
+        assertEquals(1, bulkhead.rejected());
+    }
+
+    @Test
+    void trafficClass_PayloadWritesAreIngest() {
+        // Arrange
+        MockHttpServletRequest upload = new MockHttpServletRequest("POST", "/upload");
+        upload.setContentType("multipart/form-data; boundary=x");
+        MockHttpServletRequest patch = new MockHttpServletRequest("PATCH", "/files/1");
+        patch.setContentType("application/octet-stream");
+        MockHttpServletRequest retention = new MockHttpServletRequest("PUT", "/files/1/versions/retention");
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/files/1");
+
+        // Act & Assert
+        assertEquals(TrafficClass.INGEST, TrafficClass.of(upload));
+        assertEquals(TrafficClass.INGEST, TrafficClass.of(patch));
+        assertEquals(TrafficClass.INTERACTIVE, TrafficClass.of(retention));
+        assertEquals(TrafficClass.INTERACTIVE, TrafficClass.of(read));
+    }
+}
@@ -0,0 +1,120 @@
+package com.ouharri.fileuploader.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link NearCache} class.
+ *
+ * @see NearCache
+ */
+class NearCacheTest {
+
+    private final ConcurrentMapCache remote = new ConcurrentMapCache("file");
+
+    @Test
+    void get_ServesLocalTierUntilEvictedLocally() {
+        // Arrange
+        NearCache cache = new NearCache(remote, 10, 30_000, Clock.systemUTC());
+        cache.put("a", "v1");
+        remote.put("a", "v2"); // changed by another node
+
+        // Act and Assert
+        assertEquals("v1", cache.get("a", String.class));
+        cache.evictLocal("a");
+        assertEquals("v2", cache.get("a", String.class));
+    }
+
+    @Test
+    void get_ExpiresLocalEntries() {
+        // Arrange
+        Instant now = Instant.parse("2026-10-18T10:00:00Z");
+        MutableClock clock = new MutableClock(now);
+        NearCache cache = new NearCache(remote, 10, 30_000, clock);
+        cache.put("a", "v1");
+        remote.put("a", "v2");
+
+        // Act
+        clock.instant = now.plus(Duration.ofMinutes(1));
+
+        // Assert
+        assertEquals("v2", cache.get("a", String.class));
+    }
+
+    @Test
+    void put_BoundsLocalTier() {
+        // Arrange
+        NearCache cache = new NearCache(remote, 2, 30_000, Clock.systemUTC());
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        remote.put("a", "changed");
+
+        // Act and Assert
+        assertEquals("changed", cache.get("a", String.class));
+        assertEquals("3", cache.get("c", String.class));
+    }
+
+    @Test
+    void put_BoundsLocalTierByWeight() {
+        // Arrange
+        NearCache cache = new NearCache(remote, 10, 8, value -> ((String) value).length(), 30_000, Clock.systemUTC());
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.put("c", "cccc");
+        cache.put("big", "0123456789");
+        remote.put("a", "changed");
+        remote.put("c", "changed");
+        remote.put("big", "changed");
+
+        // Act and Assert
+        assertEquals("cccc", cache.get("c", String.class));
+        assertEquals("changed", cache.get("a", String.class));
+        assertEquals("changed", cache.get("big", String.class));
+    }
+
+    @Test
+    void evict_RemovesBothTiers() {
+        // Arrange
+        NearCache cache = new NearCache(remote, 10, 30_000, Clock.systemUTC());
+        cache.put("a", "v1");
+
+        // Act
+        cache.evict("a");
+
+        // Assert
+        assertNull(cache.get("a"));
+        assertNull(remote.get("a"));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
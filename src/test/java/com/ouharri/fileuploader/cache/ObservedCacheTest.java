@@ -0,0 +1,84 @@
+package com.ouharri.fileuploader.cache;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ObservedCache} class, exporting its spans to memory.
+ *
+ * @see ObservedCache
+ */
+class ObservedCacheTest {
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private final ObservedCache cache = new ObservedCache(new ConcurrentMapCache("file"), observationRegistry);
+
+    ObservedCacheTest() {
+        OtelTracer tracer = new OtelTracer(tracerProvider.get("test"), new OtelCurrentTraceContext(), event -> {
+        });
+        observationRegistry.observationConfig().observationHandler(new DefaultTracingObservationHandler(tracer));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void get_ExportsSpanTaggedWithHit() {
+        // Arrange
+        cache.put("a", "v1");
+
+        // Act
+        cache.get("a", String.class);
+        cache.get("b", String.class);
+
+        // Assert
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        assertEquals(List.of("cache.put", "cache.get", "cache.get"), spans.stream().map(SpanData::getName).toList());
+        assertEquals("file", spans.get(1).getAttributes().get(AttributeKey.stringKey("cache.name")));
+        assertEquals("true", spans.get(1).getAttributes().get(AttributeKey.stringKey("cache.hit")));
+        assertEquals("false", spans.get(2).getAttributes().get(AttributeKey.stringKey("cache.hit")));
+    }
+
+    @Test
+    void get_SpanIsChildOfCurrentObservation() {
+        // Arrange
+        Observation parent = Observation.start("file.storage", observationRegistry);
+
+        // Act
+        try (Observation.Scope ignored = parent.openScope()) {
+            cache.get("a");
+        } finally {
+            parent.stop();
+        }
+
+        // Assert
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        assertEquals(2, spans.size());
+        SpanData lookup = spans.get(0);
+        SpanData storage = spans.get(1);
+        assertEquals("cache.get", lookup.getName());
+        assertEquals(storage.getTraceId(), lookup.getTraceId());
+        assertEquals(storage.getSpanId(), lookup.getParentSpanId());
+    }
+}
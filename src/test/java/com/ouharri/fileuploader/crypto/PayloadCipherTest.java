@@ -0,0 +1,119 @@
+package com.ouharri.fileuploader.crypto;
+
+import com.ouharri.fileuploader.integrity.PayloadChecksum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PayloadCipher} and {@link SegmentedGcm} classes.
+ *
+ * @see PayloadCipher
+ */
+class PayloadCipherTest {
+
+    @TempDir
+    Path directory;
+
+    private PayloadCipher cipher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path masterKey = directory.resolve("master.key");
+        Files.writeString(masterKey, Base64.getEncoder().encodeToString(payload(32, 3)));
+        cipher = new PayloadCipher(new EncryptionProperties(true, masterKey.toString(), DataSize.ofBytes(100)));
+    }
+
+    private static byte[] payload(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+            data[i] = (byte) (seed + i);
+        return data;
+    }
+
+    @Test
+    void seal_EncryptsAndOpensRanges() throws IOException {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        byte[] data = payload(1050, 1);
+        PayloadChecksum checksum = new PayloadChecksum(false);
+
+        // Act
+        PayloadCipher.Sealed sealed = cipher.seal(id, new ByteArrayInputStream(data), data.length, checksum);
+
+        // Assert
+        assertNotNull(sealed.dataKey());
+        assertEquals(8 + 1050 + 11 * 16, sealed.data().length);
+        assertEquals(PayloadChecksum.of(ByteBuffer.wrap(data), false).crc32c(), checksum.crc32c());
+        assertArrayEquals(data, cipher.openAll(id, sealed.dataKey(), sealed.data(), data.length));
+        try (InputStream range = cipher.open(id, sealed.dataKey(), ByteBuffer.wrap(sealed.data()), data.length, 195, 320)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 195, 515), range.readAllBytes());
+        }
+    }
+
+    @Test
+    void open_TamperedSegmentFailsAuthentication() throws IOException {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        byte[] data = payload(300, 2);
+        PayloadCipher.Sealed sealed = cipher.seal(id, new ByteArrayInputStream(data), data.length, new PayloadChecksum(false));
+        sealed.data()[8 + 116 + 10] ^= 1;
+
+        // Act and Assert
+        try (InputStream untouched = cipher.open(id, sealed.dataKey(), ByteBuffer.wrap(sealed.data()), data.length, 0, 100)) {
+            assertArrayEquals(Arrays.copyOf(data, 100), untouched.readAllBytes());
+        }
+        assertThrows(IOException.class, () -> cipher.openAll(id, sealed.dataKey(), sealed.data(), data.length));
+    }
+
+    @Test
+    void open_KeyOfAnotherFileIsRejected() throws IOException {
+        // Arrange
+        byte[] data = payload(10, 4);
+        PayloadCipher.Sealed sealed = cipher.seal(UUID.randomUUID(), new ByteArrayInputStream(data), data.length, new PayloadChecksum(false));
+
+        // Act and Assert
+        assertThrows(IllegalStateException.class, () -> cipher.openAll(UUID.randomUUID(), sealed.dataKey(), sealed.data(), data.length));
+    }
+
+    @Test
+    void chunkKey_SealsChunksAndHidesTheirContent() throws IOException {
+        // Arrange
+        byte[] chunk = payload(200, 5);
+        PayloadCipher.ChunkKey plain = cipher.chunkKey(UUID.randomUUID(), null);
+        PayloadCipher.ChunkKey first = chunkKeyOfNewFile();
+        PayloadCipher.ChunkKey second = chunkKeyOfNewFile();
+        String hash = first.hash(chunk, 0, chunk.length);
+
+        // Act
+        byte[] sealed = first.seal(hash, chunk);
+
+        // Assert
+        assertNotEquals(plain.hash(chunk, 0, chunk.length), hash);
+        assertNotEquals(second.hash(chunk, 0, chunk.length), hash);
+        assertEquals(hash, first.hash(chunk, 0, chunk.length));
+        assertFalse(Arrays.equals(chunk, Arrays.copyOfRange(sealed, 12, 12 + chunk.length)));
+        assertArrayEquals(chunk, first.open(hash, sealed));
+        assertThrows(IOException.class, () -> second.open(hash, sealed));
+        assertThrows(IOException.class, () -> first.open(plain.hash(chunk, 0, chunk.length), sealed));
+    }
+
+    private PayloadCipher.ChunkKey chunkKeyOfNewFile() throws IOException {
+        UUID id = UUID.randomUUID();
+        PayloadCipher.Sealed sealed = cipher.seal(id, new ByteArrayInputStream(new byte[0]), 0, new PayloadChecksum(false));
+        return cipher.chunkKey(id, sealed.dataKey());
+    }
+}
@@ -0,0 +1,63 @@
+package com.ouharri.fileuploader.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ConsistentHashRing} class.
+ *
+ * @see ConsistentHashRing
+ */
+class ConsistentHashRingTest {
+
+    private static final List<UUID> KEYS = IntStream.range(0, 20_000)
+            .mapToObj(i -> UUID.nameUUIDFromBytes(("file-" + i).getBytes()))
+            .toList();
+
+    @Test
+    void nodeFor_SpreadsKeysEvenly() {
+        // Arrange
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("home", "s1", "s2", "s3"), 128);
+
+        // Act
+        Map<String, Integer> counts = new HashMap<>();
+        KEYS.forEach(key -> counts.merge(ring.nodeFor(key), 1, Integer::sum));
+
+        // Assert
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(Math.abs(count - 5_000) < 1_000, "Unbalanced ring: " + counts));
+    }
+
+    @Test
+    void nodeFor_AddingNodeOnlyMovesKeysToIt() {
+        // Arrange
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(List.of("home", "s1", "s2"), 128);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(List.of("home", "s1", "s2", "s3"), 128);
+
+        // Act
+        long moved = KEYS.stream()
+                .filter(key -> !before.nodeFor(key).equals(after.nodeFor(key)))
+                .peek(key -> assertEquals("s3", after.nodeFor(key)))
+                .count();
+
+        // Assert
+        assertTrue(moved > KEYS.size() / 6 && moved < KEYS.size() / 3, "Moved " + moved + " keys");
+    }
+
+    @Test
+    void nodeFor_IsDeterministic() {
+        // Arrange
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("home", "s1"), 16);
+        ConsistentHashRing<String> sameRing = new ConsistentHashRing<>(List.of("s1", "home"), 16);
+
+        // Act & Assert
+        KEYS.subList(0, 1_000).forEach(key -> assertEquals(ring.nodeFor(key), sameRing.nodeFor(key)));
+    }
+}
@@ -0,0 +1,163 @@
+package com.ouharri.fileuploader.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the {@link ReplicaRoutingDataSource} class, against two in-memory databases standing in for
+ * the primary and a read replica.
+ *
+ * @see ReplicaRoutingDataSource
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final DataSource PRIMARY = h2("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1");
+    private static final DataSource REPLICA = h2("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1");
+    private static final DataSource UNREACHABLE = h2("jdbc:h2:mem:unreachable;IFEXISTS=TRUE");
+
+    @BeforeAll
+    static void createDatabases() {
+        for (Map.Entry<String, DataSource> database : Map.of("primary", PRIMARY, "replica", REPLICA).entrySet()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(database.getValue());
+            jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(16))");
+            jdbcTemplate.update("INSERT INTO node VALUES (?)", database.getKey());
+        }
+    }
+
+    @AfterEach
+    void clearContext() {
+        RoutingContext.clear();
+    }
+
+    @Test
+    void readOnlyTransaction_RoutesToReplica() {
+        // Arrange
+        Routing routing = new Routing(Map.of("replica", REPLICA));
+
+        // Act
+        String node = routing.inTransaction(true);
+
+        // Assert
+        assertEquals("replica", node);
+    }
+
+    @Test
+    void writeTransaction_RoutesToPrimary() {
+        // Arrange
+        Routing routing = new Routing(Map.of("replica", REPLICA));
+
+        // Act
+        String node = routing.inTransaction(false);
+
+        // Assert
+        assertEquals("primary", node);
+    }
+
+    @Test
+    void pinnedToPrimary_ReadsFromPrimary() {
+        // Arrange
+        Routing routing = new Routing(Map.of("replica", REPLICA));
+        RoutingContext.pinToPrimary();
+
+        // Act
+        String node = routing.inTransaction(true);
+
+        // Assert
+        assertEquals("primary", node);
+    }
+
+    @Test
+    void primaryBlock_ReadsFromPrimaryThenReleasesPin() {
+        // Arrange
+        Routing routing = new Routing(Map.of("replica", REPLICA));
+
+        // Act
+        String node = RoutingContext.onPrimary(() -> routing.inTransaction(true));
+
+        // Assert
+        assertEquals("primary", node);
+        assertEquals("replica", routing.inTransaction(true));
+    }
+
+    @Test
+    void readOnlyBlock_RoutesToReplicaWithoutTransaction() {
+        // Arrange
+        Routing routing = new Routing(Map.of("replica", REPLICA));
+
+        // Act
+        String node = RoutingContext.readOnly(routing::query);
+
+        // Assert
+        assertEquals("replica", node);
+        assertEquals("primary", routing.query());
+    }
+
+    @Test
+    void unreachableReplica_FailsOverToPrimaryAndIsMarkedDown() {
+        // Arrange
+        Routing routing = new Routing(Map.of("down", UNREACHABLE));
+
+        // Act
+        String node = routing.inTransaction(true);
+
+        // Assert
+        assertEquals("primary", node);
+        assertTrue(routing.dataSource.healthyReplicas().isEmpty());
+    }
+
+    @Test
+    void checkReplicas_MarksUnreachableReplicaDownAndKeepsHealthyOne() {
+        // Arrange
+        Routing routing = new Routing(new LinkedHashMap<>(Map.of("down", UNREACHABLE, "replica", REPLICA)));
+
+        // Act
+        routing.dataSource.checkReplicas(1);
+
+        // Assert
+        assertEquals(List.of("replica"), routing.dataSource.healthyReplicas());
+        for (int i = 0; i < 4; i++)
+            assertEquals("replica", routing.inTransaction(true));
+    }
+
+    private static DataSource h2(String url) {
+        return new SimpleDriverDataSource(new org.h2.Driver(), url, "sa", "");
+    }
+
+    private static final class Routing {
+
+        private final ReplicaRoutingDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final DataSourceTransactionManager transactionManager;
+
+        private Routing(Map<String, DataSource> replicas) {
+            this.dataSource = new ReplicaRoutingDataSource(PRIMARY, replicas);
+            DataSource lazy = new LazyConnectionDataSourceProxy(dataSource);
+            this.jdbcTemplate = new JdbcTemplate(lazy);
+            this.transactionManager = new DataSourceTransactionManager(lazy);
+        }
+
+        private String query() {
+            return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+        }
+
+        private String inTransaction(boolean readOnly) {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(readOnly);
+            return transactionTemplate.execute(status -> query());
+        }
+    }
+}
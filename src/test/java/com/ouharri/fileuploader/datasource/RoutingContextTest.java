@@ -0,0 +1,52 @@
+package com.ouharri.fileuploader.datasource;
+
+import com.ouharri.fileuploader.bulkhead.TrafficClass;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for the {@link RoutingContext} class.
+ *
+ * @see RoutingContext
+ */
+class RoutingContextTest {
+
+    @AfterEach
+    void clearContext() {
+        RoutingContext.clear();
+        RoutingContext.useTrafficClass(null);
+    }
+
+    @Test
+    void onShard_RestoresShardAndKeepsTrafficClass() {
+        // Arrange
+        RoutingContext.useTrafficClass(TrafficClass.INGEST);
+
+        // Act
+        String shard = RoutingContext.onShard("shard-1", RoutingContext::currentShard);
+
+        // Assert
+        assertEquals("shard-1", shard);
+        assertNull(RoutingContext.currentShard());
+        assertEquals(TrafficClass.INGEST, RoutingContext.trafficClass());
+    }
+
+    @Test
+    void onShard_NestedBlockRestoresOuterShard() {
+        // Arrange
+        RoutingContext.useTrafficClass(TrafficClass.INGEST);
+
+        // Act
+        String shard = RoutingContext.onShard("shard-1", () -> {
+            RoutingContext.onShard("shard-2", RoutingContext::currentShard);
+            return RoutingContext.currentShard();
+        });
+
+        // Assert
+        assertEquals("shard-1", shard);
+        assertEquals(TrafficClass.INGEST, RoutingContext.trafficClass());
+    }
+}
@@ -0,0 +1,74 @@
+package com.ouharri.fileuploader.expiry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link HierarchicalTimingWheel} class.
+ *
+ * @see HierarchicalTimingWheel
+ */
+class HierarchicalTimingWheelTest {
+
+    private final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1000, 10, 0);
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void advance_ExpiresKeysWithinTickOfDeadline() {
+        // Arrange
+        wheel.schedule("a", 2500);
+        wheel.schedule("b", 4000);
+
+        // Act
+        wheel.advance(2999, expired::add);
+        List<String> beforeDeadline = List.copyOf(expired);
+        wheel.advance(3000, expired::add);
+
+        // Assert
+        assertEquals(List.of(), beforeDeadline);
+        assertEquals(List.of("a"), expired);
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void advance_CascadesFarDeadlinesThroughUpperWheels() {
+        // Arrange
+        wheel.schedule("minutes", 250_000);
+        wheel.schedule("hours", 3_700_000);
+
+        // Act
+        wheel.advance(249_999, expired::add);
+        List<String> beforeDeadline = List.copyOf(expired);
+        wheel.advance(251_000, expired::add);
+        List<String> afterFirst = List.copyOf(expired);
+        wheel.advance(3_701_000, expired::add);
+
+        // Assert
+        assertEquals(List.of(), beforeDeadline);
+        assertEquals(List.of("minutes"), afterFirst);
+        assertEquals(List.of("minutes", "hours"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_RejectsKeyPastDeadline() {
+        // Arrange
+        wheel.advance(5400, expired::add);
+
+        // Act
+        boolean past = wheel.schedule("past", 1000);
+        boolean atClock = wheel.schedule("atClock", 5000);
+        boolean withinTick = wheel.schedule("withinTick", 5900);
+
+        // Assert
+        assertFalse(past);
+        assertFalse(atClock);
+        assertTrue(withinTick);
+        assertEquals(5000, wheel.currentTime());
+        assertEquals(1, wheel.size());
+    }
+}
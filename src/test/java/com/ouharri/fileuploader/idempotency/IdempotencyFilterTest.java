@@ -0,0 +1,123 @@
+package com.ouharri.fileuploader.idempotency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link IdempotencyFilter} class, over the {@link LocalIdempotencyStore}.
+ *
+ * @see IdempotencyFilter
+ */
+class IdempotencyFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdempotencyFilter filter = new IdempotencyFilter(
+            new LocalIdempotencyStore(Clock.systemUTC()),
+            new IdempotencyProperties("local", Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(5), 64),
+            meterRegistry
+    );
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private static MockHttpServletRequest upload(String key) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/upload");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        return request;
+    }
+
+    private FilterChain storing(int status) {
+        return (request, response) -> {
+            int run = runs.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(status);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"run\":" + run + "}");
+        };
+    }
+
+    @Test
+    void doFilter_RetryReplaysFirstResponse() throws Exception {
+        // Arrange
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(upload("key-1"), first, storing(200));
+        filter.doFilter(upload("key-1"), retry, storing(200));
+
+        // Assert
+        assertEquals(1, runs.get());
+        assertEquals(200, retry.getStatus());
+        assertEquals("{\"run\":1}", retry.getContentAsString());
+        assertEquals("application/json", retry.getContentType());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, meterRegistry.get("idempotency.requests").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    void doFilter_ConcurrentDuplicateWaitsForFirstAttempt() throws Exception {
+        // Arrange
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            storing(200).doFilter(request, response);
+        };
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        MockHttpServletResponse duplicate = new MockHttpServletResponse();
+
+        // Act
+        CompletableFuture<Void> firstAttempt = CompletableFuture.runAsync(() -> doFilter(upload("key-2"), first, slow));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> duplicateAttempt = CompletableFuture.runAsync(() -> doFilter(upload("key-2"), duplicate, storing(200)));
+        Thread.sleep(100);
+        release.countDown();
+        CompletableFuture.allOf(firstAttempt, duplicateAttempt).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(1, runs.get());
+        assertEquals(first.getContentAsString(StandardCharsets.UTF_8), duplicate.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals("true", duplicate.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void doFilter_FailedAttemptFreesKey() throws Exception {
+        // Arrange
+        MockHttpServletResponse failed = new MockHttpServletResponse();
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(upload("key-3"), failed, storing(500));
+        filter.doFilter(upload("key-3"), retry, storing(200));
+
+        // Assert
+        assertEquals(2, runs.get());
+        assertEquals("{\"run\":2}", retry.getContentAsString());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    private void doFilter(MockHttpServletRequest request, MockHttpServletResponse response, FilterChain chain) {
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ouharri.fileuploader.integrity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PayloadVerifier} and {@link PayloadChecksum} classes.
+ *
+ * @see PayloadVerifier
+ */
+class PayloadVerifierTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Object> events = new ArrayList<>();
+    private final PayloadVerifier verifier = new PayloadVerifier(
+            new IntegrityProperties(true, true, 1, DataSize.ofMegabytes(1), 10), events::add, meterRegistry
+    );
+
+    @Test
+    void checksum_ComputesCrc32cAndSha256() {
+        // Arrange
+        ByteBuffer payload = ByteBuffer.wrap("123456789".getBytes(StandardCharsets.US_ASCII));
+
+        // Act
+        PayloadChecksum checksum = verifier.checksum(payload);
+
+        // Assert
+        assertEquals(0xE3069283, checksum.crc32c());
+        assertEquals("15e2b0d3c33891ebb0f1ef609ec419420c20e320ce94c65fbc8c3312448eb225", checksum.sha256());
+        assertEquals(9, payload.remaining());
+    }
+
+    @Test
+    void verify_MatchingPayloadIsNotReported() {
+        // Arrange
+        byte[] data = "payload".getBytes(StandardCharsets.UTF_8);
+        PayloadChecksum recorded = PayloadChecksum.of(ByteBuffer.wrap(data), true);
+
+        // Act
+        boolean verified = verifier.verify(UUID.randomUUID(), verifier.checksum(ByteBuffer.wrap(data)),
+                recorded.crc32c(), recorded.sha256(), PayloadCorruptedEvent.Source.DOWNLOAD);
+
+        // Assert
+        assertTrue(verified);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void verify_CorruptedPayloadIsCountedAndPublished() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        PayloadChecksum recorded = PayloadChecksum.of(ByteBuffer.wrap("payload".getBytes(StandardCharsets.UTF_8)), true);
+
+        // Act
+        boolean verified = verifier.verify(id, verifier.checksum(ByteBuffer.wrap("paYload".getBytes(StandardCharsets.UTF_8))),
+                recorded.crc32c(), recorded.sha256(), PayloadCorruptedEvent.Source.SCRUB);
+
+        // Assert
+        assertFalse(verified);
+        assertEquals(1, meterRegistry.get("integrity.corruptions").tag("source", "scrub").counter().count());
+        PayloadCorruptedEvent event = assertInstanceOf(PayloadCorruptedEvent.class, events.get(0));
+        assertEquals(id, event.fileId());
+        assertEquals(recorded.crc32c(), event.expectedCrc32c());
+    }
+}
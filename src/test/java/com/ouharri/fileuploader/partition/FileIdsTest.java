@@ -0,0 +1,67 @@
+package com.ouharri.fileuploader.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link FileIds} class.
+ *
+ * @see FileIds
+ */
+class FileIdsTest {
+
+    @Test
+    void newId_TellsTimeOfCreation() {
+        // Arrange
+        long before = System.currentTimeMillis();
+
+        // Act
+        UUID id = FileIds.newId();
+
+        // Assert
+        long after = System.currentTimeMillis();
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        Timestamp createdAt = FileIds.createdAt(id);
+        assertTrue(createdAt.getTime() >= before && createdAt.getTime() <= after);
+        assertEquals(new FileIds.CreationRange(createdAt, createdAt), FileIds.creationRange(id));
+    }
+
+    @Test
+    void creationRange_CoversAllFilesOfRandomIds() {
+        // Arrange
+        UUID legacy = UUID.randomUUID();
+        UUID created = FileIds.newId();
+
+        // Act
+        FileIds.CreationRange single = FileIds.creationRange(legacy);
+        FileIds.CreationRange mixed = FileIds.creationRange(List.of(created, legacy));
+        FileIds.CreationRange empty = FileIds.creationRange(List.of());
+
+        // Assert
+        assertNull(FileIds.createdAt(legacy));
+        assertEquals(FileIds.UNBOUNDED, single);
+        assertEquals(FileIds.UNBOUNDED, mixed);
+        assertEquals(FileIds.UNBOUNDED, empty);
+    }
+
+    @Test
+    void creationRange_SpansEarliestToLatestId() {
+        // Arrange
+        UUID earliest = new UUID(1_700_000_000_000L << 16 | 0x7000L, 0x8000000000000000L);
+        UUID latest = new UUID(1_800_000_000_000L << 16 | 0x7000L, 0x8000000000000000L);
+        UUID middle = new UUID(1_750_000_000_000L << 16 | 0x7000L, 0x8000000000000000L);
+
+        // Act
+        FileIds.CreationRange range = FileIds.creationRange(List.of(middle, latest, earliest));
+
+        // Assert
+        assertEquals(new Timestamp(1_700_000_000_000L), range.from());
+        assertEquals(new Timestamp(1_800_000_000_000L), range.to());
+    }
+}
@@ -0,0 +1,62 @@
+package com.ouharri.fileuploader.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link FilePartition} class.
+ *
+ * @see FilePartition
+ */
+class FilePartitionTest {
+
+    @Test
+    void parse_ReadsRangeAndDefaultBounds() {
+        // Act
+        FilePartition legacy = FilePartition.parse("files_legacy", "FOR VALUES FROM (MINVALUE) TO ('2026-11-01 00:00:00')");
+        FilePartition month = FilePartition.parse("files_p202611", "FOR VALUES FROM ('2026-11-01 00:00:00') TO ('2026-12-01 00:00:00')");
+        FilePartition fallback = FilePartition.parse("files_default", "DEFAULT");
+
+        // Assert
+        assertNull(legacy.from());
+        assertEquals(LocalDateTime.of(2026, 11, 1, 0, 0), legacy.to());
+        assertFalse(legacy.isDefault());
+        assertEquals(FilePartition.of(YearMonth.of(2026, 11)), month);
+        assertTrue(fallback.isDefault());
+        assertThrows(IllegalArgumentException.class, () -> FilePartition.parse("files_list", "FOR VALUES IN ('a')"));
+    }
+
+    @Test
+    void missing_FollowsLatestBoundThroughLastMonth() {
+        // Arrange
+        List<FilePartition> existing = List.of(
+                FilePartition.parse("files_legacy", "FOR VALUES FROM (MINVALUE) TO ('2026-11-01 00:00:00')"),
+                FilePartition.of(YearMonth.of(2026, 11)),
+                FilePartition.parse("files_default", "DEFAULT")
+        );
+
+        // Act
+        List<FilePartition> missing = FilePartition.missing(existing, YearMonth.of(2027, 1));
+        List<FilePartition> upToDate = FilePartition.missing(existing, YearMonth.of(2026, 11));
+
+        // Assert
+        assertEquals(List.of(FilePartition.of(YearMonth.of(2026, 12)), FilePartition.of(YearMonth.of(2027, 1))), missing);
+        assertEquals(List.of(), upToDate);
+    }
+
+    @Test
+    void endsBy_OnlyWhenWholeRangeIsBefore() {
+        // Arrange
+        FilePartition october = FilePartition.of(YearMonth.of(2026, 10));
+
+        // Act & Assert
+        assertTrue(october.endsBy(LocalDateTime.of(2026, 11, 1, 0, 0)));
+        assertFalse(october.endsBy(LocalDateTime.of(2026, 10, 31, 23, 59)));
+        assertFalse(FilePartition.parse("files_default", "DEFAULT").endsBy(LocalDateTime.MAX));
+    }
+}
@@ -0,0 +1,80 @@
+package com.ouharri.fileuploader.query;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link QueryAccountingDataSource} and {@link QueryAccount} classes.
+ *
+ * @see QueryAccountingDataSource
+ */
+class QueryAccountingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JdbcTemplate jdbcTemplate(Duration slowThreshold) {
+        SimpleDriverDataSource database = new SimpleDriverDataSource(
+                new org.h2.Driver(), "jdbc:h2:mem:queries-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""
+        );
+        return new JdbcTemplate(new QueryAccountingDataSource(
+                database, new QueryProperties(slowThreshold, 20, DataSize.ofMegabytes(1)), meterRegistry
+        ));
+    }
+
+    @AfterEach
+    void tearDown() {
+        QueryAccount.close();
+    }
+
+    @Test
+    void statements_AreChargedToTheCurrentAccount() {
+        // Arrange
+        JdbcTemplate jdbcTemplate = jdbcTemplate(Duration.ofMinutes(1));
+        jdbcTemplate.execute("CREATE TABLE files (id INT PRIMARY KEY, data VARBINARY(1000))");
+        QueryAccount account = QueryAccount.open();
+
+        // Act
+        jdbcTemplate.update("INSERT INTO files VALUES (?, ?)", 1, new byte[300]);
+        jdbcTemplate.update("INSERT INTO files VALUES (?, ?)", 2, new byte[200]);
+        jdbcTemplate.queryForList("SELECT data FROM files ORDER BY id", byte[].class);
+
+        // Assert
+        assertEquals(3, account.queries());
+        assertEquals(2, account.rows());
+        assertEquals(500, account.fetchedBytes());
+        assertEquals(0, account.slowQueries());
+        assertEquals(0, meterRegistry.get("queries.slow").counter().count());
+    }
+
+    @Test
+    void statements_OverTheThresholdAreCountedAsSlow() {
+        // Arrange
+        JdbcTemplate jdbcTemplate = jdbcTemplate(Duration.ZERO);
+        jdbcTemplate.execute("CREATE TABLE files (id INT PRIMARY KEY, name VARCHAR(100))");
+
+        // Act
+        jdbcTemplate.update("INSERT INTO files VALUES (?, ?)", 1, "report.pdf");
+
+        // Assert
+        assertEquals(2, meterRegistry.get("queries.slow").counter().count());
+        assertNull(QueryAccount.current());
+    }
+
+    @Test
+    void shape_HidesTheValueOfParameters() {
+        // Act and Assert
+        assertEquals("varchar(10)", QueryAccountingDataSource.shape("setString", "report.pdf"));
+        assertEquals("bytes(3)", QueryAccountingDataSource.shape("setBytes", new byte[3]));
+        assertEquals("null", QueryAccountingDataSource.shape("setNull", 12));
+        assertEquals("UUID", QueryAccountingDataSource.shape("setObject", UUID.randomUUID()));
+    }
+}
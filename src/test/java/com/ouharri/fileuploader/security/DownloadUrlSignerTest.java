@@ -0,0 +1,61 @@
+package com.ouharri.fileuploader.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link DownloadUrlSigner} class.
+ *
+ * @see DownloadUrlSigner
+ */
+class DownloadUrlSignerTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final Instant NOW = Instant.parse("2026-10-18T10:02:00Z");
+
+    private final DownloadUrlSigner signer = signerAt(NOW);
+
+    @Test
+    void sign_RoundsExpiryAndVerifies() {
+        // Arrange
+        UUID fileId = UUID.randomUUID();
+
+        // Act
+        String url = signer.sign("http://localhost:8082", fileId);
+        long expires = Long.parseLong(url.replaceAll(".*expires=(\\d+).*", "$1"));
+        String signature = url.replaceAll(".*signature=", "");
+
+        // Assert
+        assertTrue(url.startsWith("http://localhost:8082/d/" + fileId + "?"));
+        assertEquals(0, expires % 300);
+        assertEquals(url, signer.sign("http://localhost:8082", fileId));
+        assertTrue(signer.verify(fileId, expires, signature));
+    }
+
+    @Test
+    void verify_RejectsTamperedOrExpired() {
+        // Arrange
+        UUID fileId = UUID.randomUUID();
+        String url = signer.sign("", fileId);
+        long expires = Long.parseLong(url.replaceAll(".*expires=(\\d+).*", "$1"));
+        String signature = url.replaceAll(".*signature=", "");
+
+        // Act and Assert
+        assertFalse(signer.verify(UUID.randomUUID(), expires, signature));
+        assertFalse(signer.verify(fileId, expires + 300, signature));
+        assertFalse(signer.verify(fileId, expires, null));
+        assertFalse(signerAt(NOW.plus(Duration.ofHours(2))).verify(fileId, expires, signature));
+    }
+
+    private static DownloadUrlSigner signerAt(Instant instant) {
+        return new DownloadUrlSigner(KEY, Duration.ofHours(1), Duration.ofMinutes(5), Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,94 @@
+package com.ouharri.fileuploader.security;
+
+import com.ouharri.fileuploader.config.SecurityConfiguration;
+import com.ouharri.fileuploader.controller.BackupController;
+import com.ouharri.fileuploader.controller.ProfilingController;
+import com.ouharri.fileuploader.service.spec.BackupService;
+import com.ouharri.fileuploader.service.spec.ProfilingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that the profiling and backup endpoints are open to the operator only, signing in over HTTP Basic.
+ *
+ * @see SecurityConfiguration
+ */
+@WebMvcTest(controllers = {ProfilingController.class, BackupController.class})
+@Import(SecurityConfiguration.class)
+@TestPropertySource(properties = {"app.operator.username=ops", "app.operator.password=s3cret"})
+class OperatorAccessTest {
+
+    private static final BackupService.Progress PROGRESS =
+            new BackupService.Progress("nightly", BackupService.Operation.EXPORT, true, 4, 1, 10, 100, 0, null);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ProfilingService profilingService;
+
+    @MockBean
+    private BackupService backupService;
+
+    @Test
+    void profiles_AllowOperator() throws Exception {
+        // Arrange
+        when(profilingService.getProfiles()).thenReturn(List.of());
+
+        // Act & Assert
+        mockMvc.perform(get("/profiling/profiles").with(httpBasic("ops", "s3cret")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void profiles_RejectAnonymousAndWrongPassword() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/profiling/profiles"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/profiling/dump").with(httpBasic("ops", "wrong")))
+                .andExpect(status().isUnauthorized());
+        verifyNoInteractions(profilingService);
+    }
+
+    @Test
+    void backups_AllowOperator() throws Exception {
+        // Arrange
+        when(backupService.startExport("nightly")).thenReturn(PROGRESS);
+        when(backupService.startImport("nightly")).thenReturn(PROGRESS);
+        when(backupService.getProgress("nightly")).thenReturn(PROGRESS);
+
+        // Act & Assert
+        mockMvc.perform(post("/backups/nightly/export").with(httpBasic("ops", "s3cret")))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.job").value("nightly"));
+        mockMvc.perform(post("/backups/nightly/import").with(httpBasic("ops", "s3cret")))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(get("/backups/nightly").with(httpBasic("ops", "s3cret")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(1));
+    }
+
+    @Test
+    void backups_RejectAnonymous() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/backups/nightly/export"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/backups/nightly"))
+                .andExpect(status().isUnauthorized());
+        verifyNoInteractions(backupService);
+    }
+}
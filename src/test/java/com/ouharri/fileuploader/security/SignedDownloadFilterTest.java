@@ -0,0 +1,107 @@
+package com.ouharri.fileuploader.security;
+
+import com.ouharri.fileuploader.repository.projection.FileSummary;
+import com.ouharri.fileuploader.storage.BufferPool;
+import com.ouharri.fileuploader.storage.BufferProperties;
+import com.ouharri.fileuploader.storage.PayloadStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link SignedDownloadFilter} class.
+ *
+ * @see SignedDownloadFilter
+ */
+class SignedDownloadFilterTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private final DownloadUrlSigner signer = new DownloadUrlSigner(KEY, Duration.ofHours(1), Duration.ofMinutes(5));
+    private final BufferPool bufferPool = new BufferPool(new BufferProperties(List.of(DataSize.ofKilobytes(1)), 2, DataSize.ofKilobytes(1), false));
+    private final UUID fileId = UUID.randomUUID();
+    private byte[] content = "hello".getBytes();
+    private long version = 3;
+
+    private final PayloadStore payloadStore = new PayloadStore() {
+        @Override
+        public boolean read(UUID id, PayloadConsumer consumer) throws IOException {
+            consumer.accept(new FileSummary(id, "notes.txt", "text/plain", (long) content.length, version, new Timestamp(1_700_000_000_000L)), new Payload() {
+                @Override
+                public long size() {
+                    return content.length;
+                }
+
+                @Override
+                public InputStream stream(long offset, long length) {
+                    return new ByteArrayInputStream(Arrays.copyOfRange(content, (int) offset, (int) (offset + length)));
+                }
+            });
+            return true;
+        }
+
+        @Override
+        public Verification verify(UUID id) {
+            return new Verification(Verification.Status.VERIFIED, content.length);
+        }
+    };
+
+    private final SignedDownloadFilter filter = new SignedDownloadFilter(signer, payloadStore, bufferPool);
+
+    @Test
+    void download_MustBeRevalidatedAgainstVersion() throws Exception {
+        // Act
+        MockHttpServletResponse response = download(null);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertEquals("public, no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertEquals("\"3\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("hello", response.getContentAsString());
+    }
+
+    @Test
+    void download_RevalidatesUntilFileChanges() throws Exception {
+        // Act
+        MockHttpServletResponse unchanged = download("\"3\"");
+        content = "hello, world".getBytes();
+        version = 4;
+        MockHttpServletResponse changed = download("\"3\"");
+
+        // Assert
+        assertEquals(304, unchanged.getStatus());
+        assertEquals(0, unchanged.getContentAsByteArray().length);
+        assertEquals(200, changed.getStatus());
+        assertEquals("\"4\"", changed.getHeader(HttpHeaders.ETAG));
+        assertEquals("hello, world", changed.getContentAsString());
+    }
+
+    private MockHttpServletResponse download(String ifNoneMatch) throws Exception {
+        UriComponents url = UriComponentsBuilder.fromUriString(signer.sign("", fileId)).build();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", url.getPath());
+        request.setParameter("expires", url.getQueryParams().getFirst("expires"));
+        request.setParameter("signature", url.getQueryParams().getFirst("signature"));
+        if (ifNoneMatch != null)
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,108 @@
+package com.ouharri.fileuploader.service;
+
+import com.ouharri.fileuploader.archive.ArchiveProperties;
+import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.exception.ResourceNotCreatedException;
+import com.ouharri.fileuploader.service.impl.ArchiveIngestServiceImpl;
+import com.ouharri.fileuploader.service.spec.ArchiveIngestService;
+import com.ouharri.fileuploader.service.spec.FileStorageService;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link ArchiveIngestServiceImpl} class.
+ *
+ * @see ArchiveIngestServiceImpl
+ */
+class ArchiveIngestServiceTest {
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+    private ArchiveIngestService archiveIngestService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archiveIngestService = new ArchiveIngestServiceImpl(fileStorageService, pool, new ArchiveProperties(
+                2, 2, 2, DataSize.ofKilobytes(64), 100, DataSize.ofBytes(100), DataSize.ofMegabytes(1)
+        ));
+        when(fileStorageService.storeAll(anyList())).thenAnswer(invocation -> invocation.<List<FileStorageService.NewFile>>getArgument(0).stream()
+                .map(file -> FileDB.builder().id(UUID.randomUUID()).name(file.name()).type(file.type()).size((long) file.content().length).build())
+                .toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void expand_ZipStoresMembersInBatchesAndSkipsLargeOnes() throws IOException {
+        // Arrange
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("docs/"));
+            for (String name : List.of("docs/a.txt", "docs/b.pdf", "c.bin")) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(name.getBytes());
+            }
+            out.putNextEntry(new ZipEntry("large.bin"));
+            out.write(new byte[101]);
+        }
+
+        // Act
+        ArchiveIngestService.Manifest manifest = archiveIngestService.expand(new ByteArrayInputStream(zip.toByteArray()));
+
+        // Assert
+        assertTrue(manifest.complete());
+        assertEquals(List.of("docs/a.txt", "docs/b.pdf", "c.bin"), manifest.files().stream().map(ArchiveIngestService.Entry::name).toList());
+        assertEquals("application/pdf", manifest.files().get(1).type());
+        assertEquals(List.of("large.bin"), manifest.skipped().stream().map(ArchiveIngestService.Skipped::name).toList());
+        verify(fileStorageService, times(2)).storeAll(anyList());
+    }
+
+    @Test
+    void expand_GzippedTarIsDetected() throws IOException {
+        // Arrange
+        ByteArrayOutputStream tgz = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream out = new TarArchiveOutputStream(new GzipCompressorOutputStream(tgz))) {
+            TarArchiveEntry entry = new TarArchiveEntry("notes.txt");
+            entry.setSize(5);
+            out.putArchiveEntry(entry);
+            out.write("notes".getBytes());
+            out.closeArchiveEntry();
+        }
+
+        // Act
+        ArchiveIngestService.Manifest manifest = archiveIngestService.expand(new ByteArrayInputStream(tgz.toByteArray()));
+
+        // Assert
+        assertEquals(1, manifest.files().size());
+        assertEquals(5, manifest.files().get(0).size());
+    }
+
+    @Test
+    void expand_UnknownFormatIsRejected() {
+        // Act and Assert
+        assertThrows(ResourceNotCreatedException.class, () -> archiveIngestService.expand(new ByteArrayInputStream("not an archive".getBytes())));
+        verifyNoInteractions(fileStorageService);
+    }
+}
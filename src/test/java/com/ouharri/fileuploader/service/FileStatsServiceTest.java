@@ -0,0 +1,131 @@
+package com.ouharri.fileuploader.service;
+
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.entity.FileStats;
+import com.ouharri.fileuploader.message.ResponseStats;
+import com.ouharri.fileuploader.repository.FileStatsRepository;
+import com.ouharri.fileuploader.repository.projection.TypeTotals;
+import com.ouharri.fileuploader.service.impl.FileStatsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link FileStatsServiceImpl} class, the summary table being kept in memory.
+ *
+ * @see FileStatsServiceImpl
+ */
+class FileStatsServiceTest {
+
+    private static final String TYPE = "text/plain";
+
+    private final FileStatsRepository fileStatsRepository = mock(FileStatsRepository.class);
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final FileStatsServiceImpl fileStatsService = new FileStatsServiceImpl(
+            fileStatsRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)), shardRouter
+    );
+    private final Map<String, long[]> summary = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            long[] total = summary.computeIfAbsent(invocation.getArgument(0), type -> new long[2]);
+            total[0] += invocation.<Long>getArgument(1);
+            total[1] += invocation.<Long>getArgument(2);
+            return null;
+        }).when(fileStatsRepository).applyDelta(anyString(), anyLong(), anyLong());
+        doAnswer(invocation -> {
+            summary.clear();
+            return null;
+        }).when(fileStatsRepository).clear();
+        when(fileStatsRepository.findAll()).thenAnswer(invocation -> summary.entrySet().stream()
+                .map(entry -> new FileStats(entry.getKey(), entry.getValue()[0], entry.getValue()[1], null))
+                .toList());
+    }
+
+    @Test
+    void reconcile_KeepsUploadFlushedDuringSnapshot() throws InterruptedException {
+        // Arrange
+        summary.put(TYPE, new long[]{7, 700});
+        Thread upload = new Thread(() -> {
+            fileStatsService.recordStored(TYPE, 50);
+            fileStatsService.flush();
+        });
+        when(shardRouter.gather(any())).thenAnswer(invocation -> {
+            upload.start();
+            while (upload.isAlive() && upload.getState() != Thread.State.WAITING)
+                Thread.onSpinWait();
+            return List.of(totals(2, 300));
+        });
+
+        // Act
+        fileStatsService.reconcile();
+        upload.join();
+
+        // Assert
+        ResponseStats stats = fileStatsService.getStats();
+        assertEquals(3, stats.getFileCount());
+        assertEquals(350, stats.getTotalBytes());
+        assertArrayEquals(new long[]{3, 350}, summary.get(TYPE));
+    }
+
+    @Test
+    void reconcile_DoesNotCountSnapshottedUploadTwice() {
+        // Arrange
+        fileStatsService.recordStored(TYPE, 50);
+        when(shardRouter.gather(any())).thenReturn(List.of(totals(3, 350)));
+
+        // Act
+        fileStatsService.reconcile();
+        fileStatsService.flush();
+
+        // Assert
+        assertEquals(3, fileStatsService.getStats().getFileCount());
+        assertArrayEquals(new long[]{3, 350}, summary.get(TYPE));
+        verify(fileStatsRepository).lock();
+    }
+
+    @Test
+    void reconcile_RestoresPendingDeltasWhenRewriteFails() {
+        // Arrange
+        summary.put(TYPE, new long[]{2, 300});
+        fileStatsService.recordStored(TYPE, 50);
+        when(shardRouter.gather(any())).thenReturn(List.of(totals(3, 350)));
+        doThrow(new IllegalStateException("connection lost")).when(fileStatsRepository).clear();
+
+        // Act
+        assertThrows(IllegalStateException.class, fileStatsService::reconcile);
+        fileStatsService.flush();
+
+        // Assert
+        assertArrayEquals(new long[]{3, 350}, summary.get(TYPE));
+    }
+
+    private static TypeTotals totals(long fileCount, long totalBytes) {
+        return new TypeTotals() {
+            @Override
+            public String getType() {
+                return TYPE;
+            }
+
+            @Override
+            public long getFileCount() {
+                return fileCount;
+            }
+
+            @Override
+            public long getTotalBytes() {
+                return totalBytes;
+            }
+        };
+    }
+}
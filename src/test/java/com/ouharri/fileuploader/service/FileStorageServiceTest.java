@@ -1,22 +1,56 @@
 package com.ouharri.fileuploader.service;
 
+import com.ouharri.fileuploader.cache.FileChangeEvent;
+import com.ouharri.fileuploader.cache.FileChangePublisher;
+import com.ouharri.fileuploader.crypto.EncryptionProperties;
+import com.ouharri.fileuploader.crypto.PayloadCipher;
+import com.ouharri.fileuploader.datasource.ShardRouter;
 import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.entity.PayloadStorage;
 import com.ouharri.fileuploader.exception.ResourceNotCreatedException;
 import com.ouharri.fileuploader.exception.ResourceNotFoundException;
+import com.ouharri.fileuploader.exception.ResourcePreconditionFailedException;
+import com.ouharri.fileuploader.integrity.PayloadChecksum;
+import com.ouharri.fileuploader.integrity.PayloadVerifier;
+import com.ouharri.fileuploader.repository.FileChunkRepository;
 import com.ouharri.fileuploader.repository.FileDBRepository;
+import com.ouharri.fileuploader.repository.FileVersionRepository;
+import com.ouharri.fileuploader.repository.projection.FileSummary;
 import com.ouharri.fileuploader.service.impl.FileStorageServiceImpl;
+import com.ouharri.fileuploader.service.impl.FileVersionServiceImpl;
+import com.ouharri.fileuploader.service.spec.ExpiryService;
+import com.ouharri.fileuploader.service.spec.FileStatsService;
+import com.ouharri.fileuploader.service.spec.FileVersionService;
+import com.ouharri.fileuploader.service.spec.GarbageCollectionService;
+import com.ouharri.fileuploader.storage.PackFileStore;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.cache.CacheManager;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -36,12 +70,57 @@ class FileStorageServiceTest {
     @Mock
     private FileDBRepository fileDBRepository;
 
+    @Mock
+    private FileStatsService fileStatsService;
+
+    @Mock
+    private FileVersionService fileVersionService;
+
+    @Mock
+    private GarbageCollectionService garbageCollectionService;
+
+    @Mock
+    private ExpiryService expiryService;
+
+    @Mock
+    private FileChangePublisher fileChangePublisher;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private PackFileStore packFileStore;
+
+    @Mock
+    private PayloadVerifier payloadVerifier;
+
+    @Mock
+    private PayloadCipher payloadCipher;
+
+    @Mock
+    private ObservationRegistry observationRegistry;
+
     @InjectMocks
     private FileStorageServiceImpl fileStorageService;
 
+    @TempDir
+    Path directory;
+
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
         MockitoAnnotations.openMocks(this);
+        lenient().when(payloadVerifier.newChecksum()).thenAnswer(invocation -> new PayloadChecksum(false));
+        lenient().when(payloadCipher.seal(any(UUID.class), any(InputStream.class), anyLong(), any(PayloadChecksum.class)))
+                .thenAnswer(invocation -> new PayloadCipher.Sealed(invocation.<InputStream>getArgument(1).readAllBytes(), null));
+        lenient().when(shardRouter.onNew(any(UUID.class), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(shardRouter.gather(any())).thenAnswer(invocation -> new ArrayList<>(invocation.<Supplier<List<?>>>getArgument(0).get()));
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(shardRouter).readEachShard(any());
     }
 
     @Test
@@ -53,11 +132,28 @@ class FileStorageServiceTest {
         when(fileDBRepository.save(any(FileDB.class))).thenReturn(new FileDB());
 
         // Act
-        FileDB storedFile = fileStorageService.store(mockFile);
+        FileDB storedFile = fileStorageService.store(mockFile, null);
 
         // Assert
         assertNotNull(storedFile);
         verify(fileDBRepository, times(1)).save(any(FileDB.class));
+        verify(fileStatsService, times(1)).recordStored(any(), eq(mockFile.getSize()));
+    }
+
+    @Test
+    void storeRawFile_StreamsContent() throws IOException {
+        // Arrange
+        byte[] content = "Raw file content".getBytes();
+        when(fileDBRepository.save(any(FileDB.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        FileDB storedFile = fileStorageService.store("raw.bin", "application/octet-stream", content.length, new ByteArrayInputStream(content), null);
+
+        // Assert
+        assertEquals("raw.bin", storedFile.getName());
+        assertEquals(content.length, storedFile.getSize());
+        assertArrayEquals(content, storedFile.getData());
+        verify(fileStatsService, times(1)).recordStored("application/octet-stream", (long) content.length);
     }
 
     @Test
@@ -69,8 +165,9 @@ class FileStorageServiceTest {
         when(fileDBRepository.save(any(FileDB.class))).thenThrow(new ResourceNotCreatedException(""));
 
         // Act and Assert
-        assertThrows(ResourceNotCreatedException.class, () -> fileStorageService.store(mockFile));
+        assertThrows(ResourceNotCreatedException.class, () -> fileStorageService.store(mockFile, null));
         verify(fileDBRepository, times(1)).save(any(FileDB.class));
+        verifyNoInteractions(fileStatsService);
     }
 
     @Test
@@ -106,18 +203,41 @@ class FileStorageServiceTest {
     }
 
     @Test
-    void getAllFiles() {
+    void getFileSummaries() {
         // Arrange
-        List<FileDB> mockFiles = Stream.of(new FileDB(), new FileDB()).collect(Collectors.toList());
-        when(fileDBRepository.findAll()).thenReturn(mockFiles);
+        List<FileSummary> summaries = Stream.of(
+                new FileSummary(UUID.randomUUID(), "a.txt", "text/plain", 1L, 0L, null),
+                new FileSummary(UUID.randomUUID(), "b.txt", "text/plain", 2L, 0L, null)
+        ).collect(Collectors.toList());
+        when(fileDBRepository.findAllSummaries()).thenReturn(summaries);
 
         // Act
-        List<FileDB> allFiles = fileStorageService.getAllFiles();
+        List<FileSummary> allFiles = fileStorageService.getFileSummaries();
 
         // Assert
         assertNotNull(allFiles);
-        assertEquals(mockFiles.size(), allFiles.size());
-        verify(fileDBRepository, times(1)).findAll();
+        assertEquals(summaries.size(), allFiles.size());
+        verify(fileDBRepository, times(1)).findAllSummaries();
+    }
+
+    @Test
+    void streamFileSummaries() {
+        // Arrange
+        List<FileSummary> summaries = List.of(
+                new FileSummary(UUID.randomUUID(), "a.txt", "text/plain", 1L, 0L, null),
+                new FileSummary(UUID.randomUUID(), "b.txt", "text/plain", 2L, 0L, null)
+        );
+        boolean[] closed = {false};
+        when(fileDBRepository.streamAllSummaries()).thenReturn(summaries.stream().onClose(() -> closed[0] = true));
+        List<FileSummary> received = new ArrayList<>();
+
+        // Act
+        fileStorageService.streamFileSummaries(received::add);
+
+        // Assert
+        assertEquals(summaries, received);
+        assertTrue(closed[0]);
+        verify(fileDBRepository, never()).findAll();
     }
 
     @Test
@@ -130,7 +250,7 @@ class FileStorageServiceTest {
 
         // Mock behavior
         when(fileDBRepository.findById(fileId)).thenReturn(Optional.of(existingFile));
-        when(fileDBRepository.save(any(FileDB.class))).thenReturn(existingFile);
+        when(fileDBRepository.saveAndFlush(any(FileDB.class))).thenReturn(existingFile);
 
         // Act
         FileDB updatedFile = fileStorageService.updateFile(fileId, mockFile);
@@ -139,7 +259,8 @@ class FileStorageServiceTest {
         assertNotNull(updatedFile);
         assertEquals(fileId, updatedFile.getId());
         verify(fileDBRepository, times(1)).findById(fileId);
-        verify(fileDBRepository, times(1)).save(any(FileDB.class));
+        verify(fileDBRepository, times(1)).saveAndFlush(any(FileDB.class));
+        verify(fileVersionService, times(1)).snapshot(existingFile);
     }
 
     @Test
@@ -154,25 +275,93 @@ class FileStorageServiceTest {
         // Act and Assert
         assertThrows(ResourceNotFoundException.class, () -> fileStorageService.updateFile(fileId, mockFile));
         verify(fileDBRepository, times(1)).findById(fileId);
-        verify(fileDBRepository, never()).save(any(FileDB.class));
+        verify(fileDBRepository, never()).saveAndFlush(any(FileDB.class));
     }
 
     @Test
-    void deleteFile_Success() {
+    void updateFile_RestoresPackedPayloadOnRollback() throws IOException {
         // Arrange
         UUID fileId = UUID.randomUUID();
+        MultipartFile mockFile = new MockMultipartFile("test.txt", "Updated file content".getBytes());
         FileDB existingFile = new FileDB();
         existingFile.setId(fileId);
+        existingFile.setStorage(PayloadStorage.PACK);
+        byte[] previousPayload = "Previous file content".getBytes();
 
         // Mock behavior
         when(fileDBRepository.findById(fileId)).thenReturn(Optional.of(existingFile));
+        when(packFileStore.readBytes(fileId)).thenReturn(Optional.of(previousPayload));
+        when(packFileStore.accepts(anyLong())).thenReturn(true);
+        when(fileDBRepository.saveAndFlush(any(FileDB.class))).thenThrow(new IllegalStateException("Connection lost"));
+
+        // Act
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(IllegalStateException.class, () -> fileStorageService.updateFile(fileId, mockFile));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        verify(packFileStore).put(fileId, "Updated file content".getBytes());
+        verify(packFileStore).put(fileId, previousPayload);
+        verify(packFileStore, never()).delete(fileId);
+    }
+
+    @Test
+    void updateFile_CapturesNewContentInHistory() throws IOException {
+        // Arrange
+        UUID fileId = UUID.randomUUID();
+        byte[] content = "Updated file content".getBytes();
+        MultipartFile mockFile = new MockMultipartFile("test.txt", "test.txt", "text/plain", content);
+        FileDB existingFile = FileDB.builder().id(fileId).version(1L).name("test.txt").retainedVersions(3).build();
+        FileVersionRepository fileVersionRepository = mock(FileVersionRepository.class);
+        FileChunkRepository fileChunkRepository = mock(FileChunkRepository.class);
+        FileVersionServiceImpl versions = new FileVersionServiceImpl(fileDBRepository, fileVersionRepository, fileChunkRepository,
+                fileChangePublisher, packFileStore, new PayloadCipher(new EncryptionProperties(false, null, DataSize.ofKilobytes(64))));
+
+        // Mock behavior
+        when(fileDBRepository.findById(fileId)).thenReturn(Optional.of(existingFile));
+        when(fileDBRepository.saveAndFlush(any(FileDB.class))).thenAnswer(invocation -> {
+            FileDB file = invocation.getArgument(0);
+            file.setVersion(file.getVersion() + 1);
+            return file;
+        });
+        when(fileVersionRepository.existsByFileIdAndRevision(fileId, 1L)).thenReturn(true);
+        when(fileVersionRepository.findByFileIdOrderByRevisionDesc(fileId)).thenReturn(List.of());
+        when(fileChunkRepository.findExistingHashes(any())).thenReturn(Set.of());
+        doAnswer(invocation -> {
+            versions.snapshot(invocation.<FileDB>getArgument(0));
+            return null;
+        }).when(fileVersionService).snapshot(any(FileDB.class));
+
+        // Act
+        fileStorageService.updateFile(fileId, mockFile);
+
+        // Assert
+        verify(fileVersionRepository).save(argThat(version ->
+                version.getRevision() == 2L && version.getSize() == content.length && version.getChunkHashes().size() == 1));
+        verify(fileChunkRepository).insertOrReference(anyString(), eq(content), eq(1L));
+    }
+
+    @Test
+    void deleteFile_Success() {
+        // Arrange
+        UUID fileId = UUID.randomUUID();
+
+        // Mock behavior
+        when(garbageCollectionService.tombstone(List.of(fileId))).thenReturn(1);
 
         // Act
         fileStorageService.deleteFile(fileId);
 
-        // Assert (verify that delete is called)
-        verify(fileDBRepository, times(1)).findById(fileId);
-        verify(fileDBRepository, times(1)).delete(existingFile);
+        // Assert (verify that the file is tombstoned without being loaded)
+        verify(garbageCollectionService, times(1)).tombstone(List.of(fileId));
+        verify(fileChangePublisher, times(1)).publish(fileId, FileChangeEvent.Type.DELETED);
+        verify(fileDBRepository, never()).findById(fileId);
+        verify(fileDBRepository, never()).delete(any(FileDB.class));
     }
 
     @Test
@@ -180,13 +369,93 @@ class FileStorageServiceTest {
         // Arrange
         UUID fileId = UUID.randomUUID();
 
-        // Mock behavior to return empty optional
-        when(fileDBRepository.findById(fileId)).thenReturn(Optional.empty());
+        // Mock behavior to tombstone nothing
+        when(garbageCollectionService.tombstone(List.of(fileId))).thenReturn(0);
 
         // Act and Assert
         assertThrows(ResourceNotFoundException.class, () -> fileStorageService.deleteFile(fileId));
-        verify(fileDBRepository, times(1)).findById(fileId);
         verify(fileDBRepository, never()).delete(any(FileDB.class));
+        verifyNoInteractions(fileChangePublisher);
+    }
+
+    @Test
+    void patchFile_Append() {
+        // Arrange
+        UUID fileId = UUID.randomUUID();
+        byte[] content = "appended".getBytes();
+        FileSummary current = new FileSummary(fileId, "test.txt", "text/plain", 10L, 3L, null);
+        FileSummary patched = new FileSummary(fileId, "test.txt", "text/plain", 18L, 4L, null);
+
+        // Mock behavior
+        when(fileDBRepository.findSummaryById(fileId)).thenReturn(Optional.of(current), Optional.of(patched));
+        when(fileDBRepository.appendRange(fileId, 3L, content)).thenReturn(1);
+
+        // Act
+        FileSummary result = fileStorageService.patchFile(fileId, 3L, null, content);
+
+        // Assert
+        assertEquals(4L, result.version());
+        verify(fileDBRepository, times(1)).appendRange(fileId, 3L, content);
+        verify(fileDBRepository, never()).findById(any());
+        verify(fileStatsService, times(1)).recordUpdated("text/plain", 10L, "text/plain", 18L);
     }
 
-}
\ No newline at end of file
+    @Test
+    void patchFile_VersionMismatch() {
+        // Arrange
+        UUID fileId = UUID.randomUUID();
+        FileSummary current = new FileSummary(fileId, "test.txt", "text/plain", 10L, 5L, null);
+
+        // Mock behavior
+        when(fileDBRepository.findSummaryById(fileId)).thenReturn(Optional.of(current));
+
+        // Act and Assert
+        assertThrows(ResourcePreconditionFailedException.class,
+                () -> fileStorageService.patchFile(fileId, 3L, 0L, "x".getBytes()));
+        verify(fileDBRepository, never()).writeRange(any(), anyLong(), anyLong(), any());
+        verifyNoInteractions(fileStatsService);
+    }
+
+    @Test
+    void patchFile_RewritesEncryptedPayloadWithoutOpeningItWhole() throws IOException {
+        // Arrange
+        UUID fileId = UUID.randomUUID();
+        Path masterKey = directory.resolve("master.key");
+        Files.writeString(masterKey, Base64.getEncoder().encodeToString(new byte[32]));
+        PayloadCipher encrypting = new PayloadCipher(new EncryptionProperties(true, masterKey.toString(), DataSize.ofBytes(100)));
+        byte[] content = new byte[1050];
+        new Random(3).nextBytes(content);
+        PayloadCipher.Sealed sealed = encrypting.seal(fileId, new ByteArrayInputStream(content), content.length, new PayloadChecksum(false));
+        FileDB file = FileDB.builder()
+                .id(fileId)
+                .version(3L)
+                .type("text/plain")
+                .size((long) content.length)
+                .data(sealed.data())
+                .dataKey(sealed.dataKey())
+                .storage(PayloadStorage.DB)
+                .build();
+        byte[] patch = new byte[300];
+        Arrays.fill(patch, (byte) 7);
+        byte[] expected = Arrays.copyOf(content, 1100);
+        System.arraycopy(patch, 0, expected, 800, patch.length);
+
+        // Mock behavior
+        when(fileDBRepository.findSummaryById(fileId)).thenReturn(
+                Optional.of(new FileSummary(fileId, "test.txt", "text/plain", 1050L, 3L, null)),
+                Optional.of(new FileSummary(fileId, "test.txt", "text/plain", 1100L, 4L, null)));
+        when(fileDBRepository.existsByIdAndDataKeyIsNotNull(fileId)).thenReturn(true);
+        when(fileDBRepository.findById(fileId)).thenReturn(Optional.of(file));
+        doAnswer(invocation -> encrypting.open(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2),
+                invocation.getArgument(3), invocation.getArgument(4), invocation.getArgument(5)))
+                .when(payloadCipher).open(any(), any(), any(), anyLong(), anyLong(), anyLong());
+
+        // Act
+        fileStorageService.patchFile(fileId, 3L, 800L, patch);
+
+        // Assert
+        verify(payloadCipher, never()).openAll(any(), any(), any(), anyLong());
+        verify(fileDBRepository).saveAndFlush(argThat(saved -> saved.getSize() == 1100 && Arrays.equals(expected, saved.getData())));
+        verify(fileStatsService).recordUpdated("text/plain", 1050L, "text/plain", 1100L);
+    }
+}
@@ -0,0 +1,154 @@
+package com.ouharri.fileuploader.service;
+
+import com.ouharri.fileuploader.cache.FileChangePublisher;
+import com.ouharri.fileuploader.crypto.EncryptionProperties;
+import com.ouharri.fileuploader.crypto.PayloadCipher;
+import com.ouharri.fileuploader.entity.FileDB;
+import com.ouharri.fileuploader.entity.FileVersion;
+import com.ouharri.fileuploader.integrity.PayloadChecksum;
+import com.ouharri.fileuploader.repository.FileChunkRepository;
+import com.ouharri.fileuploader.repository.FileDBRepository;
+import com.ouharri.fileuploader.repository.FileVersionRepository;
+import com.ouharri.fileuploader.service.impl.FileVersionServiceImpl;
+import com.ouharri.fileuploader.storage.PackFileStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link FileVersionServiceImpl} class.
+ *
+ * @see FileVersionServiceImpl
+ */
+class FileVersionServiceTest {
+
+    @Mock
+    private FileDBRepository fileDBRepository;
+
+    @Mock
+    private FileVersionRepository fileVersionRepository;
+
+    @Mock
+    private FileChunkRepository fileChunkRepository;
+
+    @Mock
+    private FileChangePublisher fileChangePublisher;
+
+    @Mock
+    private PackFileStore packFileStore;
+
+    @Mock
+    private PayloadCipher payloadCipher;
+
+    @InjectMocks
+    private FileVersionServiceImpl fileVersionService;
+
+    @TempDir
+    Path directory;
+
+    private final FileDB file = FileDB.builder()
+            .id(UUID.randomUUID())
+            .version(2L)
+            .name("notes.txt")
+            .type("text/plain")
+            .size(5L)
+            .data("hello".getBytes())
+            .retainedVersions(3)
+            .build();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        PayloadCipher plain = new PayloadCipher(new EncryptionProperties(false, null, DataSize.ofKilobytes(64)));
+        when(payloadCipher.open(any(), any(), any(), anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> plain.open(
+                invocation.getArgument(0), null, invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4), invocation.getArgument(5)));
+        when(fileVersionRepository.findByFileIdOrderByRevisionDesc(file.getId())).thenReturn(List.of());
+        when(payloadCipher.chunkKey(any(), any())).thenAnswer(invocation -> plain.chunkKey(invocation.getArgument(0), null));
+    }
+
+    @Test
+    void snapshot_ReinsertsChunkPrunedConcurrently() {
+        // Arrange
+        when(fileChunkRepository.findExistingHashes(any())).thenAnswer(invocation -> Set.copyOf(invocation.getArgument(0)));
+        when(fileChunkRepository.addReferences(anyString(), anyLong())).thenReturn(0);
+
+        // Act
+        fileVersionService.snapshot(file);
+
+        // Assert
+        verify(fileChunkRepository).addReferences(anyString(), eq(1L));
+        verify(fileChunkRepository).insertOrReference(anyString(), any(), eq(1L));
+    }
+
+    @Test
+    void snapshot_OnlyReferencesKnownChunk() {
+        // Arrange
+        when(fileChunkRepository.findExistingHashes(any())).thenAnswer(invocation -> Set.copyOf(invocation.getArgument(0)));
+        when(fileChunkRepository.addReferences(anyString(), anyLong())).thenReturn(1);
+
+        // Act
+        fileVersionService.snapshot(file);
+
+        // Assert
+        verify(fileChunkRepository, never()).insertOrReference(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void snapshot_SealsChunksUnderKeyOfRetainedVersions() {
+        // Arrange
+        byte[] versionKey = {1, 2, 3};
+        file.setDataKey(new byte[]{4, 5, 6});
+        when(fileVersionRepository.findByFileIdOrderByRevisionDesc(file.getId()))
+                .thenReturn(List.of(FileVersion.builder().fileId(file.getId()).revision(1L).dataKey(versionKey).build()));
+        when(fileChunkRepository.findExistingHashes(any())).thenReturn(Set.of());
+
+        // Act
+        fileVersionService.snapshot(file);
+
+        // Assert
+        verify(payloadCipher).chunkKey(file.getId(), versionKey);
+        verify(fileVersionRepository).save(argThat(version -> Arrays.equals(versionKey, version.getDataKey())));
+    }
+
+    @Test
+    void snapshot_StreamsEncryptedPayloadIntoChunks() throws IOException {
+        // Arrange
+        Path masterKey = directory.resolve("master.key");
+        Files.writeString(masterKey, Base64.getEncoder().encodeToString(new byte[32]));
+        PayloadCipher encrypting = new PayloadCipher(new EncryptionProperties(true, masterKey.toString(), DataSize.ofBytes(100)));
+        byte[] content = new byte[20_000];
+        new Random(7).nextBytes(content);
+        PayloadCipher.Sealed sealed = encrypting.seal(file.getId(), new ByteArrayInputStream(content), content.length, new PayloadChecksum(false));
+        file.setData(sealed.data());
+        file.setDataKey(sealed.dataKey());
+        file.setSize((long) content.length);
+        doAnswer(invocation -> encrypting.open(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2),
+                invocation.getArgument(3), invocation.getArgument(4), invocation.getArgument(5)))
+                .when(payloadCipher).open(any(), any(), any(), anyLong(), anyLong(), anyLong());
+        when(fileChunkRepository.findExistingHashes(any())).thenReturn(Set.of());
+
+        // Act
+        fileVersionService.snapshot(file);
+
+        // Assert
+        verify(payloadCipher, never()).openAll(any(), any(), any(), anyLong());
+        verify(fileVersionRepository).save(argThat(version -> version.getSize() == content.length && !version.getChunkHashes().isEmpty()));
+    }
+}
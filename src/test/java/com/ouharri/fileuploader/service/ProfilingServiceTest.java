@@ -0,0 +1,82 @@
+package com.ouharri.fileuploader.service;
+
+import com.ouharri.fileuploader.exception.ResourceConflictException;
+import com.ouharri.fileuploader.profiling.ProfilingProperties;
+import com.ouharri.fileuploader.profiling.UploadEvent;
+import com.ouharri.fileuploader.service.impl.ProfilingServiceImpl;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ProfilingServiceImpl} class and the custom JFR events.
+ *
+ * @see ProfilingServiceImpl
+ */
+class ProfilingServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private ProfilingServiceImpl profilingService;
+
+    private ProfilingServiceImpl start() throws Exception {
+        profilingService = new ProfilingServiceImpl(new ProfilingProperties(
+                true, directory.toString(), Duration.ofMinutes(5), DataSize.ofMegabytes(50), 2
+        ));
+        profilingService.start();
+        return profilingService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (profilingService != null)
+            profilingService.stop();
+    }
+
+    @Test
+    void dump_ContainsTheCustomEventsOfTheLastMinutes() throws Exception {
+        // Arrange
+        ProfilingServiceImpl service = start();
+        UploadEvent event = new UploadEvent();
+        event.begin();
+        event.operation = "store";
+        event.size = 4096;
+        event.files = 1;
+        event.commit();
+
+        // Act
+        Path dump = service.dump(Duration.ofMinutes(1));
+
+        // Assert
+        List<RecordedEvent> uploads = RecordingFile.readAllEvents(dump).stream()
+                .filter(recorded -> recorded.getEventType().getName().equals("fileuploader.Upload"))
+                .toList();
+        assertEquals(1, uploads.size());
+        assertEquals(4096, uploads.get(0).getLong("size"));
+        assertEquals("store", uploads.get(0).getString("operation"));
+        Files.delete(dump);
+    }
+
+    @Test
+    void startProfile_RejectsASecondRunningProfile() throws Exception {
+        // Arrange
+        ProfilingServiceImpl service = start();
+        long id = service.startProfile(Duration.ofMinutes(1)).id();
+
+        // Act and Assert
+        assertThrows(ResourceConflictException.class, () -> service.startProfile(Duration.ofMinutes(1)));
+        assertThrows(ResourceConflictException.class, () -> service.getProfileFile(id));
+        assertEquals("RUNNING", service.getProfiles().get(0).state());
+    }
+}
@@ -0,0 +1,119 @@
+package com.ouharri.fileuploader.service;
+
+import com.ouharri.fileuploader.datasource.ConsistentHashRing;
+import com.ouharri.fileuploader.datasource.ShardProperties;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.datasource.ShardRoutingDataSource;
+import com.ouharri.fileuploader.datasource.ShardSchemaInitializer;
+import com.ouharri.fileuploader.service.impl.ShardRebalanceServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ShardRebalanceServiceImpl} class, against three in-memory databases standing in for
+ * the shards: files placed on a ring of two shards are moved when a third shard is added.
+ *
+ * @see ShardRebalanceServiceImpl
+ */
+class ShardRebalanceServiceTest {
+
+    private static final List<String> PREVIOUS_SHARDS = List.of(ShardRouter.HOME, "s1");
+    private static final int VIRTUAL_NODES = 16;
+
+    private final Map<String, DataSource> databases = new LinkedHashMap<>();
+    private ShardRouter shardRouter;
+    private ShardRebalanceServiceImpl rebalanceService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String run = UUID.randomUUID().toString();
+        for (String shard : List.of(ShardRouter.HOME, "s1", "s2"))
+            databases.put(shard, new SimpleDriverDataSource(new org.h2.Driver(), "jdbc:h2:mem:" + shard + "-" + run + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        new ShardSchemaInitializer(databases, "classpath:db/db.changelog-master.yaml").afterPropertiesSet();
+
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(
+                databases.get(ShardRouter.HOME),
+                Map.of("s1", databases.get("s1"), "s2", databases.get("s2"))
+        );
+        ShardProperties properties = new ShardProperties(
+                List.of(new ShardProperties.Shard("s1", null, null, null), new ShardProperties.Shard("s2", null, null, null)),
+                PREVIOUS_SHARDS,
+                VIRTUAL_NODES
+        );
+        shardRouter = new ShardRouter(routingDataSource, properties, new DataSourceTransactionManager(new LazyConnectionDataSourceProxy(routingDataSource)));
+        rebalanceService = new ShardRebalanceServiceImpl(routingDataSource, shardRouter, 100);
+    }
+
+    @Test
+    void rebalance_MovesMisplacedFilesToTheirShard() {
+        // Arrange
+        ConsistentHashRing<String> previousRing = new ConsistentHashRing<>(PREVIOUS_SHARDS, VIRTUAL_NODES);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            UUID id = UUID.randomUUID();
+            insertFile(previousRing.nodeFor(id), id);
+            ids.add(id);
+        }
+        UUID moving = ids.stream()
+                .filter(id -> shardRouter.ownerOf(id).equals("s2"))
+                .findFirst()
+                .orElseThrow();
+        String source = previousRing.nodeFor(moving);
+        insertVersion(source, moving, "hash-a");
+        assertEquals(source, shardRouter.locate(moving));
+
+        // Act
+        int moved = rebalanceService.rebalance();
+
+        // Assert
+        assertTrue(moved > 0);
+        for (UUID id : ids)
+            for (String shard : databases.keySet())
+                assertEquals(shard.equals(shardRouter.ownerOf(id)) ? 1 : 0, count(shard, "SELECT count(*) FROM files WHERE id = ?", id), "File " + id + " on " + shard);
+        assertEquals("s2", shardRouter.locate(moving));
+        assertEquals(1, count("s2", "SELECT count(*) FROM file_versions WHERE file_id = ?", moving));
+        assertEquals(1, count("s2", "SELECT ref_count FROM file_chunks WHERE hash = ?", "hash-a"));
+        assertEquals(0, count(source, "SELECT count(*) FROM file_versions WHERE file_id = ?", moving));
+        assertEquals(0, count(source, "SELECT count(*) FROM file_chunks WHERE hash = ?", "hash-a"));
+        assertEquals(0, rebalanceService.rebalance());
+    }
+
+    private void insertFile(String shard, UUID id) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        new JdbcTemplate(databases.get(shard)).update(
+                "INSERT INTO files (id, created_at, updated_at, version, name, type, data, size) VALUES (?, ?, ?, 0, ?, 'text/plain', ?, 5)",
+                id, now, now, id + ".txt", "hello".getBytes()
+        );
+    }
+
+    private void insertVersion(String shard, UUID fileId, String hash) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(databases.get(shard));
+        UUID versionId = UUID.randomUUID();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.update("INSERT INTO file_chunks (hash, size, ref_count, data) VALUES (?, 5, 1, ?)", hash, "hello".getBytes());
+        jdbcTemplate.update(
+                "INSERT INTO file_versions (id, created_at, updated_at, version, file_id, revision, name, type, size) VALUES (?, ?, ?, 0, ?, 0, 'v0', 'text/plain', 5)",
+                versionId, now, now, fileId
+        );
+        jdbcTemplate.update("INSERT INTO file_version_chunks (version_id, position, chunk_hash) VALUES (?, 0, ?)", versionId, hash);
+    }
+
+    private int count(String shard, String sql, Object argument) {
+        List<Integer> counts = new JdbcTemplate(databases.get(shard)).queryForList(sql, Integer.class, argument);
+        return counts.isEmpty() ? 0 : counts.get(0);
+    }
+}
@@ -0,0 +1,99 @@
+package com.ouharri.fileuploader.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link BufferPool} class.
+ *
+ * @see BufferPool
+ */
+class BufferPoolTest {
+
+    private static BufferPool pool(boolean leakDetection) {
+        return new BufferPool(new BufferProperties(
+                List.of(DataSize.ofKilobytes(1), DataSize.ofKilobytes(8)), 2, DataSize.ofKilobytes(1), leakDetection
+        ));
+    }
+
+    @Test
+    void acquire_ReusesReleasedBufferOfTheSizeClass() {
+        // Arrange
+        BufferPool pool = pool(true);
+
+        // Act
+        ByteBuffer first;
+        try (PooledBuffer buffer = pool.acquire(2000)) {
+            first = buffer.buffer();
+        }
+        ByteBuffer second;
+        try (PooledBuffer buffer = pool.acquire(5000)) {
+            second = buffer.buffer();
+        }
+
+        // Assert
+        assertSame(first, second);
+        assertTrue(second.isDirect());
+        assertEquals(8192, second.capacity());
+        assertEquals(1, pool.allocations());
+        assertEquals(0, pool.outstanding());
+    }
+
+    @Test
+    void acquire_OversizedBufferIsNotPooled() {
+        // Arrange
+        BufferPool pool = pool(true);
+
+        // Act
+        try (PooledBuffer buffer = pool.acquire(10000)) {
+            assertEquals(10000, buffer.buffer().capacity());
+        }
+
+        // Assert
+        assertEquals(0, pool.idle());
+        assertEquals(0, pool.outstanding());
+    }
+
+    @Test
+    void transfer_CopiesStreamAndReleasesBuffer() throws Exception {
+        // Arrange
+        BufferPool pool = pool(true);
+        byte[] data = new byte[5000];
+        new Random(7).nextBytes(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long transferred = pool.transfer(new ByteArrayInputStream(data), out);
+
+        // Assert
+        assertEquals(data.length, transferred);
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals(0, pool.outstanding());
+        assertEquals(1, pool.idle());
+    }
+
+    @Test
+    void leakDetection_ReportsBufferNeverReleased() throws InterruptedException {
+        // Arrange
+        BufferPool pool = pool(true);
+        pool.acquire(100);
+
+        // Act
+        for (int i = 0; i < 100 && pool.leaks() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        // Assert
+        assertEquals(1, pool.leaks());
+        assertEquals(0, pool.outstanding());
+    }
+}
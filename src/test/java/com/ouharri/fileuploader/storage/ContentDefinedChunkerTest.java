@@ -0,0 +1,91 @@
+package com.ouharri.fileuploader.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ContentDefinedChunker} class.
+ * These tests cover the chunk size bounds and the stability of boundaries across edits.
+ *
+ * @see ContentDefinedChunker
+ */
+class ContentDefinedChunkerTest {
+
+    private final ContentDefinedChunker chunker = new ContentDefinedChunker();
+
+    @Test
+    void split_ReassemblesWithinBounds() throws IOException {
+        // Arrange
+        byte[] data = randomBytes(1024 * 1024, 1);
+        ByteArrayOutputStream reassembled = new ByteArrayOutputStream();
+        List<Integer> sizes = new ArrayList<>();
+
+        // Act
+        int chunks = chunker.split(new ByteArrayInputStream(data), (buffer, offset, length) -> {
+            reassembled.write(buffer, offset, length);
+            sizes.add(length);
+        });
+
+        // Assert
+        assertArrayEquals(data, reassembled.toByteArray());
+        assertEquals(sizes.size(), chunks);
+        for (int i = 0; i < sizes.size() - 1; i++) {
+            assertTrue(sizes.get(i) >= ContentDefinedChunker.DEFAULT_MIN_SIZE);
+            assertTrue(sizes.get(i) <= ContentDefinedChunker.DEFAULT_MAX_SIZE);
+        }
+    }
+
+    @Test
+    void split_EmptyStream() throws IOException {
+        // Act
+        int chunks = chunker.split(new ByteArrayInputStream(new byte[0]), (buffer, offset, length) -> fail());
+
+        // Assert
+        assertEquals(0, chunks);
+    }
+
+    @Test
+    void split_InsertionOnlyChangesNearbyChunks() throws IOException {
+        // Arrange
+        byte[] original = randomBytes(512 * 1024, 2);
+        byte[] edited = new byte[original.length + 100];
+        System.arraycopy(original, 0, edited, 0, 1000);
+        System.arraycopy(randomBytes(100, 3), 0, edited, 1000, 100);
+        System.arraycopy(original, 1000, edited, 1100, original.length - 1000);
+
+        // Act
+        Set<String> originalChunks = chunks(original);
+        Set<String> editedChunks = chunks(edited);
+
+        // Assert
+        Set<String> shared = new HashSet<>(editedChunks);
+        shared.retainAll(originalChunks);
+        assertTrue(shared.size() >= editedChunks.size() - 2,
+                "Only the chunks around the edit should change, shared " + shared.size() + " of " + editedChunks.size());
+    }
+
+    private Set<String> chunks(byte[] data) throws IOException {
+        Set<String> chunks = new HashSet<>();
+        chunker.split(new ByteArrayInputStream(data), (buffer, offset, length) ->
+                chunks.add(Arrays.toString(Arrays.copyOfRange(buffer, offset, offset + length)))
+        );
+        return chunks;
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
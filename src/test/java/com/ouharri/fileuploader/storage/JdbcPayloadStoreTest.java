@@ -0,0 +1,156 @@
+package com.ouharri.fileuploader.storage;
+
+import com.ouharri.fileuploader.cache.CacheNames;
+import com.ouharri.fileuploader.cache.NearCacheManager;
+import com.ouharri.fileuploader.crypto.EncryptionProperties;
+import com.ouharri.fileuploader.crypto.PayloadCipher;
+import com.ouharri.fileuploader.datasource.ShardRouter;
+import com.ouharri.fileuploader.integrity.PayloadVerifier;
+import com.ouharri.fileuploader.partition.FileIds;
+import com.ouharri.fileuploader.repository.projection.FileSummary;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link JdbcPayloadStore} class, against an in-memory database.
+ *
+ * @see JdbcPayloadStore
+ */
+class JdbcPayloadStoreTest {
+
+    private static final JdbcTemplate JDBC_TEMPLATE = new JdbcTemplate(new SimpleDriverDataSource(
+            new org.h2.Driver(), "jdbc:h2:mem:payloads;DB_CLOSE_DELAY=-1", "sa", ""
+    ));
+
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final PayloadVerifier payloadVerifier = mock(PayloadVerifier.class);
+    private final ConcurrentMapCacheManager remoteCacheManager = new ConcurrentMapCacheManager();
+    private final NearCacheManager cacheManager = new NearCacheManager(remoteCacheManager, ObservationRegistry.NOOP,
+            100, DataSize.ofMegabytes(1).toBytes(), value -> 0, Duration.ofHours(1));
+    private final BufferPool bufferPool = new BufferPool(new BufferProperties(List.of(DataSize.ofKilobytes(1)), 2, DataSize.ofKilobytes(1), false));
+
+    @BeforeAll
+    static void createTable() {
+        JDBC_TEMPLATE.execute("""
+                CREATE TABLE files (
+                    id UUID PRIMARY KEY, name VARCHAR(255), type VARCHAR(255), size BIGINT, version BIGINT,
+                    created_at TIMESTAMP, updated_at TIMESTAMP, expires_at TIMESTAMP, deleted_at TIMESTAMP, storage VARCHAR(8),
+                    crc32c INT, sha256 VARCHAR(64), data_key VARBINARY(128), data VARBINARY(4096)
+                )
+                """);
+    }
+
+    @BeforeEach
+    void setUp() {
+        JDBC_TEMPLATE.update("DELETE FROM files");
+        when(shardRouter.on(any(UUID.class), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+    }
+
+    private JdbcPayloadStore store(DataSize maxCachedPayloadSize) throws IOException {
+        return new JdbcPayloadStore(JDBC_TEMPLATE, shardRouter, mock(PackFileStore.class), payloadVerifier,
+                new PayloadCipher(new EncryptionProperties(false, null, DataSize.ofKilobytes(64))), ObservationRegistry.NOOP,
+                cacheManager, bufferPool, maxCachedPayloadSize);
+    }
+
+    private static UUID insert(String content) {
+        UUID id = FileIds.newId();
+        JDBC_TEMPLATE.update("INSERT INTO files (id, name, type, size, version, created_at, storage, data) VALUES (?, 'notes.txt', 'text/plain', ?, 0, ?, 'DB', ?)",
+                id, content.length(), FileIds.createdAt(id), content.getBytes());
+        return id;
+    }
+
+    private static String download(JdbcPayloadStore store, UUID id) throws IOException {
+        AtomicReference<String> content = new AtomicReference<>();
+        boolean found = store.read(id, (metadata, payload) -> {
+            try (InputStream in = payload.stream()) {
+                content.set(new String(in.readAllBytes()));
+            }
+        });
+        return found ? content.get() : null;
+    }
+
+    @Test
+    void read_ServesSmallPlainPayloadFromCache() throws IOException {
+        // Arrange
+        JdbcPayloadStore store = store(DataSize.ofKilobytes(64));
+        UUID id = insert("hello");
+
+        // Act
+        String first = download(store, id);
+        JDBC_TEMPLATE.update("DELETE FROM files");
+        String second = download(store, id);
+
+        // Assert
+        assertEquals("hello", first);
+        assertEquals("hello", second);
+        verify(shardRouter, times(1)).on(eq(id), any());
+        assertNull(remoteCacheManager.getCache(CacheNames.FILE).get(id));
+        assertEquals(0, bufferPool.outstanding());
+    }
+
+    @Test
+    void read_DoesNotCacheLargePayload() throws IOException {
+        // Arrange
+        JdbcPayloadStore store = store(DataSize.ofBytes(4));
+        UUID id = insert("hello");
+
+        // Act
+        String first = download(store, id);
+        JDBC_TEMPLATE.update("DELETE FROM files");
+        String second = download(store, id);
+
+        // Assert
+        assertEquals("hello", first);
+        assertNull(second);
+        assertEquals(0, bufferPool.outstanding());
+    }
+
+    @Test
+    void read_SkipsExpiredCachedFile() throws IOException {
+        // Arrange
+        JdbcPayloadStore store = store(DataSize.ofKilobytes(64));
+        UUID id = UUID.randomUUID();
+        FileSummary metadata = new FileSummary(id, "notes.txt", "text/plain", 5L, 0L, null);
+        cacheManager.putLocal(CacheNames.FILE, id, CachedPayload.of(metadata, new Timestamp(System.currentTimeMillis() - 1000), ByteBuffer.wrap("hello".getBytes())));
+
+        // Act
+        String content = download(store, id);
+
+        // Assert
+        assertNull(content);
+    }
+
+    @Test
+    void read_StreamsPayloadLargerThanPooledBuffers() throws IOException {
+        // Arrange
+        JdbcPayloadStore store = store(DataSize.ofBytes(0));
+        String content = "0123456789abcdef".repeat(128);
+        UUID id = insert(content);
+
+        // Act
+        String downloaded = download(store, id);
+
+        // Assert
+        assertEquals(content, downloaded);
+        assertEquals(0, bufferPool.outstanding());
+    }
+}
@@ -0,0 +1,123 @@
+package com.ouharri.fileuploader.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PackFileStore} class.
+ *
+ * @see PackFileStore
+ */
+class PackFileStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private PackFileStore open() throws IOException {
+        PackFileStore store = new PackFileStore(new PackProperties(
+                true, directory.toString(), DataSize.ofKilobytes(1), DataSize.ofKilobytes(4), false, 0.5
+        ));
+        store.open();
+        return store;
+    }
+
+    private static byte[] payload(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+            data[i] = (byte) (seed + i);
+        return data;
+    }
+
+    @Test
+    void put_ReadsBackLatestPayload() throws IOException {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        try (PackFileStore store = open()) {
+
+            // Act
+            store.put(id, payload(100, 1));
+            store.put(id, payload(200, 2));
+
+            // Assert
+            ByteBuffer payload = store.read(id).orElseThrow();
+            assertTrue(payload.isDirect());
+            assertArrayEquals(payload(200, 2), store.readBytes(id).orElseThrow());
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void open_RebuildsIndexAndDropsTornRecord() throws IOException {
+        // Arrange
+        UUID kept = UUID.randomUUID();
+        UUID deleted = UUID.randomUUID();
+        UUID torn = UUID.randomUUID();
+        try (PackFileStore store = open()) {
+            store.put(kept, payload(300, 3));
+            store.put(deleted, payload(300, 4));
+            store.delete(deleted);
+            store.put(torn, payload(300, 5));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), 4L * PackFileStore.HEADER_SIZE + 600 + 50);
+        }
+
+        // Act
+        try (PackFileStore store = open()) {
+
+            // Assert
+            assertArrayEquals(payload(300, 3), store.readBytes(kept).orElseThrow());
+            assertTrue(store.read(deleted).isEmpty());
+            assertTrue(store.read(torn).isEmpty());
+            store.put(torn, payload(10, 6));
+            assertArrayEquals(payload(10, 6), store.readBytes(torn).orElseThrow());
+        }
+    }
+
+    @Test
+    void compact_MovesLivePayloadsAndDeletesSegment() throws IOException {
+        // Arrange
+        UUID live = UUID.randomUUID();
+        UUID next = UUID.randomUUID();
+        UUID[] dead = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        try (PackFileStore store = open()) {
+            store.put(live, payload(900, 7));
+            for (UUID id : dead)
+                store.put(id, payload(900, 8));
+            for (UUID id : dead)
+                store.delete(id);
+            store.put(next, payload(900, 9));
+            int segments = store.segmentCount();
+
+            // Act
+            int compacted = store.compact();
+
+            // Assert
+            assertEquals(1, compacted);
+            assertEquals(segments - 1, store.segmentCount());
+            assertArrayEquals(payload(900, 7), store.readBytes(live).orElseThrow());
+            assertArrayEquals(payload(900, 9), store.readBytes(next).orElseThrow());
+        }
+        try (PackFileStore store = open()) {
+            assertArrayEquals(payload(900, 7), store.readBytes(live).orElseThrow());
+            for (UUID id : dead)
+                assertTrue(store.read(id).isEmpty());
+        }
+    }
+}